@@ -0,0 +1,262 @@
+package com.example.todolist.adapter;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.todolist.R;
+import com.example.todolist.model.Task;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Counts binds and times the layout pass after an update, diffed snapshots against a plain notifyDataSetChanged
+ */
+@RunWith(AndroidJUnit4.class)
+public class TaskAdapterBindTest {
+    private static final int TASK_COUNT = 500;
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+
+    private Instrumentation instrumentation;
+    private Context context;
+    private RecyclerView recyclerView;
+
+    @Before
+    public void setUp() {
+        instrumentation = InstrumentationRegistry.getInstrumentation();
+        context = new ContextThemeWrapper(instrumentation.getTargetContext(), R.style.Theme_ToDoList);
+    }
+
+    @Test
+    public void togglingCompletionRebindsOneRowWithPayload() throws Exception {
+        List<Task> tasks = createTasks(TASK_COUNT);
+        CountingTaskAdapter adapter = attach(() -> new CountingTaskAdapter(tasks));
+        adapter.reset();
+
+        tasks.get(0).setCompleted(true);
+        submitAndLayout(adapter, () -> adapter.updateTasks(tasks));
+
+        assertEquals(1, adapter.payloadBinds);
+        assertEquals(0, adapter.fullBinds);
+    }
+
+    @Test
+    public void editingTitleRebindsOneRowFully() throws Exception {
+        List<Task> tasks = createTasks(TASK_COUNT);
+        CountingTaskAdapter adapter = attach(() -> new CountingTaskAdapter(tasks));
+        adapter.reset();
+
+        tasks.get(1).setTitle("Việc đã sửa");
+        submitAndLayout(adapter, () -> adapter.updateTasks(tasks));
+
+        assertEquals(1, adapter.fullBinds);
+    }
+
+    @Test
+    public void unchangedListBindsNothing() throws Exception {
+        List<Task> tasks = createTasks(TASK_COUNT);
+        CountingTaskAdapter adapter = attach(() -> new CountingTaskAdapter(tasks));
+        adapter.reset();
+
+        // Nothing changes, so there is no adapter event to wait for: let the diff land, then lay out
+        instrumentation.runOnMainSync(() -> adapter.updateTasks(tasks));
+        Thread.sleep(500);
+        instrumentation.waitForIdleSync();
+        layout();
+
+        assertEquals(0, adapter.fullBinds + adapter.payloadBinds);
+    }
+
+    @Test
+    public void diffedUpdateIsCheaperThanDataSetChanged() throws Exception {
+        List<Task> tasks = createTasks(TASK_COUNT);
+        CountingTaskAdapter adapter = attach(() -> new CountingTaskAdapter(tasks));
+        int visibleRows = recyclerView.getChildCount();
+        assertTrue(visibleRows > 1);
+
+        adapter.reset();
+        tasks.get(2).setImportant(true);
+        long diffedNanos = submitAndLayout(adapter, () -> adapter.updateTasks(tasks));
+        int diffedBinds = adapter.fullBinds + adapter.payloadBinds;
+
+        adapter.reset();
+        long[] fullNanos = new long[1];
+        instrumentation.runOnMainSync(() -> {
+            adapter.notifyDataSetChanged();
+            fullNanos[0] = measureAndLayout();
+        });
+        int fullBinds = adapter.fullBinds + adapter.payloadBinds;
+
+        assertEquals(1, diffedBinds);
+        assertEquals(visibleRows, fullBinds);
+        assertTrue(visibleRows + " visible rows: diffed layout " + diffedNanos / 1000
+                        + " us, notifyDataSetChanged layout " + fullNanos[0] / 1000 + " us",
+                diffedNanos < fullNanos[0]);
+    }
+
+    @Test
+    public void completedStarToggleIsPartialButUncheckIsFull() throws Exception {
+        List<Task> tasks = createTasks(50);
+        for (Task task : tasks) {
+            task.setCompleted(true);
+        }
+        Map<String, List<Task>> grouped = Collections.singletonMap("18/10/2026", tasks);
+        CountingCompletedAdapter adapter = attach(() -> new CountingCompletedAdapter(grouped));
+        adapter.reset();
+
+        tasks.get(0).setImportant(true);
+        submitAndLayout(adapter, () -> adapter.updateGroupedTasks(grouped));
+        assertEquals(1, adapter.payloadBinds);
+        assertEquals(0, adapter.fullBinds);
+
+        adapter.reset();
+        tasks.get(1).setCompleted(false);
+        submitAndLayout(adapter, () -> adapter.updateGroupedTasks(grouped));
+        assertEquals(1, adapter.fullBinds);
+    }
+
+    private interface AdapterFactory<A extends RecyclerView.Adapter<?>> {
+        A create();
+    }
+
+    private <A extends RecyclerView.Adapter<?>> A attach(AdapterFactory<A> factory) {
+        List<A> holder = new ArrayList<>(1);
+        instrumentation.runOnMainSync(() -> {
+            A adapter = factory.create();
+            recyclerView = new RecyclerView(context);
+            recyclerView.setLayoutManager(new LinearLayoutManager(context));
+            // No change animations, so a payload bind reuses the holder on screen instead of a scrap copy
+            recyclerView.setItemAnimator(null);
+            recyclerView.setAdapter(adapter);
+            measureAndLayout();
+            holder.add(adapter);
+        });
+        return holder.get(0);
+    }
+
+    // Submits on the main thread, waits for the background diff to post its change event, then times the layout pass
+    private long submitAndLayout(RecyclerView.Adapter<?> adapter, Runnable submit) throws InterruptedException {
+        CountDownLatch changed = new CountDownLatch(1);
+        RecyclerView.AdapterDataObserver observer = new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                changed.countDown();
+            }
+
+            @Override
+            public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+                changed.countDown();
+            }
+        };
+        instrumentation.runOnMainSync(() -> {
+            adapter.registerAdapterDataObserver(observer);
+            submit.run();
+        });
+        assertTrue(changed.await(5, TimeUnit.SECONDS));
+        long nanos = layout();
+        instrumentation.runOnMainSync(() -> adapter.unregisterAdapterDataObserver(observer));
+        return nanos;
+    }
+
+    private long layout() {
+        long[] nanos = new long[1];
+        instrumentation.runOnMainSync(() -> nanos[0] = measureAndLayout());
+        return nanos[0];
+    }
+
+    private long measureAndLayout() {
+        long start = System.nanoTime();
+        recyclerView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        recyclerView.layout(0, 0, WIDTH, HEIGHT);
+        return System.nanoTime() - start;
+    }
+
+    private static List<Task> createTasks(int count) {
+        List<Task> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Task task = new Task("Công việc " + i, null, "18/10/2026", "09:00");
+            task.setId("task-" + i);
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    private static class CountingTaskAdapter extends TaskAdapter {
+        int fullBinds;
+        int payloadBinds;
+
+        CountingTaskAdapter(List<Task> tasks) {
+            super(tasks, null);
+        }
+
+        void reset() {
+            fullBinds = 0;
+            payloadBinds = 0;
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull TaskViewHolder holder, int position) {
+            fullBinds++;
+            super.onBindViewHolder(holder, position);
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull TaskViewHolder holder, int position, @NonNull List<Object> payloads) {
+            int changes = TaskRowSnapshot.mergePayloads(payloads);
+            if (!payloads.isEmpty() && (changes & TaskRowSnapshot.PAYLOAD_FULL) == 0) {
+                payloadBinds++;
+            }
+            super.onBindViewHolder(holder, position, payloads);
+        }
+    }
+
+    private static class CountingCompletedAdapter extends CompletedTasksAdapter {
+        int fullBinds;
+        int payloadBinds;
+
+        CountingCompletedAdapter(Map<String, List<Task>> groupedTasks) {
+            super(groupedTasks, null);
+        }
+
+        void reset() {
+            fullBinds = 0;
+            payloadBinds = 0;
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+            fullBinds++;
+            super.onBindViewHolder(holder, position);
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position, @NonNull List<Object> payloads) {
+            int changes = TaskRowSnapshot.mergePayloads(payloads);
+            if (!payloads.isEmpty() && (changes & ~TaskRowSnapshot.PAYLOAD_STAR) == 0) {
+                payloadBinds++;
+            }
+            super.onBindViewHolder(holder, position, payloads);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.todolist.database;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.room.testing.MigrationTestHelper;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.todolist.database.entity.SubTaskEntity;
+import com.example.todolist.database.entity.TaskEntity;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Migrates a version 1 database, as the first release created it, through every migration to the current schema.
+ * The builder has no destructive fallback, so a broken migration fails here instead of wiping user data.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ToDoDatabaseMigrationTest {
+    private static final String TEST_DB = "migration-test";
+
+    @Rule
+    public MigrationTestHelper helper = new MigrationTestHelper(
+            InstrumentationRegistry.getInstrumentation(), ToDoDatabase.class);
+
+    @Test
+    public void migrateAllFromVersion1() throws Exception {
+        SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 1);
+        db.execSQL("INSERT INTO tasks (id, title, description, dueDate, dueTime, isCompleted, isImportant, categoryId, "
+                + "reminderType, hasReminder, attachments, repeatType, isRepeating, completionDate, createdAt, updatedAt) "
+                + "VALUES ('t1', 'Đi chợ', 'mua rau', '18/10/2026', '09:00', 0, 1, 'work', 'none', 0, NULL, 'none', 0, "
+                + "NULL, '01/10/2026', '02/10/2026')");
+        db.execSQL("INSERT INTO tasks (id, title, description, dueDate, dueTime, isCompleted, isImportant, categoryId, "
+                + "reminderType, hasReminder, attachments, repeatType, isRepeating, completionDate, createdAt, updatedAt) "
+                + "VALUES ('t2', 'Báo cáo', NULL, '2026/10/19', NULL, 1, 0, 'work', 'none', 0, NULL, 'none', 0, "
+                + "'2026/10/17', '01/10/2026', '02/10/2026')");
+        db.execSQL("INSERT INTO subtasks (id, taskId, title, isCompleted, createdAt) VALUES ('s1', 't1', 'Mua sữa', 0, '01/10/2026')");
+        db.close();
+
+        helper.runMigrationsAndValidate(TEST_DB, 10, true, ToDoDatabase.ALL_MIGRATIONS).close();
+
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        ToDoDatabase database = Room.databaseBuilder(context, ToDoDatabase.class, TEST_DB)
+                .addMigrations(ToDoDatabase.ALL_MIGRATIONS)
+                .allowMainThreadQueries()
+                .build();
+        try {
+            TaskEntity first = database.taskDao().getTaskById("t1");
+            assertNotNull(first);
+            assertEquals(Long.valueOf(LocalDate.of(2026, 10, 18).toEpochDay()), first.dueEpochDay);
+            assertNotNull(first.createdAtMillis);
+
+            // Legacy yyyy/MM/dd dates are backfilled too
+            TaskEntity second = database.taskDao().getTaskById("t2");
+            assertEquals(Long.valueOf(LocalDate.of(2026, 10, 19).toEpochDay()), second.dueEpochDay);
+            assertEquals(Long.valueOf(LocalDate.of(2026, 10, 17).toEpochDay()), second.completionEpochDay);
+
+            List<SubTaskEntity> subTasks = database.subTaskDao().getSubTasksByTaskId("t1");
+            assertEquals(1, subTasks.size());
+
+            // The search index was rebuilt from the existing rows, subtask titles included
+            List<TaskEntity> found = database.taskDao().searchTasks(TaskSearchIndex.buildMatchQuery("sua"));
+            assertEquals(1, found.size());
+            assertEquals("t1", found.get(0).id);
+
+            assertEquals(0, database.pendingOperationDao().getDueOperations("a@b.c", Long.MAX_VALUE, 10).size());
+        } finally {
+            database.close();
+        }
+    }
+}
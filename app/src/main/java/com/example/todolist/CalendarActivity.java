@@ -13,11 +13,13 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.view.GravityCompat;
 import androidx.drawerlayout.widget.DrawerLayout;
 import com.example.todolist.cache.TaskCache;
+import com.example.todolist.cache.TaskChangeSet;
 import com.example.todolist.helper.calendar.CalendarTaskHelper;
 import com.example.todolist.helper.calendar.CalendarViewHelper;
 import com.example.todolist.manager.NavigationDrawerManager;
 import com.example.todolist.manager.ThemeManager;
 import com.example.todolist.model.Task;
+import com.example.todolist.service.AppServices;
 import com.example.todolist.service.TaskService;
 import com.example.todolist.util.AddTaskHandler;
 import com.example.todolist.util.SettingsManager;
@@ -31,7 +33,7 @@ import java.util.Locale;
 public class CalendarActivity extends AppCompatActivity
         implements CalendarViewHelper.OnDayClickListener, CalendarTaskHelper.TaskLoadListener,
         NavigationDrawerManager.NavigationListener, ThemeManager.ThemeChangeListener, 
-        TaskCache.TaskCacheListener {
+        TaskCache.TaskCacheDeltaListener {
     private TextView tvMonth, tvYear;
     private GridLayout calendarGrid;
     private LinearLayout taskInfoContainer, weekTaskInfoContainer;
@@ -79,7 +81,7 @@ public class CalendarActivity extends AppCompatActivity
         calendarScrollView = findViewById(R.id.calendar_scroll_view);
         weekViewContainer = findViewById(R.id.week_view_container);
         weekGrid = findViewById(R.id.week_grid);
-        taskService = new TaskService(this, null);
+        taskService = AppServices.getInstance(this).getTaskService();
         taskCache = TaskCache.getInstance();
         taskCache.addListener(this);
         taskService.loadTasks(); 
@@ -200,6 +202,13 @@ public class CalendarActivity extends AppCompatActivity
         updateTaskDisplay();
     }
 
+    @Override
+    public void onTasksChanged(TaskChangeSet changes) {
+        if (selectedDay != -1) {
+            loadTasksFromCache();
+        }
+    }
+
     @Override
     public void onTasksUpdated(List<Task> allTasks) {
         if (selectedDay != -1) {
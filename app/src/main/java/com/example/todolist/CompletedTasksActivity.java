@@ -12,6 +12,7 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.todolist.adapter.CompletedTasksAdapter;
 import com.example.todolist.cache.TaskCache;
+import com.example.todolist.cache.TaskChangeSet;
 import com.example.todolist.model.Task;
 import com.example.todolist.service.TaskService;
 import com.example.todolist.util.SettingsManager;
@@ -26,7 +27,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-public class CompletedTasksActivity extends AppCompatActivity implements CompletedTasksAdapter.OnCompletedTaskClickListener, TaskCache.TaskCacheListener {
+public class CompletedTasksActivity extends AppCompatActivity implements CompletedTasksAdapter.OnCompletedTaskClickListener, TaskCache.TaskCacheDeltaListener {
     private ImageView btnBack;
     private RecyclerView recyclerCompletedTasks;
     private CompletedTasksAdapter completedTasksAdapter;
@@ -188,6 +189,11 @@ public class CompletedTasksActivity extends AppCompatActivity implements Complet
             taskService.cleanup();
         }
     }
+    @Override
+    public void onTasksChanged(TaskChangeSet changes) {
+        loadCompletedTasks();
+    }
+
     @Override
     public void onTasksUpdated(List<Task> tasks) {
         loadCompletedTasks();
@@ -35,6 +35,7 @@ import com.example.todolist.util.AddTaskHandler;
 import com.example.todolist.util.FirebaseMigrationHelper;
 import com.example.todolist.util.NotificationPermissionHelper;
 import com.example.todolist.util.SortType;
+import com.example.todolist.util.StartupTrace;
 import com.example.todolist.util.TaskActionsDialog;
 import com.example.todolist.cache.SharedTaskCacheManager;
 import com.example.todolist.service.sharing.SharedTaskSyncService;
@@ -81,6 +82,7 @@ public class MainActivity extends AppCompatActivity implements
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        StartupTrace.mark(StartupTrace.MAIN_CREATED);
         applyLanguageFromSettings();
         setContentView(R.layout.activity_main);
         initViews();
@@ -162,7 +164,8 @@ public class MainActivity extends AppCompatActivity implements
         
         taskService = new TaskService(this, this);
         categoryService = new CategoryService(this, this);
-        searchManager = new SearchManager(layoutSearch, findViewById(R.id.layout_filter_tabs), editSearch, btnCancelSearch, this);
+        searchManager = new SearchManager(layoutSearch, findViewById(R.id.layout_filter_tabs), editSearch, btnCancelSearch,
+                taskService, this);
         filterManager = new FilterManager(this, layoutCategoriesContainer, 
                 findViewById(R.id.layout_empty_state), tvEmptyTitle, this);
         sectionManager = new SectionManager(
@@ -193,12 +196,12 @@ public class MainActivity extends AppCompatActivity implements
         sharedTaskSyncService.addUpdateListener(new SharedTaskSyncService.SharedTaskUpdateListener() {
             @Override
             public void onSharedTaskUpdated(Task task) {
-                runOnUiThread(() -> taskService.loadTasks());
+                // Thay đổi đã được áp dụng qua TaskCache
             }
 
             @Override
             public void onSubTaskUpdated(String taskId, com.example.todolist.model.SubTask subTask) {
-                runOnUiThread(() -> taskService.loadTasks());
+                // Thay đổi đã được áp dụng qua TaskCache
             }
 
             @Override
@@ -430,6 +433,7 @@ public class MainActivity extends AppCompatActivity implements
                     filterManager.getFilteredFutureTasks(),
                     filterManager.getFilteredCompletedTodayTasks()
             );
+            StartupTrace.mark(StartupTrace.FIRST_TASK_LIST);
         }, 100); 
     }
     @Override
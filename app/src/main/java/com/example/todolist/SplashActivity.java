@@ -7,7 +7,10 @@ import android.animation.ObjectAnimator;
 import android.content.Intent;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.view.View;
+import android.view.ViewGroup;
 import android.view.animation.Animation;
 import android.view.animation.AnimationUtils;
 import android.view.animation.DecelerateInterpolator;
@@ -18,11 +21,22 @@ import android.widget.TextView;
 
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.example.todolist.cache.TaskCacheWarmer;
+import com.example.todolist.util.StartupTrace;
+
 public class SplashActivity extends AppCompatActivity {
 
-    private static final int SPLASH_DURATION = 2000; // Giảm xuống 2 giây
+    // Splash đóng ngay khi task đã được nạp, nhưng đủ lâu để logo hiện xong và không quá 2 giây
+    private static final int MIN_SPLASH_DURATION = 800;
+    private static final int MAX_SPLASH_DURATION = 2000;
     private static final int ANIMATION_DELAY = 100;
     
+    private final Handler navigationHandler = new Handler(Looper.getMainLooper());
+    private long shownAt;
+    private boolean taskCacheReady;
+    private boolean taskRowInflated;
+    private boolean navigated;
+    
     private View circleOuter, circleMiddle, circleInner;
     private com.google.android.material.imageview.ShapeableImageView appLogo;
     private View logoShadow;
@@ -33,21 +47,61 @@ public class SplashActivity extends AppCompatActivity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        StartupTrace.mark(StartupTrace.SPLASH_CREATED);
+        shownAt = SystemClock.uptimeMillis();
         setContentView(R.layout.activity_splash);
         
+        // Start reading tasks from Room while the animation plays
+        TaskCacheWarmer.getInstance().prewarm(this);
+        TaskCacheWarmer.getInstance().whenReady(() -> {
+            taskCacheReady = true;
+            navigateWhenReady();
+        });
+        
         // Initialize views
         initViews();
         
         // Start animations
         startAnimations();
         
-        // Navigate to MainActivity after splash duration
-        new Handler().postDelayed(() -> {
-            Intent intent = new Intent(SplashActivity.this, MainActivity.class);
-            startActivity(intent);
-            overridePendingTransition(android.R.anim.fade_in, android.R.anim.fade_out);
-            finish();
-        }, SPLASH_DURATION);
+        // Inflate a task row the first time the main thread is idle
+        Looper.myQueue().addIdleHandler(() -> {
+            preinflateTaskRow();
+            taskRowInflated = true;
+            navigateWhenReady();
+            return false;
+        });
+        
+        // Navigate to MainActivity even if loading takes too long
+        navigationHandler.postDelayed(this::navigateToMain, MAX_SPLASH_DURATION);
+    }
+    
+    // The first inflation of item_task loads its view classes and drawables, MainActivity reuses those caches
+    private void preinflateTaskRow() {
+        ViewGroup parent = findViewById(android.R.id.content);
+        getLayoutInflater().inflate(R.layout.item_task, parent, false);
+        StartupTrace.mark(StartupTrace.TASK_ROW_INFLATED);
+    }
+    
+    private void navigateWhenReady() {
+        if (!taskCacheReady || !taskRowInflated) return;
+        long remaining = MIN_SPLASH_DURATION - (SystemClock.uptimeMillis() - shownAt);
+        if (remaining > 0) {
+            navigationHandler.postDelayed(this::navigateToMain, remaining);
+        } else {
+            navigateToMain();
+        }
+    }
+    
+    private void navigateToMain() {
+        if (navigated || isFinishing() || isDestroyed()) return;
+        navigated = true;
+        navigationHandler.removeCallbacksAndMessages(null);
+        StartupTrace.mark(StartupTrace.SPLASH_FINISHED);
+        Intent intent = new Intent(SplashActivity.this, MainActivity.class);
+        startActivity(intent);
+        overridePendingTransition(android.R.anim.fade_in, android.R.anim.fade_out);
+        finish();
     }
     
     private void initViews() {
@@ -192,6 +246,12 @@ public class SplashActivity extends AppCompatActivity {
         alpha.start();
     }
     
+    @Override
+    protected void onDestroy() {
+        navigationHandler.removeCallbacksAndMessages(null);
+        super.onDestroy();
+    }
+    
     @Override
     public void onBackPressed() {
         // Disable back button on splash screen
@@ -23,6 +23,7 @@ import com.example.todolist.R;
 import com.example.todolist.manager.AuthManager;
 import com.example.todolist.manager.FirebaseSyncManager;
 import com.example.todolist.manager.SyncManager;
+import com.example.todolist.service.AppServices;
 import com.example.todolist.service.TaskService;
 
 public class SyncAccountActivity extends AppCompatActivity {
@@ -57,7 +58,7 @@ public class SyncAccountActivity extends AppCompatActivity {
         firebaseSyncManager.initialize(this);
         
         // Initialize TaskService for sync operations
-        taskService = new TaskService(this, null);
+        taskService = AppServices.getInstance(this).getTaskService();
         
         initializeViews();
         setupClickListeners();
@@ -5,6 +5,8 @@ import android.app.NotificationChannel;
 import android.app.NotificationManager;
 import android.os.Build;
 
+import com.example.todolist.util.StartupTrace;
+
 public class TodoApplication extends Application {
     
     public static final String NOTIFICATION_CHANNEL_ID = "task_reminders";
@@ -12,6 +14,7 @@ public class TodoApplication extends Application {
     @Override
     public void onCreate() {
         super.onCreate();
+        StartupTrace.mark(StartupTrace.APP_CREATED);
         createNotificationChannel();
     }
     
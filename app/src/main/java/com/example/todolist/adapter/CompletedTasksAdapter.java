@@ -8,12 +8,16 @@ import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.todolist.R;
 import com.example.todolist.model.Task;
+import com.example.todolist.util.DateCodec;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
@@ -21,7 +25,36 @@ import java.util.Map;
 public class CompletedTasksAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
     private static final int TYPE_DATE_HEADER = 0;
     private static final int TYPE_TASK_ITEM = 1;
-    private List<Object> items; 
+    private static final DiffUtil.ItemCallback<Object> DIFF_CALLBACK = new DiffUtil.ItemCallback<Object>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Object oldItem, @NonNull Object newItem) {
+            if (oldItem instanceof String && newItem instanceof String) {
+                return oldItem.equals(newItem);
+            }
+            if (oldItem instanceof TaskRowSnapshot && newItem instanceof TaskRowSnapshot) {
+                return ((TaskRowSnapshot) oldItem).isSameTask((TaskRowSnapshot) newItem);
+            }
+            return false;
+        }
+        @Override
+        public boolean areContentsTheSame(@NonNull Object oldItem, @NonNull Object newItem) {
+            if (oldItem instanceof String) {
+                return oldItem.equals(newItem);
+            }
+            return ((TaskRowSnapshot) oldItem).diff((TaskRowSnapshot) newItem) == 0;
+        }
+        @Override
+        public Object getChangePayload(@NonNull Object oldItem, @NonNull Object newItem) {
+            if (oldItem instanceof TaskRowSnapshot) {
+                return ((TaskRowSnapshot) oldItem).diff((TaskRowSnapshot) newItem);
+            }
+            return null;
+        }
+    };
+    // Items are date header strings followed by the TaskRowSnapshot rows of that date
+    private final AsyncListDiffer<Object> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
+    private final Map<String, Long> stableIds = new HashMap<>();
+    private long nextStableId = 0;
     private OnCompletedTaskClickListener listener;
     public interface OnCompletedTaskClickListener {
         void onCompletedTaskClick(Task task);
@@ -30,25 +63,53 @@ public class CompletedTasksAdapter extends RecyclerView.Adapter<RecyclerView.Vie
     }
     public CompletedTasksAdapter(Map<String, List<Task>> groupedTasks, OnCompletedTaskClickListener listener) {
         this.listener = listener;
-        this.items = new ArrayList<>();
+        setHasStableIds(true);
         updateGroupedTasks(groupedTasks);
     }
     public void updateGroupedTasks(Map<String, List<Task>> groupedTasks) {
-        items.clear();
+        List<Object> items = new ArrayList<>();
         List<String> sortedDates = new ArrayList<>(groupedTasks.keySet());
-        sortedDates.sort((d1, d2) -> d2.compareTo(d1));
+        sortedDates.sort((d1, d2) -> compareDatesDescending(d1, d2));
         for (String date : sortedDates) {
             items.add(date);
             List<Task> tasks = groupedTasks.get(date);
             if (tasks != null) {
-                items.addAll(tasks);
+                for (Task task : tasks) {
+                    items.add(new TaskRowSnapshot(task));
+                }
             }
         }
-        notifyDataSetChanged();
+        differ.submitList(items);
+    }
+    private static int compareDatesDescending(String d1, String d2) {
+        Long day1 = DateCodec.parseEpochDay(d1);
+        Long day2 = DateCodec.parseEpochDay(d2);
+        if (day1 != null && day2 != null) {
+            return Long.compare(day2, day1);
+        }
+        return d2.compareTo(d1);
     }
     @Override
     public int getItemViewType(int position) {
-        return items.get(position) instanceof String ? TYPE_DATE_HEADER : TYPE_TASK_ITEM;
+        return differ.getCurrentList().get(position) instanceof String ? TYPE_DATE_HEADER : TYPE_TASK_ITEM;
+    }
+    @Override
+    public long getItemId(int position) {
+        Object item = differ.getCurrentList().get(position);
+        String key;
+        if (item instanceof String) {
+            key = "date:" + item;
+        } else if (((TaskRowSnapshot) item).id != null) {
+            key = "task:" + ((TaskRowSnapshot) item).id;
+        } else {
+            return RecyclerView.NO_ID;
+        }
+        Long stableId = stableIds.get(key);
+        if (stableId == null) {
+            stableId = nextStableId++;
+            stableIds.put(key, stableId);
+        }
+        return stableId;
     }
     @NonNull
     @Override
@@ -65,17 +126,28 @@ public class CompletedTasksAdapter extends RecyclerView.Adapter<RecyclerView.Vie
     }
     @Override
     public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+        Object item = differ.getCurrentList().get(position);
         if (holder instanceof DateHeaderViewHolder) {
-            String date = (String) items.get(position);
-            ((DateHeaderViewHolder) holder).bind(date);
+            ((DateHeaderViewHolder) holder).bind((String) item);
         } else if (holder instanceof CompletedTaskViewHolder) {
-            Task task = (Task) items.get(position);
-            ((CompletedTaskViewHolder) holder).bind(task);
+            ((CompletedTaskViewHolder) holder).bind(((TaskRowSnapshot) item).task);
         }
     }
     @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        int changes = TaskRowSnapshot.mergePayloads(payloads);
+        if (payloads.isEmpty() || !(holder instanceof CompletedTaskViewHolder)
+                || (changes & ~TaskRowSnapshot.PAYLOAD_STAR) != 0) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        Task task = ((TaskRowSnapshot) differ.getCurrentList().get(position)).task;
+        ((CompletedTaskViewHolder) holder).bindStar(task);
+        ((CompletedTaskViewHolder) holder).bindListeners(task);
+    }
+    @Override
     public int getItemCount() {
-        return items.size();
+        return differ.getCurrentList().size();
     }
     class DateHeaderViewHolder extends RecyclerView.ViewHolder {
         private TextView textDate;
@@ -154,19 +226,24 @@ public class CompletedTasksAdapter extends RecyclerView.Adapter<RecyclerView.Vie
             } else {
                 textTaskDateTime.setVisibility(View.GONE);
             }
-            checkboxComplete.setOnClickListener(v -> {
-                if (listener != null) {
-                    listener.onCompletedTaskUncheck(task);
-                }
-            });
-
             iconNotification.setVisibility(task.isHasReminder() ? View.VISIBLE : View.GONE);
             iconRepeat.setVisibility(task.isRepeating() ? View.VISIBLE : View.GONE);
             iconNotes.setVisibility(task.getDescription() != null && 
                                    !task.getDescription().trim().isEmpty() ? View.VISIBLE : View.GONE);
             iconAttachment.setVisibility(task.hasAttachments() ? View.VISIBLE : View.GONE);           
             iconSubtask.setVisibility(task.getSubTasks() != null && !task.getSubTasks().isEmpty() ? View.VISIBLE : View.GONE);
+            bindStar(task);
+            bindListeners(task);
+        }
+        void bindStar(Task task) {
             iconStar.setVisibility(task.isImportant() ? View.VISIBLE : View.GONE);
+        }
+        void bindListeners(Task task) {
+            checkboxComplete.setOnClickListener(v -> {
+                if (listener != null) {
+                    listener.onCompletedTaskUncheck(task);
+                }
+            });
             taskBackground.setOnClickListener(v -> {
                 if (listener != null) {
                     listener.onCompletedTaskClick(task);
@@ -10,16 +10,35 @@ import android.widget.LinearLayout;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.todolist.R;
 import com.example.todolist.model.Task;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
+import com.example.todolist.util.DateCodec;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
+import java.util.Map;
 public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.TaskViewHolder> {
-    private List<Task> tasks;
+    private static final DiffUtil.ItemCallback<TaskRowSnapshot> DIFF_CALLBACK = new DiffUtil.ItemCallback<TaskRowSnapshot>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull TaskRowSnapshot oldItem, @NonNull TaskRowSnapshot newItem) {
+            return oldItem.isSameTask(newItem);
+        }
+        @Override
+        public boolean areContentsTheSame(@NonNull TaskRowSnapshot oldItem, @NonNull TaskRowSnapshot newItem) {
+            return oldItem.diff(newItem) == 0;
+        }
+        @Override
+        public Object getChangePayload(@NonNull TaskRowSnapshot oldItem, @NonNull TaskRowSnapshot newItem) {
+            return oldItem.diff(newItem);
+        }
+    };
+    // Diff runs on AsyncListDiffer's background executor, only the resulting notify calls land on the main thread
+    private final AsyncListDiffer<TaskRowSnapshot> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
+    private final Map<String, Long> stableIds = new HashMap<>();
+    private long nextStableId = 0;
     private OnTaskClickListener listener;
     public interface OnTaskClickListener {
         void onTaskClick(Task task);
@@ -29,8 +48,9 @@ public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.TaskViewHolder
         void onTaskDelete(Task task);
     }
     public TaskAdapter(List<Task> tasks, OnTaskClickListener listener) {
-        this.tasks = tasks;
         this.listener = listener;
+        setHasStableIds(true);
+        updateTasks(tasks);
     }
     @NonNull
     @Override
@@ -41,19 +61,51 @@ public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.TaskViewHolder
     }
     @Override
     public void onBindViewHolder(@NonNull TaskViewHolder holder, int position) {
-        Task task = tasks.get(position);
+        Task task = differ.getCurrentList().get(position).task;
         holder.bind(task);
     }
     @Override
+    public void onBindViewHolder(@NonNull TaskViewHolder holder, int position, @NonNull List<Object> payloads) {
+        int changes = TaskRowSnapshot.mergePayloads(payloads);
+        if (payloads.isEmpty() || (changes & TaskRowSnapshot.PAYLOAD_FULL) != 0) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        Task task = differ.getCurrentList().get(position).task;
+        if ((changes & TaskRowSnapshot.PAYLOAD_COMPLETION) != 0) {
+            holder.bindCompletion(task);
+        }
+        if ((changes & TaskRowSnapshot.PAYLOAD_STAR) != 0) {
+            holder.bindStar(task);
+        }
+        holder.bindListeners(task);
+    }
+    @Override
     public int getItemCount() {
-        return tasks.size();
+        return differ.getCurrentList().size();
+    }
+    @Override
+    public long getItemId(int position) {
+        String taskId = differ.getCurrentList().get(position).id;
+        if (taskId == null) {
+            return RecyclerView.NO_ID;
+        }
+        Long stableId = stableIds.get(taskId);
+        if (stableId == null) {
+            stableId = nextStableId++;
+            stableIds.put(taskId, stableId);
+        }
+        return stableId;
     }
     public void updateTasks(List<Task> newTasks) {
-        for (int i = 0; i < newTasks.size(); i++) {
-            Task task = newTasks.get(i);
+        // Callers reuse and refill their lists, so snapshot the rows before handing them to the differ
+        List<TaskRowSnapshot> rows = new ArrayList<>(newTasks != null ? newTasks.size() : 0);
+        if (newTasks != null) {
+            for (Task task : newTasks) {
+                rows.add(new TaskRowSnapshot(task));
+            }
         }
-        this.tasks = newTasks;
-        notifyDataSetChanged();
+        differ.submitList(rows);
     }
     class TaskViewHolder extends RecyclerView.ViewHolder {
         private CheckBox checkboxComplete;
@@ -106,9 +158,6 @@ public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.TaskViewHolder
                 textTaskDateTime.setVisibility(View.GONE);
             }
             
-            checkboxComplete.setOnCheckedChangeListener(null);
-            boolean currentTaskCompleted = task.isCompleted();
-            checkboxComplete.setChecked(currentTaskCompleted);
             boolean hasValidTime = task.getDueTime() != null && !task.getDueTime().trim().isEmpty() && !task.getDueTime().equals("null");
             iconNotification.setVisibility(task.isHasReminder() && hasValidTime ? View.VISIBLE : View.GONE);
             iconRepeat.setVisibility(task.isRepeating() && 
@@ -139,7 +188,17 @@ public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.TaskViewHolder
                 textSubtaskProgress.setVisibility(View.GONE);
             }
             
+            bindStar(task);
+            bindCompletion(task);
+            bindListeners(task);
+            itemView.setTranslationX(0);
+        }
+        void bindStar(Task task) {
             iconStar.setVisibility(task.isImportant() ? View.VISIBLE : View.GONE);
+        }
+        void bindCompletion(Task task) {
+            checkboxComplete.setOnCheckedChangeListener(null);
+            checkboxComplete.setChecked(task.isCompleted());
             if (task.isCompleted()) {
                 textTaskTitle.setPaintFlags(textTaskTitle.getPaintFlags() | android.graphics.Paint.STRIKE_THRU_TEXT_FLAG);
                 textTaskTitle.setTextColor(ContextCompat.getColor(itemView.getContext(), android.R.color.darker_gray));
@@ -147,7 +206,9 @@ public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.TaskViewHolder
                 textTaskTitle.setPaintFlags(textTaskTitle.getPaintFlags() & (~android.graphics.Paint.STRIKE_THRU_TEXT_FLAG));
                 textTaskTitle.setTextColor(ContextCompat.getColor(itemView.getContext(), R.color.black));
             }
-
+        }
+        void bindListeners(Task task) {
+            boolean currentTaskCompleted = task.isCompleted();
             taskBackground.setOnClickListener(v -> {
                 if (listener != null) {
                     listener.onTaskClick(task);
@@ -168,16 +229,14 @@ public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.TaskViewHolder
                 if (listener != null) {
                     listener.onTaskComplete(task, isChecked);
                 }
-            });            
-            itemView.setTranslationX(0);
+            });
         }
         private String formatDateTime(String dueDate, String dueTime) {
             try {
                 if (dueDate == null || dueDate.trim().isEmpty() || dueDate.equals("null") || dueDate.equals("Không")) {
                     return ""; // No date set, only show title
                 }
-                String todayDateStr = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault()).format(new Date());
-                if (dueDate.equals(todayDateStr)) {
+                if (dueDate.equals(DateCodec.todayString())) {
                     if (dueTime != null && !dueTime.trim().isEmpty() && !dueTime.equals("null") && !dueTime.equals("Không")) {
                         return dueTime; 
                     } else {
@@ -208,19 +267,11 @@ public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.TaskViewHolder
                    (dueTime != null && !dueTime.equals("null") && !dueTime.equals("Không") ? " " + dueTime : "");
         }
         private boolean isTaskOverdueToday(Task task) {
-            try {
-                Calendar now = Calendar.getInstance();
-                SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-                SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm", Locale.getDefault());
-                String todayDateStr = dateFormat.format(now.getTime());
-                String currentTimeStr = timeFormat.format(now.getTime());
-                if (task.getDueDate().equals(todayDateStr)) {
-                    return task.getDueTime().compareTo(currentTimeStr) < 0;
-                }
-                return false;
-            } catch (Exception e) {
+            if (!DateCodec.todayString().equals(task.getDueDate())) {
                 return false;
             }
+            int dueMinute = DateCodec.parseMinuteOfDay(task.getDueTime());
+            return dueMinute >= 0 && dueMinute < DateCodec.currentMinuteOfDay();
         }
     }
 }
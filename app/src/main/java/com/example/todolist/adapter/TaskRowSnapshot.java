@@ -0,0 +1,94 @@
+package com.example.todolist.adapter;
+
+import com.example.todolist.model.SubTask;
+import com.example.todolist.model.Task;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Immutable copy of the fields a task row displays.
+ * Task objects are mutated in place by the cache, so diffing has to compare against what was bound, not the live object.
+ */
+class TaskRowSnapshot {
+    static final int PAYLOAD_COMPLETION = 1;
+    static final int PAYLOAD_STAR = 1 << 1;
+    static final int PAYLOAD_FULL = 1 << 2;
+
+    final Task task;
+    final String id;
+    final String title;
+    final String dueDate;
+    final String dueTime;
+    final boolean completed;
+    final boolean important;
+    final boolean hasReminder;
+    final boolean repeating;
+    final String repeatType;
+    final String description;
+    final String attachments;
+    final boolean shared;
+    final int subTaskCount;
+    final int completedSubTaskCount;
+
+    TaskRowSnapshot(Task task) {
+        this.task = task;
+        this.id = task.getId();
+        this.title = task.getTitle();
+        this.dueDate = task.getDueDate();
+        this.dueTime = task.getDueTime();
+        this.completed = task.isCompleted();
+        this.important = task.isImportant();
+        this.hasReminder = task.isHasReminder();
+        this.repeating = task.isRepeating();
+        this.repeatType = task.getRepeatType();
+        this.description = task.getDescription();
+        this.attachments = task.getAttachments();
+        this.shared = task.isShared();
+
+        List<SubTask> subTasks = task.getSubTasks();
+        int done = 0;
+        for (SubTask subTask : subTasks) {
+            if (subTask.isCompleted()) {
+                done++;
+            }
+        }
+        this.subTaskCount = subTasks.size();
+        this.completedSubTaskCount = done;
+    }
+
+    boolean isSameTask(TaskRowSnapshot other) {
+        return id != null ? id.equals(other.id) : task == other.task;
+    }
+
+    /**
+     * @return bitmask of PAYLOAD_* flags, 0 when nothing visible changed
+     */
+    int diff(TaskRowSnapshot other) {
+        int changes = 0;
+        if (completed != other.completed) changes |= PAYLOAD_COMPLETION;
+        if (important != other.important) changes |= PAYLOAD_STAR;
+        if (!Objects.equals(title, other.title)
+                || !Objects.equals(dueDate, other.dueDate)
+                || !Objects.equals(dueTime, other.dueTime)
+                || hasReminder != other.hasReminder
+                || repeating != other.repeating
+                || !Objects.equals(repeatType, other.repeatType)
+                || !Objects.equals(description, other.description)
+                || !Objects.equals(attachments, other.attachments)
+                || shared != other.shared
+                || subTaskCount != other.subTaskCount
+                || completedSubTaskCount != other.completedSubTaskCount) {
+            changes |= PAYLOAD_FULL;
+        }
+        return changes;
+    }
+
+    static int mergePayloads(List<Object> payloads) {
+        int mask = 0;
+        for (Object payload : payloads) {
+            mask |= payload instanceof Integer ? (Integer) payload : PAYLOAD_FULL;
+        }
+        return mask;
+    }
+}
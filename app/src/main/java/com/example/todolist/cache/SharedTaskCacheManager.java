@@ -4,12 +4,20 @@ import android.content.Context;
 import android.os.Handler;
 import android.os.Looper;
 
+import com.example.todolist.database.ToDoDatabase;
+import com.example.todolist.database.dao.SharedTaskCacheDao;
+import com.example.todolist.database.entity.SharedTaskCacheEntity;
+import com.example.todolist.database.mapper.SharedTaskCacheMapper;
 import com.example.todolist.manager.AuthManager;
+import com.example.todolist.manager.TaskOutbox;
 import com.example.todolist.model.Task;
 import com.example.todolist.model.TaskShare;
 import com.example.todolist.repository.TaskRepository;
 import com.example.todolist.repository.BaseRepository;
+import com.example.todolist.repository.DatabaseExecutors;
 import com.example.todolist.service.sharing.TaskSharingService;
+import com.example.todolist.service.sharing.SharedTaskLoader;
+import com.example.todolist.service.sharing.SharedTaskSubscriptions;
 import com.example.todolist.service.sharing.SharedTaskSyncService;
 import com.example.todolist.notification.ReminderScheduler;
 
@@ -17,9 +25,14 @@ import java.util.Map;
 import java.util.Set;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Quản lý cache và đồng bộ cho shared tasks
@@ -28,7 +41,6 @@ import java.util.concurrent.Executors;
 public class SharedTaskCacheManager {
     private static SharedTaskCacheManager instance;
     private final Map<String, Task> sharedTaskCache = new ConcurrentHashMap<>();
-    private final Map<String, Task> pendingSyncTasks = new ConcurrentHashMap<>();
     private final Set<String> syncingTasks = ConcurrentHashMap.newKeySet();
     
     private Context context;
@@ -38,8 +50,22 @@ public class SharedTaskCacheManager {
     private SharedTaskSyncService sharedTaskSyncService;
     private TaskSharingService taskSharingService;
     private ReminderScheduler reminderScheduler;
+    private TaskOutbox taskOutbox;
+    private SharedTaskCacheDao sharedTaskCacheDao;
     private ExecutorService executor;
     private Handler mainHandler;
+    private final DatabaseExecutors databaseExecutors = DatabaseExecutors.getInstance();
+    private boolean initialized;
+    private String restoredAccountEmail;
+    
+    // Thời điểm mỗi shared task được lấy từ Firebase lần cuối
+    private final Map<String, Long> fetchedAt = new ConcurrentHashMap<>();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+    private final AtomicLong revalidatedUnchanged = new AtomicLong();
+    private final AtomicLong revalidatedChanged = new AtomicLong();
+    private final AtomicLong totalStalenessMillis = new AtomicLong();
+    private final AtomicLong maxStalenessMillis = new AtomicLong();
     
     public interface SharedTaskCacheListener {
         void onSharedTaskUpdated(Task task);
@@ -50,6 +76,10 @@ public class SharedTaskCacheManager {
     
     private final Set<SharedTaskCacheListener> listeners = ConcurrentHashMap.newKeySet();
     
+    // Các trường ảnh hưởng tới lịch nhắc nhở
+    private static final Set<String> REMINDER_FIELDS = new HashSet<>(Arrays.asList(
+            "dueDate", "dueTime", "hasReminder", "reminderType", "isCompleted"));
+    
     private SharedTaskCacheManager() {
         this.executor = Executors.newSingleThreadExecutor();
         this.mainHandler = new Handler(Looper.getMainLooper());
@@ -66,7 +96,14 @@ public class SharedTaskCacheManager {
         return instance;
     }
     
-    public void initialize(Context context) {
+    public synchronized void initialize(Context context) {
+        if (initialized) {
+            // Có thể vừa đăng nhập sau lần khởi tạo đầu tiên
+            restoreFromDisk();
+            return;
+        }
+        initialized = true;
+        
         this.context = context.getApplicationContext();
         this.taskRepository = new TaskRepository(context);
         this.taskCache = TaskCache.getInstance();
@@ -74,6 +111,8 @@ public class SharedTaskCacheManager {
         this.sharedTaskSyncService = SharedTaskSyncService.getInstance();
         this.taskSharingService = TaskSharingService.getInstance();
         this.reminderScheduler = new ReminderScheduler(context);
+        this.taskOutbox = TaskOutbox.getInstance();
+        this.sharedTaskCacheDao = ToDoDatabase.getInstance(context).sharedTaskCacheDao();
         
         // Khởi tạo các service
         this.authManager.initialize(context);
@@ -82,6 +121,9 @@ public class SharedTaskCacheManager {
         
         // Lắng nghe thay đổi từ Firebase
         setupFirebaseListeners();
+        
+        // Hiển thị ngay bản đã lưu, sau đó kiểm tra lại với Firebase
+        restoreFromDisk();
     }
     
     public void addListener(SharedTaskCacheListener listener) {
@@ -112,8 +154,8 @@ public class SharedTaskCacheManager {
             
             @Override
             public void onError(String error) {
-                // Lưu vào pending sync để đồng bộ sau
-                pendingSyncTasks.put(task.getId(), task);
+                // Lưu vào outbox để đồng bộ sau
+                taskOutbox.enqueueSharedUpdate(task.getId(), task.takeDirtyFields());
                 if (callback != null) callback.onSuccess("Task cached locally, will sync when online");
             }
         });
@@ -127,6 +169,7 @@ public class SharedTaskCacheManager {
             try {
                 // Đánh dấu task là shared để phân biệt với task thường
                 task.setShared(true);
+                persistSharedTask(task, fetchedAt.getOrDefault(task.getId(), System.currentTimeMillis()));
                 
                 taskRepository.updateTask(task, new BaseRepository.DatabaseCallback<Boolean>() {
                     @Override
@@ -150,7 +193,7 @@ public class SharedTaskCacheManager {
      */
     private void syncToFirebase(Task task, BaseRepository.DatabaseCallback<String> callback) {
         if (!authManager.shouldSyncToFirebase()) {
-            pendingSyncTasks.put(task.getId(), task);
+            taskOutbox.enqueueSharedUpdate(task.getId(), task.takeDirtyFields());
             if (callback != null) callback.onSuccess("Task cached locally");
             return;
         }
@@ -160,12 +203,13 @@ public class SharedTaskCacheManager {
         }
         
         syncingTasks.add(task.getId());
+        // Chỉ gửi các trường đã thay đổi
+        Set<String> dirtyFields = task.takeDirtyFields();
         
-        sharedTaskSyncService.updateSharedTask(task, new TaskSharingService.SharingCallback() {
+        sharedTaskSyncService.updateSharedTask(task, dirtyFields, new TaskSharingService.SharingCallback() {
             @Override
             public void onSuccess(String message) {
                 syncingTasks.remove(task.getId());
-                pendingSyncTasks.remove(task.getId());
                 
                 // Cập nhật TaskCache chính để UI được refresh
                 taskCache.updateTaskOptimistic(task);
@@ -177,8 +221,8 @@ public class SharedTaskCacheManager {
             public void onError(String error) {
                 syncingTasks.remove(task.getId());
                 
-                // Giữ trong pending sync để thử lại sau
-                pendingSyncTasks.put(task.getId(), task);
+                // Giữ trong outbox để thử lại sau
+                taskOutbox.enqueueSharedUpdate(task.getId(), dirtyFields);
                 
                 if (callback != null) callback.onSuccess("Task cached locally, will retry sync");
             }
@@ -192,26 +236,17 @@ public class SharedTaskCacheManager {
         // Kiểm tra cache trước
         Task cachedTask = sharedTaskCache.get(taskId);
         if (cachedTask != null) {
+            recordHit(taskId);
             if (callback != null) callback.onSuccess(cachedTask);
             return;
         }
+        cacheMisses.incrementAndGet();
 
         // Load từ Firebase
         sharedTaskSyncService.loadSharedTask(taskId, new SharedTaskSyncService.SharedTaskCallback() {
             @Override
             public void onTaskLoaded(Task task) {
-                // Lưu vào cache
-                sharedTaskCache.put(taskId, task);
-                // Cập nhật TaskCache chính
-                taskCache.updateTaskOptimistic(task);
-                notifyTaskUpdated(task);
-
-                // Khởi tạo listener real-time cho shared task
-                sharedTaskSyncService.startListeningForTaskUpdates(taskId);
-                
-                // ===== FIX: Schedule notifications khi load shared task =====
-                scheduleNotificationForSharedTask(task);
-
+                applyLoadedTask(task);
                 if (callback != null) callback.onSuccess(task);
             }
 
@@ -222,32 +257,194 @@ public class SharedTaskCacheManager {
         });
     }
     
+    private void applyLoadedTask(Task task) {
+        String taskId = task.getId();
+        long now = System.currentTimeMillis();
+        
+        // Lưu vào cache
+        sharedTaskCache.put(taskId, task);
+        fetchedAt.put(taskId, now);
+        persistSharedTask(task, now);
+        // Cập nhật TaskCache chính
+        taskCache.updateTaskOptimistic(task);
+        notifyTaskUpdated(task);
+
+        // Khởi tạo listener real-time cho shared task
+        sharedTaskSyncService.startListeningForTaskUpdates(taskId);
+        
+        // ===== FIX: Schedule notifications khi load shared task =====
+        scheduleNotificationForSharedTask(task);
+    }
+    
     /**
-     * Đồng bộ tất cả pending tasks khi có mạng
+     * Nạp shared tasks đã lưu của tài khoản hiện tại vào cache
      */
-    public void syncPendingTasks() {
-        if (!authManager.shouldSyncToFirebase() || pendingSyncTasks.isEmpty()) {
-            return;
-        }
+    private void restoreFromDisk() {
+        String accountEmail = authManager.getCurrentUserEmail();
+        if (accountEmail == null || accountEmail.equals(restoredAccountEmail)) return;
+        restoredAccountEmail = accountEmail;
         
-        List<Task> tasksToSync = new ArrayList<>(pendingSyncTasks.values());
-        for (Task task : tasksToSync) {
-            syncToFirebase(task, new BaseRepository.DatabaseCallback<String>() {
-                @Override
-                public void onSuccess(String result) {
+        databaseExecutors.executeRead(() -> {
+            List<SharedTaskCacheEntity> entries = sharedTaskCacheDao.getEntries(accountEmail);
+            List<Task> restored = new ArrayList<>();
+            for (SharedTaskCacheEntity entry : entries) {
+                Task task;
+                TaskShare taskShare;
+                try {
+                    task = SharedTaskCacheMapper.taskFromEntity(entry);
+                    taskShare = SharedTaskCacheMapper.shareFromEntity(entry);
+                } catch (Exception e) {
+                    android.util.Log.w("SharedTaskCache", "Dropping unreadable cache entry " + entry.taskId, e);
+                    databaseExecutors.executeWrite(() -> sharedTaskCacheDao.deleteEntry(entry.taskId));
+                    continue;
                 }
+                // Đã được tải từ Firebase trong lúc đọc
+                if (task == null || sharedTaskCache.putIfAbsent(task.getId(), task) != null) continue;
                 
-                @Override
-                public void onError(String error) {
+                fetchedAt.put(task.getId(), entry.fetchedAt);
+                if (taskShare != null && SharedTaskLoader.getInstance().peekTaskShare(task.getId()) == null) {
+                    SharedTaskLoader.getInstance().putTaskShare(taskShare, entry.fetchedAt);
                 }
+                recordHit(task.getId());
+                restored.add(task);
+            }
+            if (restored.isEmpty()) return;
+            
+            mainHandler.post(() -> {
+                for (Task task : restored) {
+                    taskCache.updateTaskOptimistic(task);
+                }
+                revalidate(restored);
             });
+        });
+    }
+    
+    /**
+     * So sánh lastModified với Firebase, chỉ tải lại task đã thay đổi
+     */
+    private void revalidate(List<Task> cachedTasks) {
+        AtomicInteger remaining = new AtomicInteger(cachedTasks.size());
+        Runnable onRevalidated = () -> {
+            if (remaining.decrementAndGet() == 0) {
+                android.util.Log.d("SharedTaskCache", "Revalidated " + cachedTasks.size() + " shared tasks: " + getCacheStats());
+            }
+        };
+        
+        for (Task cachedTask : cachedTasks) {
+            String taskId = cachedTask.getId();
+            TaskShare taskShare = SharedTaskLoader.getInstance().peekTaskShare(taskId);
+            if (taskShare == null) {
+                refreshSharedTask(taskId, onRevalidated);
+                continue;
+            }
+            SharedTaskLoader.getInstance().loadRemoteLastModified(taskShare, remoteLastModified -> {
+                Long cachedLastModified = cachedTask.getLastModified();
+                // Bản local có thể mới hơn khi còn thay đổi chưa gửi lên
+                if (remoteLastModified != null && cachedLastModified != null && remoteLastModified <= cachedLastModified) {
+                    long now = System.currentTimeMillis();
+                    fetchedAt.put(taskId, now);
+                    databaseExecutors.executeWrite(() -> sharedTaskCacheDao.markFresh(taskId, now));
+                    revalidatedUnchanged.incrementAndGet();
+                    onRevalidated.run();
+                } else {
+                    refreshSharedTask(taskId, onRevalidated);
+                }
+            });
+        }
+    }
+    
+    private void refreshSharedTask(String taskId, Runnable onDone) {
+        sharedTaskSyncService.loadSharedTask(taskId, new SharedTaskSyncService.SharedTaskCallback() {
+            @Override
+            public void onTaskLoaded(Task task) {
+                revalidatedChanged.incrementAndGet();
+                applyLoadedTask(task);
+                onDone.run();
+            }
+            
+            @Override
+            public void onError(String error) {
+                // Task đã bị xóa hoặc không còn được chia sẻ; lỗi mạng thì giữ bản cache
+                if (error != null && error.contains("not found")) {
+                    sharedTaskSyncService.stopListeningForTaskUpdates(taskId);
+                    removeSharedTask(taskId);
+                }
+                onDone.run();
+            }
+        });
+    }
+    
+    private void persistSharedTask(Task task, long fetchedAtMillis) {
+        String accountEmail = authManager.getCurrentUserEmail();
+        if (sharedTaskCacheDao == null || accountEmail == null) return;
+        
+        SharedTaskCacheEntity entry = SharedTaskCacheMapper.toEntity(task,
+                SharedTaskLoader.getInstance().peekTaskShare(task.getId()), accountEmail, fetchedAtMillis);
+        if (entry != null) {
+            databaseExecutors.executeWrite(() -> sharedTaskCacheDao.upsertEntry(entry));
+        }
+    }
+    
+    private void recordHit(String taskId) {
+        cacheHits.incrementAndGet();
+        Long loadedAt = fetchedAt.get(taskId);
+        if (loadedAt == null) return;
+        long staleness = Math.max(0, System.currentTimeMillis() - loadedAt);
+        totalStalenessMillis.addAndGet(staleness);
+        maxStalenessMillis.accumulateAndGet(staleness, Math::max);
+    }
+    
+    /**
+     * Đưa lại shared tasks đang cache vào TaskCache, dùng sau khi TaskCache được nạp lại từ đầu
+     */
+    public void publishCachedSharedTasks() {
+        for (Task task : sharedTaskCache.values()) {
+            taskCache.updateTaskOptimistic(task);
+        }
+    }
+    
+    public CacheStats getCacheStats() {
+        return new CacheStats(cacheHits.get(), cacheMisses.get(), revalidatedUnchanged.get(), revalidatedChanged.get(),
+                totalStalenessMillis.get(), maxStalenessMillis.get());
+    }
+    
+    /**
+     * Đồng bộ tất cả pending tasks khi có mạng
+     */
+    public void syncPendingTasks() {
+        if (!authManager.shouldSyncToFirebase()) {
+            return;
         }
+        taskOutbox.retryNow();
     }
     
     /**
      * Thiết lập listeners cho Firebase để nhận updates real-time
      */
     private void setupFirebaseListeners() {
+        SharedTaskSubscriptions.getInstance().addDeltaListener(new SharedTaskSubscriptions.DeltaListener() {
+            @Override
+            public void onSharedTaskChanged(Task task, Set<String> changedFields) {
+                sharedTaskCache.put(task.getId(), task);
+                fetchedAt.put(task.getId(), System.currentTimeMillis());
+                taskCache.updateTaskOptimistic(task);
+                saveToLocalDatabase(task, null);
+                
+                // Chỉ đặt lại nhắc nhở khi thời gian hoặc trạng thái thay đổi
+                if (!Collections.disjoint(changedFields, REMINDER_FIELDS)) {
+                    scheduleNotificationForSharedTask(task);
+                }
+                
+                notifyTaskUpdated(task);
+            }
+            
+            @Override
+            public void onSharedTaskRemoved(String taskId) {
+                sharedTaskSyncService.stopListeningForTaskUpdates(taskId);
+                removeSharedTask(taskId);
+            }
+        });
+        
         sharedTaskSyncService.addUpdateListener(new SharedTaskSyncService.SharedTaskUpdateListener() {
             @Override
             public void onSharedTaskUpdated(Task task) {
@@ -305,7 +502,11 @@ public class SharedTaskCacheManager {
      */
     public void removeSharedTask(String taskId) {
         sharedTaskCache.remove(taskId);
-        pendingSyncTasks.remove(taskId);
+        fetchedAt.remove(taskId);
+        if (sharedTaskCacheDao != null) {
+            databaseExecutors.executeWrite(() -> sharedTaskCacheDao.deleteEntry(taskId));
+        }
+        taskOutbox.discard(taskId);
         taskCache.deleteTaskOptimistic(taskId);
         notifyTaskDeleted(taskId);
     }
@@ -403,7 +604,42 @@ public class SharedTaskCacheManager {
         }
         listeners.clear();
         sharedTaskCache.clear();
-        pendingSyncTasks.clear();
         syncingTasks.clear();
     }
-}
\ No newline at end of file
+    
+    public static class CacheStats {
+        public final long hits;
+        public final long misses;
+        public final long revalidatedUnchanged;
+        public final long revalidatedChanged;
+        public final long averageStalenessMillis;
+        public final long maxStalenessMillis;
+        
+        CacheStats(long hits, long misses, long revalidatedUnchanged, long revalidatedChanged,
+                   long totalStalenessMillis, long maxStalenessMillis) {
+            this.hits = hits;
+            this.misses = misses;
+            this.revalidatedUnchanged = revalidatedUnchanged;
+            this.revalidatedChanged = revalidatedChanged;
+            this.averageStalenessMillis = hits > 0 ? totalStalenessMillis / hits : 0;
+            this.maxStalenessMillis = maxStalenessMillis;
+        }
+        
+        public double getHitRate() {
+            long total = hits + misses;
+            return total > 0 ? (double) hits / total : 0;
+        }
+        
+        @Override
+        public String toString() {
+            return "SharedTaskCache{hits=" + hits +
+                    ", misses=" + misses +
+                    ", hitRate=" + String.format(java.util.Locale.US, "%.2f", getHitRate()) +
+                    ", unchanged=" + revalidatedUnchanged +
+                    ", changed=" + revalidatedChanged +
+                    ", avgStaleMs=" + averageStalenessMillis +
+                    ", maxStaleMs=" + maxStalenessMillis +
+                    '}';
+        }
+    }
+}
@@ -2,8 +2,10 @@ package com.example.todolist.cache;
 
 import android.os.Handler;
 import android.os.Looper;
+import android.view.Choreographer;
 import com.example.todolist.model.Task;
 import com.example.todolist.helper.calendar.CalendarUtils;
+import com.example.todolist.util.DateCodec;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -11,11 +13,24 @@ public class TaskCache {
     
     private static TaskCache instance;
     private final Map<String, Task> taskMap = new ConcurrentHashMap<>();
+    private final TaskIndex index = new TaskIndex();
     private final Set<TaskCacheListener> listeners = new HashSet<>();
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
     private boolean isInitialized = false;
     private boolean isLoading = false;
     
+    // Pending changes, coalesced until the next main-looper frame
+    private final Object pendingLock = new Object();
+    private final Set<String> pendingAdded = new HashSet<>();
+    private final Set<String> pendingUpdated = new HashSet<>();
+    private final Set<String> pendingRemoved = new HashSet<>();
+    private boolean pendingFullRefresh = false;
+    // Ids written optimistically while a snapshot is shown, the Room read that reconciles it may predate them
+    private final Set<String> changedSinceSnapshot = new HashSet<>();
+    private boolean awaitingReconcile = false;
+    private boolean flushScheduled = false;
+    private long version = 0;
+    
     public static TaskCache getInstance() {
         if (instance == null) {
             synchronized (TaskCache.class) {
@@ -35,6 +50,14 @@ public class TaskCache {
         void onTaskDeleted(String taskId);
     }
     
+    /**
+     * Listeners implementing this only receive the coalesced change set,
+     * the per-item callbacks and the full list copy are skipped for them.
+     */
+    public interface TaskCacheDeltaListener extends TaskCacheListener {
+        void onTasksChanged(TaskChangeSet changes);
+    }
+    
     // === LISTENERS ===
     public void addListener(TaskCacheListener listener) {
         listeners.add(listener);
@@ -46,38 +69,125 @@ public class TaskCache {
 
     public void addTaskOptimistic(Task task) {
         if (task != null && task.getId() != null) {
-            taskMap.put(task.getId(), task);
-            notifyTaskAdded(task);
-            notifyTasksUpdated();
+            noteLocalChange(task.getId());
+            Task previous = taskMap.put(task.getId(), task);
+            index.put(task);
+            if (previous == null) {
+                markAdded(task.getId());
+            } else {
+                markUpdated(task.getId());
+            }
         }
     }
 
     public void updateTaskOptimistic(Task updatedTask) {
         if (updatedTask != null && updatedTask.getId() != null) {
-            taskMap.put(updatedTask.getId(), updatedTask);
-            notifyTaskUpdated(updatedTask);
-            notifyTasksUpdated();
+            noteLocalChange(updatedTask.getId());
+            Task previous = taskMap.put(updatedTask.getId(), updatedTask);
+            index.put(updatedTask);
+            if (previous == null) {
+                markAdded(updatedTask.getId());
+            } else {
+                markUpdated(updatedTask.getId());
+            }
+        }
+    }
+
+    /**
+     * Refile a cached task after it was changed in place; tasks the cache does not hold (shared ones) are ignored
+     */
+    public void reindexTask(Task task) {
+        if (task != null && task.getId() != null && taskMap.get(task.getId()) == task) {
+            noteLocalChange(task.getId());
+            index.put(task);
+            markUpdated(task.getId());
         }
     }
 
     public void deleteTaskOptimistic(String taskId) {
         if (taskId != null) {
+            noteLocalChange(taskId);
             Task removedTask = taskMap.remove(taskId);
+            index.remove(taskId);
             if (removedTask != null) {
-                notifyTaskDeleted(taskId);
-                notifyTasksUpdated();
+                markRemoved(taskId);
             }
         }
     }
 
     public void loadFromFirebase(List<Task> firebaseTasks) {
         taskMap.clear();
+        index.clear();
         for (Task task : firebaseTasks) {
             taskMap.put(task.getId(), task);
-        }        
+            index.put(task);
+        }
+        isInitialized = true;
+        isLoading = false;
+        synchronized (pendingLock) {
+            awaitingReconcile = false;
+            changedSinceSnapshot.clear();
+        }
+        markFullRefresh();
+    }
+
+    /**
+     * Show the tasks of the binary snapshot before Room answers; the cache stays uninitialized until reconcile
+     */
+    public void loadFromSnapshot(List<Task> snapshotTasks) {
+        taskMap.clear();
+        index.clear();
+        for (Task task : snapshotTasks) {
+            taskMap.put(task.getId(), task);
+            index.put(task);
+        }
+        synchronized (pendingLock) {
+            awaitingReconcile = true;
+            changedSinceSnapshot.clear();
+        }
+        markFullRefresh();
+    }
+
+    /**
+     * Replace the snapshot contents with the Room rows, only tasks that differ are reported as changed.
+     * Tasks written optimistically since the snapshot was shown are left as they are.
+     */
+    public void reconcile(List<Task> roomTasks) {
+        Set<String> localChanges;
+        synchronized (pendingLock) {
+            localChanges = new HashSet<>(changedSinceSnapshot);
+            awaitingReconcile = false;
+            changedSinceSnapshot.clear();
+        }
+        Set<String> roomTaskIds = new HashSet<>();
+        for (Task roomTask : roomTasks) {
+            roomTaskIds.add(roomTask.getId());
+            if (localChanges.contains(roomTask.getId())) continue;
+            Task snapshotTask = taskMap.get(roomTask.getId());
+            if (snapshotTask == null) {
+                taskMap.put(roomTask.getId(), roomTask);
+                index.put(roomTask);
+                markAdded(roomTask.getId());
+            } else if (!TaskCacheSnapshot.sameContent(snapshotTask, roomTask)) {
+                taskMap.put(roomTask.getId(), roomTask);
+                index.put(roomTask);
+                markUpdated(roomTask.getId());
+            }
+        }
+
+        Set<String> toRemove = new HashSet<>();
+        for (String taskId : taskMap.keySet()) {
+            if (!roomTaskIds.contains(taskId) && !localChanges.contains(taskId)) {
+                toRemove.add(taskId);
+            }
+        }
+        for (String taskId : toRemove) {
+            taskMap.remove(taskId);
+            index.remove(taskId);
+            markRemoved(taskId);
+        }
         isInitialized = true;
         isLoading = false;
-        notifyTasksUpdated();
     }
 
     public void syncFromFirebase(List<Task> firebaseTasks) {
@@ -86,12 +196,12 @@ public class TaskCache {
             firebaseTaskMap.put(task.getId(), task);
         }
         for (Task firebaseTask : firebaseTasks) {
-            Task localTask = taskMap.get(firebaseTask.getId());
+            Task localTask = taskMap.put(firebaseTask.getId(), firebaseTask);
+            index.put(firebaseTask);
             if (localTask == null) {
-                taskMap.put(firebaseTask.getId(), firebaseTask);
-            } else {
-
-                taskMap.put(firebaseTask.getId(), firebaseTask);
+                markAdded(firebaseTask.getId());
+            } else if (localTask != firebaseTask) {
+                markUpdated(firebaseTask.getId());
             }
         }
 
@@ -103,9 +213,9 @@ public class TaskCache {
         }
         for (String taskId : toRemove) {
             taskMap.remove(taskId);
+            index.remove(taskId);
+            markRemoved(taskId);
         }
-
-        notifyTasksUpdated();
     }
 
     public List<Task> getAllTasks() {
@@ -115,8 +225,19 @@ public class TaskCache {
     }
 
     public List<Task> getTasksForDate(String date) {
-        List<Task> tasksForDate = new ArrayList<>();
-        for (Task task : taskMap.values()) {
+        Long epochDay = DateCodec.parseEpochDay(date);
+        if (epochDay == null) {
+            List<Task> tasksForDate = new ArrayList<>();
+            for (Task task : taskMap.values()) {
+                if (CalendarUtils.isTaskOnDate(task, date)) {
+                    tasksForDate.add(task);
+                }
+            }
+            return tasksForDate;
+        }
+        List<Task> tasksForDate = resolve(index.nonRepeatingIdsOn(epochDay));
+        // Only repeating tasks need the recurrence check
+        for (Task task : resolve(index.repeatingIds())) {
             if (CalendarUtils.isTaskOnDate(task, date)) {
                 tasksForDate.add(task);
             }
@@ -124,6 +245,48 @@ public class TaskCache {
         return tasksForDate;
     }
 
+    public List<Task> getTasksByCategory(String category) {
+        return resolve(index.idsByCategory(category));
+    }
+
+    public Set<String> getTaskIdsByCategory(String category) {
+        return new HashSet<>(index.idsByCategory(category));
+    }
+
+    public List<Task> getCompletedTasks() {
+        return resolve(index.completedIds());
+    }
+
+    public List<Task> getIncompleteTasks() {
+        return resolve(index.incompleteIds());
+    }
+
+    public List<Task> getIncompleteTasksDueBefore(long epochDay) {
+        return resolve(index.incompleteIdsDueBefore(epochDay));
+    }
+
+    public List<Task> getIncompleteTasksDueOn(long epochDay) {
+        return resolve(index.incompleteIdsDueOn(epochDay));
+    }
+
+    /**
+     * Incomplete tasks due after the given day, plus incomplete tasks without a due date
+     */
+    public List<Task> getIncompleteTasksDueAfter(long epochDay) {
+        return resolve(index.incompleteIdsDueAfterOrUndated(epochDay));
+    }
+
+    private List<Task> resolve(List<String> taskIds) {
+        List<Task> tasks = new ArrayList<>(taskIds.size());
+        for (String taskId : taskIds) {
+            Task task = taskMap.get(taskId);
+            if (task != null) {
+                tasks.add(task);
+            }
+        }
+        return tasks;
+    }
+
     public Task getTask(String taskId) {
         if (taskId == null) {
             // Defensive: log and return null if taskId is null
@@ -150,42 +313,130 @@ public class TaskCache {
         this.isLoading = loading;
     }
 
-    private void notifyTasksUpdated() {
-        mainHandler.post(() -> {
-            List<Task> allTasks = getAllTasks();
-            for (TaskCacheListener listener : listeners) {
-                listener.onTasksUpdated(allTasks);
+    public long getVersion() {
+        synchronized (pendingLock) {
+            return version;
+        }
+    }
+
+    private void noteLocalChange(String taskId) {
+        synchronized (pendingLock) {
+            if (awaitingReconcile) {
+                changedSinceSnapshot.add(taskId);
             }
-        });
+        }
+    }
+
+    // === CHANGE COALESCING ===
+    // A pending full refresh already covers every id and has its flush scheduled, its change set keeps no ids
+    private void markAdded(String taskId) {
+        synchronized (pendingLock) {
+            if (pendingFullRefresh) return;
+            if (pendingRemoved.remove(taskId)) {
+                // Removed and re-added within one frame: listeners only need to refresh it
+                pendingUpdated.add(taskId);
+            } else {
+                pendingAdded.add(taskId);
+            }
+            scheduleFlushLocked();
+        }
     }
     
-    private void notifyTaskAdded(Task task) {
-        mainHandler.post(() -> {
-            for (TaskCacheListener listener : listeners) {
-                listener.onTaskAdded(task);
+    private void markUpdated(String taskId) {
+        synchronized (pendingLock) {
+            if (pendingFullRefresh) return;
+            if (!pendingAdded.contains(taskId)) {
+                pendingUpdated.add(taskId);
             }
-        });
+            scheduleFlushLocked();
+        }
     }
     
-    private void notifyTaskUpdated(Task task) {
-        mainHandler.post(() -> {
-            for (TaskCacheListener listener : listeners) {
-                listener.onTaskUpdated(task);
+    private void markRemoved(String taskId) {
+        synchronized (pendingLock) {
+            if (pendingFullRefresh) return;
+            pendingUpdated.remove(taskId);
+            if (!pendingAdded.remove(taskId)) {
+                // Added and removed within one frame cancel out
+                pendingRemoved.add(taskId);
             }
-        });
+            scheduleFlushLocked();
+        }
+    }
+    
+    private void markFullRefresh() {
+        synchronized (pendingLock) {
+            pendingFullRefresh = true;
+            pendingAdded.clear();
+            pendingUpdated.clear();
+            pendingRemoved.clear();
+            scheduleFlushLocked();
+        }
+    }
+    
+    private void scheduleFlushLocked() {
+        if (flushScheduled) return;
+        flushScheduled = true;
+        mainHandler.post(() -> Choreographer.getInstance().postFrameCallback(frameTimeNanos -> flushChanges()));
     }
     
-    private void notifyTaskDeleted(String taskId) {
-        mainHandler.post(() -> {
-            for (TaskCacheListener listener : listeners) {
-                listener.onTaskDeleted(taskId);
+    private void flushChanges() {
+        TaskChangeSet changes;
+        synchronized (pendingLock) {
+            flushScheduled = false;
+            if (!pendingFullRefresh && pendingAdded.isEmpty() && pendingUpdated.isEmpty() && pendingRemoved.isEmpty()) {
+                return;
             }
-        });
+            version++;
+            changes = new TaskChangeSet(version, pendingFullRefresh,
+                    new HashSet<>(pendingAdded), new HashSet<>(pendingUpdated), new HashSet<>(pendingRemoved));
+            pendingFullRefresh = false;
+            pendingAdded.clear();
+            pendingUpdated.clear();
+            pendingRemoved.clear();
+        }
+        
+        // One shared snapshot per frame for listeners that still want the whole list
+        List<Task> allTasks = null;
+        for (TaskCacheListener listener : new ArrayList<>(listeners)) {
+            if (listener instanceof TaskCacheDeltaListener) {
+                ((TaskCacheDeltaListener) listener).onTasksChanged(changes);
+                continue;
+            }
+            dispatchItemCallbacks(listener, changes);
+            if (allTasks == null) {
+                allTasks = Collections.unmodifiableList(getAllTasks());
+            }
+            listener.onTasksUpdated(allTasks);
+        }
+    }
+    
+    private void dispatchItemCallbacks(TaskCacheListener listener, TaskChangeSet changes) {
+        for (String taskId : changes.getAddedIds()) {
+            Task task = taskMap.get(taskId);
+            if (task != null) listener.onTaskAdded(task);
+        }
+        for (String taskId : changes.getUpdatedIds()) {
+            Task task = taskMap.get(taskId);
+            if (task != null) listener.onTaskUpdated(task);
+        }
+        for (String taskId : changes.getRemovedIds()) {
+            listener.onTaskDeleted(taskId);
+        }
     }
 
     public void clear() {
         taskMap.clear();
+        index.clear();
         listeners.clear();
+        synchronized (pendingLock) {
+            pendingFullRefresh = false;
+            pendingAdded.clear();
+            pendingUpdated.clear();
+            pendingRemoved.clear();
+            awaitingReconcile = false;
+            changedSinceSnapshot.clear();
+        }
         isInitialized = false;
         isLoading = false;
     }
@@ -0,0 +1,371 @@
+package com.example.todolist.cache;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import com.example.todolist.database.ToDoDatabase;
+import com.example.todolist.database.mapper.CategoryMapper;
+import com.example.todolist.model.Category;
+import com.example.todolist.model.SubTask;
+import com.example.todolist.model.Task;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+
+/**
+ * Binary copy of the own tasks in TaskCache and of the categories, kept in files/task_cache.snapshot.
+ * On a cold start TaskCacheWarmer maps the file and shows its tasks before Room answers, then reconciles
+ * the cache with the Room rows. The file is rewritten off the main thread once the cache has had no
+ * changes for WRITE_DELAY_MILLIS, through AtomicFile so an interrupted write keeps the previous copy.
+ *
+ * Layout, big-endian: magic, format version, payload length and CRC32 of the payload, then the payload:
+ * task count, tasks, category count, categories. A string is its UTF-8 length (-1 for null) and the bytes.
+ */
+public class TaskCacheSnapshot implements TaskCache.TaskCacheDeltaListener {
+    static final int MAGIC = 0x54435348;
+    // Bump when the layout changes, older files are then ignored and rewritten
+    static final int FORMAT_VERSION = 1;
+    static final long WRITE_DELAY_MILLIS = 2000;
+
+    private static final String TAG = "TaskCacheSnapshot";
+    private static final String FILE_NAME = "task_cache.snapshot";
+    private static final int HEADER_BYTES = 16;
+
+    private static final int FLAG_COMPLETED = 1;
+    private static final int FLAG_IMPORTANT = 1 << 1;
+    private static final int FLAG_HAS_REMINDER = 1 << 2;
+    private static final int FLAG_REPEATING = 1 << 3;
+    private static final int FLAG_SHARED = 1 << 4;
+    private static final int FLAG_HAS_LAST_MODIFIED = 1 << 5;
+
+    public static class Contents {
+        public final List<Task> tasks;
+        public final List<Category> categories;
+
+        Contents(List<Task> tasks, List<Category> categories) {
+            this.tasks = tasks;
+            this.categories = categories;
+        }
+    }
+
+    private static volatile TaskCacheSnapshot instance;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService writeExecutor = Executors.newSingleThreadExecutor();
+    private final Runnable writeRunnable = this::writeNow;
+    private Context context;
+    private AtomicFile file;
+    private boolean initialized;
+    // Categories of the last snapshot read, shown until Room answers
+    private volatile List<Category> categories;
+
+    private TaskCacheSnapshot() {
+    }
+
+    public static TaskCacheSnapshot getInstance() {
+        if (instance == null) {
+            synchronized (TaskCacheSnapshot.class) {
+                if (instance == null) {
+                    instance = new TaskCacheSnapshot();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Start writing the snapshot after cache changes; call on the main thread
+     */
+    public synchronized void initialize(Context context) {
+        if (initialized) return;
+        initialized = true;
+        this.context = context.getApplicationContext();
+        this.file = new AtomicFile(new File(this.context.getFilesDir(), FILE_NAME));
+        TaskCache.getInstance().addListener(this);
+    }
+
+    /**
+     * Maps and decodes the snapshot off the main thread
+     * @return null when there is no snapshot or it is from another format version or damaged
+     */
+    public Contents read() {
+        File baseFile = file.getBaseFile();
+        if (!baseFile.exists()) return null;
+        try (FileInputStream in = new FileInputStream(baseFile); FileChannel channel = in.getChannel()) {
+            Contents contents = decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            if (contents != null) {
+                categories = contents.categories;
+            }
+            return contents;
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Snapshot could not be read", e);
+            return null;
+        }
+    }
+
+    /**
+     * Categories of the last snapshot read, null if none was read
+     */
+    public List<Category> getCategories() {
+        List<Category> current = categories;
+        return current != null ? new ArrayList<>(current) : null;
+    }
+
+    // TaskCache.TaskCacheDeltaListener implementation
+    @Override
+    public void onTasksChanged(TaskChangeSet changes) {
+        mainHandler.removeCallbacks(writeRunnable);
+        mainHandler.postDelayed(writeRunnable, WRITE_DELAY_MILLIS);
+    }
+
+    @Override
+    public void onTasksUpdated(List<Task> tasks) {
+    }
+
+    @Override
+    public void onTaskAdded(Task task) {
+    }
+
+    @Override
+    public void onTaskUpdated(Task task) {
+    }
+
+    @Override
+    public void onTaskDeleted(String taskId) {
+    }
+
+    private void writeNow() {
+        TaskCache taskCache = TaskCache.getInstance();
+        // Before Room has answered the cache only holds the previous snapshot
+        if (!taskCache.isInitialized()) return;
+        SharedTaskCacheManager sharedTaskCacheManager = SharedTaskCacheManager.getInstance();
+        List<Task> tasks = new ArrayList<>();
+        for (Task task : taskCache.getAllTasks()) {
+            // Tasks shared with this account are persisted by SharedTaskCacheManager
+            if (!sharedTaskCacheManager.isSharedTask(task.getId())) {
+                tasks.add(task);
+            }
+        }
+        writeExecutor.execute(() -> write(tasks));
+    }
+
+    private void write(List<Task> tasks) {
+        FileOutputStream out = null;
+        try {
+            List<Category> currentCategories = CategoryMapper.fromEntities(
+                    ToDoDatabase.getInstance(context).categoryDao().getAllCategories());
+            byte[] bytes = encode(tasks, currentCategories);
+            out = file.startWrite();
+            out.write(bytes);
+            file.finishWrite(out);
+        } catch (IOException | RuntimeException e) {
+            // A task edited while it was encoded schedules the next write
+            if (out != null) file.failWrite(out);
+            Log.w(TAG, "Snapshot could not be written", e);
+        }
+    }
+
+    static byte[] encode(List<Task> tasks, List<Category> categories) throws IOException {
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream(Math.max(64, tasks.size() * 160));
+        DataOutputStream payload = new DataOutputStream(payloadBytes);
+        payload.writeInt(tasks.size());
+        for (Task task : tasks) {
+            writeString(payload, task.getId());
+            writeString(payload, task.getTitle());
+            writeString(payload, task.getDescription());
+            writeString(payload, task.getDueDate());
+            writeString(payload, task.getDueTime());
+            writeString(payload, task.getCategory());
+            writeString(payload, task.getReminderType());
+            writeString(payload, task.getAttachments());
+            writeString(payload, task.getRepeatType());
+            writeString(payload, task.getCompletionDate());
+            writeString(payload, task.getCreatedAt());
+            writeString(payload, task.getUpdatedAt());
+            Long lastModified = task.getLastModified();
+            int flags = (task.isCompleted() ? FLAG_COMPLETED : 0)
+                    | (task.isImportant() ? FLAG_IMPORTANT : 0)
+                    | (task.hasReminder() ? FLAG_HAS_REMINDER : 0)
+                    | (task.isRepeating() ? FLAG_REPEATING : 0)
+                    | (task.isShared() ? FLAG_SHARED : 0)
+                    | (lastModified != null ? FLAG_HAS_LAST_MODIFIED : 0);
+            payload.writeByte(flags);
+            payload.writeLong(lastModified != null ? lastModified : 0);
+
+            List<SubTask> subTasks = task.getSubTasks();
+            payload.writeInt(subTasks.size());
+            for (SubTask subTask : subTasks) {
+                writeString(payload, subTask.getId());
+                writeString(payload, subTask.getTitle());
+                writeString(payload, subTask.getCreatedAt());
+                payload.writeBoolean(subTask.isCompleted());
+            }
+        }
+        payload.writeInt(categories.size());
+        for (Category category : categories) {
+            writeString(payload, category.getId());
+            writeString(payload, category.getName());
+            writeString(payload, category.getColor());
+        }
+        payload.flush();
+
+        CRC32 crc = new CRC32();
+        crc.update(payloadBytes.toByteArray());
+        ByteArrayOutputStream fileBytes = new ByteArrayOutputStream(HEADER_BYTES + payloadBytes.size());
+        DataOutputStream out = new DataOutputStream(fileBytes);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(payloadBytes.size());
+        out.writeInt((int) crc.getValue());
+        payloadBytes.writeTo(out);
+        out.flush();
+        return fileBytes.toByteArray();
+    }
+
+    static Contents decode(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_BYTES) return null;
+        if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) return null;
+        int payloadLength = buffer.getInt();
+        int expectedCrc = buffer.getInt();
+        if (payloadLength != buffer.remaining()) return null;
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate());
+        if ((int) crc.getValue() != expectedCrc) return null;
+
+        Decoder decoder = new Decoder(buffer);
+        int taskCount = buffer.getInt();
+        List<Task> tasks = new ArrayList<>(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            String taskId = decoder.readString();
+            Task.Builder builder = new Task.Builder()
+                    .id(taskId)
+                    .title(decoder.readString())
+                    .description(decoder.readString())
+                    .dueDate(decoder.readString())
+                    .dueTime(decoder.readString())
+                    .category(decoder.readString())
+                    .reminderType(decoder.readString())
+                    .attachments(decoder.readString())
+                    .repeatType(decoder.readString())
+                    .completionDate(decoder.readString())
+                    .createdAt(decoder.readString())
+                    .updatedAt(decoder.readString());
+            int flags = buffer.get();
+            long lastModified = buffer.getLong();
+            int subTaskCount = buffer.getInt();
+            List<SubTask> subTasks = new ArrayList<>(subTaskCount);
+            for (int j = 0; j < subTaskCount; j++) {
+                String id = decoder.readString();
+                String title = decoder.readString();
+                String createdAt = decoder.readString();
+                subTasks.add(new SubTask(id, taskId, title, buffer.get() != 0, createdAt));
+            }
+            tasks.add(builder
+                    .completed((flags & FLAG_COMPLETED) != 0)
+                    .important((flags & FLAG_IMPORTANT) != 0)
+                    .hasReminder((flags & FLAG_HAS_REMINDER) != 0)
+                    .repeating((flags & FLAG_REPEATING) != 0)
+                    .shared((flags & FLAG_SHARED) != 0)
+                    .lastModified((flags & FLAG_HAS_LAST_MODIFIED) != 0 ? lastModified : null)
+                    .subTasks(subTasks)
+                    .build());
+        }
+
+        int categoryCount = buffer.getInt();
+        List<Category> categories = new ArrayList<>(categoryCount);
+        for (int i = 0; i < categoryCount; i++) {
+            Category category = new Category();
+            category.setId(decoder.readString());
+            category.setName(decoder.readString());
+            category.setColor(decoder.readString());
+            categories.add(category);
+        }
+        return new Contents(tasks, categories);
+    }
+
+    /**
+     * True when the fields kept in the snapshot are equal; the shared flag is not stored in Room and is ignored
+     */
+    static boolean sameContent(Task a, Task b) {
+        if (!Objects.equals(a.getId(), b.getId())
+                || !Objects.equals(a.getTitle(), b.getTitle())
+                || !Objects.equals(a.getDescription(), b.getDescription())
+                || !Objects.equals(a.getDueDate(), b.getDueDate())
+                || !Objects.equals(a.getDueTime(), b.getDueTime())
+                || !Objects.equals(a.getCategory(), b.getCategory())
+                || !Objects.equals(a.getReminderType(), b.getReminderType())
+                || !Objects.equals(a.getAttachments(), b.getAttachments())
+                || !Objects.equals(a.getRepeatType(), b.getRepeatType())
+                || !Objects.equals(a.getCompletionDate(), b.getCompletionDate())
+                || !Objects.equals(a.getCreatedAt(), b.getCreatedAt())
+                || !Objects.equals(a.getUpdatedAt(), b.getUpdatedAt())
+                || !Objects.equals(a.getLastModified(), b.getLastModified())
+                || a.isCompleted() != b.isCompleted()
+                || a.isImportant() != b.isImportant()
+                || a.hasReminder() != b.hasReminder()
+                || a.isRepeating() != b.isRepeating()) {
+            return false;
+        }
+        List<SubTask> aSubTasks = a.getSubTasks();
+        List<SubTask> bSubTasks = b.getSubTasks();
+        if (aSubTasks.size() != bSubTasks.size()) return false;
+        for (int i = 0; i < aSubTasks.size(); i++) {
+            SubTask aSubTask = aSubTasks.get(i);
+            SubTask bSubTask = bSubTasks.get(i);
+            if (!Objects.equals(aSubTask.getId(), bSubTask.getId())
+                    || !Objects.equals(aSubTask.getTitle(), bSubTask.getTitle())
+                    || !Objects.equals(aSubTask.getCreatedAt(), bSubTask.getCreatedAt())
+                    || aSubTask.isCompleted() != bSubTask.isCompleted()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    // Reads strings from the mapped buffer through one reusable byte array
+    private static class Decoder {
+        private final ByteBuffer buffer;
+        private byte[] scratch = new byte[256];
+
+        Decoder(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        String readString() {
+            int length = buffer.getInt();
+            if (length < 0) return null;
+            if (length > scratch.length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            buffer.get(scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+}
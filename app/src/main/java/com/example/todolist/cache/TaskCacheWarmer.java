@@ -0,0 +1,165 @@
+package com.example.todolist.cache;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.example.todolist.model.Task;
+import com.example.todolist.repository.BaseRepository;
+import com.example.todolist.repository.DatabaseExecutors;
+import com.example.todolist.repository.TaskRepository;
+import com.example.todolist.util.StartupTrace;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads the own tasks from Room into TaskCache, at most one read at a time.
+ * The binary snapshot is mapped alongside the read and shown first when it is decoded before Room answers;
+ * the Room rows then replace only the tasks that differ from it.
+ * SplashActivity starts the read while its animation plays, TaskService.loadTasks then claims
+ * the filled cache and continues with the shared tasks and the Firebase merge without reading Room again.
+ * Repository callbacks arrive on the main thread, all methods must be called there.
+ */
+public class TaskCacheWarmer {
+
+    public interface LoadCallback {
+        /**
+         * @param firstClaim true for the one caller that should continue with the shared tasks and the sync
+         */
+        void onLoaded(boolean firstClaim);
+        void onError(String error);
+    }
+
+    private static volatile TaskCacheWarmer instance;
+
+    private final TaskCache taskCache = TaskCache.getInstance();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<LoadCallback> pendingClaims = new ArrayList<>();
+    private final List<Runnable> readyListeners = new ArrayList<>();
+    private boolean loading;
+    // The running read was preceded by the snapshot, the cache already shows its tasks
+    private boolean snapshotShown;
+    // The cache was filled by prewarm and no TaskService has claimed it yet
+    private boolean unclaimed;
+
+    private TaskCacheWarmer() {
+    }
+
+    public static TaskCacheWarmer getInstance() {
+        if (instance == null) {
+            synchronized (TaskCacheWarmer.class) {
+                if (instance == null) {
+                    instance = new TaskCacheWarmer();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Start reading Room into TaskCache unless it is already filled or being read
+     */
+    public void prewarm(Context context) {
+        if (taskCache.isInitialized() || loading) return;
+        startLoad(context);
+    }
+
+    /**
+     * Run once tasks can be shown, from the snapshot or when the read has finished successfully or not
+     */
+    public void whenReady(Runnable listener) {
+        if (loading && !snapshotShown) {
+            readyListeners.add(listener);
+        } else {
+            listener.run();
+        }
+    }
+
+    public boolean hasUnclaimedLoad() {
+        return unclaimed && taskCache.isInitialized();
+    }
+
+    /**
+     * Claim the prewarmed cache, or wait for the running read, or start one
+     */
+    public void load(Context context, LoadCallback callback) {
+        if (hasUnclaimedLoad()) {
+            unclaimed = false;
+            callback.onLoaded(true);
+            return;
+        }
+        pendingClaims.add(callback);
+        if (!loading) {
+            startLoad(context);
+        }
+    }
+
+    private void startLoad(Context context) {
+        loading = true;
+        unclaimed = false;
+        snapshotShown = false;
+        taskCache.setLoading(true);
+
+        TaskCacheSnapshot snapshot = TaskCacheSnapshot.getInstance();
+        snapshot.initialize(context);
+        DatabaseExecutors.getInstance().executeRead(() -> {
+            TaskCacheSnapshot.Contents contents = snapshot.read();
+            if (contents != null) {
+                mainHandler.post(() -> showSnapshot(contents));
+            }
+        });
+
+        new TaskRepository(context.getApplicationContext()).getAllTasks(new BaseRepository.ListCallback<Task>() {
+            @Override
+            public void onSuccess(List<Task> tasks) {
+                if (snapshotShown) {
+                    taskCache.reconcile(tasks);
+                } else {
+                    taskCache.loadFromFirebase(tasks);
+                }
+                StartupTrace.mark(StartupTrace.TASK_CACHE_READY);
+                List<LoadCallback> claims = finishLoad();
+                unclaimed = claims.isEmpty();
+                for (int i = 0; i < claims.size(); i++) {
+                    claims.get(i).onLoaded(i == 0);
+                }
+                runReadyListeners();
+            }
+
+            @Override
+            public void onError(String error) {
+                for (LoadCallback claim : finishLoad()) {
+                    claim.onError(error);
+                }
+                runReadyListeners();
+            }
+        });
+    }
+
+    // Ignored when Room has already answered
+    private void showSnapshot(TaskCacheSnapshot.Contents contents) {
+        if (!loading || snapshotShown || taskCache.isInitialized()) return;
+        taskCache.loadFromSnapshot(contents.tasks);
+        snapshotShown = true;
+        StartupTrace.mark(StartupTrace.TASK_SNAPSHOT_LOADED);
+        runReadyListeners();
+    }
+
+    private List<LoadCallback> finishLoad() {
+        loading = false;
+        snapshotShown = false;
+        taskCache.setLoading(false);
+        List<LoadCallback> claims = new ArrayList<>(pendingClaims);
+        pendingClaims.clear();
+        return claims;
+    }
+
+    private void runReadyListeners() {
+        List<Runnable> listeners = new ArrayList<>(readyListeners);
+        readyListeners.clear();
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.todolist.cache;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Coalesced mutations of TaskCache delivered once per frame.
+ * A fullRefresh change set means the whole cache was replaced and the id sets are empty.
+ */
+public class TaskChangeSet {
+    private final long version;
+    private final boolean fullRefresh;
+    private final Set<String> addedIds;
+    private final Set<String> updatedIds;
+    private final Set<String> removedIds;
+
+    TaskChangeSet(long version, boolean fullRefresh, Set<String> addedIds,
+                  Set<String> updatedIds, Set<String> removedIds) {
+        this.version = version;
+        this.fullRefresh = fullRefresh;
+        this.addedIds = Collections.unmodifiableSet(addedIds);
+        this.updatedIds = Collections.unmodifiableSet(updatedIds);
+        this.removedIds = Collections.unmodifiableSet(removedIds);
+    }
+
+    public long getVersion() { return version; }
+    public boolean isFullRefresh() { return fullRefresh; }
+    public Set<String> getAddedIds() { return addedIds; }
+    public Set<String> getUpdatedIds() { return updatedIds; }
+    public Set<String> getRemovedIds() { return removedIds; }
+
+    public boolean isEmpty() {
+        return !fullRefresh && addedIds.isEmpty() && updatedIds.isEmpty() && removedIds.isEmpty();
+    }
+
+    public boolean contains(String taskId) {
+        return addedIds.contains(taskId) || updatedIds.contains(taskId) || removedIds.contains(taskId);
+    }
+
+    @Override
+    public String toString() {
+        return "TaskChangeSet{version=" + version +
+                ", fullRefresh=" + fullRefresh +
+                ", added=" + addedIds.size() +
+                ", updated=" + updatedIds.size() +
+                ", removed=" + removedIds.size() +
+                '}';
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.todolist.cache;
+
+import com.example.todolist.model.Task;
+import com.example.todolist.util.DateCodec;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Secondary indexes over TaskCache, kept up to date on every put/remove.
+ * Task objects are mutated in place, so the keys a task was filed under are remembered per id
+ * and removed before the task is re-filed.
+ */
+class TaskIndex {
+
+    private static class IndexKeys {
+        final Long dueEpochDay;
+        final String categoryKey;
+        final boolean completed;
+        final boolean repeating;
+
+        IndexKeys(Task task) {
+            this.dueEpochDay = DateCodec.parseEpochDay(task.getDueDate());
+            this.categoryKey = categoryKey(task.getCategory());
+            this.completed = task.isCompleted();
+            this.repeating = isRepeating(task);
+        }
+    }
+
+    private final Map<String, IndexKeys> keysById = new HashMap<>();
+    private final TreeMap<Long, Set<String>> idsByDueDay = new TreeMap<>();
+    private final Set<String> undatedIds = new HashSet<>();
+    private final Set<String> repeatingIds = new HashSet<>();
+    private final Map<String, Set<String>> idsByCategory = new HashMap<>();
+    private final Set<String> completedIds = new HashSet<>();
+    private final Set<String> incompleteIds = new HashSet<>();
+
+    synchronized void put(Task task) {
+        String taskId = task.getId();
+        remove(taskId);
+        IndexKeys keys = new IndexKeys(task);
+        keysById.put(taskId, keys);
+
+        if (keys.dueEpochDay != null) {
+            Set<String> ids = idsByDueDay.get(keys.dueEpochDay);
+            if (ids == null) {
+                ids = new HashSet<>();
+                idsByDueDay.put(keys.dueEpochDay, ids);
+            }
+            ids.add(taskId);
+        } else {
+            undatedIds.add(taskId);
+        }
+        if (keys.repeating) {
+            repeatingIds.add(taskId);
+        }
+        if (keys.categoryKey != null) {
+            Set<String> ids = idsByCategory.get(keys.categoryKey);
+            if (ids == null) {
+                ids = new HashSet<>();
+                idsByCategory.put(keys.categoryKey, ids);
+            }
+            ids.add(taskId);
+        }
+        (keys.completed ? completedIds : incompleteIds).add(taskId);
+    }
+
+    synchronized void remove(String taskId) {
+        IndexKeys keys = keysById.remove(taskId);
+        if (keys == null) return;
+
+        if (keys.dueEpochDay != null) {
+            Set<String> ids = idsByDueDay.get(keys.dueEpochDay);
+            if (ids != null) {
+                ids.remove(taskId);
+                if (ids.isEmpty()) idsByDueDay.remove(keys.dueEpochDay);
+            }
+        } else {
+            undatedIds.remove(taskId);
+        }
+        repeatingIds.remove(taskId);
+        if (keys.categoryKey != null) {
+            Set<String> ids = idsByCategory.get(keys.categoryKey);
+            if (ids != null) {
+                ids.remove(taskId);
+                if (ids.isEmpty()) idsByCategory.remove(keys.categoryKey);
+            }
+        }
+        completedIds.remove(taskId);
+        incompleteIds.remove(taskId);
+    }
+
+    synchronized void clear() {
+        keysById.clear();
+        idsByDueDay.clear();
+        undatedIds.clear();
+        repeatingIds.clear();
+        idsByCategory.clear();
+        completedIds.clear();
+        incompleteIds.clear();
+    }
+
+    // Non-repeating tasks due on the day; repeating tasks are returned separately by repeatingIds()
+    synchronized List<String> nonRepeatingIdsOn(long epochDay) {
+        List<String> result = new ArrayList<>();
+        Set<String> ids = idsByDueDay.get(epochDay);
+        if (ids != null) {
+            for (String taskId : ids) {
+                if (!repeatingIds.contains(taskId)) result.add(taskId);
+            }
+        }
+        return result;
+    }
+
+    synchronized List<String> repeatingIds() {
+        return new ArrayList<>(repeatingIds);
+    }
+
+    synchronized List<String> idsByCategory(String category) {
+        Set<String> ids = idsByCategory.get(categoryKey(category));
+        return ids != null ? new ArrayList<>(ids) : new ArrayList<>();
+    }
+
+    synchronized List<String> completedIds() {
+        return new ArrayList<>(completedIds);
+    }
+
+    synchronized List<String> incompleteIds() {
+        return new ArrayList<>(incompleteIds);
+    }
+
+    synchronized List<String> incompleteIdsDueBefore(long epochDay) {
+        return incompleteIdsIn(idsByDueDay.headMap(epochDay, false));
+    }
+
+    synchronized List<String> incompleteIdsDueOn(long epochDay) {
+        Set<String> ids = idsByDueDay.get(epochDay);
+        List<String> result = new ArrayList<>();
+        if (ids != null) {
+            for (String taskId : ids) {
+                if (incompleteIds.contains(taskId)) result.add(taskId);
+            }
+        }
+        return result;
+    }
+
+    // Tasks without a due date count as future, matching TaskListService
+    synchronized List<String> incompleteIdsDueAfterOrUndated(long epochDay) {
+        List<String> result = incompleteIdsIn(idsByDueDay.tailMap(epochDay, false));
+        for (String taskId : undatedIds) {
+            if (incompleteIds.contains(taskId)) result.add(taskId);
+        }
+        return result;
+    }
+
+    private List<String> incompleteIdsIn(Map<Long, Set<String>> days) {
+        List<String> result = new ArrayList<>();
+        for (Set<String> ids : days.values()) {
+            for (String taskId : ids) {
+                if (incompleteIds.contains(taskId)) result.add(taskId);
+            }
+        }
+        return result;
+    }
+
+    private static String categoryKey(String category) {
+        return category != null ? category.toLowerCase(Locale.ROOT) : null;
+    }
+
+    private static boolean isRepeating(Task task) {
+        return task.isRepeating() && task.getRepeatType() != null
+                && !task.getRepeatType().equals("Không") && !task.getRepeatType().equals("Không có");
+    }
+}
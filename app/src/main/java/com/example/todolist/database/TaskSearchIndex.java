@@ -0,0 +1,86 @@
+package com.example.todolist.database;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+public class TaskSearchIndex {
+    
+    private static final String SUBTASK_TITLES_OF = "(SELECT " + fold("group_concat(title, ' ')") + " FROM subtasks WHERE taskId = %s)";
+    private static final String TASK_ROWID_OF = "(SELECT rowid FROM tasks WHERE id = %s)";
+    
+    public static void createTriggers(SupportSQLiteDatabase db) {
+        // INSERT OR REPLACE deletes the old row without firing the delete trigger (recursive_triggers is off),
+        // so drop its index row before the replacement gets a new rowid
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS tasks_fts_before_insert BEFORE INSERT ON tasks BEGIN"
+                + " DELETE FROM tasks_fts WHERE docid = " + String.format(TASK_ROWID_OF, "new.id") + ";"
+                + " END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS tasks_fts_after_insert AFTER INSERT ON tasks BEGIN"
+                + " DELETE FROM tasks_fts WHERE docid = new.rowid;"
+                + " INSERT INTO tasks_fts(docid, title, description, subtaskTitles)"
+                + " VALUES (new.rowid, " + fold("new.title") + ", " + fold("new.description") + ", " + String.format(SUBTASK_TITLES_OF, "new.id") + ");"
+                + " END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS tasks_fts_after_update AFTER UPDATE OF title, description ON tasks BEGIN"
+                + " UPDATE tasks_fts SET title = " + fold("new.title") + ", description = " + fold("new.description")
+                + " WHERE docid = new.rowid;"
+                + " END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS tasks_fts_after_delete AFTER DELETE ON tasks BEGIN"
+                + " DELETE FROM tasks_fts WHERE docid = old.rowid;"
+                + " END");
+        
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS subtasks_fts_after_insert AFTER INSERT ON subtasks BEGIN"
+                + subtaskRefresh("new") + " END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS subtasks_fts_after_update AFTER UPDATE OF title, taskId ON subtasks BEGIN"
+                + subtaskRefresh("old") + subtaskRefresh("new") + " END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS subtasks_fts_after_delete AFTER DELETE ON subtasks BEGIN"
+                + subtaskRefresh("old") + " END");
+    }
+    
+    /**
+     * Remove index rows whose task is gone, left behind by replacements before the before-insert trigger existed
+     */
+    public static void deleteOrphans(SupportSQLiteDatabase db) {
+        db.execSQL("DELETE FROM tasks_fts WHERE docid NOT IN (SELECT rowid FROM tasks)");
+    }
+    
+    public static void rebuild(SupportSQLiteDatabase db) {
+        db.execSQL("DELETE FROM tasks_fts");
+        db.execSQL("INSERT INTO tasks_fts(docid, title, description, subtaskTitles)"
+                + " SELECT rowid, " + fold("title") + ", " + fold("description") + ", " + String.format(SUBTASK_TITLES_OF, "tasks.id") + " FROM tasks");
+    }
+    
+    // unicode61 folds most Vietnamese accents but treats đ as its own letter, so fold it before indexing
+    private static String fold(String column) {
+        return "replace(replace(" + column + ", 'đ', 'd'), 'Đ', 'D')";
+    }
+    
+    private static String subtaskRefresh(String row) {
+        return " UPDATE tasks_fts SET subtaskTitles = " + String.format(SUBTASK_TITLES_OF, row + ".taskId")
+                + " WHERE docid = " + String.format(TASK_ROWID_OF, row + ".taskId") + ";";
+    }
+    
+    /**
+     * Turn free text typed by the user into an FTS prefix query, e.g. "mua sữa" -> "mua* sua*"
+     * @param query raw search text
+     * @return MATCH expression, or null if the text has no searchable characters
+     */
+    public static String buildMatchQuery(String query) {
+        if (query == null) return null;
+        
+        StringBuilder match = new StringBuilder();
+        for (String token : normalize(query).split("\\s+")) {
+            if (token.isEmpty()) continue;
+            if (match.length() > 0) match.append(' ');
+            match.append(token).append('*');
+        }
+        return match.length() > 0 ? match.toString() : null;
+    }
+    
+    // Same folding as the index: no accents, đ -> d, punctuation that means something to MATCH becomes a separator
+    static String normalize(String text) {
+        String lower = text.toLowerCase(Locale.ROOT).replace('đ', 'd');
+        String stripped = Normalizer.normalize(lower, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+        return stripped.replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
+    }
+}
@@ -5,18 +5,28 @@ import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
 import androidx.room.TypeConverters;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
 import com.example.todolist.database.dao.CategoryDao;
+import com.example.todolist.database.dao.PendingOperationDao;
+import com.example.todolist.database.dao.ReminderDao;
+import com.example.todolist.database.dao.SharedTaskCacheDao;
 import com.example.todolist.database.dao.SubTaskDao;
 import com.example.todolist.database.dao.TaskDao;
 import com.example.todolist.database.entity.CategoryEntity;
+import com.example.todolist.database.entity.PendingOperationEntity;
+import com.example.todolist.database.entity.ReminderEntity;
+import com.example.todolist.database.entity.SharedTaskCacheEntity;
 import com.example.todolist.database.entity.SubTaskEntity;
 import com.example.todolist.database.entity.TaskEntity;
+import com.example.todolist.database.entity.TaskFtsEntity;
 
 @Database(
-    entities = {TaskEntity.class, CategoryEntity.class, SubTaskEntity.class},
-    version = 1,
-    exportSchema = false
+    entities = {TaskEntity.class, CategoryEntity.class, SubTaskEntity.class, TaskFtsEntity.class,
+            PendingOperationEntity.class, SharedTaskCacheEntity.class, ReminderEntity.class},
+    version = 10,
+    exportSchema = true
 )
 @TypeConverters({Converters.class})
 public abstract class ToDoDatabase extends RoomDatabase {
@@ -26,6 +36,135 @@ public abstract class ToDoDatabase extends RoomDatabase {
     public abstract TaskDao taskDao();
     public abstract CategoryDao categoryDao();
     public abstract SubTaskDao subTaskDao();
+    public abstract PendingOperationDao pendingOperationDao();
+    public abstract SharedTaskCacheDao sharedTaskCacheDao();
+    public abstract ReminderDao reminderDao();
+    
+    // dd/MM/yyyy -> yyyy-MM-dd so SQLite date functions can read it, legacy yyyy/MM/dd only needs its slashes swapped
+    private static final String ISO_FROM_DISPLAY = "substr(%1$s, 7, 4) || '-' || substr(%1$s, 4, 2) || '-' || substr(%1$s, 1, 2)";
+    private static final String DISPLAY_PATTERN = "'[0-9][0-9]/[0-9][0-9]/[0-9][0-9][0-9][0-9]'";
+    private static final String LEGACY_PATTERN = "'[0-9][0-9][0-9][0-9]/[0-9][0-9]/[0-9][0-9]'";
+    
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE tasks ADD COLUMN dueEpochDay INTEGER");
+            db.execSQL("ALTER TABLE tasks ADD COLUMN completionEpochDay INTEGER");
+            db.execSQL("ALTER TABLE tasks ADD COLUMN createdAtMillis INTEGER");
+            db.execSQL("ALTER TABLE tasks ADD COLUMN updatedAtMillis INTEGER");
+            
+            backfillEpochDay(db, "dueDate", "dueEpochDay");
+            backfillEpochDay(db, "completionDate", "completionEpochDay");
+            backfillStartOfDayMillis(db, "createdAt", "createdAtMillis");
+            backfillStartOfDayMillis(db, "updatedAt", "updatedAtMillis");
+            
+            db.execSQL("CREATE INDEX IF NOT EXISTS index_tasks_isCompleted_dueEpochDay ON tasks (isCompleted, dueEpochDay)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS index_tasks_categoryId_dueEpochDay ON tasks (categoryId, dueEpochDay)");
+        }
+    };
+    
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `tasks_fts` USING FTS4("
+                    + "`title` TEXT, `description` TEXT, `subtaskTitles` TEXT, tokenize=unicode61 `remove_diacritics=2`)");
+            TaskSearchIndex.createTriggers(db);
+            TaskSearchIndex.rebuild(db);
+        }
+    };
+    
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `pending_operations` (`taskId` TEXT NOT NULL, `operation` TEXT, "
+                    + "`accountEmail` TEXT, `isShared` INTEGER NOT NULL, `revision` INTEGER NOT NULL, "
+                    + "`attemptCount` INTEGER NOT NULL, `nextAttemptAt` INTEGER NOT NULL, `enqueuedAt` INTEGER NOT NULL, "
+                    + "`lastError` TEXT, PRIMARY KEY(`taskId`))");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_pending_operations_accountEmail_nextAttemptAt` "
+                    + "ON `pending_operations` (`accountEmail`, `nextAttemptAt`)");
+        }
+    };
+    
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE pending_operations ADD COLUMN dirtyFields TEXT");
+        }
+    };
+    
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `shared_task_cache` (`taskId` TEXT NOT NULL, `accountEmail` TEXT, "
+                    + "`taskJson` TEXT, `shareJson` TEXT, `remoteLastModified` INTEGER, `fetchedAt` INTEGER NOT NULL, "
+                    + "PRIMARY KEY(`taskId`))");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_shared_task_cache_accountEmail` "
+                    + "ON `shared_task_cache` (`accountEmail`)");
+        }
+    };
+    
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `reminders` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`taskId` TEXT NOT NULL, `triggerAt` INTEGER NOT NULL, `kind` TEXT NOT NULL, `userEmail` TEXT, "
+                    + "`armed` INTEGER NOT NULL)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_reminders_triggerAt` ON `reminders` (`triggerAt`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_reminders_taskId` ON `reminders` (`taskId`)");
+        }
+    };
+    
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_tasks_dueEpochDay` ON `tasks` (`dueEpochDay`)");
+        }
+    };
+    
+    static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            TaskSearchIndex.createTriggers(db);
+            TaskSearchIndex.deleteOrphans(db);
+        }
+    };
+    
+    static final Migration MIGRATION_9_10 = new Migration(9, 10) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE pending_operations ADD COLUMN claimed INTEGER NOT NULL DEFAULT 0");
+        }
+    };
+    
+    // Every version since the first release has a migration, a failing one must not silently wipe the tasks and outbox
+    public static final Migration[] ALL_MIGRATIONS = {
+            MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7, MIGRATION_7_8, MIGRATION_8_9,
+            MIGRATION_9_10
+    };
+    
+    private static final Callback SEARCH_INDEX_CALLBACK = new Callback() {
+        @Override
+        public void onCreate(SupportSQLiteDatabase db) {
+            TaskSearchIndex.createTriggers(db);
+        }
+    };
+    
+    private static void backfillEpochDay(SupportSQLiteDatabase db, String source, String target) {
+        String display = String.format(ISO_FROM_DISPLAY, source);
+        db.execSQL("UPDATE tasks SET " + target + " = CAST(julianday(" + display + ") - 2440587.5 AS INTEGER)"
+                + " WHERE " + source + " GLOB " + DISPLAY_PATTERN);
+        db.execSQL("UPDATE tasks SET " + target + " = CAST(julianday(replace(" + source + ", '/', '-')) - 2440587.5 AS INTEGER)"
+                + " WHERE " + source + " GLOB " + LEGACY_PATTERN);
+    }
+    
+    private static void backfillStartOfDayMillis(SupportSQLiteDatabase db, String source, String target) {
+        String display = String.format(ISO_FROM_DISPLAY, source);
+        // 'utc' treats the date as local midnight, matching DateCodec.startOfDayMillis
+        db.execSQL("UPDATE tasks SET " + target + " = CAST(strftime('%s', " + display + ", 'utc') AS INTEGER) * 1000"
+                + " WHERE " + source + " GLOB " + DISPLAY_PATTERN);
+        db.execSQL("UPDATE tasks SET " + target + " = CAST(strftime('%s', replace(" + source + ", '/', '-'), 'utc') AS INTEGER) * 1000"
+                + " WHERE " + source + " GLOB " + LEGACY_PATTERN);
+    }
     
     public static ToDoDatabase getInstance(Context context) {
         if (INSTANCE == null) {
@@ -36,7 +175,8 @@ public abstract class ToDoDatabase extends RoomDatabase {
                         ToDoDatabase.class,
                         "todo_database"
                     )
-                    .fallbackToDestructiveMigration()
+                    .addMigrations(ALL_MIGRATIONS)
+                    .addCallback(SEARCH_INDEX_CALLBACK)
                     .build();
                 }
             }
@@ -6,6 +6,7 @@ import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.Query;
 import androidx.room.Update;
+import androidx.room.Upsert;
 
 import com.example.todolist.database.entity.CategoryEntity;
 
@@ -38,6 +39,9 @@ public interface CategoryDao {
     @Update
     void updateCategory(CategoryEntity category);
     
+    @Upsert
+    void upsertCategories(List<CategoryEntity> categories);
+    
     @Delete
     void deleteCategory(CategoryEntity category);
     
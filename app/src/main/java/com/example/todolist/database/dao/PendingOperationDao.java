@@ -0,0 +1,89 @@
+package com.example.todolist.database.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import com.example.todolist.database.entity.PendingOperationEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Dao
+public interface PendingOperationDao {
+
+    @Query("SELECT * FROM pending_operations WHERE taskId = :taskId")
+    PendingOperationEntity getOperation(String taskId);
+
+    @Query("SELECT * FROM pending_operations WHERE accountEmail = :accountEmail AND nextAttemptAt <= :now ORDER BY enqueuedAt ASC LIMIT :limit")
+    List<PendingOperationEntity> getDueOperations(String accountEmail, long now, int limit);
+
+    @Query("UPDATE pending_operations SET claimed = 1 WHERE taskId IN (:taskIds)")
+    void markClaimed(List<String> taskIds);
+
+    /**
+     * Reads and claims the due rows in one write transaction, an enqueue can only run before or after it
+     */
+    @Transaction
+    default List<PendingOperationEntity> claimDueOperations(String accountEmail, long now, int limit) {
+        List<PendingOperationEntity> due = getDueOperations(accountEmail, now, limit);
+        if (due.isEmpty()) return due;
+
+        List<String> taskIds = new ArrayList<>(due.size());
+        for (PendingOperationEntity operation : due) {
+            taskIds.add(operation.taskId);
+            operation.claimed = true;
+        }
+        markClaimed(taskIds);
+        return due;
+    }
+
+    @Query("SELECT MIN(nextAttemptAt) FROM pending_operations WHERE accountEmail = :accountEmail")
+    Long getNextAttemptAt(String accountEmail);
+
+    @Query("SELECT COUNT(*) FROM pending_operations WHERE accountEmail = :accountEmail")
+    int countOperations(String accountEmail);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsertOperation(PendingOperationEntity operation);
+
+    @Query("DELETE FROM pending_operations WHERE taskId = :taskId")
+    void deleteOperation(String taskId);
+
+    @Query("DELETE FROM pending_operations WHERE taskId = :taskId AND revision = :revision")
+    void deleteSentOperation(String taskId, long revision);
+
+    @Query("UPDATE pending_operations SET attemptCount = :attemptCount, nextAttemptAt = :nextAttemptAt, lastError = :error "
+            + "WHERE taskId = :taskId AND revision = :revision")
+    void markFailed(String taskId, long revision, int attemptCount, long nextAttemptAt, String error);
+
+    @Query("UPDATE pending_operations SET nextAttemptAt = :now WHERE accountEmail = :accountEmail AND nextAttemptAt > :now")
+    void retryAllNow(String accountEmail, long now);
+
+    @Transaction
+    default void enqueue(String taskId, String operation, String dirtyFields, String accountEmail,
+                         boolean isShared, long now) {
+        PendingOperationEntity existing = getOperation(taskId);
+        boolean mayExistRemotely = existing == null || existing.claimed || existing.attemptCount > 0;
+        String merged = PendingOperationEntity.coalesce(existing != null ? existing.operation : null,
+                operation, mayExistRemotely);
+        if (merged == null) {
+            deleteOperation(taskId);
+            return;
+        }
+
+        PendingOperationEntity entity = existing != null ? existing : new PendingOperationEntity(taskId, accountEmail, now);
+        entity.dirtyFields = PendingOperationEntity.coalesceFields(existing != null ? existing.operation : null,
+                existing != null ? existing.dirtyFields : null, merged, dirtyFields);
+        entity.operation = merged;
+        entity.accountEmail = accountEmail;
+        entity.isShared = isShared;
+        entity.revision++;
+        // attemptCount and claimed are kept: once an ADD has been picked up it may have reached the server
+        entity.nextAttemptAt = now;
+        entity.lastError = null;
+        upsertOperation(entity);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.todolist.database.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import com.example.todolist.database.entity.ReminderEntity;
+
+import java.util.List;
+
+@Dao
+public interface ReminderDao {
+
+    @Query("SELECT * FROM reminders WHERE triggerAt > :from AND triggerAt <= :to ORDER BY triggerAt ASC LIMIT :limit")
+    List<ReminderEntity> getUpcoming(long from, long to, int limit);
+
+    @Query("SELECT * FROM reminders WHERE armed = 1")
+    List<ReminderEntity> getArmed();
+
+    @Query("SELECT MIN(triggerAt) FROM reminders WHERE armed = 0")
+    Long getNextUnarmedTrigger();
+
+    @Query("SELECT * FROM reminders WHERE taskId = :taskId")
+    List<ReminderEntity> getRemindersForTask(String taskId);
+
+    @Query("SELECT * FROM reminders WHERE taskId = :taskId AND userEmail IS :userEmail")
+    List<ReminderEntity> getReminders(String taskId, String userEmail);
+
+    @Query("SELECT * FROM reminders WHERE userEmail IS NULL")
+    List<ReminderEntity> getOwnReminders();
+
+    @Insert
+    void insertReminders(List<ReminderEntity> reminders);
+
+    @Query("DELETE FROM reminders WHERE id IN (:ids)")
+    void deleteReminders(List<Long> ids);
+
+    @Query("DELETE FROM reminders WHERE triggerAt <= :now")
+    void deletePast(long now);
+
+    @Query("UPDATE reminders SET armed = CASE WHEN id IN (:ids) THEN 1 ELSE 0 END")
+    void setArmed(List<Long> ids);
+
+    @Transaction
+    default void replaceReminders(List<Long> staleIds, List<ReminderEntity> reminders) {
+        if (!staleIds.isEmpty()) {
+            deleteReminders(staleIds);
+        }
+        if (!reminders.isEmpty()) {
+            insertReminders(reminders);
+        }
+    }
+}
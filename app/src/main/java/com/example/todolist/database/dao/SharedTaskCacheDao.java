@@ -0,0 +1,29 @@
+package com.example.todolist.database.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import com.example.todolist.database.entity.SharedTaskCacheEntity;
+
+import java.util.List;
+
+@Dao
+public interface SharedTaskCacheDao {
+
+    @Query("SELECT * FROM shared_task_cache WHERE accountEmail = :accountEmail")
+    List<SharedTaskCacheEntity> getEntries(String accountEmail);
+
+    @Query("SELECT * FROM shared_task_cache WHERE taskId = :taskId")
+    SharedTaskCacheEntity getEntry(String taskId);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsertEntry(SharedTaskCacheEntity entry);
+
+    @Query("UPDATE shared_task_cache SET fetchedAt = :fetchedAt WHERE taskId = :taskId")
+    void markFresh(String taskId, long fetchedAt);
+
+    @Query("DELETE FROM shared_task_cache WHERE taskId = :taskId")
+    void deleteEntry(String taskId);
+}
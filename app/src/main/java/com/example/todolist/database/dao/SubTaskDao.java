@@ -5,6 +5,7 @@ import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.Query;
 import androidx.room.Update;
+import androidx.room.Upsert;
 
 import com.example.todolist.database.entity.SubTaskEntity;
 
@@ -16,6 +17,12 @@ public interface SubTaskDao {
     @Query("SELECT * FROM subtasks WHERE taskId = :taskId ORDER BY createdAt ASC")
     List<SubTaskEntity> getSubTasksByTaskId(String taskId);
     
+    @Query("SELECT * FROM subtasks WHERE taskId IN (:taskIds) ORDER BY createdAt ASC")
+    List<SubTaskEntity> getSubTasksByTaskIds(List<String> taskIds);
+    
+    @Query("SELECT * FROM subtasks ORDER BY createdAt ASC")
+    List<SubTaskEntity> getAllSubTasks();
+    
     @Query("SELECT * FROM subtasks WHERE id = :subTaskId")
     SubTaskEntity getSubTaskById(String subTaskId);
     
@@ -25,12 +32,18 @@ public interface SubTaskDao {
     @Update
     void updateSubTask(SubTaskEntity subTask);
     
+    @Upsert
+    void upsertSubTasks(List<SubTaskEntity> subTasks);
+    
     @Delete
     void deleteSubTask(SubTaskEntity subTask);
     
     @Query("DELETE FROM subtasks WHERE taskId = :taskId")
     void deleteSubTasksByTaskId(String taskId);
     
+    @Query("DELETE FROM subtasks WHERE taskId IN (:taskIds)")
+    void deleteSubTasksByTaskIds(List<String> taskIds);
+    
     @Query("DELETE FROM subtasks")
     void deleteAllSubTasks();
     
@@ -6,6 +6,7 @@ import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.Query;
 import androidx.room.Update;
+import androidx.room.Upsert;
 
 import com.example.todolist.database.entity.TaskEntity;
 
@@ -14,38 +15,53 @@ import java.util.List;
 @Dao
 public interface TaskDao {
     
-    @Query("SELECT * FROM tasks ORDER BY createdAt DESC")
+    @Query("SELECT * FROM tasks ORDER BY createdAtMillis DESC")
     LiveData<List<TaskEntity>> getAllTasksLiveData();
     
-    @Query("SELECT * FROM tasks ORDER BY createdAt DESC")
+    @Query("SELECT * FROM tasks ORDER BY createdAtMillis DESC")
     List<TaskEntity> getAllTasks();
     
     @Query("SELECT * FROM tasks WHERE id = :taskId")
     TaskEntity getTaskById(String taskId);
     
-    @Query("SELECT * FROM tasks WHERE isCompleted = 0 ORDER BY dueDate ASC")
+    @Query("SELECT * FROM tasks WHERE isCompleted = 0 ORDER BY dueEpochDay ASC")
     List<TaskEntity> getIncompleteTasks();
     
-    @Query("SELECT * FROM tasks WHERE isCompleted = 1 ORDER BY completionDate DESC")
+    @Query("SELECT * FROM tasks WHERE isCompleted = 0 AND hasReminder = 1")
+    List<TaskEntity> getPendingReminderTasks();
+    
+    @Query("SELECT * FROM tasks WHERE isCompleted = 1 ORDER BY completionEpochDay DESC")
     List<TaskEntity> getCompletedTasks();
     
-    @Query("SELECT * FROM tasks WHERE dueDate = :date ORDER BY dueTime ASC")
-    List<TaskEntity> getTasksByDate(String date);
+    @Query("SELECT * FROM tasks WHERE dueEpochDay = :epochDay ORDER BY dueTime ASC")
+    List<TaskEntity> getTasksByDate(long epochDay);
+    
+    @Query("SELECT * FROM tasks WHERE isCompleted = 0 AND dueEpochDay BETWEEN :fromEpochDay AND :toEpochDay ORDER BY dueEpochDay ASC, dueTime ASC")
+    List<TaskEntity> getIncompleteTasksInRange(long fromEpochDay, long toEpochDay);
+    
+    @Query("SELECT * FROM tasks WHERE isRepeating = 0 AND dueEpochDay BETWEEN :fromEpochDay AND :toEpochDay ORDER BY dueEpochDay ASC, dueTime ASC")
+    List<TaskEntity> getSingleTasksInRange(long fromEpochDay, long toEpochDay);
+    
+    @Query("SELECT * FROM tasks WHERE isRepeating = 1")
+    List<TaskEntity> getRepeatingTasks();
     
-    @Query("SELECT * FROM tasks WHERE categoryId = :categoryId ORDER BY createdAt DESC")
+    @Query("SELECT COUNT(*) FROM tasks WHERE isCompleted = 0")
+    int countIncompleteTasks();
+    
+    @Query("SELECT * FROM tasks WHERE categoryId = :categoryId ORDER BY createdAtMillis DESC")
     List<TaskEntity> getTasksByCategory(String categoryId);
     
-    @Query("SELECT * FROM tasks WHERE isImportant = 1 ORDER BY dueDate ASC")
+    @Query("SELECT * FROM tasks WHERE isImportant = 1 ORDER BY dueEpochDay ASC")
     List<TaskEntity> getImportantTasks();
     
-    @Query("SELECT * FROM tasks WHERE dueDate = :todayDate ORDER BY dueTime ASC")
-    List<TaskEntity> getTodayTasks(String todayDate);
+    @Query("SELECT * FROM tasks WHERE dueEpochDay = :todayEpochDay ORDER BY dueTime ASC")
+    List<TaskEntity> getTodayTasks(long todayEpochDay);
     
-    @Query("SELECT * FROM tasks WHERE dueDate < :todayDate AND isCompleted = 0 ORDER BY dueDate DESC")
-    List<TaskEntity> getOverdueTasks(String todayDate);
+    @Query("SELECT * FROM tasks WHERE isCompleted = 0 AND dueEpochDay < :todayEpochDay ORDER BY dueEpochDay DESC")
+    List<TaskEntity> getOverdueTasks(long todayEpochDay);
     
-    @Query("SELECT * FROM tasks WHERE title LIKE '%' || :query || '%' OR description LIKE '%' || :query || '%' ORDER BY createdAt DESC")
-    List<TaskEntity> searchTasks(String query);
+    @Query("SELECT tasks.* FROM tasks JOIN tasks_fts ON tasks.rowid = tasks_fts.docid WHERE tasks_fts MATCH :matchQuery ORDER BY tasks.createdAtMillis DESC")
+    List<TaskEntity> searchTasks(String matchQuery);
     
     @Insert
     void insertTask(TaskEntity task);
@@ -53,15 +69,22 @@ public interface TaskDao {
     @Update
     void updateTask(TaskEntity task);
     
+    // Update in place rather than REPLACE, a delete would cascade to the task's subtasks
+    @Upsert
+    void upsertTasks(List<TaskEntity> tasks);
+    
     @Delete
     void deleteTask(TaskEntity task);
     
-    @Query("UPDATE tasks SET isCompleted = :isCompleted, completionDate = :completionDate, updatedAt = :updatedAt WHERE id = :taskId")
-    void updateTaskCompletion(String taskId, boolean isCompleted, String completionDate, String updatedAt);
+    @Query("UPDATE tasks SET isCompleted = :isCompleted, completionDate = :completionDate, completionEpochDay = :completionEpochDay, updatedAt = :updatedAt, updatedAtMillis = :updatedAtMillis WHERE id = :taskId")
+    void updateTaskCompletion(String taskId, boolean isCompleted, String completionDate, Long completionEpochDay, String updatedAt, long updatedAtMillis);
     
-    @Query("UPDATE tasks SET isImportant = :isImportant, updatedAt = :updatedAt WHERE id = :taskId")
-    void updateTaskImportance(String taskId, boolean isImportant, String updatedAt);
+    @Query("UPDATE tasks SET isImportant = :isImportant, updatedAt = :updatedAt, updatedAtMillis = :updatedAtMillis WHERE id = :taskId")
+    void updateTaskImportance(String taskId, boolean isImportant, String updatedAt, long updatedAtMillis);
     
     @Query("DELETE FROM tasks")
     void deleteAllTasks();
+    
+    @Query("DELETE FROM tasks WHERE id IN (:taskIds)")
+    void deleteTasksByIds(List<String> taskIds);
 }
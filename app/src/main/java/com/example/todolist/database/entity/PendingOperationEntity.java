@@ -0,0 +1,90 @@
+package com.example.todolist.database.entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * One pending Firebase write per task. Later mutations of the same task are folded into the row,
+ * the task content itself is read from the local database when the row is sent.
+ */
+@Entity(tableName = "pending_operations",
+        indices = {@Index(value = {"accountEmail", "nextAttemptAt"})})
+public class PendingOperationEntity {
+
+    public static final String OP_ADD = "ADD";
+    public static final String OP_UPDATE = "UPDATE";
+    public static final String OP_DELETE = "DELETE";
+
+    @PrimaryKey
+    @NonNull
+    public String taskId;
+
+    public String operation;
+    public String accountEmail;
+    // Shared tasks are written to the owner's tree, only updates are queued for them
+    public boolean isShared;
+    // Bumped on every enqueue, so a send that finishes after a newer edit does not drop the newer edit
+    public long revision;
+    public int attemptCount;
+    public long nextAttemptAt;
+    public long enqueuedAt;
+    public String lastError;
+    // Comma separated task map keys for an UPDATE that can be sent as a patch, null to send the whole task
+    public String dirtyFields;
+    // Set on the write lane when a batch picks the row up, from then on its content may have reached the server
+    public boolean claimed;
+
+    public PendingOperationEntity() {
+    }
+
+    public PendingOperationEntity(@NonNull String taskId, String accountEmail, long enqueuedAt) {
+        this.taskId = taskId;
+        this.accountEmail = accountEmail;
+        this.enqueuedAt = enqueuedAt;
+    }
+
+    /**
+     * @param mayExistRemotely false only while a pending ADD has never been claimed for sending
+     * @return the operation that replaces both, or null when they cancel out
+     */
+    public static String coalesce(String pending, String next, boolean mayExistRemotely) {
+        if (pending == null) return next;
+        if (OP_DELETE.equals(next)) {
+            return OP_ADD.equals(pending) && !mayExistRemotely ? null : OP_DELETE;
+        }
+        if (OP_ADD.equals(pending)) return OP_ADD;
+        // ADD after DELETE reuses the id, both overwrite the whole node
+        return OP_UPDATE;
+    }
+
+    /**
+     * Fields of the coalesced operation: only UPDATE after UPDATE stays a patch, as the union of both
+     */
+    public static String coalesceFields(String pending, String pendingFields, String merged, String nextFields) {
+        if (!OP_UPDATE.equals(merged) || nextFields == null) return null;
+        if (pending == null) return nextFields;
+        if (!OP_UPDATE.equals(pending) || pendingFields == null) return null;
+
+        Set<String> fields = new TreeSet<>(splitFields(pendingFields));
+        fields.addAll(splitFields(nextFields));
+        return joinFields(fields);
+    }
+
+    public static String joinFields(Set<String> fields) {
+        return fields != null && !fields.isEmpty() ? String.join(",", fields) : null;
+    }
+
+    public static Set<String> splitFields(String fields) {
+        Set<String> result = new TreeSet<>();
+        if (fields != null && !fields.isEmpty()) {
+            Collections.addAll(result, fields.split(","));
+        }
+        return result;
+    }
+}
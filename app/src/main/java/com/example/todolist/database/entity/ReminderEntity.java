@@ -0,0 +1,48 @@
+package com.example.todolist.database.entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * One future notification of a task. Trigger times are computed once when the task is scheduled,
+ * only the next few rows are registered with AlarmManager at a time.
+ */
+@Entity(tableName = "reminders",
+        indices = {@Index(value = {"triggerAt"}), @Index(value = {"taskId"})})
+public class ReminderEntity {
+
+    public static final String KIND_REMINDER = "REMINDER";
+    public static final String KIND_DUE = "DUE";
+
+    // Also the PendingIntent request code, so two alarms never share one
+    @PrimaryKey(autoGenerate = true)
+    public long id;
+
+    @NonNull
+    public String taskId;
+
+    public long triggerAt;
+
+    @NonNull
+    public String kind;
+
+    // Shared user the alarm is for, null for the account itself
+    public String userEmail;
+
+    // Registered with AlarmManager, needed to cancel it when it leaves the window
+    public boolean armed;
+
+    public ReminderEntity() {
+        this.taskId = "";
+        this.kind = KIND_REMINDER;
+    }
+
+    public ReminderEntity(@NonNull String taskId, long triggerAt, @NonNull String kind, String userEmail) {
+        this.taskId = taskId;
+        this.triggerAt = triggerAt;
+        this.kind = kind;
+        this.userEmail = userEmail;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.todolist.database.entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * Last known copy of a task shared with the account, with its TaskShare, so shared tasks
+ * can be shown on a cold start before Firebase answers.
+ */
+@Entity(tableName = "shared_task_cache",
+        indices = {@Index(value = {"accountEmail"})})
+public class SharedTaskCacheEntity {
+
+    @PrimaryKey
+    @NonNull
+    public String taskId;
+
+    public String accountEmail;
+    // Task.toMap() and the TaskShare as JSON
+    public String taskJson;
+    public String shareJson;
+    // lastModified of the owner's copy when it was fetched, compared on revalidation
+    public Long remoteLastModified;
+    public long fetchedAt;
+
+    public SharedTaskCacheEntity() {
+    }
+}
@@ -2,9 +2,15 @@ package com.example.todolist.database.entity;
 
 import androidx.annotation.NonNull;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
-@Entity(tableName = "tasks")
+@Entity(tableName = "tasks",
+        indices = {
+            @Index(value = {"isCompleted", "dueEpochDay"}),
+            @Index(value = {"categoryId", "dueEpochDay"}),
+            @Index(value = {"dueEpochDay"})
+        })
 public class TaskEntity {
     
     @PrimaryKey
@@ -26,6 +32,12 @@ public class TaskEntity {
     public String completionDate;
     public String createdAt;
     public String updatedAt;
+    
+    // Sortable copies of the date strings above, maintained by TaskMapper
+    public Long dueEpochDay;
+    public Long completionEpochDay;
+    public Long createdAtMillis;
+    public Long updatedAtMillis;
 
     public TaskEntity() {
     }
@@ -0,0 +1,18 @@
+package com.example.todolist.database.entity;
+
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+
+// Search index over tasks, rows are keyed by tasks.rowid and maintained by triggers in TaskSearchIndex
+@Fts4(tokenizer = FtsOptions.TOKENIZER_UNICODE61, tokenizerArgs = {"remove_diacritics=2"})
+@Entity(tableName = "tasks_fts")
+public class TaskFtsEntity {
+    
+    public String title;
+    public String description;
+    public String subtaskTitles;
+
+    public TaskFtsEntity() {
+    }
+}
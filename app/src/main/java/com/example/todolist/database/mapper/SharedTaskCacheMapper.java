@@ -0,0 +1,79 @@
+package com.example.todolist.database.mapper;
+
+import com.example.todolist.database.entity.SharedTaskCacheEntity;
+import com.example.todolist.model.SubTask;
+import com.example.todolist.model.Task;
+import com.example.todolist.model.TaskShare;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class SharedTaskCacheMapper {
+
+    private static final Gson GSON = new Gson();
+    private static final Type MAP_TYPE = new TypeToken<Map<String, Object>>() {}.getType();
+
+    public static SharedTaskCacheEntity toEntity(Task task, TaskShare taskShare, String accountEmail, long fetchedAt) {
+        if (task == null || task.getId() == null) return null;
+
+        SharedTaskCacheEntity entity = new SharedTaskCacheEntity();
+        entity.taskId = task.getId();
+        entity.accountEmail = accountEmail;
+        entity.taskJson = GSON.toJson(task.toMap());
+        entity.shareJson = taskShare != null ? GSON.toJson(taskShare) : null;
+        entity.remoteLastModified = task.getLastModified();
+        entity.fetchedAt = fetchedAt;
+        return entity;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static Task taskFromEntity(SharedTaskCacheEntity entity) {
+        if (entity == null || entity.taskJson == null) return null;
+
+        Map<String, Object> data = GSON.fromJson(entity.taskJson, MAP_TYPE);
+        // Gson reads every number as Double
+        Long lastModified = data.get("lastModified") instanceof Number
+                ? ((Number) data.get("lastModified")).longValue()
+                : null;
+
+        List<SubTask> subTasks = new ArrayList<>();
+        if (data.get("subTasks") instanceof List) {
+            for (Object subTaskData : (List<Object>) data.get("subTasks")) {
+                if (subTaskData instanceof Map) {
+                    subTasks.add(SubTask.fromMap((Map<String, Object>) subTaskData));
+                }
+            }
+        }
+
+        return new Task.Builder()
+                .id(entity.taskId)
+                .title((String) data.get("title"))
+                .description((String) data.get("description"))
+                .dueDate((String) data.get("dueDate"))
+                .dueTime((String) data.get("dueTime"))
+                .completed(Boolean.TRUE.equals(data.get("isCompleted")))
+                .important(Boolean.TRUE.equals(data.get("isImportant")))
+                .category((String) data.get("category"))
+                .reminderType((String) data.get("reminderType"))
+                .hasReminder(Boolean.TRUE.equals(data.get("hasReminder")))
+                .attachments((String) data.get("attachments"))
+                .repeatType((String) data.get("repeatType"))
+                .repeating(Boolean.TRUE.equals(data.get("isRepeating")))
+                .completionDate((String) data.get("completionDate"))
+                .createdAt((String) data.get("createdAt"))
+                .updatedAt((String) data.get("updatedAt"))
+                .lastModified(lastModified)
+                .subTasks(subTasks)
+                .shared(true)
+                .build();
+    }
+
+    public static TaskShare shareFromEntity(SharedTaskCacheEntity entity) {
+        if (entity == null || entity.shareJson == null) return null;
+        return GSON.fromJson(entity.shareJson, TaskShare.class);
+    }
+}
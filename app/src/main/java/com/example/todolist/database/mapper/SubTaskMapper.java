@@ -23,13 +23,7 @@ public class SubTaskMapper {
     public static SubTask fromEntity(SubTaskEntity entity) {
         if (entity == null) return null;
         
-        SubTask subTask = new SubTask();
-        subTask.setId(entity.id);
-        subTask.setTaskId(entity.taskId);
-        subTask.setTitle(entity.title);
-        subTask.setCompleted(entity.isCompleted);
-        subTask.setCreatedAt(entity.createdAt);
-        return subTask;
+        return new SubTask(entity.id, entity.taskId, entity.title, entity.isCompleted, entity.createdAt);
     }
     
     public static List<SubTask> fromEntities(List<SubTaskEntity> entities) {
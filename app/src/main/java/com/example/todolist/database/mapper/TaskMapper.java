@@ -2,6 +2,7 @@ package com.example.todolist.database.mapper;
 
 import com.example.todolist.database.entity.TaskEntity;
 import com.example.todolist.model.Task;
+import com.example.todolist.util.DateCodec;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -28,30 +29,39 @@ public class TaskMapper {
         entity.completionDate = task.getCompletionDate();
         entity.createdAt = task.getCreatedAt();
         entity.updatedAt = task.getUpdatedAt();
+        fillEpochColumns(entity, task.getLastModified());
         return entity;
     }
     
+    public static void fillEpochColumns(TaskEntity entity, Long lastModified) {
+        entity.dueEpochDay = DateCodec.parseEpochDay(entity.dueDate);
+        entity.completionEpochDay = DateCodec.parseEpochDay(entity.completionDate);
+        entity.createdAtMillis = DateCodec.parseStartOfDayMillis(entity.createdAt);
+        entity.updatedAtMillis = lastModified != null ? lastModified : DateCodec.parseStartOfDayMillis(entity.updatedAt);
+    }
+    
     public static Task fromEntity(TaskEntity entity) {
         if (entity == null) return null;
         
-        Task task = new Task();
-        task.setId(entity.id);
-        task.setTitle(entity.title);
-        task.setDescription(entity.description);
-        task.setDueDate(entity.dueDate);
-        task.setDueTime(entity.dueTime);
-        task.setCompleted(entity.isCompleted);
-        task.setImportant(entity.isImportant);
-        task.setCategory(entity.categoryId);
-        task.setReminderType(entity.reminderType);
-        task.setHasReminder(entity.hasReminder);
-        task.setAttachments(entity.attachments);
-        task.setRepeatType(entity.repeatType);
-        task.setRepeating(entity.isRepeating);
-        task.setCompletionDate(entity.completionDate);
-        task.setCreatedAt(entity.createdAt);
-        task.setUpdatedAt(entity.updatedAt);
-        return task;
+        return new Task.Builder()
+                .id(entity.id)
+                .title(entity.title)
+                .description(entity.description)
+                .dueDate(entity.dueDate)
+                .dueTime(entity.dueTime)
+                .completed(entity.isCompleted)
+                .important(entity.isImportant)
+                .category(entity.categoryId)
+                .reminderType(entity.reminderType)
+                .hasReminder(entity.hasReminder)
+                .attachments(entity.attachments)
+                .repeatType(entity.repeatType)
+                .repeating(entity.isRepeating)
+                .completionDate(entity.completionDate)
+                .createdAt(entity.createdAt)
+                .updatedAt(entity.updatedAt)
+                .lastModified(entity.updatedAtMillis)
+                .build();
     }
     
     public static List<Task> fromEntities(List<TaskEntity> entities) {
@@ -28,6 +28,7 @@ import com.example.todolist.model.Task;
 import com.example.todolist.model.TaskShare;
 import com.example.todolist.service.sharing.TaskSharingService;
 import com.example.todolist.service.AutoEmailService;
+import com.example.todolist.service.AppServices;
 import com.example.todolist.service.TaskService;
 import com.example.todolist.manager.AuthManager;
 import com.example.todolist.notification.ReminderScheduler;
@@ -83,8 +84,8 @@ public class ShareTaskDialog extends Dialog {
         this.autoEmailService.initialize(context);
         this.authManager = AuthManager.getInstance();
         this.authManager.initialize(context);
-        this.taskService = new TaskService(context, null);
-        this.reminderScheduler = new ReminderScheduler(context);
+        this.taskService = AppServices.getInstance(context).getTaskService();
+        this.reminderScheduler = AppServices.getInstance(context).getReminderScheduler();
     }
 
     @Override
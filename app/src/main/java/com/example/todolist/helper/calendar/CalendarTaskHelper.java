@@ -8,6 +8,7 @@ import android.widget.TextView;
 
 import com.example.todolist.R;
 import com.example.todolist.model.Task;
+import com.example.todolist.service.AppServices;
 import com.example.todolist.service.TaskService;
 import com.example.todolist.util.TaskItemViewHelper;
 
@@ -18,7 +19,7 @@ import java.util.List;
 public class CalendarTaskHelper {
     public static void loadTasksForDate(Context context, String dateString, 
                                       TaskLoadListener listener) {
-        TaskService taskService = new TaskService(context, null);
+        TaskService taskService = AppServices.getInstance(context).getTaskService();
         // Sử dụng cache để load tasks
         List<Task> allTasks = taskService.getAllTasksFromCache();
         
@@ -1,94 +1,61 @@
 package com.example.todolist.helper.calendar;
 
 import com.example.todolist.model.Task;
+import com.example.todolist.util.DateCodec;
 import java.util.Calendar;
+import java.util.List;
 
 public class CalendarUtils {
     // Support cho Task model (Firebase)
     public static boolean isTaskOnDate(Task task, String targetDate) {
-        try {
-            if (task.getDueDate() == null || task.getDueDate().isEmpty()) {
-                return false;
-            }
-
-            // Nếu task không lặp lại, chỉ kiểm tra ngày chính xác
-            if (!task.isRepeating() || task.getRepeatType() == null || 
-                task.getRepeatType().equals("Không") || task.getRepeatType().equals("Không có")) {
-                return task.getDueDate().equals(targetDate);
-            }
-            
-            String[] taskDateParts = task.getDueDate().split("/");
-            String[] targetDateParts = targetDate.split("/");
-            
-            if (taskDateParts.length != 3 || targetDateParts.length != 3) {
-                return false;
-            }
-
-            Calendar taskDate = Calendar.getInstance();
-            taskDate.set(Calendar.DAY_OF_MONTH, Integer.parseInt(taskDateParts[0]));
-            taskDate.set(Calendar.MONTH, Integer.parseInt(taskDateParts[1]) - 1);
-            taskDate.set(Calendar.YEAR, Integer.parseInt(taskDateParts[2]));
+        if (task.getDueDate() == null || task.getDueDate().isEmpty()) {
+            return false;
+        }
 
-            Calendar targetCalendar = Calendar.getInstance();
-            targetCalendar.set(Calendar.DAY_OF_MONTH, Integer.parseInt(targetDateParts[0]));
-            targetCalendar.set(Calendar.MONTH, Integer.parseInt(targetDateParts[1]) - 1);
-            targetCalendar.set(Calendar.YEAR, Integer.parseInt(targetDateParts[2]));
+        // Nếu task không lặp lại, chỉ kiểm tra ngày chính xác
+        if (!isRepeatingTask(task)) {
+            return task.getDueDate().equals(targetDate);
+        }
 
-            if (task.isCompleted() && task.getCompletionDate() != null && !task.getCompletionDate().isEmpty()) {
-                String[] completionDateParts = task.getCompletionDate().split("/");
-                
-                if (completionDateParts.length == 3) {
-                    Calendar completionDate = Calendar.getInstance();
-                    completionDate.set(Calendar.DAY_OF_MONTH, Integer.parseInt(completionDateParts[0]));
-                    completionDate.set(Calendar.MONTH, Integer.parseInt(completionDateParts[1]) - 1);
-                    completionDate.set(Calendar.YEAR, Integer.parseInt(completionDateParts[2]));
+        Long targetEpochDay = DateCodec.parseEpochDay(targetDate);
+        RecurrenceRule rule = RecurrenceRule.from(task);
+        if (targetEpochDay == null || rule == null || rule.getFrequency() == RecurrenceRule.ONCE) {
+            return task.getDueDate().equals(targetDate);
+        }
+        return rule.occursOn(targetEpochDay);
+    }
 
-                    if (targetCalendar.after(completionDate)) {
-                        return false;
-                    }
+    /**
+     * Days of a month that have at least one task, as a bitmap with bit (day - 1) set
+     * @param month Calendar.MONTH value (0-11)
+     */
+    public static int getTaskDaysInMonth(List<Task> tasks, int year, int month) {
+        int mask = 0;
+        int fullMask = (1 << DateCodec.lengthOfMonth(year, month + 1)) - 1;
+        for (Task task : tasks) {
+            RecurrenceRule rule = RecurrenceRule.from(task);
+            if (rule == null) continue;
+            if (rule.getFrequency() == RecurrenceRule.ONCE) {
+                // Not bounded by the completion date, same as isTaskOnDate
+                int packed = DateCodec.toPackedDate(DateCodec.parseEpochDay(task.getDueDate()));
+                if (packed / 10000 == year && (packed / 100) % 100 == month + 1) {
+                    mask |= 1 << (packed % 100 - 1);
                 }
+            } else {
+                mask |= OccurrenceCache.monthMask(rule, year, month + 1);
             }
-            
-            if (targetCalendar.before(taskDate)) {
-                return false;
-            }
-
-            switch (task.getRepeatType()) {
-                case "Hàng ngày":
-                case "Hằng ngày":
-                    return !targetCalendar.before(taskDate);
-                case "Hàng tuần":
-                case "Hằng tuần":
-                    if (targetCalendar.get(Calendar.DAY_OF_WEEK) == taskDate.get(Calendar.DAY_OF_WEEK)) {
-                        long diffInMillis = targetCalendar.getTimeInMillis() - taskDate.getTimeInMillis();
-                        long diffInDays = diffInMillis / (24 * 60 * 60 * 1000);
-                        return diffInDays >= 0 && diffInDays % 7 == 0;
-                    }
-                    return false;
-                case "Hàng tháng":
-                case "Hằng tháng":
-                    if (targetCalendar.get(Calendar.DAY_OF_MONTH) == taskDate.get(Calendar.DAY_OF_MONTH)) {
-                        int taskYear = taskDate.get(Calendar.YEAR);
-                        int taskMonth = taskDate.get(Calendar.MONTH);
-                        int targetYear = targetCalendar.get(Calendar.YEAR);
-                        int targetMonth = targetCalendar.get(Calendar.MONTH);
-                        int monthDiff = (targetYear - taskYear) * 12 + (targetMonth - taskMonth);
-                        return monthDiff >= 0;
-                    }
-                    return false;
-                case "Hàng năm":
-                case "Hằng năm":
-                    if (targetCalendar.get(Calendar.DAY_OF_MONTH) == taskDate.get(Calendar.DAY_OF_MONTH) &&
-                        targetCalendar.get(Calendar.MONTH) == taskDate.get(Calendar.MONTH)) {
-                        return targetCalendar.get(Calendar.YEAR) >= taskDate.get(Calendar.YEAR);
-                    }
-                    return false;
-                default:
-                    return task.getDueDate().equals(targetDate);
-            }
-        } catch (Exception e) {
-            return task.getDueDate().equals(targetDate);
+            if (mask == fullMask) break;
         }
+        return mask;
+    }
+
+    public static boolean hasDay(int dayMask, int day) {
+        return (dayMask & (1 << (day - 1))) != 0;
+    }
+
+    private static boolean isRepeatingTask(Task task) {
+        return task.isRepeating() && task.getRepeatType() != null
+                && !task.getRepeatType().equals("Không") && !task.getRepeatType().equals("Không có");
     }
     
     public static boolean isTimeOverdue(String taskTime) {
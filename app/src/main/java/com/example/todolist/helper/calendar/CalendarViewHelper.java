@@ -38,6 +38,8 @@ public class CalendarViewHelper {
         
         TaskCache taskCache = TaskCache.getInstance();
         List<Task> allTasks = taskCache.getAllTasks();
+        int taskDays = CalendarUtils.getTaskDaysInMonth(allTasks, currentCalendar.get(Calendar.YEAR),
+                                                        currentCalendar.get(Calendar.MONTH));
         
         Calendar today = Calendar.getInstance();
         boolean isCurrentMonth = (currentCalendar.get(Calendar.YEAR) == today.get(Calendar.YEAR) &&
@@ -48,8 +50,7 @@ public class CalendarViewHelper {
             boolean isSelected = (currentCalendar.get(Calendar.YEAR) == selectedDate.get(Calendar.YEAR) &&
                                 currentCalendar.get(Calendar.MONTH) == selectedDate.get(Calendar.MONTH) &&
                                 day == selectedDay);
-            boolean hasTasksForDay = hasTasksForDate(allTasks, currentCalendar.get(Calendar.YEAR), 
-                                            currentCalendar.get(Calendar.MONTH), day);
+            boolean hasTasksForDay = CalendarUtils.hasDay(taskDays, day);
             
             TextView dayView = createDayView(context, day, true, isToday, isSelected, hasTasksForDay);
             final int finalDay = day;
@@ -0,0 +1,56 @@
+package com.example.todolist.helper.calendar;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small LRU of month bitmaps per recurrence rule.
+ * Many tasks share a rule (same start, frequency and end), and the calendar redraws the same months repeatedly.
+ */
+class OccurrenceCache {
+
+    private static final int MAX_ENTRIES = 512;
+
+    private static final Map<Key, Integer> masks = new LinkedHashMap<Key, Integer>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Integer> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    static int monthMask(RecurrenceRule rule, int year, int month) {
+        Key key = new Key(rule, year * 12 + month - 1);
+        synchronized (masks) {
+            Integer cached = masks.get(key);
+            if (cached != null) return cached;
+        }
+        int mask = rule.monthMask(year, month);
+        synchronized (masks) {
+            masks.put(key, mask);
+        }
+        return mask;
+    }
+
+    private static final class Key {
+        final RecurrenceRule rule;
+        final int monthIndex;
+
+        Key(RecurrenceRule rule, int monthIndex) {
+            this.rule = rule;
+            this.monthIndex = monthIndex;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return monthIndex == other.monthIndex && rule.equals(other.rule);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * rule.hashCode() + monthIndex;
+        }
+    }
+}
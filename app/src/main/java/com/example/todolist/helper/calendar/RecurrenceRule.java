@@ -0,0 +1,158 @@
+package com.example.todolist.helper.calendar;
+
+import com.example.todolist.model.Task;
+import com.example.todolist.util.DateCodec;
+
+/**
+ * A task's repeat settings parsed into epoch days, so occurrence checks are plain arithmetic.
+ */
+public final class RecurrenceRule {
+
+    public static final int ONCE = 0;
+    public static final int DAILY = 1;
+    public static final int WEEKLY = 2;
+    public static final int MONTHLY = 3;
+    public static final int YEARLY = 4;
+
+    private final int frequency;
+    private final long startEpochDay;
+    // Inclusive; Long.MAX_VALUE when the task is not completed
+    private final long endEpochDay;
+    private final int startMonth;
+    private final int startDayOfMonth;
+
+    private RecurrenceRule(int frequency, long startEpochDay, long endEpochDay) {
+        this.frequency = frequency;
+        this.startEpochDay = startEpochDay;
+        this.endEpochDay = endEpochDay;
+        int packed = DateCodec.toPackedDate(startEpochDay);
+        this.startMonth = (packed / 100) % 100;
+        this.startDayOfMonth = packed % 100;
+    }
+
+    /**
+     * @return the parsed rule, or null if the task has no parsable due date
+     */
+    public static RecurrenceRule from(Task task) {
+        Long start = DateCodec.parseEpochDay(task.getDueDate());
+        if (start == null) return null;
+
+        long end = Long.MAX_VALUE;
+        if (task.isCompleted()) {
+            Long completion = DateCodec.parseEpochDay(task.getCompletionDate());
+            if (completion != null) {
+                end = completion;
+            }
+        }
+        int frequency = task.isRepeating() ? parseFrequency(task.getRepeatType()) : ONCE;
+        return new RecurrenceRule(frequency, start, end);
+    }
+
+    public static int parseFrequency(String repeatType) {
+        if (repeatType == null) return ONCE;
+        switch (repeatType) {
+            case "Hàng ngày":
+            case "Hằng ngày":
+                return DAILY;
+            case "Hàng tuần":
+            case "Hằng tuần":
+                return WEEKLY;
+            case "Hàng tháng":
+            case "Hằng tháng":
+                return MONTHLY;
+            case "Hàng năm":
+            case "Hằng năm":
+                return YEARLY;
+            default:
+                return ONCE;
+        }
+    }
+
+    public int getFrequency() {
+        return frequency;
+    }
+
+    public boolean occursOn(long epochDay) {
+        if (epochDay < startEpochDay || epochDay > endEpochDay) return false;
+        switch (frequency) {
+            case DAILY:
+                return true;
+            case WEEKLY:
+                return (epochDay - startEpochDay) % 7 == 0;
+            case MONTHLY: {
+                int packed = DateCodec.toPackedDate(epochDay);
+                return packed % 100 == startDayOfMonth;
+            }
+            case YEARLY: {
+                int packed = DateCodec.toPackedDate(epochDay);
+                return packed % 100 == startDayOfMonth && (packed / 100) % 100 == startMonth;
+            }
+            default:
+                return epochDay == startEpochDay;
+        }
+    }
+
+    /**
+     * Occurrences within one month as a bitmap, bit (day - 1) set for each day of the month the task falls on
+     * @param month 1-12
+     */
+    public int monthMask(int year, int month) {
+        int length = DateCodec.lengthOfMonth(year, month);
+        long first = DateCodec.toEpochDay(year, month, 1);
+        long from = Math.max(first, startEpochDay);
+        long to = Math.min(first + length - 1, endEpochDay);
+        if (from > to) return 0;
+
+        int mask = 0;
+        switch (frequency) {
+            case DAILY:
+                for (long day = from; day <= to; day++) {
+                    mask |= 1 << (day - first);
+                }
+                break;
+            case WEEKLY:
+                for (long day = from + Math.floorMod(startEpochDay - from, 7); day <= to; day += 7) {
+                    mask |= 1 << (day - first);
+                }
+                break;
+            case MONTHLY:
+                mask = dayBit(first, from, to, startDayOfMonth, length);
+                break;
+            case YEARLY:
+                if (month == startMonth) {
+                    mask = dayBit(first, from, to, startDayOfMonth, length);
+                }
+                break;
+            default:
+                if (startEpochDay >= from && startEpochDay <= to) {
+                    mask = 1 << (startEpochDay - first);
+                }
+                break;
+        }
+        return mask;
+    }
+
+    private static int dayBit(long first, long from, long to, int dayOfMonth, int length) {
+        if (dayOfMonth > length) return 0;
+        long day = first + dayOfMonth - 1;
+        return day >= from && day <= to ? 1 << (dayOfMonth - 1) : 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof RecurrenceRule)) return false;
+        RecurrenceRule other = (RecurrenceRule) o;
+        return frequency == other.frequency
+                && startEpochDay == other.startEpochDay
+                && endEpochDay == other.endEpochDay;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = frequency;
+        result = 31 * result + Long.hashCode(startEpochDay);
+        result = 31 * result + Long.hashCode(endEpochDay);
+        return result;
+    }
+}
@@ -48,8 +48,8 @@ public class AuthManager {
     }
     
     public void initialize(Context context) {
-        this.context = context.getApplicationContext();
-        this.prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        initializeLocal(context);
+        if (mAuth != null && mGoogleSignInClient != null) return;
         
         // Initialize Firebase Auth
         mAuth = FirebaseAuth.getInstance();
@@ -60,7 +60,16 @@ public class AuthManager {
                 .requestEmail()
                 .build();
         
-        mGoogleSignInClient = GoogleSignIn.getClient(context, gso);
+        mGoogleSignInClient = GoogleSignIn.getClient(this.context, gso);
+    }
+    
+    /**
+     * Saved account state only, without Firebase Auth; the account is read from the preferences
+     */
+    public void initializeLocal(Context context) {
+        if (prefs != null) return;
+        this.context = context.getApplicationContext();
+        this.prefs = this.context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
     }
     
     public void signIn(Activity activity, AuthCallback callback) {
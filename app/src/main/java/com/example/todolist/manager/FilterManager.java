@@ -9,6 +9,8 @@ import android.widget.Toast;
 import androidx.core.content.ContextCompat;
 import com.example.todolist.R;
 import com.example.todolist.adapter.TaskAdapter;
+import com.example.todolist.cache.TaskCache;
+import com.example.todolist.cache.TaskCacheSnapshot;
 import com.example.todolist.model.Category;
 import com.example.todolist.model.Task;
 import com.example.todolist.repository.BaseRepository;
@@ -18,6 +20,7 @@ import com.google.android.material.button.MaterialButton;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 public class FilterManager {
     
     public interface FilterListener {
@@ -68,6 +71,12 @@ public class FilterManager {
         this.categoryButtons = new ArrayList<>();
         
         initializeFilteredLists();
+        // Buttons from the snapshot until Room answers
+        List<Category> cachedCategories = TaskCacheSnapshot.getInstance().getCategories();
+        if (cachedCategories != null) {
+            categories = cachedCategories;
+            createFilterButtons();
+        }
         loadCategoriesFromFirebase();
     }
     private void initializeFilteredLists() {
@@ -202,10 +211,11 @@ public class FilterManager {
             if (futureTasks != null) filteredFutureTasks.addAll(futureTasks);
             if (completedTodayTasks != null) filteredCompletedTodayTasks.addAll(completedTodayTasks);
         } else {
-            filterByCategory(overdueTasks, filteredOverdueTasks, filter);
-            filterByCategory(todayTasks, filteredTodayTasks, filter);
-            filterByCategory(futureTasks, filteredFutureTasks, filter);
-            filterByCategory(completedTodayTasks, filteredCompletedTodayTasks, filter);
+            Set<String> categoryTaskIds = TaskCache.getInstance().getTaskIdsByCategory(filter);
+            filterByCategory(overdueTasks, filteredOverdueTasks, filter, categoryTaskIds);
+            filterByCategory(todayTasks, filteredTodayTasks, filter, categoryTaskIds);
+            filterByCategory(futureTasks, filteredFutureTasks, filter, categoryTaskIds);
+            filterByCategory(completedTodayTasks, filteredCompletedTodayTasks, filter, categoryTaskIds);
         }
 
         sortTasks();
@@ -218,13 +228,18 @@ public class FilterManager {
         }
     }
     
-    private void filterByCategory(List<Task> source, List<Task> destination, String filter) {
+    private void filterByCategory(List<Task> source, List<Task> destination, String filter, Set<String> categoryTaskIds) {
         if (source == null) return;
         
         for (Task task : source) {
-            String taskCategory = task.getCategory();
-            if (taskCategory != null && taskCategory.equalsIgnoreCase(filter)) {
+            if (categoryTaskIds.contains(task.getId())) {
                 destination.add(task);
+            } else if (TaskCache.getInstance().getTask(task.getId()) == null) {
+                // Shared tasks are not in the cache index
+                String taskCategory = task.getCategory();
+                if (taskCategory != null && taskCategory.equalsIgnoreCase(filter)) {
+                    destination.add(task);
+                }
             }
         }
     }
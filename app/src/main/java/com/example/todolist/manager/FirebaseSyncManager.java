@@ -1,22 +1,30 @@
 package com.example.todolist.manager;
 
 import android.content.Context;
+import android.content.SharedPreferences;
 import android.util.Log;
 
 import com.example.todolist.model.Task;
 import com.example.todolist.model.Category;
 import com.example.todolist.model.SubTask;
 import com.example.todolist.repository.BaseRepository;
+import com.example.todolist.util.DateCodec;
+import com.example.todolist.util.MainThreadExecutor;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ServerValue;
 import com.google.firebase.database.ValueEventListener;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -25,12 +33,27 @@ public class FirebaseSyncManager {
     private static final String USERS_NODE = "users";
     private static final String TASKS_NODE = "tasks";
     private static final String CATEGORIES_NODE = "categories";
+    private static final String SYNC_HASH_PREFS = "firebase_sync_hashes";
+    // Watermarks are server times, the client-clock ones kept under the old name are not comparable
+    private static final String SYNC_WATERMARK_PREFS = "firebase_sync_server_watermarks";
+    // Client clock, only used to pick the newer copy of a task
+    private static final String LAST_MODIFIED_FIELD = "lastModified";
+    // Server clock stamped on every write, the delta query and the watermark order by it
+    public static final String SERVER_MODIFIED_FIELD = "serverModified";
+    // Deleted tasks are kept as {deleted: true, lastModified, serverModified} so delta queries can see the deletion
+    public static final String TOMBSTONE_FIELD = "deleted";
+    // A write still in flight when the previous read ran can commit with a slightly older server time, re-read this much
+    private static final long WATERMARK_OVERLAP_MILLIS = 10 * 60 * 1000L;
+    // Tombstones older than this are removed on full reads; a device whose watermark is older reads the whole tree again
+    static final long TOMBSTONE_RETENTION_MILLIS = 30L * 24 * 60 * 60 * 1000;
     // SUBTASKS_NODE removed - SubTasks are now stored inside Tasks
     
     private static FirebaseSyncManager instance;
     private DatabaseReference database;
     private ExecutorService executor;
     private AuthManager authManager;
+    private Context context;
+    private int batchChunkSize = TaskBatchUploader.DEFAULT_CHUNK_SIZE;
     
     private FirebaseSyncManager() {
         this.database = FirebaseDatabase.getInstance().getReference();
@@ -46,121 +69,101 @@ public class FirebaseSyncManager {
     
     public void initialize(Context context) {
         this.authManager = AuthManager.getInstance();
+        this.context = context.getApplicationContext();
     }
     
     public void addTaskToFirebase(Task task, BaseRepository.DatabaseCallback<String> callback) {
-        if (!shouldSync()) {
-            if (callback != null) callback.onSuccess(task.getId());
-            return;
-        }
-        
+        BaseRepository.deliver(addTaskAsync(task), callback);
+    }
+    
+    public void updateTaskInFirebase(Task task, BaseRepository.DatabaseCallback<Boolean> callback) {
+        BaseRepository.deliver(updateTaskAsync(task), callback);
+    }
+    
+    public void deleteTaskFromFirebase(String taskId, BaseRepository.DatabaseCallback<Boolean> callback) {
+        BaseRepository.deliver(deleteTaskAsync(taskId), callback);
+    }
+    
+    /**
+     * Write the whole task, completes on the sync executor with its Firebase id.
+     * The task is converted on the calling thread, the executor only sees the copy.
+     */
+    public CompletableFuture<String> addTaskAsync(Task task) {
+        if (!shouldSync()) return CompletableFuture.completedFuture(task.getId());
         String userEmail = authManager.getCurrentUserEmail();
-        if (userEmail == null) {
-            if (callback != null) callback.onError("User not authenticated");
-            return;
-        }
+        if (userEmail == null) return CompletableFuture.failedFuture(new IllegalStateException("User not authenticated"));
         
-        executor.execute(() -> {
-            try {
-                Map<String, Object> taskData = convertTaskToMap(task);
-                String userPath = USERS_NODE + "/" + sanitizeEmail(userEmail) + "/" + TASKS_NODE;
-                
-                if (task.getId() == null || task.getId().isEmpty()) {
-                    // Create new task with auto-generated ID
-                    DatabaseReference newTaskRef = database.child(userPath).push();
-                    String firebaseId = newTaskRef.getKey();
-                    
-                    newTaskRef.setValue(taskData)
-                        .addOnSuccessListener(aVoid -> {
-                            if (callback != null) callback.onSuccess(firebaseId);
-                            Log.d(TAG, "Task added to Firebase with ID: " + firebaseId);
-                        })
-                        .addOnFailureListener(e -> {
-                            Log.e(TAG, "Error adding task to Firebase", e);
-                            if (callback != null) callback.onError(e.getMessage());
-                        });
-                } else {
-                    // Update existing task
-                    database.child(userPath).child(task.getId()).setValue(taskData)
-                        .addOnSuccessListener(aVoid -> {
-                            if (callback != null) callback.onSuccess(task.getId());
-                            Log.d(TAG, "Task updated in Firebase: " + task.getId());
-                        })
-                        .addOnFailureListener(e -> {
-                            Log.e(TAG, "Error updating task in Firebase", e);
-                            if (callback != null) callback.onError(e.getMessage());
-                        });
-                }
-            } catch (Exception e) {
-                Log.e(TAG, "Exception in addTaskToFirebase", e);
-                if (callback != null) callback.onError(e.getMessage());
+        Map<String, Object> taskData = convertTaskToMap(task);
+        String taskId = task.getId();
+        return CompletableFuture.supplyAsync(() -> {
+            String userPath = USERS_NODE + "/" + sanitizeEmail(userEmail) + "/" + TASKS_NODE;
+            // Create new task with auto-generated ID
+            DatabaseReference taskRef = taskId == null || taskId.isEmpty()
+                    ? database.child(userPath).push()
+                    : database.child(userPath).child(taskId);
+            return whenWritten(taskRef.setValue(taskData)).thenApply(ignored -> taskRef.getKey());
+        }, executor).thenCompose(write -> write).whenComplete((firebaseId, error) -> {
+            if (error != null) {
+                Log.e(TAG, "Error adding task to Firebase", error);
+            } else {
+                Log.d(TAG, "Task written to Firebase with ID: " + firebaseId);
             }
         });
     }
     
-    public void updateTaskInFirebase(Task task, BaseRepository.DatabaseCallback<Boolean> callback) {
-        if (!shouldSync()) {
-            if (callback != null) callback.onSuccess(true);
-            return;
-        }
-        
+    /**
+     * Write only the dirty fields of the task, or the whole task when none are recorded.
+     * The map and the dirty fields are taken on the calling thread, before later edits can change them.
+     */
+    public CompletableFuture<Boolean> updateTaskAsync(Task task) {
+        if (!shouldSync()) return CompletableFuture.completedFuture(true);
         String userEmail = authManager.getCurrentUserEmail();
-        if (userEmail == null) {
-            if (callback != null) callback.onError("User not authenticated");
-            return;
-        }
+        if (userEmail == null) return CompletableFuture.failedFuture(new IllegalStateException("User not authenticated"));
         
-        executor.execute(() -> {
-            try {
-                Map<String, Object> taskData = convertTaskToMap(task);
-                String userPath = USERS_NODE + "/" + sanitizeEmail(userEmail) + "/" + TASKS_NODE;
-                
-                database.child(userPath).child(task.getId()).setValue(taskData)
-                    .addOnSuccessListener(aVoid -> {
-                        if (callback != null) callback.onSuccess(true);
-                        Log.d(TAG, "Task updated in Firebase: " + task.getId());
-                    })
-                    .addOnFailureListener(e -> {
-                        Log.e(TAG, "Error updating task in Firebase", e);
-                        if (callback != null) callback.onError(e.getMessage());
-                    });
-            } catch (Exception e) {
-                Log.e(TAG, "Exception in updateTaskInFirebase", e);
-                if (callback != null) callback.onError(e.getMessage());
+        Map<String, Object> taskData = convertTaskToMap(task);
+        Set<String> dirtyFields = task.takeDirtyFields();
+        String taskId = task.getId();
+        return CompletableFuture.supplyAsync(() -> {
+            String userPath = USERS_NODE + "/" + sanitizeEmail(userEmail) + "/" + TASKS_NODE;
+            DatabaseReference taskRef = database.child(userPath).child(taskId);
+            return whenWritten(dirtyFields.isEmpty() || !canPatchTasks()
+                    ? taskRef.setValue(taskData)
+                    : taskRef.updateChildren(buildPatch(taskData, dirtyFields)));
+        }, executor).thenCompose(write -> write).whenComplete((ignored, error) -> {
+            if (error != null) {
+                Log.e(TAG, "Error updating task in Firebase", error);
+            } else {
+                Log.d(TAG, "Task updated in Firebase: " + taskId);
             }
-        });
+        }).thenApply(ignored -> true);
     }
     
-    public void deleteTaskFromFirebase(String taskId, BaseRepository.DatabaseCallback<Boolean> callback) {
-        if (!shouldSync()) {
-            if (callback != null) callback.onSuccess(true);
-            return;
-        }
-        
+    /**
+     * Replace the task with a tombstone so delta loads on other devices see the deletion
+     */
+    public CompletableFuture<Boolean> deleteTaskAsync(String taskId) {
+        if (!shouldSync()) return CompletableFuture.completedFuture(true);
         String userEmail = authManager.getCurrentUserEmail();
-        if (userEmail == null) {
-            if (callback != null) callback.onError("User not authenticated");
-            return;
-        }
+        if (userEmail == null) return CompletableFuture.failedFuture(new IllegalStateException("User not authenticated"));
         
-        executor.execute(() -> {
-            try {
-                String userPath = USERS_NODE + "/" + sanitizeEmail(userEmail) + "/" + TASKS_NODE;
-                
-                database.child(userPath).child(taskId).removeValue()
-                    .addOnSuccessListener(aVoid -> {
-                        if (callback != null) callback.onSuccess(true);
-                        Log.d(TAG, "Task deleted from Firebase: " + taskId);
-                    })
-                    .addOnFailureListener(e -> {
-                        Log.e(TAG, "Error deleting task from Firebase", e);
-                        if (callback != null) callback.onError(e.getMessage());
-                    });
-            } catch (Exception e) {
-                Log.e(TAG, "Exception in deleteTaskFromFirebase", e);
-                if (callback != null) callback.onError(e.getMessage());
+        return CompletableFuture.supplyAsync(() -> {
+            String userPath = USERS_NODE + "/" + sanitizeEmail(userEmail) + "/" + TASKS_NODE;
+            return whenWritten(database.child(userPath).child(taskId).setValue(createTombstone()));
+        }, executor).thenCompose(write -> write).whenComplete((ignored, error) -> {
+            if (error != null) {
+                Log.e(TAG, "Error deleting task from Firebase", error);
+            } else {
+                Log.d(TAG, "Task deleted from Firebase: " + taskId);
             }
-        });
+        }).thenApply(ignored -> true);
+    }
+    
+    // Firebase completes writes on the main thread unless given an executor, the future completes on the sync executor
+    private CompletableFuture<Void> whenWritten(com.google.android.gms.tasks.Task<Void> write) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        write.addOnSuccessListener(executor, ignored -> future.complete(null))
+                .addOnFailureListener(executor, future::completeExceptionally);
+        return future;
     }
     
     public void syncAllTasksToFirebase(List<Task> tasks, SyncCallback callback) {
@@ -177,92 +180,27 @@ public class FirebaseSyncManager {
         
         executor.execute(() -> {
             try {
-                String userPath = USERS_NODE + "/" + sanitizeEmail(userEmail) + "/" + TASKS_NODE;
-                DatabaseReference tasksRef = database.child(userPath);
+                String userKey = sanitizeEmail(userEmail);
+                DatabaseReference tasksRef = database.child(USERS_NODE + "/" + userKey + "/" + TASKS_NODE);
                 
-                // First load existing tasks from Firebase to merge with local tasks
-                tasksRef.addListenerForSingleValueEvent(new ValueEventListener() {
-                    @Override
-                    public void onDataChange(DataSnapshot dataSnapshot) {
-                        // Create a map of existing Firebase tasks
-                        Map<String, Task> firebaseTasks = new HashMap<>();
-                        for (DataSnapshot taskSnapshot : dataSnapshot.getChildren()) {
-                            try {
-                                Map<String, Object> taskData = (Map<String, Object>) taskSnapshot.getValue();
-                                if (taskData != null) {
-                                    Task task = convertMapToTask(taskData);
-                                    task.setId(taskSnapshot.getKey());
-                                    firebaseTasks.put(task.getId(), task);
-                                }
-                            } catch (Exception e) {
-                                Log.e(TAG, "Error parsing existing task from Firebase", e);
-                            }
-                        }
-                        
-                        // Merge local tasks with Firebase tasks
-                        Map<String, Task> allTasks = new HashMap<>(firebaseTasks);
-                        for (Task localTask : tasks) {
-                            // Local tasks override Firebase tasks if they have the same ID
-                            allTasks.put(localTask.getId(), localTask);
-                        }
-                        
-                        if (allTasks.isEmpty()) {
-                            if (callback != null) callback.onSuccess("All tasks synced to Firebase");
-                            return;
-                        }
-                        
-                        int totalTasks = allTasks.size();
-                        final int[] completedTasks = {0};
-                        final boolean[] hasError = {false};
-                        
-                        // Upload all merged tasks
-                        for (Task task : allTasks.values()) {
-                            Map<String, Object> taskData = convertTaskToMap(task);
-                            
-                            tasksRef.child(task.getId()).setValue(taskData)
-                                .addOnSuccessListener(aVoid -> {
-                                    completedTasks[0]++;
-                                    Log.d(TAG, "Task synced to Firebase: " + task.getTitle());
-                                    if (completedTasks[0] == totalTasks && !hasError[0]) {
-                                        if (callback != null) callback.onSuccess("All tasks synced to Firebase (" + totalTasks + " tasks)");
-                                    }
-                                })
-                                .addOnFailureListener(e -> {
-                                    hasError[0] = true;
-                                    Log.e(TAG, "Error syncing task: " + task.getTitle(), e);
-                                    if (callback != null) callback.onError("Error syncing task: " + e.getMessage());
-                                });
-                        }
+                // Tasks that only exist remotely are left untouched, so the remote tree does not need to be downloaded
+                Map<String, Map<String, Object>> taskData = new LinkedHashMap<>();
+                for (Task task : tasks) {
+                    if (task.getId() != null && !task.getId().isEmpty()) {
+                        taskData.put(task.getId(), convertTaskToMap(task));
                     }
-                    
-                    @Override
-                    public void onCancelled(DatabaseError databaseError) {
-                        Log.e(TAG, "Error loading existing tasks from Firebase", databaseError.toException());
-                        // If we can't load existing tasks, just upload local tasks
-                        if (tasks.isEmpty()) {
-                            if (callback != null) callback.onSuccess("All tasks synced to Firebase");
-                            return;
-                        }
-                        
-                        int totalTasks = tasks.size();
-                        final int[] completedTasks = {0};
-                        final boolean[] hasError = {false};
-                        
-                        for (Task task : tasks) {
-                            Map<String, Object> taskData = convertTaskToMap(task);
-                            
-                            tasksRef.child(task.getId()).setValue(taskData)
-                                .addOnSuccessListener(aVoid -> {
-                                    completedTasks[0]++;
-                                    if (completedTasks[0] == totalTasks && !hasError[0]) {
-                                        if (callback != null) callback.onSuccess("All tasks synced to Firebase");
-                                    }
-                                })
-                                .addOnFailureListener(e -> {
-                                    hasError[0] = true;
-                                    if (callback != null) callback.onError("Error syncing task: " + e.getMessage());
-                                });
-                        }
+                }
+                
+                TaskBatchUploader uploader = new TaskBatchUploader(TaskBatchUploader.forReference(tasksRef), batchChunkSize);
+                uploader.upload(taskData, loadSyncHashes(userKey), result -> {
+                    saveSyncHashes(userKey, result.syncedHashes);
+                    if (result.isSuccessful()) {
+                        Log.d(TAG, "Batch sync done: " + result.uploaded + " uploaded, " + result.skipped + " unchanged");
+                        if (callback != null) callback.onSuccess("All tasks synced to Firebase (" + result.total + " tasks)");
+                    } else {
+                        Log.e(TAG, "Batch sync failed for " + result.failedTaskIds.size() + " tasks: " + result.firstError);
+                        if (callback != null) callback.onError("Error syncing " + result.failedTaskIds.size() + "/"
+                                + result.total + " tasks: " + result.firstError);
                     }
                 });
             } catch (Exception e) {
@@ -272,6 +210,109 @@ public class FirebaseSyncManager {
         });
     }
     
+    /**
+     * Write a batch of task nodes (task maps, patches or tombstones) for the current user in one updateChildren call per chunk
+     * @param patchedTaskIds tasks whose map was built with buildPatch
+     */
+    void uploadTaskChanges(Map<String, Map<String, Object>> taskData, Set<String> patchedTaskIds,
+                           TaskBatchUploader.Callback callback) {
+        String userEmail = authManager != null ? authManager.getCurrentUserEmail() : null;
+        if (userEmail == null) {
+            callback.onComplete(new TaskBatchUploader.Result(taskData.size(), 0, 0,
+                    new ArrayList<>(taskData.keySet()), new HashMap<>(), "User not authenticated"));
+            return;
+        }
+        
+        String userKey = sanitizeEmail(userEmail);
+        DatabaseReference tasksRef = database.child(USERS_NODE + "/" + userKey + "/" + TASKS_NODE);
+        TaskBatchUploader uploader = new TaskBatchUploader(TaskBatchUploader.forReference(tasksRef, executor), batchChunkSize);
+        uploader.upload(taskData, patchedTaskIds, new HashMap<>(), result -> {
+            // Keep the full-sync hashes current so the next syncAllTasksToFirebase skips these tasks
+            if (context != null) {
+                SharedPreferences.Editor editor = context.getSharedPreferences(SYNC_HASH_PREFS, Context.MODE_PRIVATE).edit();
+                for (Map.Entry<String, Long> entry : result.syncedHashes.entrySet()) {
+                    // A patch's hash does not describe the whole task, the next full sync re-uploads it once
+                    if (patchedTaskIds.contains(entry.getKey()) || isTombstone(taskData.get(entry.getKey()))) {
+                        editor.remove(userKey + "/" + entry.getKey());
+                    } else {
+                        editor.putLong(userKey + "/" + entry.getKey(), entry.getValue());
+                    }
+                }
+                editor.apply();
+            }
+            callback.onComplete(result);
+        });
+    }
+    
+    /**
+     * The changed keys of a full task map, plus the timestamps the delta sync orders by.
+     * Keys missing from fullMap belong to the other task map layout and are left out.
+     */
+    public static Map<String, Object> buildPatch(Map<String, Object> fullMap, Set<String> dirtyFields) {
+        Map<String, Object> patch = new HashMap<>();
+        for (String field : dirtyFields) {
+            if (fullMap.containsKey(field)) {
+                patch.put(field, fullMap.get(field));
+            }
+        }
+        patch.put(LAST_MODIFIED_FIELD, fullMap.get(LAST_MODIFIED_FIELD));
+        patch.put(SERVER_MODIFIED_FIELD, ServerValue.TIMESTAMP);
+        if (fullMap.containsKey("updatedAt")) {
+            patch.put("updatedAt", fullMap.get("updatedAt"));
+        }
+        return patch;
+    }
+    
+    static Map<String, Object> createTombstone() {
+        Map<String, Object> tombstone = new HashMap<>();
+        tombstone.put(TOMBSTONE_FIELD, true);
+        tombstone.put(LAST_MODIFIED_FIELD, System.currentTimeMillis());
+        tombstone.put(SERVER_MODIFIED_FIELD, ServerValue.TIMESTAMP);
+        return tombstone;
+    }
+    
+    /**
+     * Stamp a whole task map written outside convertTaskToMap, so delta loads see it
+     */
+    public static Map<String, Object> withServerModified(Map<String, Object> taskData) {
+        taskData.put(SERVER_MODIFIED_FIELD, ServerValue.TIMESTAMP);
+        return taskData;
+    }
+    
+    public void setBatchChunkSize(int chunkSize) {
+        if (chunkSize > 0) {
+            this.batchChunkSize = chunkSize;
+        }
+    }
+    
+    private Map<String, Long> loadSyncHashes(String userKey) {
+        Map<String, Long> hashes = new HashMap<>();
+        if (context == null) return hashes;
+        String prefix = userKey + "/";
+        for (Map.Entry<String, ?> entry : context.getSharedPreferences(SYNC_HASH_PREFS, Context.MODE_PRIVATE).getAll().entrySet()) {
+            if (entry.getKey().startsWith(prefix) && entry.getValue() instanceof Long) {
+                hashes.put(entry.getKey().substring(prefix.length()), (Long) entry.getValue());
+            }
+        }
+        return hashes;
+    }
+    
+    private void saveSyncHashes(String userKey, Map<String, Long> hashes) {
+        if (context == null) return;
+        SharedPreferences prefs = context.getSharedPreferences(SYNC_HASH_PREFS, Context.MODE_PRIVATE);
+        SharedPreferences.Editor editor = prefs.edit();
+        String prefix = userKey + "/";
+        for (String key : prefs.getAll().keySet()) {
+            if (key.startsWith(prefix)) {
+                editor.remove(key);
+            }
+        }
+        for (Map.Entry<String, Long> entry : hashes.entrySet()) {
+            editor.putLong(prefix + entry.getKey(), entry.getValue());
+        }
+        editor.apply();
+    }
+    
     public void loadTasksFromFirebase(FirebaseSyncCallback callback) {
         if (!shouldSync()) {
             if (callback != null) callback.onSuccess(new ArrayList<>());
@@ -293,7 +334,7 @@ public class FirebaseSyncManager {
                 for (DataSnapshot taskSnapshot : dataSnapshot.getChildren()) {
                     try {
                         Map<String, Object> taskData = (Map<String, Object>) taskSnapshot.getValue();
-                        if (taskData != null) {
+                        if (taskData != null && !isTombstone(taskData)) {
                             Task task = convertMapToTask(taskData);
                             task.setId(taskSnapshot.getKey());
                             tasks.add(task);
@@ -313,6 +354,165 @@ public class FirebaseSyncManager {
         });
     }
     
+    /**
+     * Load tasks changed since the account's last sync watermark.
+     * Without a watermark (first sync on this device) the whole subtree is read once.
+     */
+    public void loadTaskChangesFromFirebase(TaskDeltaCallback callback) {
+        if (callback == null) return;
+        loadTaskChangesAsync().whenComplete((delta, error) -> MainThreadExecutor.getInstance().execute(() -> {
+            if (error != null) {
+                callback.onError(BaseRepository.errorMessage(error));
+            } else {
+                callback.onSuccess(delta);
+            }
+        }));
+    }
+    
+    /**
+     * As loadTaskChangesFromFirebase, the snapshot is parsed and the future completed on the sync executor
+     */
+    public CompletableFuture<TaskDelta> loadTaskChangesAsync() {
+        if (!shouldSync()) {
+            return CompletableFuture.completedFuture(new TaskDelta(new ArrayList<>(), new HashMap<>(), 0, true, 0));
+        }
+        
+        String userEmail = authManager.getCurrentUserEmail();
+        if (userEmail == null) return CompletableFuture.failedFuture(new IllegalStateException("User not authenticated"));
+        
+        String userKey = sanitizeEmail(userEmail);
+        long previousWatermark = getSyncWatermark(userKey);
+        long now = System.currentTimeMillis();
+        // Deletions older than the retention may already be pruned, so an old watermark cannot be trusted for a delta
+        long watermark = isWatermarkExpired(previousWatermark, now) ? 0 : previousWatermark;
+        DatabaseReference tasksRef = database.child(USERS_NODE + "/" + userKey + "/" + TASKS_NODE);
+        Query query = watermark > 0
+                ? tasksRef.orderByChild(SERVER_MODIFIED_FIELD).startAt(Math.max(0, watermark - WATERMARK_OVERLAP_MILLIS))
+                : tasksRef;
+        
+        CompletableFuture<TaskDelta> future = new CompletableFuture<>();
+        query.addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(DataSnapshot dataSnapshot) {
+                executor.execute(() -> {
+                    List<String> expiredTombstones = new ArrayList<>();
+                    TaskDelta delta = parseTaskDelta(dataSnapshot, watermark, previousWatermark, now, expiredTombstones);
+                    pruneTombstones(tasksRef, expiredTombstones);
+                    future.complete(delta);
+                });
+            }
+            
+            @Override
+            public void onCancelled(DatabaseError databaseError) {
+                Log.e(TAG, "Error loading task changes from Firebase", databaseError.toException());
+                future.completeExceptionally(databaseError.toException());
+            }
+        });
+        return future;
+    }
+    
+    private TaskDelta parseTaskDelta(DataSnapshot dataSnapshot, long watermark, long previousWatermark, long now,
+                                     List<String> expiredTombstones) {
+        List<Task> updatedTasks = new ArrayList<>();
+        Map<String, Long> deletedTasks = new HashMap<>();
+        long newWatermark = watermark;
+        for (DataSnapshot taskSnapshot : dataSnapshot.getChildren()) {
+            try {
+                Map<String, Object> taskData = (Map<String, Object>) taskSnapshot.getValue();
+                if (taskData == null) continue;
+                Long lastModified = timestamp(taskData, LAST_MODIFIED_FIELD);
+                Long serverModified = timestamp(taskData, SERVER_MODIFIED_FIELD);
+                if (serverModified != null) {
+                    newWatermark = Math.max(newWatermark, serverModified);
+                }
+                if (isTombstone(taskData)) {
+                    deletedTasks.put(taskSnapshot.getKey(), lastModified != null ? lastModified : 0L);
+                    // Only a full read sees old tombstones, a delta query starts after them
+                    if (watermark <= 0 && isExpiredTombstone(taskData, now)) {
+                        expiredTombstones.add(taskSnapshot.getKey());
+                    }
+                } else {
+                    Task task = convertMapToTask(taskData);
+                    task.setId(taskSnapshot.getKey());
+                    updatedTasks.add(task);
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error parsing task change from Firebase", e);
+            }
+        }
+        return new TaskDelta(updatedTasks, deletedTasks, newWatermark, watermark <= 0, previousWatermark);
+    }
+    
+    private void pruneTombstones(DatabaseReference tasksRef, List<String> taskIds) {
+        if (taskIds.isEmpty()) return;
+        Map<String, Object> removals = new HashMap<>();
+        for (String taskId : taskIds) {
+            removals.put(taskId, null);
+        }
+        tasksRef.updateChildren(removals)
+                .addOnSuccessListener(executor, aVoid -> Log.d(TAG, "Pruned " + taskIds.size() + " expired tombstones"))
+                .addOnFailureListener(executor, e -> Log.w(TAG, "Failed to prune tombstones", e));
+    }
+    
+    private static Long timestamp(Map<String, Object> taskData, String field) {
+        Object value = taskData.get(field);
+        return value instanceof Number ? ((Number) value).longValue() : null;
+    }
+    
+    static boolean isExpiredTombstone(Map<String, Object> taskData, long now) {
+        if (!isTombstone(taskData)) return false;
+        Long deletedAt = timestamp(taskData, SERVER_MODIFIED_FIELD);
+        if (deletedAt == null) deletedAt = timestamp(taskData, LAST_MODIFIED_FIELD);
+        // A tombstone without a timestamp can never be ordered against a delta, drop it
+        return deletedAt == null || deletedAt < now - TOMBSTONE_RETENTION_MILLIS;
+    }
+    
+    static boolean isWatermarkExpired(long watermark, long now) {
+        return watermark > 0 && watermark < now - TOMBSTONE_RETENTION_MILLIS + WATERMARK_OVERLAP_MILLIS;
+    }
+    
+    /**
+     * Persist the watermark once the delta it came with has been merged locally
+     */
+    public void commitSyncWatermark(long watermark) {
+        if (context == null || authManager == null) return;
+        String userEmail = authManager.getCurrentUserEmail();
+        if (userEmail == null) return;
+        String userKey = sanitizeEmail(userEmail);
+        if (watermark > getSyncWatermark(userKey)) {
+            context.getSharedPreferences(SYNC_WATERMARK_PREFS, Context.MODE_PRIVATE)
+                    .edit()
+                    .putLong(userKey, watermark)
+                    .apply();
+        }
+    }
+    
+    /**
+     * A patch on a deleted node would leave a partial task once its tombstone is pruned. With a fresh watermark
+     * every deletion old enough to be pruned has already been merged here, so patches are safe; otherwise whole
+     * tasks are written.
+     */
+    public boolean canPatchTasks() {
+        if (authManager == null) return false;
+        String userEmail = authManager.getCurrentUserEmail();
+        if (userEmail == null) return false;
+        long watermark = getSyncWatermark(sanitizeEmail(userEmail));
+        return watermark > 0 && !isWatermarkExpired(watermark, System.currentTimeMillis());
+    }
+    
+    private long getSyncWatermark(String userKey) {
+        if (context == null) return 0;
+        return context.getSharedPreferences(SYNC_WATERMARK_PREFS, Context.MODE_PRIVATE).getLong(userKey, 0);
+    }
+    
+    /**
+     * A patch can land on a tombstone and leave fields next to deleted: true; the node still reads as deleted,
+     * and since the patch moved lastModified forward every device drops the task
+     */
+    public static boolean isTombstone(Map<String, Object> taskData) {
+        return Boolean.TRUE.equals(taskData.get(TOMBSTONE_FIELD));
+    }
+    
     // Category sync methods
     public void addCategoryToFirebase(Category category, BaseRepository.DatabaseCallback<String> callback) {
         if (!shouldSync()) {
@@ -590,7 +790,7 @@ public class FirebaseSyncManager {
         return email.replace(".", "_").replace("@", "_at_");
     }
     
-    private Map<String, Object> convertTaskToMap(Task task) {
+    Map<String, Object> convertTaskToMap(Task task) {
         Map<String, Object> taskData = new HashMap<>();
         taskData.put("title", task.getTitle());
         taskData.put("description", task.getDescription());
@@ -608,10 +808,9 @@ public class FirebaseSyncManager {
         taskData.put("completionDate", task.getCompletionDate());
         taskData.put("createdDate", task.getCreatedAt());
         taskData.put("lastModified", task.getLastModified() != null ? task.getLastModified() : System.currentTimeMillis());
-        
-        if (task.getAttachments() != null) {
-            taskData.put("attachments", task.getAttachments());
-        }
+        taskData.put(SERVER_MODIFIED_FIELD, ServerValue.TIMESTAMP);
+        // Kept even when null so a patch can clear it, setValue drops null entries
+        taskData.put("attachments", task.getAttachments());
 
         if (task.getSubTasks() != null && !task.getSubTasks().isEmpty()) {
             List<Map<String, Object>> subTasksData = new ArrayList<>();
@@ -628,53 +827,51 @@ public class FirebaseSyncManager {
         return taskData;
     }
     
-    private Task convertMapToTask(Map<String, Object> data) {
-        Task task = new Task();
-        task.setTitle((String) data.get("title"));
-        task.setDescription((String) data.get("description"));
-        task.setDueDate((String) data.get("dueDate"));
-        task.setDueTime((String) data.get("dueTime"));
-        task.setCompleted(Boolean.TRUE.equals(data.get("isCompleted")));
-        task.setImportant(Boolean.TRUE.equals(data.get("isImportant")));
-        task.setCategoryId((String) data.get("categoryId"));
-        task.setPriority((String) data.get("priority"));
-        task.setCategory((String) data.get("category"));
-        task.setReminderType((String) data.get("reminderType"));
-        task.setHasReminder(Boolean.TRUE.equals(data.get("hasReminder")));
-        task.setRepeatType((String) data.get("repeatType"));
-        task.setRepeating(Boolean.TRUE.equals(data.get("isRepeating")));
-        task.setCompletionDate((String) data.get("completionDate"));
-        task.setCreatedAt((String) data.get("createdDate"));
-        
-        // Handle lastModified field
-        if (data.get("lastModified") instanceof Long) {
-            task.setLastModified((Long) data.get("lastModified"));
-        } else if (data.get("lastModified") instanceof Number) {
-            task.setLastModified(((Number) data.get("lastModified")).longValue());
-        } else {
-            task.setLastModified(System.currentTimeMillis());
+    public static Task convertMapToTask(Map<String, Object> data) {
+        // "category" and "priority" are written alongside "categoryId" and "isImportant" and win when present
+        String category = (String) data.get("category");
+        if (category == null) {
+            category = (String) data.get("categoryId");
         }
+        String priority = (String) data.get("priority");
+        boolean isImportant = priority != null ? "Cao".equals(priority) : Boolean.TRUE.equals(data.get("isImportant"));
         
-        if (data.get("attachments") != null) {
-            task.setAttachments((String) data.get("attachments"));
-        }
+        // Keep the remote lastModified as is; a missing value stays null instead of becoming "now"
+        Long lastModified = data.get("lastModified") instanceof Number
+                ? ((Number) data.get("lastModified")).longValue()
+                : null;
         
         // Convert SubTasks from Firebase Map list back to SubTask objects
+        List<SubTask> subTasks = new ArrayList<>();
         if (data.get("subTasks") != null) {
             List<Map<String, Object>> subTasksData = (List<Map<String, Object>>) data.get("subTasks");
-            List<SubTask> subTasks = new ArrayList<>();
             for (Map<String, Object> subTaskData : subTasksData) {
                 if (subTaskData != null) {
-                    SubTask subTask = SubTask.fromMap(subTaskData);
-                    subTasks.add(subTask);
+                    subTasks.add(SubTask.fromMap(subTaskData));
                 }
             }
-            task.setSubTasks(subTasks);
-        } else {
-            task.setSubTasks(new ArrayList<>());
         }
         
-        return task;
+        String createdAt = (String) data.get("createdDate");
+        return new Task.Builder()
+                .title((String) data.get("title"))
+                .description((String) data.get("description"))
+                .dueDate((String) data.get("dueDate"))
+                .dueTime((String) data.get("dueTime"))
+                .completed(Boolean.TRUE.equals(data.get("isCompleted")))
+                .important(isImportant)
+                .category(category)
+                .reminderType((String) data.get("reminderType"))
+                .hasReminder(Boolean.TRUE.equals(data.get("hasReminder")))
+                .repeatType((String) data.get("repeatType"))
+                .repeating(Boolean.TRUE.equals(data.get("isRepeating")))
+                .completionDate((String) data.get("completionDate"))
+                .createdAt(createdAt)
+                .updatedAt(lastModified != null ? DateCodec.formatDateMillis(lastModified) : createdAt)
+                .lastModified(lastModified)
+                .attachments((String) data.get("attachments"))
+                .subTasks(subTasks)
+                .build();
     }
     
     public interface SyncCallback {
@@ -687,6 +884,30 @@ public class FirebaseSyncManager {
         void onError(String error);
     }
     
+    public static class TaskDelta {
+        public final List<Task> updatedTasks;
+        // Deleted task id -> lastModified of the deletion
+        public final Map<String, Long> deletedTasks;
+        public final long watermark;
+        public final boolean fullSnapshot;
+        // Watermark stored before this read; non-zero on a full snapshot when the old one had expired
+        public final long previousWatermark;
+        
+        public TaskDelta(List<Task> updatedTasks, Map<String, Long> deletedTasks, long watermark, boolean fullSnapshot,
+                         long previousWatermark) {
+            this.updatedTasks = updatedTasks;
+            this.deletedTasks = deletedTasks;
+            this.watermark = watermark;
+            this.fullSnapshot = fullSnapshot;
+            this.previousWatermark = previousWatermark;
+        }
+    }
+    
+    public interface TaskDeltaCallback {
+        void onSuccess(TaskDelta delta);
+        void onError(String error);
+    }
+    
     public interface FirebaseCategorySyncCallback {
         void onSuccess(List<Category> categories);
         void onError(String error);
@@ -1,4 +1,6 @@
 package com.example.todolist.manager;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.Editable;
 import android.text.TextWatcher;
 import android.view.View;
@@ -7,17 +9,26 @@ import android.widget.ImageView;
 import android.widget.LinearLayout;
 import com.example.todolist.adapter.TaskAdapter;
 import com.example.todolist.model.Task;
+import com.example.todolist.repository.BaseRepository;
+import com.example.todolist.service.TaskService;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 public class SearchManager {
     public interface SearchListener {
         void onSearchModeChanged(boolean isSearchMode);
         void onSearchResults(List<Task> overdueResults, List<Task> todayResults, 
                             List<Task> futureResults, List<Task> completedResults);
     }
+    private static final long SEARCH_DEBOUNCE_MS = 250;
     private SearchListener listener;
+    private TaskService taskService;
     private boolean isSearchMode = false;
+    private final Handler searchHandler = new Handler(Looper.getMainLooper());
+    private Runnable pendingSearch;
+    private int searchGeneration = 0;
     // UI Components
     private LinearLayout layoutSearch;
     private LinearLayout layoutFilterTabs; // Add reference to filter tabs
@@ -33,8 +44,10 @@ public class SearchManager {
     private List<Task> filteredTodayTasks;
     private List<Task> filteredFutureTasks;
     private List<Task> filteredCompletedTodayTasks;
-    public SearchManager(LinearLayout layoutSearch, LinearLayout layoutFilterTabs, EditText editSearch, ImageView btnCancelSearch, SearchListener listener) {
+    public SearchManager(LinearLayout layoutSearch, LinearLayout layoutFilterTabs, EditText editSearch, ImageView btnCancelSearch,
+                         TaskService taskService, SearchListener listener) {
         this.layoutSearch = layoutSearch;
+        this.taskService = taskService;
         this.layoutFilterTabs = layoutFilterTabs;
         this.editSearch = editSearch;
         this.btnCancelSearch = btnCancelSearch;
@@ -55,7 +68,7 @@ public class SearchManager {
             public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
-                performSearch(s.toString());
+                scheduleSearch(s.toString());
             }
             @Override
             public void afterTextChanged(Editable s) {}
@@ -88,6 +101,7 @@ public class SearchManager {
     }
     public void exitSearchMode() {
         isSearchMode = false;
+        cancelPendingSearch();
         layoutSearch.setVisibility(View.GONE);
         layoutFilterTabs.setVisibility(View.VISIBLE); // Show filter tabs again
         editSearch.setText("");
@@ -95,40 +109,83 @@ public class SearchManager {
             listener.onSearchModeChanged(false);
         }
     }
+    private void scheduleSearch(String query) {
+        cancelPendingSearch();
+        pendingSearch = () -> performSearch(query);
+        searchHandler.postDelayed(pendingSearch, SEARCH_DEBOUNCE_MS);
+    }
+    private void cancelPendingSearch() {
+        if (pendingSearch != null) {
+            searchHandler.removeCallbacks(pendingSearch);
+            pendingSearch = null;
+        }
+        // Results of a search that is still running are dropped when they arrive
+        searchGeneration++;
+    }
     private void performSearch(String query) {
+        pendingSearch = null;
         if (!isSearchMode) return;
+        if (query.trim().isEmpty() || taskService == null) {
+            // Show all tasks if search is empty
+            publishResults(null, null);
+            return;
+        }
+        final int generation = ++searchGeneration;
+        final String lowerQuery = query.toLowerCase(Locale.getDefault()).trim();
+        // Room runs the FTS lookup on the read executor, results come back on the main thread
+        taskService.searchTasks(query, new BaseRepository.RepositoryCallback<List<Task>>() {
+            @Override
+            public void onSuccess(List<Task> result) {
+                if (generation != searchGeneration || !isSearchMode) return;
+                Set<String> matchedIds = new HashSet<>();
+                for (Task task : result) {
+                    matchedIds.add(task.getId());
+                }
+                publishResults(matchedIds, lowerQuery);
+            }
+            @Override
+            public void onError(String error) {
+                if (generation != searchGeneration || !isSearchMode) return;
+                publishResults(new HashSet<>(), lowerQuery);
+            }
+        });
+    }
+    private void publishResults(Set<String> matchedIds, String lowerQuery) {
         filteredOverdueTasks.clear();
         filteredTodayTasks.clear();
         filteredFutureTasks.clear();
         filteredCompletedTodayTasks.clear();
-        if (query.trim().isEmpty()) {
-            // Show all tasks if search is empty
+        if (matchedIds == null) {
             if (overdueTasks != null) filteredOverdueTasks.addAll(overdueTasks);
             if (todayTasks != null) filteredTodayTasks.addAll(todayTasks);
             if (futureTasks != null) filteredFutureTasks.addAll(futureTasks);
             if (completedTodayTasks != null) filteredCompletedTodayTasks.addAll(completedTodayTasks);
         } else {
-            String lowerQuery = query.toLowerCase(Locale.getDefault()).trim();
-            // Filter each task list
-            filterTaskList(overdueTasks, filteredOverdueTasks, lowerQuery);
-            filterTaskList(todayTasks, filteredTodayTasks, lowerQuery);
-            filterTaskList(futureTasks, filteredFutureTasks, lowerQuery);
-            filterTaskList(completedTodayTasks, filteredCompletedTodayTasks, lowerQuery);
+            filterTaskList(overdueTasks, filteredOverdueTasks, matchedIds, lowerQuery);
+            filterTaskList(todayTasks, filteredTodayTasks, matchedIds, lowerQuery);
+            filterTaskList(futureTasks, filteredFutureTasks, matchedIds, lowerQuery);
+            filterTaskList(completedTodayTasks, filteredCompletedTodayTasks, matchedIds, lowerQuery);
         }
         if (listener != null) {
             listener.onSearchResults(filteredOverdueTasks, filteredTodayTasks, 
                                    filteredFutureTasks, filteredCompletedTodayTasks);
         }
     }
-    private void filterTaskList(List<Task> source, List<Task> destination, String query) {
+    private void filterTaskList(List<Task> source, List<Task> destination, Set<String> matchedIds, String query) {
         if (source == null) return;
         for (Task task : source) {
-            if (task.getTitle().toLowerCase(Locale.getDefault()).contains(query) ||
-                (task.getDescription() != null && task.getDescription().toLowerCase(Locale.getDefault()).contains(query))) {
+            if (matchedIds.contains(task.getId())) {
+                destination.add(task);
+            } else if (task.isShared() && matchesText(task, query)) {
+                // Shared tasks only live in memory, so they are not in the local search index
                 destination.add(task);
             }
         }
     }
+    private boolean matchesText(Task task, String query) {
+        return (task.getTitle() != null && task.getTitle().toLowerCase(Locale.getDefault()).contains(query)) ||
+               (task.getDescription() != null && task.getDescription().toLowerCase(Locale.getDefault()).contains(query));
+    }
     // Getters
     public boolean isSearchMode() { return isSearchMode; }
     public List<Task> getFilteredOverdueTasks() { return filteredOverdueTasks; }
@@ -144,7 +144,7 @@ public class SyncManager {
                 for (DataSnapshot taskSnapshot : dataSnapshot.getChildren()) {
                     try {
                         Map<String, Object> taskData = (Map<String, Object>) taskSnapshot.getValue();
-                        if (taskData != null) {
+                        if (taskData != null && !FirebaseSyncManager.isTombstone(taskData)) {
                             Task remoteTask = new Task();
                             remoteTask.setId(taskSnapshot.getKey()); // Set Firebase ID
                             remoteTask.setTitle((String) taskData.get("title"));
@@ -0,0 +1,230 @@
+package com.example.todolist.manager;
+
+import com.google.firebase.database.DatabaseReference;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Uploads task maps as multi-path updateChildren writes, one write per chunk.
+ * Tasks whose content hash matches the last successful sync are skipped.
+ */
+public class TaskBatchUploader {
+
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * The node the task children live under; implemented by DatabaseReference in the app and by fakes in tests
+     */
+    public interface UpdateTarget {
+        void updateChildren(Map<String, Object> updates, ResultListener listener);
+    }
+
+    public interface ResultListener {
+        /**
+         * @param error null on success, otherwise the failure message
+         */
+        void onComplete(String error);
+    }
+
+    public interface Callback {
+        void onComplete(Result result);
+    }
+
+    public static class Result {
+        public final int total;
+        public final int uploaded;
+        public final int skipped;
+        public final List<String> failedTaskIds;
+        // Hashes of every task that is now known to be in sync, to be stored for the next run
+        public final Map<String, Long> syncedHashes;
+        public final String firstError;
+
+        Result(int total, int uploaded, int skipped, List<String> failedTaskIds,
+               Map<String, Long> syncedHashes, String firstError) {
+            this.total = total;
+            this.uploaded = uploaded;
+            this.skipped = skipped;
+            this.failedTaskIds = Collections.unmodifiableList(failedTaskIds);
+            this.syncedHashes = Collections.unmodifiableMap(syncedHashes);
+            this.firstError = firstError;
+        }
+
+        public boolean isSuccessful() {
+            return failedTaskIds.isEmpty();
+        }
+    }
+
+    public static UpdateTarget forReference(DatabaseReference reference) {
+        return (updates, listener) -> reference.updateChildren(updates)
+                .addOnSuccessListener(aVoid -> listener.onComplete(null))
+                .addOnFailureListener(e -> listener.onComplete(e.getMessage() != null ? e.getMessage() : e.toString()));
+    }
+
+    /**
+     * As forReference, with each chunk's completion delivered on the executor instead of the main thread
+     */
+    public static UpdateTarget forReference(DatabaseReference reference, Executor executor) {
+        return (updates, listener) -> reference.updateChildren(updates)
+                .addOnSuccessListener(executor, aVoid -> listener.onComplete(null))
+                .addOnFailureListener(executor, e -> listener.onComplete(e.getMessage() != null ? e.getMessage() : e.toString()));
+    }
+
+    private final UpdateTarget target;
+    private final int chunkSize;
+
+    public TaskBatchUploader(UpdateTarget target, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        this.target = target;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @param taskData task id -> map written at that child
+     * @param previousHashes hashes from the last successful sync, may be empty
+     */
+    public void upload(Map<String, Map<String, Object>> taskData, Map<String, Long> previousHashes, Callback callback) {
+        upload(taskData, Collections.emptySet(), previousHashes, callback);
+    }
+
+    /**
+     * @param patchedTaskIds tasks whose map only holds changed fields; those are written as
+     *                       "taskId/field" paths instead of replacing the whole child
+     */
+    public void upload(Map<String, Map<String, Object>> taskData, Set<String> patchedTaskIds,
+                       Map<String, Long> previousHashes, Callback callback) {
+        Map<String, Long> syncedHashes = new HashMap<>();
+        List<String> changedIds = new ArrayList<>();
+        Map<String, Long> changedHashes = new HashMap<>();
+
+        for (Map.Entry<String, Map<String, Object>> entry : taskData.entrySet()) {
+            long hash = contentHash(entry.getValue());
+            Long previous = previousHashes.get(entry.getKey());
+            if (previous != null && previous == hash) {
+                syncedHashes.put(entry.getKey(), hash);
+            } else {
+                changedIds.add(entry.getKey());
+                changedHashes.put(entry.getKey(), hash);
+            }
+        }
+
+        int skipped = taskData.size() - changedIds.size();
+        if (changedIds.isEmpty()) {
+            callback.onComplete(new Result(taskData.size(), 0, skipped, new ArrayList<>(), syncedHashes, null));
+            return;
+        }
+
+        int chunkCount = (changedIds.size() + chunkSize - 1) / chunkSize;
+        Aggregate aggregate = new Aggregate(taskData.size(), skipped, chunkCount, syncedHashes, callback);
+        for (int start = 0; start < changedIds.size(); start += chunkSize) {
+            List<String> chunkIds = changedIds.subList(start, Math.min(start + chunkSize, changedIds.size()));
+            Map<String, Object> updates = new HashMap<>();
+            for (String taskId : chunkIds) {
+                if (patchedTaskIds.contains(taskId)) {
+                    for (Map.Entry<String, Object> field : taskData.get(taskId).entrySet()) {
+                        updates.put(taskId + "/" + field.getKey(), field.getValue());
+                    }
+                } else {
+                    updates.put(taskId, taskData.get(taskId));
+                }
+            }
+            List<String> ids = new ArrayList<>(chunkIds);
+            target.updateChildren(updates, error -> aggregate.onChunkComplete(ids, changedHashes, error));
+        }
+    }
+
+    /**
+     * Stable 64-bit FNV-1a hash over the map with keys sorted, so HashMap iteration order does not matter
+     */
+    public static long contentHash(Map<String, Object> data) {
+        return hashValue(FNV_OFFSET_BASIS, data);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static long hashValue(long hash, Object value) {
+        if (value instanceof Map) {
+            hash = hashString(hash, "{");
+            for (Map.Entry<String, Object> entry : new TreeMap<>((Map<String, Object>) value).entrySet()) {
+                hash = hashString(hash, entry.getKey());
+                hash = hashString(hash, "=");
+                hash = hashValue(hash, entry.getValue());
+                hash = hashString(hash, ",");
+            }
+            return hashString(hash, "}");
+        }
+        if (value instanceof List) {
+            hash = hashString(hash, "[");
+            for (Object item : (List<Object>) value) {
+                hash = hashValue(hash, item);
+                hash = hashString(hash, ",");
+            }
+            return hashString(hash, "]");
+        }
+        if (value == null) {
+            return hashString(hash, "\u0000");
+        }
+        // Type prefix keeps "1" and 1L apart
+        hash = hashString(hash, value.getClass().getSimpleName());
+        return hashString(hash, value.toString());
+    }
+
+    private static long hashString(long hash, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static class Aggregate {
+        private final int total;
+        private final int skipped;
+        private final Map<String, Long> syncedHashes;
+        private final Callback callback;
+        private final List<String> failedIds = new ArrayList<>();
+        private int pendingChunks;
+        private int uploaded;
+        private String firstError;
+
+        Aggregate(int total, int skipped, int pendingChunks, Map<String, Long> syncedHashes, Callback callback) {
+            this.total = total;
+            this.skipped = skipped;
+            this.pendingChunks = pendingChunks;
+            this.syncedHashes = syncedHashes;
+            this.callback = callback;
+        }
+
+        void onChunkComplete(List<String> taskIds, Map<String, Long> hashes, String error) {
+            Result result = null;
+            synchronized (this) {
+                if (error == null) {
+                    uploaded += taskIds.size();
+                    for (String taskId : taskIds) {
+                        syncedHashes.put(taskId, hashes.get(taskId));
+                    }
+                } else {
+                    failedIds.addAll(taskIds);
+                    if (firstError == null) firstError = error;
+                }
+                pendingChunks--;
+                if (pendingChunks == 0) {
+                    result = new Result(total, uploaded, skipped, failedIds, syncedHashes, firstError);
+                }
+            }
+            if (result != null) {
+                callback.onComplete(result);
+            }
+        }
+    }
+}
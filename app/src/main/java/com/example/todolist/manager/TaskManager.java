@@ -6,15 +6,14 @@ import com.example.todolist.R;
 import com.example.todolist.model.TodoTask;
 import com.example.todolist.notification.ReminderScheduler;
 import com.example.todolist.widget.WidgetUpdateHelper;
+import com.example.todolist.service.AppServices;
 import com.example.todolist.service.TaskService;
 import com.example.todolist.repository.BaseRepository;
 import com.example.todolist.model.Task;
-import java.text.SimpleDateFormat;
+import com.example.todolist.util.DateCodec;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Date;
 import java.util.List;
-import java.util.Locale;
 public class TaskManager {
     public interface TaskUpdateListener {
         void onTasksUpdated();
@@ -30,7 +29,7 @@ public class TaskManager {
     public TaskManager(Context context, TaskUpdateListener listener) {
         this.context = context;
         this.listener = listener;
-        this.taskService = new TaskService(context, null);
+        this.taskService = AppServices.getInstance(context).getTaskService();
         initializeLists();
     }
     private void initializeLists() {
@@ -51,7 +50,7 @@ public class TaskManager {
         if (listener != null) {
             listener.onTasksUpdated();
         }
-        WidgetUpdateHelper.updateAllWidgets(context);
+        WidgetUpdateHelper.notifyTasksChanged(context, null);
     }
     private TodoTask convertTaskToTodoTask(Task task) {
         TodoTask todoTask = new TodoTask();
@@ -76,7 +75,7 @@ public class TaskManager {
         futureTasks.clear();
         completedTodayTasks.clear();
         Calendar now = Calendar.getInstance();
-        String todayDateStr = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault()).format(now.getTime());
+        String todayDateStr = DateCodec.todayString();
         for (TodoTask task : allTasks) {
             if (task.isCompleted()) {
                 if (isTaskCompletedToday(task, todayDateStr)) {
@@ -106,21 +105,18 @@ public class TaskManager {
         return completionDate.equals(todayDateStr);
     }
     private int getTaskTimeCategory(TodoTask task, Calendar now, String todayDateStr) {
-        try {
-            String taskDateStr = task.getDueDate();
-            SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-            Date taskDate = dateFormat.parse(taskDateStr);
-            Date todayDate = dateFormat.parse(todayDateStr);
-            if (taskDate.before(todayDate)) {
-                return 0;
-            } else if (taskDate.equals(todayDate)) {
-                return 1; 
-            } else {
-                return 2; 
-            }
-        } catch (Exception e) {
+        Long taskDay = DateCodec.parseEpochDay(task.getDueDate());
+        Long today = DateCodec.parseEpochDay(todayDateStr);
+        if (taskDay == null || today == null) {
             return 1; 
         }
+        if (taskDay < today) {
+            return 0;
+        } else if (taskDay.equals(today)) {
+            return 1; 
+        } else {
+            return 2; 
+        }
     }
     public void completeTask(TodoTask task, boolean isCompleted) {
         // Convert TodoTask to Task for processing
@@ -145,8 +141,7 @@ public class TaskManager {
         // Xử lý task bình thường
         task.setCompleted(isCompleted);
         if (isCompleted) {
-            SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-            task.setCompletionDate(dateFormat.format(new Date()));
+            task.setCompletionDate(DateCodec.todayString());
         } else {
             task.setCompletionDate(null);
         }
@@ -154,12 +149,7 @@ public class TaskManager {
         taskService.updateTask(taskToUpdate);
         ReminderScheduler scheduler = new ReminderScheduler(context);
         if (isCompleted) {
-            try {
-                int taskId = Integer.parseInt(task.getId());
-                scheduler.cancelTaskReminders(taskId);
-            } catch (NumberFormatException e) {
-
-            }
+            scheduler.cancelTaskReminders(task.getId());
         } else {
             if (task.isHasReminder()) {
                 Task taskForScheduler = convertTodoTaskToTask(task);
@@ -199,7 +189,7 @@ public class TaskManager {
                 .setMessage(context.getString(R.string.confirm_delete_task_message))
                 .setPositiveButton(context.getString(R.string.delete_button_text), (dialog, which) -> { 
                     Task taskToDelete = convertTodoTaskToTask(task);
-                    taskService.deleteTask(taskToDelete);
+                    taskService.deleteTask(taskToDelete, null);
                     loadTasks();
                     Toast.makeText(context, context.getString(R.string.task_deleted_toast), Toast.LENGTH_SHORT).show(); 
                 })
@@ -0,0 +1,330 @@
+package com.example.todolist.manager;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.todolist.cache.TaskCache;
+import com.example.todolist.database.ToDoDatabase;
+import com.example.todolist.database.dao.PendingOperationDao;
+import com.example.todolist.database.dao.SubTaskDao;
+import com.example.todolist.database.dao.TaskDao;
+import com.example.todolist.database.entity.PendingOperationEntity;
+import com.example.todolist.database.entity.TaskEntity;
+import com.example.todolist.database.mapper.SubTaskMapper;
+import com.example.todolist.database.mapper.TaskMapper;
+import com.example.todolist.model.Task;
+import com.example.todolist.repository.DatabaseExecutors;
+import com.example.todolist.service.sharing.SharedTaskSyncService;
+import com.example.todolist.service.sharing.TaskSharingService;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Durable queue of task writes that still have to reach Firebase.
+ * Local changes are committed first, the outbox only records which task changed and how,
+ * and sends the current content of each task in batches, retrying failures with exponential backoff.
+ * Draining runs on the database executors and the sync executor, the main thread only holds the backoff timer.
+ */
+public class TaskOutbox {
+    private static final String TAG = "TaskOutbox";
+    private static final int BATCH_SIZE = 100;
+    private static final long BASE_BACKOFF_MILLIS = 5_000L;
+    private static final long MAX_BACKOFF_MILLIS = 30 * 60 * 1000L;
+    // Firebase holds writes made offline until it reconnects, a batch is given up after this and retried later
+    private static final long BATCH_TIMEOUT_MILLIS = 2 * 60 * 1000L;
+
+    private static TaskOutbox instance;
+
+    private PendingOperationDao pendingOperationDao;
+    private TaskDao taskDao;
+    private SubTaskDao subTaskDao;
+    private AuthManager authManager;
+    private FirebaseSyncManager firebaseSyncManager;
+    private final DatabaseExecutors databaseExecutors = DatabaseExecutors.getInstance();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable drainRunnable = this::drain;
+
+    // Guarded by this, a batch that finishes after it was given up must not end the next one
+    private int batchGeneration;
+    private Runnable batchTimeout;
+    private boolean draining;
+    private boolean drainRequested;
+    private boolean initialized;
+
+    private TaskOutbox() {
+    }
+
+    public static TaskOutbox getInstance() {
+        if (instance == null) {
+            synchronized (TaskOutbox.class) {
+                if (instance == null) {
+                    instance = new TaskOutbox();
+                }
+            }
+        }
+        return instance;
+    }
+
+    public synchronized void initialize(Context context) {
+        if (initialized) return;
+        initialized = true;
+
+        Context appContext = context.getApplicationContext();
+        ToDoDatabase database = ToDoDatabase.getInstance(appContext);
+        this.pendingOperationDao = database.pendingOperationDao();
+        this.taskDao = database.taskDao();
+        this.subTaskDao = database.subTaskDao();
+        this.authManager = AuthManager.getInstance();
+        this.firebaseSyncManager = FirebaseSyncManager.getInstance();
+
+        ConnectivityManager connectivityManager = appContext.getSystemService(ConnectivityManager.class);
+        if (connectivityManager != null) {
+            connectivityManager.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onAvailable(Network network) {
+                    retryNow();
+                }
+            });
+        }
+        drain();
+    }
+
+    public void enqueue(String taskId, String operation) {
+        enqueue(taskId, operation, null, false);
+    }
+
+    /**
+     * @param dirtyFields keys from Task.takeDirtyFields(), empty or null sends the whole task
+     */
+    public void enqueueUpdate(String taskId, Set<String> dirtyFields) {
+        enqueue(taskId, PendingOperationEntity.OP_UPDATE, dirtyFields, false);
+    }
+
+    /**
+     * Shared tasks live in the owner's tree and are sent one by one through SharedTaskSyncService
+     */
+    public void enqueueSharedUpdate(String taskId, Set<String> dirtyFields) {
+        enqueue(taskId, PendingOperationEntity.OP_UPDATE, dirtyFields, true);
+    }
+
+    private void enqueue(String taskId, String operation, Set<String> dirtyFields, boolean isShared) {
+        String accountEmail = authManager != null ? authManager.getCurrentUserEmail() : null;
+        if (pendingOperationDao == null || taskId == null || accountEmail == null) return;
+
+        databaseExecutors.executeWrite(() -> {
+            pendingOperationDao.enqueue(taskId, operation, PendingOperationEntity.joinFields(dirtyFields),
+                    accountEmail, isShared, System.currentTimeMillis());
+            drain();
+        });
+    }
+
+    public void discard(String taskId) {
+        if (pendingOperationDao == null || taskId == null) return;
+        databaseExecutors.executeWrite(() -> pendingOperationDao.deleteOperation(taskId));
+    }
+
+    /**
+     * Clear backoff and send everything, used when connectivity comes back
+     */
+    public void retryNow() {
+        String accountEmail = authManager != null ? authManager.getCurrentUserEmail() : null;
+        if (pendingOperationDao == null || accountEmail == null) return;
+        databaseExecutors.executeWrite(() -> {
+            pendingOperationDao.retryAllNow(accountEmail, System.currentTimeMillis());
+            drain();
+        });
+    }
+
+    public void drain() {
+        if (pendingOperationDao == null) return;
+        int generation;
+        synchronized (this) {
+            if (draining) {
+                drainRequested = true;
+                return;
+            }
+            draining = true;
+            drainRequested = false;
+            generation = ++batchGeneration;
+        }
+        mainHandler.removeCallbacks(drainRunnable);
+        databaseExecutors.executeWrite(() -> claimNextBatch(generation));
+    }
+
+    private void claimNextBatch(int generation) {
+        String accountEmail = authManager.getCurrentUserEmail();
+        if (!authManager.shouldSyncToFirebase() || accountEmail == null) {
+            finishBatch(generation, false, null);
+            return;
+        }
+
+        // Claimed on the write lane, an enqueue that runs after this treats the rows as possibly sent
+        List<PendingOperationEntity> due = pendingOperationDao.claimDueOperations(accountEmail, System.currentTimeMillis(), BATCH_SIZE);
+        if (due.isEmpty()) {
+            finishBatch(generation, false, accountEmail);
+            return;
+        }
+
+        Runnable timeout = () -> abandonBatch(generation, due, accountEmail);
+        synchronized (this) {
+            batchTimeout = timeout;
+        }
+        mainHandler.postDelayed(timeout, BATCH_TIMEOUT_MILLIS);
+        databaseExecutors.executeRead(() -> sendBatch(generation, due, accountEmail));
+    }
+
+    private void sendBatch(int generation, List<PendingOperationEntity> due, String accountEmail) {
+        Map<String, Map<String, Object>> taskData = new HashMap<>();
+        Set<String> patchedTaskIds = new HashSet<>();
+        Map<String, PendingOperationEntity> ownOperations = new HashMap<>();
+        boolean canPatch = firebaseSyncManager.canPatchTasks();
+        List<PendingOperationEntity> sharedOperations = new ArrayList<>();
+        Map<String, Task> sharedTasks = new HashMap<>();
+        for (PendingOperationEntity operation : due) {
+            if (PendingOperationEntity.OP_DELETE.equals(operation.operation)) {
+                taskData.put(operation.taskId, FirebaseSyncManager.createTombstone());
+                ownOperations.put(operation.taskId, operation);
+                continue;
+            }
+            Task task = loadTask(operation.taskId);
+            if (task == null) {
+                // Removed locally without a queued delete, nothing left to send
+                databaseExecutors.executeWrite(() -> pendingOperationDao.deleteSentOperation(operation.taskId, operation.revision));
+            } else if (operation.isShared) {
+                sharedOperations.add(operation);
+                sharedTasks.put(operation.taskId, task);
+            } else if (operation.dirtyFields != null && canPatch) {
+                taskData.put(operation.taskId, FirebaseSyncManager.buildPatch(firebaseSyncManager.convertTaskToMap(task),
+                        PendingOperationEntity.splitFields(operation.dirtyFields)));
+                patchedTaskIds.add(operation.taskId);
+                ownOperations.put(operation.taskId, operation);
+            } else {
+                taskData.put(operation.taskId, firebaseSyncManager.convertTaskToMap(task));
+                ownOperations.put(operation.taskId, operation);
+            }
+        }
+
+        boolean fullBatch = due.size() == BATCH_SIZE;
+        AtomicInteger pendingSends = new AtomicInteger((taskData.isEmpty() ? 0 : 1) + sharedOperations.size());
+        if (pendingSends.get() == 0) {
+            finishBatch(generation, fullBatch, accountEmail);
+            return;
+        }
+        Runnable onSendComplete = () -> {
+            if (pendingSends.decrementAndGet() == 0) {
+                finishBatch(generation, fullBatch, accountEmail);
+            }
+        };
+
+        if (!taskData.isEmpty()) {
+            firebaseSyncManager.uploadTaskChanges(taskData, patchedTaskIds, result -> {
+                Set<String> failed = new HashSet<>(result.failedTaskIds);
+                for (PendingOperationEntity operation : ownOperations.values()) {
+                    recordResult(operation, failed.contains(operation.taskId) ? result.firstError : null);
+                }
+                onSendComplete.run();
+            });
+        }
+
+        SharedTaskSyncService sharedTaskSyncService = SharedTaskSyncService.getInstance();
+        for (PendingOperationEntity operation : sharedOperations) {
+            Set<String> dirtyFields = operation.dirtyFields != null ? PendingOperationEntity.splitFields(operation.dirtyFields) : null;
+            sharedTaskSyncService.updateSharedTask(sharedTasks.get(operation.taskId), dirtyFields, new TaskSharingService.SharingCallback() {
+                @Override
+                public void onSuccess(String message) {
+                    recordResult(operation, null);
+                    onSendComplete.run();
+                }
+
+                @Override
+                public void onError(String error) {
+                    recordResult(operation, error != null ? error : "Shared task update failed");
+                    onSendComplete.run();
+                }
+            });
+        }
+    }
+
+    private void recordResult(PendingOperationEntity operation, String error) {
+        databaseExecutors.executeWrite(() -> {
+            if (error == null) {
+                pendingOperationDao.deleteSentOperation(operation.taskId, operation.revision);
+            } else {
+                int attempts = operation.attemptCount + 1;
+                pendingOperationDao.markFailed(operation.taskId, operation.revision, attempts,
+                        System.currentTimeMillis() + backoffMillis(attempts), error);
+                Log.w(TAG, "Send failed for " + operation.taskId + " (attempt " + attempts + "): " + error);
+            }
+        });
+    }
+
+    /**
+     * Marks a batch whose sends have not completed as failed so the outbox keeps draining.
+     * A send that completes later still records its result, by revision, like any other.
+     */
+    private void abandonBatch(int generation, List<PendingOperationEntity> due, String accountEmail) {
+        synchronized (this) {
+            if (generation != batchGeneration || !draining) return;
+        }
+        Log.w(TAG, "Batch of " + due.size() + " did not complete in time");
+        for (PendingOperationEntity operation : due) {
+            recordResult(operation, "Timed out");
+        }
+        finishBatch(generation, false, accountEmail);
+    }
+
+    // Runs after the batch's result writes were queued, the single write lane keeps them ahead of this
+    private void finishBatch(int generation, boolean moreDue, String accountEmail) {
+        databaseExecutors.executeWrite(() -> {
+            boolean again;
+            synchronized (this) {
+                if (generation != batchGeneration || !draining) return;
+                draining = false;
+                again = moreDue || drainRequested;
+                if (batchTimeout != null) {
+                    mainHandler.removeCallbacks(batchTimeout);
+                    batchTimeout = null;
+                }
+            }
+            if (again) {
+                drain();
+            } else if (accountEmail != null) {
+                scheduleNextAttempt(accountEmail);
+            }
+        });
+    }
+
+    private void scheduleNextAttempt(String accountEmail) {
+        Long nextAttemptAt = pendingOperationDao.getNextAttemptAt(accountEmail);
+        if (nextAttemptAt == null) return;
+        long delay = Math.max(0, nextAttemptAt - System.currentTimeMillis());
+        mainHandler.removeCallbacks(drainRunnable);
+        mainHandler.postDelayed(drainRunnable, delay);
+    }
+
+    private Task loadTask(String taskId) {
+        Task task = TaskCache.getInstance().getTask(taskId);
+        if (task != null) return task;
+
+        TaskEntity entity = taskDao.getTaskById(taskId);
+        if (entity == null) return null;
+        task = TaskMapper.fromEntity(entity);
+        task.restoreSubTasks(SubTaskMapper.fromEntities(subTaskDao.getSubTasksByTaskId(taskId)));
+        return task;
+    }
+
+    static long backoffMillis(int attempts) {
+        int shift = Math.min(Math.max(attempts - 1, 0), 20);
+        return Math.min(BASE_BACKOFF_MILLIS << shift, MAX_BACKOFF_MILLIS);
+    }
+}
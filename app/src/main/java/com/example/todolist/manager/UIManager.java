@@ -21,6 +21,7 @@ import com.example.todolist.adapter.CategorySpinnerAdapter;
 import com.example.todolist.adapter.TaskAdapter;
 import com.example.todolist.model.Category;
 import com.example.todolist.model.Task;
+import com.example.todolist.service.AppServices;
 import com.example.todolist.service.TaskService;
 import com.example.todolist.service.CategoryService;
 import com.example.todolist.util.TaskSortDialog;
@@ -49,8 +50,8 @@ public class UIManager {
         this.btnMenu = btnMenu;
         this.textCheckAllCompleted = textCheckAllCompleted;
         this.listener = listener;
-        this.taskService = new TaskService(activity, null);
-        this.categoryService = new CategoryService(activity, null);
+        this.taskService = AppServices.getInstance(activity).getTaskService();
+        this.categoryService = AppServices.getInstance(activity).getCategoryService();
         setupUIListeners();
     }
     private void setupUIListeners() {
@@ -2,6 +2,7 @@ package com.example.todolist.manager;
 import android.content.Context;
 import android.content.SharedPreferences;
 import com.example.todolist.model.Task;
+import com.example.todolist.service.AppServices;
 import com.example.todolist.service.TaskService;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -24,7 +25,7 @@ public class UserStatsManager {
     private SharedPreferences preferences;
     public UserStatsManager(Context context) {
         this.context = context;
-        this.taskService = new TaskService(context, null);
+        this.taskService = AppServices.getInstance(context).getTaskService();
         this.preferences = context.getSharedPreferences("TodoApp", Context.MODE_PRIVATE);
     }
     public interface StatsCallback {
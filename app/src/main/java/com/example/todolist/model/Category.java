@@ -1,10 +1,8 @@
 package com.example.todolist.model;
 
+import com.example.todolist.util.DateCodec;
 import java.io.Serializable;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.HashMap;
-import java.util.Locale;
 import java.util.Map;
 
 public class Category implements Serializable {
@@ -17,8 +15,7 @@ public class Category implements Serializable {
     private String createdAt; 
     private String updatedAt; 
     public Category() {
-        SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-        String currentDate = dateFormat.format(new Date());
+        String currentDate = DateCodec.todayString();
         this.createdAt = currentDate;
         this.updatedAt = currentDate;
     }
@@ -79,8 +76,7 @@ public class Category implements Serializable {
     }
     // Update timestamp
     public void updateTimestamp() {
-        SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-        this.updatedAt = dateFormat.format(new Date());
+        this.updatedAt = DateCodec.todayString();
     }
     public String getId() { return id; }
     public void setId(String id) { this.id = id; }
@@ -121,8 +117,7 @@ public class Category implements Serializable {
         if (createdAt instanceof String) {
             this.createdAt = (String) createdAt;
         } else if (createdAt instanceof Long) {
-            SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-            this.createdAt = dateFormat.format(new Date((Long) createdAt));
+            this.createdAt = DateCodec.formatDateMillis((Long) createdAt);
         } else if (createdAt != null) {
             this.createdAt = createdAt.toString();
         }
@@ -131,8 +126,7 @@ public class Category implements Serializable {
     
     public void setCreatedAtFromLong(Long createdAt) { 
         if (createdAt != null) {
-            SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-            this.createdAt = dateFormat.format(new Date(createdAt));
+            this.createdAt = DateCodec.formatDateMillis(createdAt);
         }
     }
     
@@ -142,8 +136,7 @@ public class Category implements Serializable {
         if (updatedAt instanceof String) {
             this.updatedAt = (String) updatedAt;
         } else if (updatedAt instanceof Long) {
-            SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-            this.updatedAt = dateFormat.format(new Date((Long) updatedAt));
+            this.updatedAt = DateCodec.formatDateMillis((Long) updatedAt);
         } else if (updatedAt != null) {
             this.updatedAt = updatedAt.toString();
         }
@@ -152,8 +145,7 @@ public class Category implements Serializable {
     
     public void setUpdatedAtFromLong(Long updatedAt) { 
         if (updatedAt != null) {
-            SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-            this.updatedAt = dateFormat.format(new Date(updatedAt));
+            this.updatedAt = DateCodec.formatDateMillis(updatedAt);
         }
     }
     @Override
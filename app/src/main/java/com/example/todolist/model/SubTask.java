@@ -1,9 +1,7 @@
 package com.example.todolist.model;
 
+import com.example.todolist.util.DateCodec;
 import java.io.Serializable;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
 
 public class SubTask implements Serializable {
     private String id;
@@ -13,12 +11,19 @@ public class SubTask implements Serializable {
     private String taskId; // ID của task cha
 
     public SubTask() {
-        SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy HH:mm", Locale.getDefault());
-        String currentDate = dateFormat.format(new Date());
-        this.createdAt = currentDate;
+        this.createdAt = DateCodec.nowDateTimeString();
         this.isCompleted = false;
     }
 
+    // Restores a stored subtask without reading the clock
+    public SubTask(String id, String taskId, String title, boolean isCompleted, String createdAt) {
+        this.id = id;
+        this.taskId = taskId;
+        this.title = title;
+        this.isCompleted = isCompleted;
+        this.createdAt = createdAt;
+    }
+
     public SubTask(String title, String taskId) {
         this();
         this.title = title;
@@ -77,12 +82,11 @@ public class SubTask implements Serializable {
     }
 
     public static SubTask fromMap(java.util.Map<String, Object> data) {
-        SubTask subTask = new SubTask();
-        subTask.setId((String) data.get("id"));
-        subTask.setTitle((String) data.get("title"));
-        subTask.setCompleted(Boolean.TRUE.equals(data.get("isCompleted")));
-        subTask.setCreatedAt((String) data.get("createdAt"));
-        subTask.setTaskId((String) data.get("taskId"));
-        return subTask;
+        return new SubTask(
+                (String) data.get("id"),
+                (String) data.get("taskId"),
+                (String) data.get("title"),
+                Boolean.TRUE.equals(data.get("isCompleted")),
+                (String) data.get("createdAt"));
     }
 }
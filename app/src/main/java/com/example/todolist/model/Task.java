@@ -1,16 +1,18 @@
 package com.example.todolist.model;
 
+import com.example.todolist.util.DateCodec;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import java.io.Serializable;
 import java.lang.reflect.Type;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 public class Task implements Serializable {
     private String id;
     private String title;
@@ -31,9 +33,13 @@ public class Task implements Serializable {
     private Long lastModified;
     private List<SubTask> subTasks;
     private boolean isShared; // Đánh dấu task có được chia sẻ không     
+    // Keys of the stored map changed since the last takeDirtyFields(), so a sync can send only those
+    private transient Set<String> dirtyFields;
+    // Sub tasks are also edited in place through getSubTasks(), so they are compared by content instead
+    private transient long syncedSubTasksFingerprint;
+    private transient boolean hasSyncedSubTasksFingerprint;
     public Task() {
-        SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-        String currentDate = dateFormat.format(new Date());
+        String currentDate = DateCodec.todayString();
         this.createdAt = currentDate;
         this.updatedAt = currentDate;
         this.lastModified = System.currentTimeMillis();
@@ -57,6 +63,80 @@ public class Task implements Serializable {
         this.completionDate = null;
     }
 
+    // Used by Builder: no clock reads, fields are filled from stored data
+    private Task(Builder builder) {
+        this.id = builder.id;
+        this.title = builder.title;
+        this.description = builder.description;
+        this.dueDate = builder.dueDate;
+        this.dueTime = builder.dueTime;
+        this.isCompleted = builder.isCompleted;
+        this.isImportant = builder.isImportant;
+        this.category = builder.category;
+        this.reminderType = builder.reminderType;
+        this.hasReminder = builder.hasReminder;
+        this.attachments = builder.attachments;
+        this.repeatType = builder.repeatType;
+        this.isRepeating = builder.isRepeating;
+        this.completionDate = builder.completionDate;
+        this.createdAt = builder.createdAt;
+        this.updatedAt = builder.updatedAt;
+        this.lastModified = builder.lastModified;
+        this.subTasks = builder.subTasks != null ? builder.subTasks : new ArrayList<>();
+        this.isShared = builder.isShared;
+        markSubTasksSynced();
+    }
+
+    /**
+     * Rebuilds a Task from storage (Room, Firebase) without going through the setters,
+     * which would stamp updatedAt/lastModified with the current time.
+     */
+    public static class Builder {
+        private String id;
+        private String title;
+        private String description;
+        private String dueDate;
+        private String dueTime;
+        private boolean isCompleted;
+        private boolean isImportant;
+        private String category;
+        private String reminderType;
+        private boolean hasReminder;
+        private String attachments;
+        private String repeatType;
+        private boolean isRepeating;
+        private String completionDate;
+        private String createdAt;
+        private String updatedAt;
+        private Long lastModified;
+        private List<SubTask> subTasks;
+        private boolean isShared;
+
+        public Builder id(String id) { this.id = id; return this; }
+        public Builder title(String title) { this.title = title; return this; }
+        public Builder description(String description) { this.description = description; return this; }
+        public Builder dueDate(String dueDate) { this.dueDate = dueDate; return this; }
+        public Builder dueTime(String dueTime) { this.dueTime = dueTime; return this; }
+        public Builder completed(boolean completed) { this.isCompleted = completed; return this; }
+        public Builder important(boolean important) { this.isImportant = important; return this; }
+        public Builder category(String category) { this.category = category; return this; }
+        public Builder reminderType(String reminderType) { this.reminderType = reminderType; return this; }
+        public Builder hasReminder(boolean hasReminder) { this.hasReminder = hasReminder; return this; }
+        public Builder attachments(String attachments) { this.attachments = attachments; return this; }
+        public Builder repeatType(String repeatType) { this.repeatType = repeatType; return this; }
+        public Builder repeating(boolean repeating) { this.isRepeating = repeating; return this; }
+        public Builder completionDate(String completionDate) { this.completionDate = completionDate; return this; }
+        public Builder createdAt(String createdAt) { this.createdAt = createdAt; return this; }
+        public Builder updatedAt(String updatedAt) { this.updatedAt = updatedAt; return this; }
+        public Builder lastModified(Long lastModified) { this.lastModified = lastModified; return this; }
+        public Builder subTasks(List<SubTask> subTasks) { this.subTasks = subTasks; return this; }
+        public Builder shared(boolean shared) { this.isShared = shared; return this; }
+
+        public Task build() {
+            return new Task(this);
+        }
+    }
+
     public Map<String, Object> toMap() {
         Map<String, Object> result = new HashMap<>();
         result.put("id", id);
@@ -81,9 +161,50 @@ public class Task implements Serializable {
         return result;
     }
 
+    /**
+     * @return the keys changed since the previous call, including "subTasks" when their content changed;
+     * clears the set
+     */
+    public Set<String> takeDirtyFields() {
+        Set<String> fields = dirtyFields != null ? dirtyFields : new HashSet<>();
+        dirtyFields = null;
+        long fingerprint = subTasksFingerprint();
+        if (!hasSyncedSubTasksFingerprint || fingerprint != syncedSubTasksFingerprint) {
+            fields.add("subTasks");
+        }
+        syncedSubTasksFingerprint = fingerprint;
+        hasSyncedSubTasksFingerprint = true;
+        return fields;
+    }
+
+    private void markDirty(String... fields) {
+        if (dirtyFields == null) {
+            dirtyFields = new HashSet<>();
+        }
+        Collections.addAll(dirtyFields, fields);
+    }
+
+    private void markSubTasksSynced() {
+        syncedSubTasksFingerprint = subTasksFingerprint();
+        hasSyncedSubTasksFingerprint = true;
+    }
+
+    private long subTasksFingerprint() {
+        long hash = 1;
+        if (subTasks != null) {
+            for (SubTask subTask : subTasks) {
+                if (subTask == null) continue;
+                hash = 31 * hash + Objects.hashCode(subTask.getId());
+                hash = 31 * hash + Objects.hashCode(subTask.getTitle());
+                hash = 31 * hash + (subTask.isCompleted() ? 1 : 2);
+            }
+            hash = 31 * hash + subTasks.size();
+        }
+        return hash;
+    }
+
     public void updateTimestamp() {
-        SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-        this.updatedAt = dateFormat.format(new Date());
+        this.updatedAt = DateCodec.todayString();
         this.lastModified = System.currentTimeMillis();
     }
 
@@ -91,30 +212,34 @@ public class Task implements Serializable {
     public void setId(String id) { this.id = id; }
     public String getTitle() { return title; }
     public void setTitle(String title) { 
+        markDirty("title");
         this.title = title; 
         updateTimestamp();
     }
     public String getDescription() { return description; }
     public void setDescription(String description) { 
+        markDirty("description");
         this.description = description;
         updateTimestamp();
     }
     public String getDueDate() { return dueDate; }
     public void setDueDate(String dueDate) { 
+        markDirty("dueDate");
         this.dueDate = dueDate;
         updateTimestamp();
     }
     public String getDueTime() { return dueTime; }
     public void setDueTime(String dueTime) { 
+        markDirty("dueTime");
         this.dueTime = dueTime;
         updateTimestamp();
     }
     public boolean isCompleted() { return isCompleted; }
     public void setIsCompleted(boolean completed) { 
+        markDirty("isCompleted", "completionDate");
         this.isCompleted = completed;
         if (completed) {
-            SimpleDateFormat formatter = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-            this.completionDate = formatter.format(new Date());
+            this.completionDate = DateCodec.todayString();
         } else {
             this.completionDate = null;
         }
@@ -125,6 +250,7 @@ public class Task implements Serializable {
     }
     public boolean isImportant() { return isImportant; }
     public void setIsImportant(boolean important) { 
+        markDirty("isImportant", "priority");
         this.isImportant = important;
         updateTimestamp();
     }
@@ -134,32 +260,38 @@ public class Task implements Serializable {
     }
     public String getCategory() { return category; }
     public void setCategory(String category) { 
+        markDirty("category", "categoryId");
         this.category = category;
         updateTimestamp();
     }
     public String getReminderType() { return reminderType; }
     public void setReminderType(String reminderType) { 
+        markDirty("reminderType");
         this.reminderType = reminderType;
         updateTimestamp();
     }
     public boolean isHasReminder() { return hasReminder; }
     public boolean hasReminder() { return hasReminder; }
     public void setHasReminder(boolean hasReminder) { 
+        markDirty("hasReminder");
         this.hasReminder = hasReminder;
         updateTimestamp();
     }
     public String getAttachments() { return attachments; }
     public void setAttachments(String attachments) { 
+        markDirty("attachments");
         this.attachments = attachments;
         updateTimestamp();
     }
     public String getRepeatType() { return repeatType; }
     public void setRepeatType(String repeatType) { 
+        markDirty("repeatType");
         this.repeatType = repeatType;
         updateTimestamp();
     }
     public boolean isRepeating() { return isRepeating; }
     public void setIsRepeating(boolean repeating) { 
+        markDirty("isRepeating");
         this.isRepeating = repeating;
         updateTimestamp();
     }
@@ -169,11 +301,11 @@ public class Task implements Serializable {
     public String getCompletionDate() { return completionDate; }
     
     public void setCompletionDate(Object completionDate) { 
+        markDirty("completionDate");
         if (completionDate instanceof String) {
             this.completionDate = (String) completionDate;
         } else if (completionDate instanceof Long) {
-            SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-            this.completionDate = dateFormat.format(new Date((Long) completionDate));
+            this.completionDate = DateCodec.formatDateMillis((Long) completionDate);
         } else if (completionDate != null) {
             this.completionDate = completionDate.toString();
         }
@@ -183,8 +315,7 @@ public class Task implements Serializable {
     
     public void setCompletionDateFromLong(Long completionDate) { 
         if (completionDate != null) {
-            SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-            this.completionDate = dateFormat.format(new Date(completionDate));
+            this.completionDate = DateCodec.formatDateMillis(completionDate);
         }
     }
     public String getCreatedAt() { return createdAt; }
@@ -193,8 +324,7 @@ public class Task implements Serializable {
         if (createdAt instanceof String) {
             this.createdAt = (String) createdAt;
         } else if (createdAt instanceof Long) {
-            SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-            this.createdAt = dateFormat.format(new Date((Long) createdAt));
+            this.createdAt = DateCodec.formatDateMillis((Long) createdAt);
         } else if (createdAt != null) {
             this.createdAt = createdAt.toString();
         }
@@ -203,8 +333,7 @@ public class Task implements Serializable {
     
     public void setCreatedAtFromLong(Long createdAt) { 
         if (createdAt != null) {
-            SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-            this.createdAt = dateFormat.format(new Date(createdAt));
+            this.createdAt = DateCodec.formatDateMillis(createdAt);
         }
     }
     
@@ -214,8 +343,7 @@ public class Task implements Serializable {
         if (updatedAt instanceof String) {
             this.updatedAt = (String) updatedAt;
         } else if (updatedAt instanceof Long) {
-            SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-            this.updatedAt = dateFormat.format(new Date((Long) updatedAt));
+            this.updatedAt = DateCodec.formatDateMillis((Long) updatedAt);
         } else if (updatedAt != null) {
             this.updatedAt = updatedAt.toString();
         }
@@ -224,8 +352,7 @@ public class Task implements Serializable {
     
     public void setUpdatedAtFromLong(Long updatedAt) { 
         if (updatedAt != null) {
-            SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-            this.updatedAt = dateFormat.format(new Date(updatedAt));
+            this.updatedAt = DateCodec.formatDateMillis(updatedAt);
         }
     }
     
@@ -237,6 +364,7 @@ public class Task implements Serializable {
     
     public String getCategoryId() { return category; }
     public void setCategoryId(String categoryId) { 
+        markDirty("category", "categoryId");
         this.category = categoryId;
         updateTimestamp();
     }
@@ -244,6 +372,7 @@ public class Task implements Serializable {
         return reminderType != null ? reminderType : "Không"; 
     }
     public void setReminder(String reminder) { 
+        markDirty("reminderType", "hasReminder");
         this.reminderType = reminder;
         this.hasReminder = reminder != null && !reminder.equals("Không");
         updateTimestamp();
@@ -253,6 +382,7 @@ public class Task implements Serializable {
         return isImportant ? "Cao" : "Thấp"; 
     }
     public void setPriority(String priority) { 
+        markDirty("isImportant", "priority");
         this.isImportant = "Cao".equals(priority);
         updateTimestamp();
     }
@@ -261,6 +391,7 @@ public class Task implements Serializable {
         return repeatType != null ? repeatType : "Không"; 
     }
     public void setRepeat(String repeat) { 
+        markDirty("repeatType", "isRepeating");
         this.repeatType = repeat;
         this.isRepeating = repeat != null && !repeat.equals("Không");
         updateTimestamp();
@@ -283,6 +414,7 @@ public class Task implements Serializable {
     
     
     public void setAttachmentList(List<Attachment> attachmentList) {
+        markDirty("attachments");
         if (attachmentList == null || attachmentList.isEmpty()) {
             this.attachments = "";
         } else {
@@ -326,6 +458,12 @@ public class Task implements Serializable {
         updateTimestamp();
     }
     
+    // Attach subtasks loaded from storage without touching the timestamps
+    public void restoreSubTasks(List<SubTask> subTasks) {
+        this.subTasks = subTasks;
+        markSubTasksSynced();
+    }
+    
     public void addSubTask(SubTask subTask) {
         if (this.subTasks == null) {
             this.subTasks = new ArrayList<>();
@@ -343,6 +481,7 @@ public class Task implements Serializable {
     
     public boolean isShared() { return isShared; }
     public void setShared(boolean shared) { 
+        markDirty("isShared");
         this.isShared = shared;
         updateTimestamp();
     }
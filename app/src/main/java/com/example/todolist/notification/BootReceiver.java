@@ -2,45 +2,49 @@ package com.example.todolist.notification;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
+import android.os.SystemClock;
+import android.util.Log;
 import com.example.todolist.model.Task;
-import com.example.todolist.service.TaskService;
-import com.example.todolist.repository.BaseRepository;
+import com.example.todolist.repository.DatabaseExecutors;
 import java.util.List;
 
 public class BootReceiver extends BroadcastReceiver {
+    private static final String TAG = "BootReceiver";
     @Override
     public void onReceive(Context context, Intent intent) {
-        if (Intent.ACTION_BOOT_COMPLETED.equals(intent.getAction()) ||
-            Intent.ACTION_MY_PACKAGE_REPLACED.equals(intent.getAction()) ||
-            Intent.ACTION_PACKAGE_REPLACED.equals(intent.getAction())) {
+        String action = intent.getAction();
+        if (Intent.ACTION_BOOT_COMPLETED.equals(action)) {
+            rearmReminders(context);
+        } else if (Intent.ACTION_MY_PACKAGE_REPLACED.equals(action) ||
+            (Intent.ACTION_PACKAGE_REPLACED.equals(action) && intent.getData() != null &&
+                context.getPackageName().equals(intent.getData().getSchemeSpecificPart()))) {
             rescheduleAllReminders(context);
         }
     }
-    private void rescheduleAllReminders(Context context) {
-        TaskService taskService = new TaskService(context, new TaskService.TaskUpdateListener() {
-            @Override
-            public void onTasksUpdated() {
-                // Not needed for this use case
-            }
-            @Override
-            public void onError(String error) {
-            }
+    // Trigger times are already stored, only the next alarms have to be set again
+    private void rearmReminders(Context context) {
+        long startedAt = SystemClock.elapsedRealtime();
+        PendingResult pendingResult = goAsync();
+        new ReminderScheduler(context).rescheduleAllReminders(() -> {
+            Log.d(TAG, "Re-armed reminders in " + (SystemClock.elapsedRealtime() - startedAt) + " ms");
+            pendingResult.finish();
         });
-        taskService.getUncompletedTasks(new BaseRepository.RepositoryCallback<List<Task>>() {
-            @Override
-            public void onSuccess(List<Task> tasks) {
-                ReminderScheduler scheduler = new ReminderScheduler(context);
-                for (Task task : tasks) {
-                    if (task.isHasReminder() && !task.isCompleted()) {
-                        // Sử dụng scheduleTaskReminder thay vì scheduleReminder để đảm bảo tính nhất quán
-                        scheduler.scheduleTaskReminder(task);
-                    }
-                }
-                taskService.cleanup();
-            }
-            @Override
-            public void onError(String error) {
-                taskService.cleanup();
+    }
+    // After an update the reminders table is rebuilt from the tasks, the stored times may predate it
+    private void rescheduleAllReminders(Context context) {
+        long startedAt = SystemClock.elapsedRealtime();
+        Context appContext = context.getApplicationContext();
+        PendingResult pendingResult = goAsync();
+        DatabaseExecutors.getInstance().executeRead(() -> {
+            try {
+                List<Task> tasks = new ReminderTaskSource(appContext).getPendingReminderTasks();
+                new ReminderScheduler(appContext).rebuildReminders(tasks, () -> {
+                    Log.d(TAG, "Rescheduled " + tasks.size() + " tasks in " + (SystemClock.elapsedRealtime() - startedAt) + " ms");
+                    pendingResult.finish();
+                });
+            } catch (Exception e) {
+                Log.e(TAG, "Error rescheduling reminders", e);
+                pendingResult.finish();
             }
         });
     }
@@ -2,15 +2,16 @@ package com.example.todolist.notification;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
+import android.os.SystemClock;
 import android.util.Log;
 import com.example.todolist.model.Task;
-import com.example.todolist.service.TaskService;
-import com.example.todolist.repository.BaseRepository;
+import com.example.todolist.repository.DatabaseExecutors;
 
 public class NotificationReceiver extends BroadcastReceiver {
     private static final String TAG = "NotificationReceiver";
     public static final String ACTION_REMINDER = "com.example.todolist.action.REMINDER_NOTIFICATION";
     public static final String ACTION_DUE = "com.example.todolist.action.DUE_NOTIFICATION";
+    public static final String ACTION_REARM = "com.example.todolist.action.REARM_REMINDERS";
     public static final String EXTRA_TASK_ID = "task_id";
     public static final String EXTRA_REMINDER_TYPE = "reminder_type";
     
@@ -22,45 +23,45 @@ public class NotificationReceiver extends BroadcastReceiver {
         
         Log.d(TAG, "Action: " + action + ", TaskId: " + taskId);
         
+        if (ACTION_REARM.equals(action)) {
+            PendingResult pendingResult = goAsync();
+            new ReminderScheduler(context).rescheduleAllReminders(pendingResult::finish);
+            return;
+        }
+        
         if (taskId == null || taskId.isEmpty() || action == null) {
             Log.e(TAG, "Missing required data - action or taskId is null");
             return;
         }
         
-        TaskService taskService = new TaskService(context, new TaskService.TaskUpdateListener() {
-            @Override
-            public void onTasksUpdated() {}
-            @Override
-            public void onError(String error) {}
-        });
-        
-        taskService.getUncompletedTasks(new BaseRepository.RepositoryCallback<java.util.List<Task>>() {
-            @Override
-            public void onSuccess(java.util.List<Task> tasks) {
-                for (Task task : tasks) {
-                    if (task.getId().equals(taskId)) {
-                        Log.d(TAG, "Found task: " + task.getTitle() + ", isCompleted: " + task.isCompleted());
-                        if (!task.isCompleted()) {
-                            NotificationHelper notificationHelper = new NotificationHelper(context);
-                            if (ACTION_REMINDER.equals(action)) {
-                                Log.d(TAG, "Showing reminder notification");
-                                notificationHelper.showReminderNotification(task);
-                            } else if (ACTION_DUE.equals(action)) {
-                                Log.d(TAG, "Showing due notification");
-                                notificationHelper.showDueNotification(task);
-                            }
-                        } else {
-                            Log.d(TAG, "Task is completed, skipping notification");
-                        }
-                        break;
+        long startedAt = SystemClock.elapsedRealtime();
+        Context appContext = context.getApplicationContext();
+        // Đọc thẳng từ Room trong goAsync, không khởi tạo TaskService/Firebase khi tiến trình vừa được đánh thức
+        PendingResult pendingResult = goAsync();
+        DatabaseExecutors.getInstance().executeRead(() -> {
+            try {
+                Task task = new ReminderTaskSource(appContext).getTask(taskId);
+                if (task == null) {
+                    Log.d(TAG, "Task not found: " + taskId);
+                } else if (task.isCompleted()) {
+                    Log.d(TAG, "Task is completed, skipping notification");
+                } else {
+                    Log.d(TAG, "Found task: " + task.getTitle());
+                    NotificationHelper notificationHelper = new NotificationHelper(appContext);
+                    if (ACTION_REMINDER.equals(action)) {
+                        Log.d(TAG, "Showing reminder notification");
+                        notificationHelper.showReminderNotification(task);
+                    } else if (ACTION_DUE.equals(action)) {
+                        Log.d(TAG, "Showing due notification");
+                        notificationHelper.showDueNotification(task);
                     }
                 }
-                taskService.cleanup();
-            }
-            
-            @Override
-            public void onError(String error) {
-                taskService.cleanup();
+            } catch (Exception e) {
+                Log.e(TAG, "Error handling alarm for task " + taskId, e);
+            } finally {
+                Log.d(TAG, "Alarm handled in " + (SystemClock.elapsedRealtime() - startedAt) + " ms");
+                // Alarm vừa kêu đã rời khỏi cửa sổ, đặt alarm kế tiếp
+                new ReminderScheduler(appContext).rescheduleAllReminders(pendingResult::finish);
             }
         });
     }
@@ -5,24 +5,42 @@ import android.content.Context;
 import android.content.Intent;
 import android.os.Build;
 import android.util.Log;
+import com.example.todolist.database.ToDoDatabase;
+import com.example.todolist.database.dao.ReminderDao;
+import com.example.todolist.database.entity.ReminderEntity;
 import com.example.todolist.model.SharedUser;
 import com.example.todolist.model.Task;
 import com.example.todolist.model.TaskShare;
-import com.example.todolist.util.SettingsManager;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.Locale;
+import com.example.todolist.repository.DatabaseExecutors;
+import com.example.todolist.util.DateCodec;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
+/**
+ * Trigger times are stored in the reminders table; only the next MAX_ARMED alarms within ARM_WINDOW_MILLIS
+ * are registered with AlarmManager. Every fired alarm re-arms the window, and when the next reminder is
+ * further away than the window a single inexact alarm wakes the scheduler when it comes into range.
+ * All table and alarm work runs on the database write lane, so schedule calls are applied in order.
+ */
 public class ReminderScheduler {
     private static final String TAG = "ReminderScheduler";
+    static final int MAX_ARMED = 20;
+    static final long ARM_WINDOW_MILLIS = 24 * 60 * 60 * 1000L;
+    // Reminder ids start at 1, so request code 0 is free for the re-arm alarm
+    private static final int REARM_REQUEST_CODE = 0;
+
     private Context context;
     private AlarmManager alarmManager;
-    
+    private ReminderDao reminderDao;
+    private final DatabaseExecutors databaseExecutors = DatabaseExecutors.getInstance();
+
     public ReminderScheduler(Context context) {
-        this.context = context;
+        this.context = context.getApplicationContext();
         this.alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        this.reminderDao = ToDoDatabase.getInstance(this.context).reminderDao();
     }
 
     public void scheduleTaskReminder(Task task) {
@@ -31,87 +49,55 @@ public class ReminderScheduler {
             Log.d(TAG, "Task skipped - hasReminder: " + task.isHasReminder() + ", isCompleted: " + task.isCompleted());
             return;
         }
+        replaceReminders(task, null, null);
+    }
+
+    /**
+     * Reminder and due time of a task, only those still in the future
+     */
+    static List<ReminderEntity> buildReminders(Task task, String userEmail, long now) {
+        List<ReminderEntity> reminders = new ArrayList<>();
+        if (!task.isHasReminder() || task.isCompleted()) {
+            return reminders;
+        }
         String dueDate = task.getDueDate();
         String dueTime = task.getDueTime();
         String reminderType = task.getReminderType();
-        
-        Log.d(TAG, "Task details - dueDate: " + dueDate + ", dueTime: " + dueTime + ", reminderType: " + reminderType);
-        
+
         if (dueDate == null || dueTime == null || reminderType == null ||
             dueDate.equals("Không") || dueTime.equals("Không") || reminderType.equals("Không")) {
             Log.d(TAG, "Task skipped - missing required data");
-            return;
+            return reminders;
         }
-        try {
-            SimpleDateFormat dateTimeFormat = new SimpleDateFormat("dd/MM/yyyy HH:mm", Locale.getDefault());
-            String dateTimeString = dueDate + " " + dueTime;
-            Date dueDateTime = dateTimeFormat.parse(dateTimeString);
-            if (dueDateTime == null) {
-                return;
-            }
-            
-            Calendar dueCal = Calendar.getInstance();
-            dueCal.setTime(dueDateTime);
-            
-            Log.d(TAG, "Due date time parsed successfully: " + dueDateTime);
-            
-            // Calculate reminder time based on reminder type
-            Calendar reminderCal = (Calendar) dueCal.clone();
-            int minutesBefore = getReminderMinutes(reminderType);
-            Log.d(TAG, "Minutes before due: " + minutesBefore);
-            boolean isSpecificTime = reminderType.matches("\\d{2}:\\d{2}");
-            
-            if (minutesBefore > 0) {
-                // Reminder type is relative (e.g., "5 phút trước")
-                reminderCal.add(Calendar.MINUTE, -minutesBefore);
-                
-                Calendar now = Calendar.getInstance();
-                if (reminderCal.getTimeInMillis() > now.getTimeInMillis()) {
-                    Log.d(TAG, "Scheduling reminder notification at: " + reminderCal.getTime());
-                    scheduleReminderNotification(task, reminderCal.getTimeInMillis(), reminderType);
-                } else {
-                    Log.d(TAG, "Reminder time is in the past, skipping");
-                }
-            } else if (isSpecificTime) {
-                try {
-                    String reminderDateTimeString = dueDate + " " + reminderType;
-                    Date reminderDateTime = dateTimeFormat.parse(reminderDateTimeString);
-                    if (reminderDateTime != null) {
-                        reminderCal.setTime(reminderDateTime);
-                        Calendar now = Calendar.getInstance();
-                        if (reminderCal.getTimeInMillis() > now.getTimeInMillis()) {
-                            Log.d(TAG, "Scheduling specific time reminder notification at: " + reminderCal.getTime());
-                            scheduleReminderNotification(task, reminderCal.getTimeInMillis(), reminderType);
-                        } else {
-                            Log.d(TAG, "Specific reminder time is in the past, skipping");
-                        }
-                    }
-                } catch (ParseException e) {
-                    Log.e(TAG, "Error parsing specific reminder time: " + e.getMessage());
-                }
-            } else {
-                Log.d(TAG, "No valid reminder type, skipping reminder notification");
-            }
-            
-            // Schedule due notification
-            Calendar now = Calendar.getInstance();
-            if (dueCal.getTimeInMillis() > now.getTimeInMillis()) {
-                Log.d(TAG, "Scheduling due notification at: " + dueCal.getTime());
-                scheduleDueNotification(task, dueCal.getTimeInMillis());
-            } else {
-                Log.d(TAG, "Due time is in the past, skipping");
-            }
-        } catch (ParseException e) {
-            Log.e(TAG, "Error parsing date/time: " + e.getMessage());
+        Long dueAt = DateCodec.parseDateTimeMillis(dueDate, dueTime);
+        if (dueAt == null) {
+            Log.e(TAG, "Error parsing date/time: " + dueDate + " " + dueTime);
+            return reminders;
+        }
+
+        Long reminderAt = null;
+        int minutesBefore = getReminderMinutes(reminderType);
+        if (minutesBefore > 0) {
+            // Reminder type is relative (e.g., "5 phút trước")
+            reminderAt = dueAt - minutesBefore * 60_000L;
+        } else if (reminderType.matches("\\d{2}:\\d{2}")) {
+            reminderAt = DateCodec.parseDateTimeMillis(dueDate, reminderType);
+        }
+        if (reminderAt != null && reminderAt > now) {
+            reminders.add(new ReminderEntity(task.getId(), reminderAt, ReminderEntity.KIND_REMINDER, userEmail));
         }
+        if (dueAt > now) {
+            reminders.add(new ReminderEntity(task.getId(), dueAt, ReminderEntity.KIND_DUE, userEmail));
+        }
+        return reminders;
     }
-    
+
     /**
      * Get minutes before due time based on reminder type
      */
-    private int getReminderMinutes(String reminderType) {
+    private static int getReminderMinutes(String reminderType) {
         if (reminderType == null) return 0;
-        
+
         switch (reminderType) {
             case "5 phút trước":
                 return 5;
@@ -124,78 +110,175 @@ public class ReminderScheduler {
             case "1 ngày trước":
                 return 1440; // 24 * 60
             default:
-                // If it's a time format (HH:mm), return 0 to skip reminder
-                if (reminderType.matches("\\d{2}:\\d{2}")) {
-                    return 0;
-                }
+                // Specific times (HH:mm) are handled by the caller
                 return 0;
         }
     }
 
-    private void scheduleReminderNotification(Task task, long triggerTime, String reminderType) {
-        Intent intent = new Intent(context, NotificationReceiver.class);
-        intent.setAction(NotificationReceiver.ACTION_REMINDER);
-        intent.putExtra(NotificationReceiver.EXTRA_TASK_ID, task.getId());
-        intent.putExtra(NotificationReceiver.EXTRA_REMINDER_TYPE, reminderType);
-        int requestCode = task.getId().hashCode(); // Unique ID for reminder
+    /**
+     * Replace the stored reminders of one task for one user and re-arm the window
+     * @param kind only replace this kind, null for both
+     */
+    private void replaceReminders(Task task, String userEmail, String kind) {
+        long now = System.currentTimeMillis();
+        List<ReminderEntity> reminders = new ArrayList<>();
+        for (ReminderEntity reminder : buildReminders(task, userEmail, now)) {
+            if (kind == null || kind.equals(reminder.kind)) {
+                reminders.add(reminder);
+            }
+        }
+        databaseExecutors.executeWrite(() -> {
+            try {
+                List<ReminderEntity> stale = new ArrayList<>();
+                for (ReminderEntity reminder : reminderDao.getReminders(task.getId(), userEmail)) {
+                    if (kind == null || kind.equals(reminder.kind)) {
+                        stale.add(reminder);
+                    }
+                }
+                reminderDao.replaceReminders(disarm(stale), reminders);
+                Log.d(TAG, "Stored " + reminders.size() + " reminders for task " + task.getId());
+                armWindow();
+            } catch (Exception e) {
+                Log.e(TAG, "Error scheduling reminders for task " + task.getId(), e);
+            }
+        });
+    }
+
+    /**
+     * Remove the stored reminders of a task for one user (null for the account), or for everyone with allUsers
+     */
+    private void removeReminders(String taskId, String userEmail, boolean allUsers) {
+        if (taskId == null) return;
+        databaseExecutors.executeWrite(() -> {
+            try {
+                List<ReminderEntity> stale = allUsers
+                        ? reminderDao.getRemindersForTask(taskId)
+                        : reminderDao.getReminders(taskId, userEmail);
+                if (stale.isEmpty()) return;
+                reminderDao.replaceReminders(disarm(stale), Collections.emptyList());
+                armWindow();
+            } catch (Exception e) {
+                Log.e(TAG, "Error cancelling reminders for task " + taskId, e);
+            }
+        });
+    }
+
+    public void cancelTaskReminders(String taskId) {
+        removeReminders(taskId, null, false);
+    }
+
+    /**
+     * Register the next reminders with AlarmManager; runs on the write lane
+     */
+    private void armWindow() {
+        long now = System.currentTimeMillis();
+        // Alarms that already fired, or were missed while the device was off
+        reminderDao.deletePast(now);
+
+        List<ReminderEntity> upcoming = reminderDao.getUpcoming(now, now + ARM_WINDOW_MILLIS, MAX_ARMED);
+        Set<Long> upcomingIds = new HashSet<>();
+        for (ReminderEntity reminder : upcoming) {
+            upcomingIds.add(reminder.id);
+        }
+        for (ReminderEntity reminder : reminderDao.getArmed()) {
+            if (!upcomingIds.contains(reminder.id)) {
+                cancelAlarm(reminder);
+            }
+        }
+        // Set again even when already armed: alarms do not survive a reboot
+        for (ReminderEntity reminder : upcoming) {
+            setAlarm(reminder);
+        }
+        reminderDao.setArmed(new ArrayList<>(upcomingIds));
+
+        Long nextUnarmed = reminderDao.getNextUnarmedTrigger();
+        if (nextUnarmed != null && nextUnarmed > now + ARM_WINDOW_MILLIS) {
+            setRearmAlarm(nextUnarmed - ARM_WINDOW_MILLIS);
+        } else {
+            // Either nothing is left, or the window is full and the next fired alarm re-arms it
+            cancelRearmAlarm();
+        }
+        Log.d(TAG, "Armed " + upcoming.size() + " alarms, next unarmed reminder: " + nextUnarmed);
+    }
+
+    private List<Long> disarm(List<ReminderEntity> reminders) {
+        List<Long> ids = new ArrayList<>();
+        for (ReminderEntity reminder : reminders) {
+            if (reminder.armed) {
+                cancelAlarm(reminder);
+            }
+            ids.add(reminder.id);
+        }
+        return ids;
+    }
+
+    private void setAlarm(ReminderEntity reminder) {
         PendingIntent pendingIntent = PendingIntent.getBroadcast(
                 context,
-                requestCode,
-                intent,
+                (int) reminder.id,
+                buildAlarmIntent(reminder),
                 PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
         );
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-            alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerTime, pendingIntent);
+            alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, reminder.triggerAt, pendingIntent);
         } else {
-            alarmManager.setExact(AlarmManager.RTC_WAKEUP, triggerTime, pendingIntent);
+            alarmManager.setExact(AlarmManager.RTC_WAKEUP, reminder.triggerAt, pendingIntent);
         }
     }
 
-    private void scheduleDueNotification(Task task, long triggerTime) {
-        Log.d(TAG, "scheduleDueNotification: taskId=" + task.getId() + ", triggerTime=" + new java.util.Date(triggerTime));
+    private void cancelAlarm(ReminderEntity reminder) {
+        cancelAlarm(buildAlarmIntent(reminder), (int) reminder.id);
+    }
+
+    private Intent buildAlarmIntent(ReminderEntity reminder) {
         Intent intent = new Intent(context, NotificationReceiver.class);
-        intent.setAction(NotificationReceiver.ACTION_DUE);
-        intent.putExtra(NotificationReceiver.EXTRA_TASK_ID, task.getId());
-        int requestCode = task.getId().hashCode() + 1; 
-        
-        Log.d(TAG, "Creating PendingIntent with requestCode: " + requestCode);
-        
+        intent.setAction(ReminderEntity.KIND_DUE.equals(reminder.kind)
+                ? NotificationReceiver.ACTION_DUE
+                : NotificationReceiver.ACTION_REMINDER);
+        intent.putExtra(NotificationReceiver.EXTRA_TASK_ID, reminder.taskId);
+        if (reminder.userEmail != null) {
+            intent.putExtra("user_email", reminder.userEmail);
+        }
+        return intent;
+    }
+
+    private void setRearmAlarm(long triggerAt) {
         PendingIntent pendingIntent = PendingIntent.getBroadcast(
                 context,
-                requestCode,
-                intent,
+                REARM_REQUEST_CODE,
+                buildRearmIntent(),
                 PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
         );
-
+        // The reminder is still a full window away, so an inexact alarm is enough
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-            alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerTime, pendingIntent);
-            Log.d(TAG, "Alarm set using setExactAndAllowWhileIdle");
+            alarmManager.setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerAt, pendingIntent);
         } else {
-            alarmManager.setExact(AlarmManager.RTC_WAKEUP, triggerTime, pendingIntent);
-            Log.d(TAG, "Alarm set using setExact");
+            alarmManager.set(AlarmManager.RTC_WAKEUP, triggerAt, pendingIntent);
         }
     }
 
-    public void cancelTaskReminders(int taskId) {
-        // Sử dụng cùng logic với schedule để đảm bảo tính nhất quán
-        String taskIdStr = String.valueOf(taskId);
-        int reminderRequestCode = taskIdStr.hashCode();
-        int dueRequestCode = taskIdStr.hashCode() + 1;
-        
-        cancelAlarm(reminderRequestCode);
-        cancelAlarm(dueRequestCode);
+    private void cancelRearmAlarm() {
+        cancelAlarm(buildRearmIntent(), REARM_REQUEST_CODE);
     }
 
-    private void cancelAlarm(int requestCode) {
+    private Intent buildRearmIntent() {
         Intent intent = new Intent(context, NotificationReceiver.class);
+        intent.setAction(NotificationReceiver.ACTION_REARM);
+        return intent;
+    }
+
+    // A PendingIntent only matches with the same action and request code
+    private void cancelAlarm(Intent intent, int requestCode) {
         PendingIntent pendingIntent = PendingIntent.getBroadcast(
                 context,
                 requestCode,
                 intent,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+                PendingIntent.FLAG_NO_CREATE | PendingIntent.FLAG_IMMUTABLE
         );
-        alarmManager.cancel(pendingIntent);
-        pendingIntent.cancel();
+        if (pendingIntent != null) {
+            alarmManager.cancel(pendingIntent);
+            pendingIntent.cancel();
+        }
     }
 
     public void scheduleReminder(int taskIntId, String title, String dueDate, String dueTime) {
@@ -211,13 +294,53 @@ public class ReminderScheduler {
     }
 
     public void cancelReminder(int taskIntId) {
-        cancelTaskReminders(taskIntId);
+        cancelTaskReminders(String.valueOf(taskIntId));
+    }
+
+    /**
+     * Arm the next alarms from the reminders table; after a reboot this is a single range query
+     * @param onDone called on the write lane when the alarms are set, may be null
+     */
+    public void rescheduleAllReminders(Runnable onDone) {
+        databaseExecutors.executeWrite(() -> {
+            try {
+                armWindow();
+            } catch (Exception e) {
+                Log.e(TAG, "Error re-arming reminders", e);
+            } finally {
+                if (onDone != null) onDone.run();
+            }
+        });
     }
-    
-    public void rescheduleAllReminders() {
-        // Implementation for reschedule all reminders if needed
+
+    /**
+     * Rebuild the account's reminders from its tasks, used once after an app update.
+     * Also cancels alarms set by versions that keyed them by taskId.hashCode().
+     */
+    public void rebuildReminders(List<Task> tasks, Runnable onDone) {
+        long now = System.currentTimeMillis();
+        List<ReminderEntity> reminders = new ArrayList<>();
+        for (Task task : tasks) {
+            reminders.addAll(buildReminders(task, null, now));
+        }
+        databaseExecutors.executeWrite(() -> {
+            try {
+                for (Task task : tasks) {
+                    int legacyRequestCode = task.getId().hashCode();
+                    cancelAlarm(new Intent(context, NotificationReceiver.class).setAction(NotificationReceiver.ACTION_REMINDER), legacyRequestCode);
+                    cancelAlarm(new Intent(context, NotificationReceiver.class).setAction(NotificationReceiver.ACTION_DUE), legacyRequestCode + 1);
+                }
+                reminderDao.replaceReminders(disarm(reminderDao.getOwnReminders()), reminders);
+                armWindow();
+                Log.d(TAG, "Rebuilt " + reminders.size() + " reminders from " + tasks.size() + " tasks");
+            } catch (Exception e) {
+                Log.e(TAG, "Error rebuilding reminders", e);
+            } finally {
+                if (onDone != null) onDone.run();
+            }
+        });
     }
-    
+
     /**
      * Schedule notification cho shared task - bao gồm owner và tất cả shared users
      */
@@ -226,216 +349,45 @@ public class ReminderScheduler {
             Log.w(TAG, "Task or TaskShare is null, cannot schedule shared task reminder");
             return;
         }
-        
+
         Log.d(TAG, "Scheduling notifications for shared task: " + task.getTitle());
-        
+
         // Schedule cho owner (như bình thường)
         scheduleTaskReminder(task);
-        Log.d(TAG, "Scheduled reminder and due notification for owner");
-        
+
         // Schedule cho từng shared user
         if (taskShare.getSharedUsers() != null && !taskShare.getSharedUsers().isEmpty()) {
             Log.d(TAG, "Scheduling for " + taskShare.getSharedUsers().size() + " shared users");
             for (SharedUser user : taskShare.getSharedUsers()) {
-                scheduleReminderForUser(task, user);
-                scheduleDueForUser(task, user);
+                replaceReminders(task, user.getEmail(), null);
             }
         } else {
             Log.d(TAG, "No shared users to schedule for");
         }
     }
-    
+
     /**
      * Schedule reminder notification cho một user cụ thể
      */
     public void scheduleReminderForUser(Task task, SharedUser user) {
-        if (!task.isHasReminder() || task.isCompleted()) {
-            return;
-        }
-        
-        String dueDate = task.getDueDate();
-        String dueTime = task.getDueTime();
-        String reminderType = task.getReminderType();
-        
-        if (dueDate == null || dueTime == null || reminderType == null ||
-            dueDate.equals("Không") || dueTime.equals("Không") || reminderType.equals("Không")) {
-            return;
-        }
-        
-        try {
-            SimpleDateFormat dateTimeFormat = new SimpleDateFormat("dd/MM/yyyy HH:mm", Locale.getDefault());
-            String dateTimeString = dueDate + " " + dueTime;
-            Date dueDateTime = dateTimeFormat.parse(dateTimeString);
-            
-            if (dueDateTime == null) {
-                return;
-            }
-            
-            Calendar dueCal = Calendar.getInstance();
-            dueCal.setTime(dueDateTime);
-            
-            // Calculate reminder time based on reminder type (giống logic scheduleTaskReminder)
-            Calendar reminderCal = (Calendar) dueCal.clone();
-            int minutesBefore = getReminderMinutes(reminderType);
-            boolean isSpecificTime = reminderType.matches("\\d{2}:\\d{2}");
-            
-            if (minutesBefore > 0) {
-                // Reminder type is relative (e.g., "5 phút trước")
-                reminderCal.add(Calendar.MINUTE, -minutesBefore);
-                
-                Calendar now = Calendar.getInstance();
-                if (reminderCal.getTimeInMillis() > now.getTimeInMillis()) {
-                    // Tạo unique requestCode cho mỗi user
-                    String uniqueKey = task.getId() + "_reminder_" + user.getEmail();
-                    int requestCode = uniqueKey.hashCode();
-                    
-                    Intent intent = new Intent(context, NotificationReceiver.class);
-                    intent.setAction(NotificationReceiver.ACTION_REMINDER);
-                    intent.putExtra(NotificationReceiver.EXTRA_TASK_ID, task.getId());
-                    intent.putExtra(NotificationReceiver.EXTRA_REMINDER_TYPE, reminderType);
-                    intent.putExtra("user_email", user.getEmail());
-                    intent.putExtra("user_name", user.getName());
-                    
-                    PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                            context,
-                            requestCode,
-                            intent,
-                            PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-                    );
-                    
-                    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-                        alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, 
-                            reminderCal.getTimeInMillis(), pendingIntent);
-                    } else {
-                        alarmManager.setExact(AlarmManager.RTC_WAKEUP, 
-                            reminderCal.getTimeInMillis(), pendingIntent);
-                    }
-                    
-                    Log.d(TAG, "Scheduled reminder for user " + user.getEmail() + " at: " + reminderCal.getTime());
-                }
-            } else if (isSpecificTime) {
-                // Specific time reminder (e.g., "22:10")
-                try {
-                    String reminderDateTimeString = dueDate + " " + reminderType;
-                    Date reminderDateTime = dateTimeFormat.parse(reminderDateTimeString);
-                    
-                    if (reminderDateTime != null) {
-                        reminderCal.setTime(reminderDateTime);
-                        Calendar now = Calendar.getInstance();
-                        
-                        if (reminderCal.getTimeInMillis() > now.getTimeInMillis()) {
-                            // Tạo unique requestCode cho mỗi user
-                            String uniqueKey = task.getId() + "_reminder_" + user.getEmail();
-                            int requestCode = uniqueKey.hashCode();
-                            
-                            Intent intent = new Intent(context, NotificationReceiver.class);
-                            intent.setAction(NotificationReceiver.ACTION_REMINDER);
-                            intent.putExtra(NotificationReceiver.EXTRA_TASK_ID, task.getId());
-                            intent.putExtra(NotificationReceiver.EXTRA_REMINDER_TYPE, reminderType);
-                            intent.putExtra("user_email", user.getEmail());
-                            intent.putExtra("user_name", user.getName());
-                            
-                            PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                                    context,
-                                    requestCode,
-                                    intent,
-                                    PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-                            );
-                            
-                            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-                                alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, 
-                                    reminderCal.getTimeInMillis(), pendingIntent);
-                            } else {
-                                alarmManager.setExact(AlarmManager.RTC_WAKEUP, 
-                                    reminderCal.getTimeInMillis(), pendingIntent);
-                            }
-                            
-                            Log.d(TAG, "Scheduled specific time reminder for user " + user.getEmail() + " at: " + reminderCal.getTime());
-                        }
-                    }
-                } catch (ParseException e) {
-                    Log.e(TAG, "Error parsing specific reminder time for user: " + e.getMessage());
-                }
-            }
-        } catch (ParseException e) {
-            Log.e(TAG, "Error parsing date/time for user reminder: " + e.getMessage());
-        }
+        replaceReminders(task, user.getEmail(), ReminderEntity.KIND_REMINDER);
     }
-    
+
     /**
      * Schedule due notification cho một user cụ thể
      */
     public void scheduleDueForUser(Task task, SharedUser user) {
-        if (!task.isHasReminder() || task.isCompleted()) {
-            return;
-        }
-        
-        String dueDate = task.getDueDate();
-        String dueTime = task.getDueTime();
-        
-        if (dueDate == null || dueTime == null ||
-            dueDate.equals("Không") || dueTime.equals("Không")) {
-            return;
-        }
-        
-        try {
-            SimpleDateFormat dateTimeFormat = new SimpleDateFormat("dd/MM/yyyy HH:mm", Locale.getDefault());
-            String dueDateTimeString = dueDate + " " + dueTime;
-            Date dueDateTime = dateTimeFormat.parse(dueDateTimeString);
-            
-            if (dueDateTime != null) {
-                Calendar dueCal = Calendar.getInstance();
-                dueCal.setTime(dueDateTime);
-                Calendar now = Calendar.getInstance();
-                
-                if (dueCal.getTimeInMillis() > now.getTimeInMillis()) {
-                    // Tạo unique requestCode cho mỗi user
-                    String uniqueKey = task.getId() + "_due_" + user.getEmail();
-                    int requestCode = uniqueKey.hashCode();
-                    
-                    Intent intent = new Intent(context, NotificationReceiver.class);
-                    intent.setAction(NotificationReceiver.ACTION_DUE);
-                    intent.putExtra(NotificationReceiver.EXTRA_TASK_ID, task.getId());
-                    intent.putExtra("user_email", user.getEmail());
-                    intent.putExtra("user_name", user.getName());
-                    
-                    PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                            context,
-                            requestCode,
-                            intent,
-                            PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-                    );
-                    
-                    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-                        alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, 
-                            dueCal.getTimeInMillis(), pendingIntent);
-                    } else {
-                        alarmManager.setExact(AlarmManager.RTC_WAKEUP, 
-                            dueCal.getTimeInMillis(), pendingIntent);
-                    }
-                    
-                    Log.d(TAG, "Scheduled due notification for user " + user.getEmail() + " at: " + dueCal.getTime());
-                }
-            }
-        } catch (ParseException e) {
-            Log.e(TAG, "Error parsing date/time for user due notification: " + e.getMessage());
-        }
+        replaceReminders(task, user.getEmail(), ReminderEntity.KIND_DUE);
     }
-    
+
     /**
      * Cancel notification cho một user cụ thể (khi xóa user khỏi shared task)
      */
     public void cancelNotificationForUser(String taskId, String userEmail) {
-        String reminderKey = taskId + "_reminder_" + userEmail;
-        String dueKey = taskId + "_due_" + userEmail;
-        
-        int reminderRequestCode = reminderKey.hashCode();
-        int dueRequestCode = dueKey.hashCode();
-        
-        cancelAlarm(reminderRequestCode);
-        cancelAlarm(dueRequestCode);
+        if (userEmail == null) return;
+        removeReminders(taskId, userEmail, false);
     }
-    
+
     /**
      * Cancel tất cả notifications cho shared task (bao gồm owner và shared users)
      */
@@ -443,15 +395,6 @@ public class ReminderScheduler {
         if (task == null || taskShare == null) {
             return;
         }
-        
-        // Cancel cho owner
-        cancelTaskReminders(task.getId().hashCode());
-        
-        // Cancel cho từng shared user
-        if (taskShare.getSharedUsers() != null) {
-            for (SharedUser user : taskShare.getSharedUsers()) {
-                cancelNotificationForUser(task.getId(), user.getEmail());
-            }
-        }
+        removeReminders(task.getId(), null, true);
     }
 }
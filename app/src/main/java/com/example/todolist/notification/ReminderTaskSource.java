@@ -0,0 +1,47 @@
+package com.example.todolist.notification;
+
+import android.content.Context;
+
+import com.example.todolist.database.ToDoDatabase;
+import com.example.todolist.database.entity.TaskEntity;
+import com.example.todolist.database.mapper.SharedTaskCacheMapper;
+import com.example.todolist.database.mapper.TaskMapper;
+import com.example.todolist.model.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-only access to tasks for the alarm and boot receivers.
+ * Reads Room directly, so a cold process woken by an alarm does not start TaskService, Firebase or the caches.
+ * Must be called off the main thread.
+ */
+class ReminderTaskSource {
+    private final ToDoDatabase database;
+
+    ReminderTaskSource(Context context) {
+        this.database = ToDoDatabase.getInstance(context.getApplicationContext());
+    }
+
+    /**
+     * Own task by id, falling back to the persisted copy of a shared task; null if neither exists
+     */
+    Task getTask(String taskId) {
+        TaskEntity entity = database.taskDao().getTaskById(taskId);
+        if (entity != null) {
+            return TaskMapper.fromEntity(entity);
+        }
+        return SharedTaskCacheMapper.taskFromEntity(database.sharedTaskCacheDao().getEntry(taskId));
+    }
+
+    /**
+     * Incomplete own tasks with a reminder set
+     */
+    List<Task> getPendingReminderTasks() {
+        List<Task> tasks = new ArrayList<>();
+        for (TaskEntity entity : database.taskDao().getPendingReminderTasks()) {
+            tasks.add(TaskMapper.fromEntity(entity));
+        }
+        return tasks;
+    }
+}
@@ -3,9 +3,13 @@ package com.example.todolist.repository;
 import android.os.Handler;
 import android.os.Looper;
 
+import com.example.todolist.util.MainThreadExecutor;
+
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public abstract class BaseRepository {
 
@@ -28,25 +32,77 @@ public abstract class BaseRepository {
         void onError(String error);
     }
     
-    protected ExecutorService executorService;
+    protected DatabaseExecutors databaseExecutors;
     protected Handler mainHandler;
     
     public BaseRepository() {
-        executorService = Executors.newFixedThreadPool(4);
+        databaseExecutors = DatabaseExecutors.getInstance();
         mainHandler = new Handler(Looper.getMainLooper());
     }
     
     protected void executeAsync(Runnable task) {
-        executorService.execute(task);
+        databaseExecutors.executeWrite(task);
+    }
+    
+    protected void executeRead(Runnable task) {
+        databaseExecutors.executeRead(task);
     }
     
     protected void runOnMainThread(Runnable task) {
         mainHandler.post(task);
     }
     
+    /**
+     * Run work on the write lane, a failure completes the future with a RepositoryException
+     * whose message is errorPrefix followed by the cause
+     */
+    protected <T> CompletableFuture<T> supplyWrite(String errorPrefix, Supplier<T> work) {
+        return CompletableFuture.supplyAsync(guard(errorPrefix, work), databaseExecutors.getWriteExecutor());
+    }
+    
+    protected <T> CompletableFuture<T> supplyRead(String errorPrefix, Supplier<T> work) {
+        return CompletableFuture.supplyAsync(guard(errorPrefix, work), databaseExecutors.getReadExecutor());
+    }
+    
+    private static <T> Supplier<T> guard(String errorPrefix, Supplier<T> work) {
+        return () -> {
+            try {
+                return work.get();
+            } catch (RuntimeException e) {
+                throw new RepositoryException(errorPrefix + e.getMessage(), e);
+            }
+        };
+    }
+    
+    // UI edge of a future: one main thread handoff, exceptions thrown by the callback reach the looper as before
+    public static <T> void deliver(CompletableFuture<T> future, Consumer<? super T> onSuccess, Consumer<String> onError) {
+        future.whenComplete((result, error) -> MainThreadExecutor.getInstance().execute(() -> {
+            if (error != null) {
+                onError.accept(errorMessage(error));
+            } else {
+                onSuccess.accept(result);
+            }
+        }));
+    }
+    
+    public static <T> void deliver(CompletableFuture<T> future, DatabaseCallback<T> callback) {
+        if (callback != null) deliver(future, callback::onSuccess, callback::onError);
+    }
+    
+    public static <T> void deliver(CompletableFuture<T> future, RepositoryCallback<T> callback) {
+        if (callback != null) deliver(future, callback::onSuccess, callback::onError);
+    }
+    
+    public static <T> void deliver(CompletableFuture<List<T>> future, ListCallback<T> callback) {
+        if (callback != null) deliver(future, callback::onSuccess, callback::onError);
+    }
+    
+    public static String errorMessage(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause.getMessage() != null ? cause.getMessage() : cause.toString();
+    }
+    
     protected void cleanup() {
-        if (executorService != null && !executorService.isShutdown()) {
-            executorService.shutdown();
-        }
+        // Executors are shared process-wide and must not be shut down per repository
     }
 }
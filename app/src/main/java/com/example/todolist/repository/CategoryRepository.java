@@ -7,12 +7,12 @@ import com.example.todolist.database.dao.CategoryDao;
 import com.example.todolist.database.entity.CategoryEntity;
 import com.example.todolist.database.mapper.CategoryMapper;
 import com.example.todolist.model.Category;
+import com.example.todolist.util.DateCodec;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 public class CategoryRepository extends BaseRepository {
     
@@ -27,85 +27,79 @@ public class CategoryRepository extends BaseRepository {
     // === CRUD OPERATIONS ===
     
     public void addCategory(Category category, DatabaseCallback<String> callback) {
-        executeAsync(() -> {
-            try {
-                // Generate ID if not set
-                if (category.getId() == null || category.getId().isEmpty()) {
-                    category.setId(UUID.randomUUID().toString());
-                }
-                
-                // Set timestamps
-                SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-                String currentDate = dateFormat.format(new Date());
-                category.setCreatedAt(currentDate);
-                category.setUpdatedAt(currentDate);
-                
-                CategoryEntity entity = CategoryMapper.toEntity(category);
-                categoryDao.insertCategory(entity);
-                runOnMainThread(() -> callback.onSuccess(entity.id));
-            } catch (Exception e) {
-                runOnMainThread(() -> callback.onError("Lỗi thêm danh mục: " + e.getMessage()));
+        deliver(addCategoryAsync(category), callback);
+    }
+    
+    /**
+     * Completes on the write lane with the category id
+     */
+    public CompletableFuture<String> addCategoryAsync(Category category) {
+        return supplyWrite("Lỗi thêm danh mục: ", () -> {
+            // Generate ID if not set
+            if (category.getId() == null || category.getId().isEmpty()) {
+                category.setId(UUID.randomUUID().toString());
             }
+            
+            // Set timestamps
+            String currentDate = DateCodec.todayString();
+            category.setCreatedAt(currentDate);
+            category.setUpdatedAt(currentDate);
+            
+            CategoryEntity entity = CategoryMapper.toEntity(category);
+            categoryDao.insertCategory(entity);
+            return entity.id;
         });
     }
     
     public void updateCategory(Category category, DatabaseCallback<Boolean> callback) {
-        executeAsync(() -> {
-            try {
-                // Update timestamp
-                SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-                String currentDate = dateFormat.format(new Date());
-                category.setUpdatedAt(currentDate);
-                
-                CategoryEntity entity = CategoryMapper.toEntity(category);
-                categoryDao.updateCategory(entity);
-                runOnMainThread(() -> callback.onSuccess(true));
-            } catch (Exception e) {
-                runOnMainThread(() -> callback.onError("Lỗi cập nhật danh mục: " + e.getMessage()));
-            }
+        deliver(updateCategoryAsync(category), callback);
+    }
+    
+    public CompletableFuture<Boolean> updateCategoryAsync(Category category) {
+        return supplyWrite("Lỗi cập nhật danh mục: ", () -> {
+            // Update timestamp
+            String currentDate = DateCodec.todayString();
+            category.setUpdatedAt(currentDate);
+            
+            CategoryEntity entity = CategoryMapper.toEntity(category);
+            categoryDao.updateCategory(entity);
+            return true;
         });
     }
     
     public void deleteCategory(Category category, DatabaseCallback<Boolean> callback) {
-        executeAsync(() -> {
-            try {
-                CategoryEntity entity = CategoryMapper.toEntity(category);
-                categoryDao.deleteCategory(entity);
-                runOnMainThread(() -> callback.onSuccess(true));
-            } catch (Exception e) {
-                runOnMainThread(() -> callback.onError("Lỗi xóa danh mục: " + e.getMessage()));
-            }
+        deliver(deleteCategoryAsync(category), callback);
+    }
+    
+    public CompletableFuture<Boolean> deleteCategoryAsync(Category category) {
+        return supplyWrite("Lỗi xóa danh mục: ", () -> {
+            CategoryEntity entity = CategoryMapper.toEntity(category);
+            categoryDao.deleteCategory(entity);
+            return true;
         });
     }
     
     public void getCategoryById(String categoryId, RepositoryCallback<Category> callback) {
-        executeAsync(() -> {
-            try {
-                CategoryEntity entity = categoryDao.getCategoryById(categoryId);
-                Category category = CategoryMapper.fromEntity(entity);
-                runOnMainThread(() -> callback.onSuccess(category));
-            } catch (Exception e) {
-                runOnMainThread(() -> callback.onError("Lỗi lấy danh mục: " + e.getMessage()));
-            }
-        });
+        deliver(getCategoryByIdAsync(categoryId), callback);
+    }
+    
+    public CompletableFuture<Category> getCategoryByIdAsync(String categoryId) {
+        return supplyRead("Lỗi lấy danh mục: ", () -> CategoryMapper.fromEntity(categoryDao.getCategoryById(categoryId)));
     }
     
     // === QUERY OPERATIONS ===
     
     public void getAllCategories(ListCallback<Category> callback) {
-        executeAsync(() -> {
-            try {
-                List<CategoryEntity> entities = categoryDao.getAllCategories();
-                List<Category> categories = CategoryMapper.fromEntities(entities);
-                runOnMainThread(() -> callback.onSuccess(categories));
-            } catch (Exception e) {
-                runOnMainThread(() -> callback.onError("Lỗi lấy danh sách danh mục: " + e.getMessage()));
-            }
-        });
+        deliver(getAllCategoriesAsync(), callback);
+    }
+    
+    public CompletableFuture<List<Category>> getAllCategoriesAsync() {
+        return supplyRead("Lỗi lấy danh sách danh mục: ",
+                () -> CategoryMapper.fromEntities(categoryDao.getAllCategories()));
     }
     
     public void searchCategories(String query, RepositoryCallback<List<Category>> callback) {
-        executeAsync(() -> {
+        executeRead(() -> {
             try {
                 List<CategoryEntity> entities = categoryDao.searchCategories(query);
                 List<Category> categories = CategoryMapper.fromEntities(entities);
@@ -117,7 +111,7 @@ public class CategoryRepository extends BaseRepository {
     }
     
     public void getCategoriesByColor(String color, ListCallback<Category> callback) {
-        executeAsync(() -> {
+        executeRead(() -> {
             try {
                 List<CategoryEntity> entities = categoryDao.getCategoriesByColor(color);
                 List<Category> categories = CategoryMapper.fromEntities(entities);
@@ -129,7 +123,7 @@ public class CategoryRepository extends BaseRepository {
     }
     
     public void getDefaultCategories(ListCallback<Category> callback) {
-        executeAsync(() -> {
+        executeRead(() -> {
             try {
                 List<CategoryEntity> entities = categoryDao.getDefaultCategories();
                 List<Category> categories = CategoryMapper.fromEntities(entities);
@@ -153,8 +147,7 @@ public class CategoryRepository extends BaseRepository {
                 }
                 
                 // Create default categories
-                SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-                String currentDate = dateFormat.format(new Date());
+                String currentDate = DateCodec.todayString();
                 
                 Category[] defaultCategories = {
                     createDefaultCategory("Công việc", "#FF5722", "work", 1, currentDate),
@@ -164,10 +157,11 @@ public class CategoryRepository extends BaseRepository {
                     createDefaultCategory("Học tập", "#9C27B0", "study", 5, currentDate)
                 };
                 
+                List<CategoryEntity> entities = new ArrayList<>(defaultCategories.length);
                 for (Category category : defaultCategories) {
-                    CategoryEntity entity = CategoryMapper.toEntity(category);
-                    categoryDao.insertCategory(entity);
+                    entities.add(CategoryMapper.toEntity(category));
                 }
+                categoryDao.upsertCategories(entities);
                 
                 runOnMainThread(() -> callback.onSuccess(true));
             } catch (Exception e) {
@@ -0,0 +1,195 @@
+package com.example.todolist.repository;
+
+import android.util.Log;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class DatabaseExecutors {
+
+    private static final String TAG = "DatabaseExecutors";
+    private static final int READ_THREADS = 3;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+    // Per lane. Queues are unbounded: waiting for a slot would freeze the main thread, and deadlock the write lane
+    // when it queues its own follow-up work. A backlog this deep is logged, again each time it doubles.
+    private static final int QUEUE_WARNING_DEPTH = 4096;
+
+    private static volatile DatabaseExecutors instance;
+
+    private final Lane readLane;
+    private final Lane writeLane;
+    private final Executor readExecutor = this::executeRead;
+    private final Executor writeExecutor = this::executeWrite;
+
+    public static DatabaseExecutors getInstance() {
+        if (instance == null) {
+            synchronized (DatabaseExecutors.class) {
+                if (instance == null) {
+                    instance = new DatabaseExecutors();
+                }
+            }
+        }
+        return instance;
+    }
+
+    private DatabaseExecutors() {
+        this(QUEUE_WARNING_DEPTH);
+    }
+
+    DatabaseExecutors(int queueWarningDepth) {
+        readLane = new Lane("todo-db-read", READ_THREADS, queueWarningDepth);
+        // SQLite only allows one writer at a time, a single thread also keeps writes in submit order
+        writeLane = new Lane("todo-db-write", 1, queueWarningDepth);
+    }
+
+    public void executeRead(Runnable task) {
+        readLane.execute(task);
+    }
+
+    public void executeWrite(Runnable task) {
+        writeLane.execute(task);
+    }
+
+    /**
+     * The read lane as an Executor, for CompletableFuture stages
+     */
+    public Executor getReadExecutor() {
+        return readExecutor;
+    }
+
+    /**
+     * The write lane as an Executor, stages run one at a time in submit order
+     */
+    public Executor getWriteExecutor() {
+        return writeExecutor;
+    }
+
+    public LaneStats getReadStats() {
+        return readLane.snapshot();
+    }
+
+    public LaneStats getWriteStats() {
+        return writeLane.snapshot();
+    }
+
+    public int getActiveThreadCount() {
+        return readLane.executor.getPoolSize() + writeLane.executor.getPoolSize();
+    }
+
+    public static class LaneStats {
+        public final String name;
+        public final int queueDepth;
+        public final int maxQueueDepth;
+        public final int poolSize;
+        public final long completedTasks;
+        public final long averageWaitMillis;
+        public final long averageRunMillis;
+        public final long maxRunMillis;
+
+        LaneStats(String name, int queueDepth, int maxQueueDepth, int poolSize, long completedTasks,
+                  long averageWaitMillis, long averageRunMillis, long maxRunMillis) {
+            this.name = name;
+            this.queueDepth = queueDepth;
+            this.maxQueueDepth = maxQueueDepth;
+            this.poolSize = poolSize;
+            this.completedTasks = completedTasks;
+            this.averageWaitMillis = averageWaitMillis;
+            this.averageRunMillis = averageRunMillis;
+            this.maxRunMillis = maxRunMillis;
+        }
+
+        @Override
+        public String toString() {
+            return name + "{queue=" + queueDepth +
+                    ", maxQueue=" + maxQueueDepth +
+                    ", threads=" + poolSize +
+                    ", completed=" + completedTasks +
+                    ", avgWaitMs=" + averageWaitMillis +
+                    ", avgRunMs=" + averageRunMillis +
+                    ", maxRunMs=" + maxRunMillis +
+                    '}';
+        }
+    }
+
+    private static class Lane {
+        private final String name;
+        private final ThreadPoolExecutor executor;
+        private final AtomicLong completedTasks = new AtomicLong();
+        private final AtomicLong totalWaitNanos = new AtomicLong();
+        private final AtomicLong totalRunNanos = new AtomicLong();
+        private final AtomicLong maxRunNanos = new AtomicLong();
+        private final AtomicInteger maxQueueDepth = new AtomicInteger();
+        private final AtomicInteger nextWarningDepth;
+
+        Lane(String name, int threads, int queueWarningDepth) {
+            this.name = name;
+            this.nextWarningDepth = new AtomicInteger(queueWarningDepth);
+            this.executor = new ThreadPoolExecutor(
+                threads, threads,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new NamedThreadFactory(name)
+            );
+            // Idle lanes release their threads, so short-lived receiver processes do not keep them around
+            this.executor.allowCoreThreadTimeOut(true);
+        }
+
+        void execute(Runnable task) {
+            long enqueuedAt = System.nanoTime();
+            executor.execute(() -> {
+                long startedAt = System.nanoTime();
+                try {
+                    task.run();
+                } finally {
+                    long runNanos = System.nanoTime() - startedAt;
+                    totalWaitNanos.addAndGet(startedAt - enqueuedAt);
+                    totalRunNanos.addAndGet(runNanos);
+                    completedTasks.incrementAndGet();
+                    long currentMax;
+                    do {
+                        currentMax = maxRunNanos.get();
+                    } while (runNanos > currentMax && !maxRunNanos.compareAndSet(currentMax, runNanos));
+                }
+            });
+            recordQueueDepth(executor.getQueue().size());
+        }
+
+        private void recordQueueDepth(int depth) {
+            maxQueueDepth.accumulateAndGet(depth, Math::max);
+            int threshold = nextWarningDepth.get();
+            if (depth >= threshold && nextWarningDepth.compareAndSet(threshold,
+                    threshold <= Integer.MAX_VALUE / 2 ? threshold * 2 : Integer.MAX_VALUE)) {
+                Log.w(TAG, name + " backlog reached " + depth + " tasks, " + snapshot());
+            }
+        }
+
+        LaneStats snapshot() {
+            long completed = completedTasks.get();
+            long avgWait = completed > 0 ? TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get() / completed) : 0;
+            long avgRun = completed > 0 ? TimeUnit.NANOSECONDS.toMillis(totalRunNanos.get() / completed) : 0;
+            return new LaneStats(name, executor.getQueue().size(), maxQueueDepth.get(), executor.getPoolSize(), completed,
+                    avgWait, avgRun, TimeUnit.NANOSECONDS.toMillis(maxRunNanos.get()));
+        }
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger counter = new AtomicInteger(1);
+
+        NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
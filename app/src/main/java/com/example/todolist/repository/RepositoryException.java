@@ -0,0 +1,10 @@
+package com.example.todolist.repository;
+
+/**
+ * Failure of a repository future, the message is the one the callback methods report
+ */
+public class RepositoryException extends RuntimeException {
+    public RepositoryException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -7,11 +7,9 @@ import com.example.todolist.database.dao.SubTaskDao;
 import com.example.todolist.database.entity.SubTaskEntity;
 import com.example.todolist.database.mapper.SubTaskMapper;
 import com.example.todolist.model.SubTask;
+import com.example.todolist.util.DateCodec;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.List;
-import java.util.Locale;
 import java.util.UUID;
 
 public class SubTaskRepository extends BaseRepository {
@@ -34,8 +32,7 @@ public class SubTaskRepository extends BaseRepository {
                 
                 // Set taskId and timestamp
                 subTask.setTaskId(taskId);
-                SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy HH:mm", Locale.getDefault());
-                String currentDate = dateFormat.format(new Date());
+                String currentDate = DateCodec.nowDateTimeString();
                 subTask.setCreatedAt(currentDate);
                 
                 SubTaskEntity entity = SubTaskMapper.toEntity(subTask);
@@ -73,7 +70,7 @@ public class SubTaskRepository extends BaseRepository {
     }
     
     public void getSubTasksByTaskId(String taskId, RepositoryCallback<List<SubTask>> callback) {
-        executeAsync(() -> {
+        executeRead(() -> {
             try {
                 List<SubTaskEntity> entities = subTaskDao.getSubTasksByTaskId(taskId);
                 List<SubTask> subTasks = SubTaskMapper.fromEntities(entities);
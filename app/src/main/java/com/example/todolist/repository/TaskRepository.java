@@ -2,7 +2,11 @@ package com.example.todolist.repository;
 
 import android.content.Context;
 
+import androidx.annotation.VisibleForTesting;
+
+import com.example.todolist.database.TaskSearchIndex;
 import com.example.todolist.database.ToDoDatabase;
+import com.example.todolist.database.dao.PendingOperationDao;
 import com.example.todolist.database.dao.TaskDao;
 import com.example.todolist.database.dao.SubTaskDao;
 import com.example.todolist.database.entity.TaskEntity;
@@ -11,260 +15,333 @@ import com.example.todolist.database.mapper.TaskMapper;
 import com.example.todolist.database.mapper.SubTaskMapper;
 import com.example.todolist.model.Task;
 import com.example.todolist.model.SubTask;
+import com.example.todolist.util.DateCodec;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 public class TaskRepository extends BaseRepository {
     
+    private ToDoDatabase database;
     private TaskDao taskDao;
     private SubTaskDao subTaskDao;
+    private PendingOperationDao pendingOperationDao;
     
     public TaskRepository(Context context) {
+        this(ToDoDatabase.getInstance(context));
+    }
+    
+    @VisibleForTesting
+    TaskRepository(ToDoDatabase database) {
         super();
-        ToDoDatabase database = ToDoDatabase.getInstance(context);
+        this.database = database;
         taskDao = database.taskDao();
         subTaskDao = database.subTaskDao();
+        pendingOperationDao = database.pendingOperationDao();
     }
     
     // === CRUD OPERATIONS ===
     
     public void addTask(Task task, DatabaseCallback<String> callback) {
-        executeAsync(() -> {
-            try {
-                // Generate ID if not set
-                if (task.getId() == null || task.getId().isEmpty()) {
-                    task.setId(UUID.randomUUID().toString());
-                }
-                
-                // Set timestamps
-                SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-                String currentDate = dateFormat.format(new Date());
-                task.setCreatedAt(currentDate);
-                task.setUpdatedAt(currentDate);
-                
-                TaskEntity entity = TaskMapper.toEntity(task);
-                taskDao.insertTask(entity);
-                runOnMainThread(() -> callback.onSuccess(entity.id));
-            } catch (Exception e) {
-                runOnMainThread(() -> callback.onError("Lỗi thêm task: " + e.getMessage()));
-            }
+        deliver(addTaskAsync(task), callback);
+    }
+    
+    /**
+     * Completes on the write lane with the task id.
+     * The task is stamped and copied on the calling thread, the write lane never touches the shared instance.
+     */
+    public CompletableFuture<String> addTaskAsync(Task task) {
+        // Generate ID if not set
+        if (task.getId() == null || task.getId().isEmpty()) {
+            task.setId(UUID.randomUUID().toString());
+        }
+        
+        // Set timestamps
+        String currentDate = DateCodec.todayString();
+        task.setCreatedAt(currentDate);
+        task.setUpdatedAt(currentDate);
+        
+        TaskEntity entity = TaskMapper.toEntity(task);
+        return supplyWrite("Lỗi thêm task: ", () -> {
+            taskDao.insertTask(entity);
+            return entity.id;
         });
     }
     
     public void updateTask(Task task, DatabaseCallback<Boolean> callback) {
-        executeAsync(() -> {
-            try {
-                // Update timestamp
-                SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-                String currentDate = dateFormat.format(new Date());
-                task.setUpdatedAt(currentDate);
-                
-                TaskEntity entity = TaskMapper.toEntity(task);
-                taskDao.updateTask(entity);
-                runOnMainThread(() -> callback.onSuccess(true));
-            } catch (Exception e) {
-                runOnMainThread(() -> callback.onError("Lỗi cập nhật task: " + e.getMessage()));
-            }
+        deliver(updateTaskAsync(task), callback);
+    }
+    
+    public CompletableFuture<Boolean> updateTaskAsync(Task task) {
+        // Update timestamp
+        task.setUpdatedAt(DateCodec.todayString());
+        
+        TaskEntity entity = TaskMapper.toEntity(task);
+        return supplyWrite("Lỗi cập nhật task: ", () -> {
+            taskDao.updateTask(entity);
+            return true;
         });
     }
     
     public void deleteTask(Task task, DatabaseCallback<Boolean> callback) {
-        executeAsync(() -> {
-            try {
-                TaskEntity entity = TaskMapper.toEntity(task);
-                taskDao.deleteTask(entity);
-                runOnMainThread(() -> callback.onSuccess(true));
-            } catch (Exception e) {
-                runOnMainThread(() -> callback.onError("Lỗi xóa task: " + e.getMessage()));
-            }
+        deliver(deleteTaskAsync(task), callback);
+    }
+    
+    public CompletableFuture<Boolean> deleteTaskAsync(Task task) {
+        TaskEntity entity = TaskMapper.toEntity(task);
+        return supplyWrite("Lỗi xóa task: ", () -> {
+            taskDao.deleteTask(entity);
+            return true;
         });
     }
     
-    public void getTaskById(String taskId, RepositoryCallback<Task> callback) {
-        executeAsync(() -> {
-            try {
-                TaskEntity entity = taskDao.getTaskById(taskId);
-                Task task = TaskMapper.fromEntity(entity);
-                runOnMainThread(() -> callback.onSuccess(task));
-            } catch (Exception e) {
-                runOnMainThread(() -> callback.onError("Lỗi lấy task: " + e.getMessage()));
+    /**
+     * Apply a batch of remote changes in one write transaction.
+     * Unlike addTask the tasks keep their remote createdAt, updatedAt and lastModified,
+     * and the stored subtasks of each task are replaced by the ones it carries.
+     */
+    public CompletableFuture<Boolean> mergeRemoteTasksAsync(List<Task> upserts, List<String> deletedTaskIds) {
+        return mergeRemoteTasksAsync(upserts, deletedTaskIds, new ArrayList<>()).thenApply(staleDeleted -> true);
+    }
+    
+    /**
+     * @param staleTaskIds local tasks missing from a full snapshot; deleted in the same transaction unless they
+     *                     still have a pending upload
+     * @return the stale ids that were deleted
+     */
+    public CompletableFuture<List<String>> mergeRemoteTasksAsync(List<Task> upserts, List<String> deletedTaskIds,
+                                                                 List<String> staleTaskIds) {
+        return supplyWrite("Lỗi đồng bộ task: ", () -> {
+            List<TaskEntity> taskEntities = new ArrayList<>(upserts.size());
+            List<SubTaskEntity> subTaskEntities = new ArrayList<>();
+            List<String> taskIds = new ArrayList<>(upserts.size());
+            List<String> staleDeleted = new ArrayList<>();
+            for (Task task : upserts) {
+                taskEntities.add(TaskMapper.toEntity(task));
+                taskIds.add(task.getId());
+                if (task.getSubTasks() == null) continue;
+                for (SubTask subTask : task.getSubTasks()) {
+                    if (subTask == null || subTask.getId() == null) continue;
+                    SubTaskEntity entity = SubTaskMapper.toEntity(subTask);
+                    entity.taskId = task.getId();
+                    subTaskEntities.add(entity);
+                }
             }
+            
+            database.runInTransaction(() -> {
+                // Subtasks go in before their tasks so the task insert trigger indexes their titles once,
+                // instead of every subtask insert rewriting the task's search row; the foreign key is checked at commit
+                database.getOpenHelper().getWritableDatabase().execSQL("PRAGMA defer_foreign_keys = ON");
+                for (int start = 0; start < taskIds.size(); start += IN_QUERY_CHUNK_SIZE) {
+                    subTaskDao.deleteSubTasksByTaskIds(taskIds.subList(start, Math.min(start + IN_QUERY_CHUNK_SIZE, taskIds.size())));
+                }
+                subTaskDao.upsertSubTasks(subTaskEntities);
+                taskDao.upsertTasks(taskEntities);
+                // Subtasks of deleted tasks go with them through the foreign key cascade
+                for (int start = 0; start < deletedTaskIds.size(); start += IN_QUERY_CHUNK_SIZE) {
+                    taskDao.deleteTasksByIds(deletedTaskIds.subList(start, Math.min(start + IN_QUERY_CHUNK_SIZE, deletedTaskIds.size())));
+                }
+                for (String taskId : staleTaskIds) {
+                    if (pendingOperationDao.getOperation(taskId) == null) {
+                        staleDeleted.add(taskId);
+                    }
+                }
+                for (int start = 0; start < staleDeleted.size(); start += IN_QUERY_CHUNK_SIZE) {
+                    taskDao.deleteTasksByIds(staleDeleted.subList(start, Math.min(start + IN_QUERY_CHUNK_SIZE, staleDeleted.size())));
+                }
+            });
+            return staleDeleted;
         });
     }
     
+    public void getTaskById(String taskId, RepositoryCallback<Task> callback) {
+        deliver(getTaskByIdAsync(taskId), callback);
+    }
+    
+    public CompletableFuture<Task> getTaskByIdAsync(String taskId) {
+        return supplyRead("Lỗi lấy task: ", () -> TaskMapper.fromEntity(taskDao.getTaskById(taskId)));
+    }
+    
     public void updateTaskCompletion(String taskId, boolean isCompleted, DatabaseCallback<Boolean> callback) {
-        executeAsync(() -> {
-            try {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-                String currentDate = dateFormat.format(new Date());
-                String completionDate = isCompleted ? currentDate : null;
-                
-                taskDao.updateTaskCompletion(taskId, isCompleted, completionDate, currentDate);
-                runOnMainThread(() -> callback.onSuccess(true));
-            } catch (Exception e) {
-                runOnMainThread(() -> callback.onError("Lỗi cập nhật hoàn thành: " + e.getMessage()));
-            }
+        deliver(updateTaskCompletionAsync(taskId, isCompleted), callback);
+    }
+    
+    public CompletableFuture<Boolean> updateTaskCompletionAsync(String taskId, boolean isCompleted) {
+        String currentDate = DateCodec.todayString();
+        String completionDate = isCompleted ? currentDate : null;
+        Long completionEpochDay = isCompleted ? DateCodec.todayEpochDay() : null;
+        long now = System.currentTimeMillis();
+        return supplyWrite("Lỗi cập nhật hoàn thành: ", () -> {
+            taskDao.updateTaskCompletion(taskId, isCompleted, completionDate, completionEpochDay, currentDate, now);
+            return true;
         });
     }
     
     public void updateTaskImportance(String taskId, boolean isImportant, DatabaseCallback<Boolean> callback) {
-        executeAsync(() -> {
-            try {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-                String currentDate = dateFormat.format(new Date());
-                
-                taskDao.updateTaskImportance(taskId, isImportant, currentDate);
-                runOnMainThread(() -> callback.onSuccess(true));
-            } catch (Exception e) {
-                runOnMainThread(() -> callback.onError("Lỗi cập nhật quan trọng: " + e.getMessage()));
-            }
+        deliver(updateTaskImportanceAsync(taskId, isImportant), callback);
+    }
+    
+    public CompletableFuture<Boolean> updateTaskImportanceAsync(String taskId, boolean isImportant) {
+        String currentDate = DateCodec.todayString();
+        long now = System.currentTimeMillis();
+        return supplyWrite("Lỗi cập nhật quan trọng: ", () -> {
+            taskDao.updateTaskImportance(taskId, isImportant, currentDate, now);
+            return true;
         });
     }
     
     // === QUERY OPERATIONS ===
     
     public void getAllTasks(ListCallback<Task> callback) {
-        executeAsync(() -> {
-            try {
-                List<TaskEntity> entities = taskDao.getAllTasks();
-                List<Task> tasks = TaskMapper.fromEntities(entities);
-
-                for (Task task : tasks) {
-                    if (task.getId() != null) {
-                        List<SubTaskEntity> subTaskEntities = subTaskDao.getSubTasksByTaskId(task.getId());
-                        List<SubTask> subTasks = SubTaskMapper.fromEntities(subTaskEntities);
-                        task.setSubTasks(subTasks);
-                    }
-                }
-                
-                runOnMainThread(() -> callback.onSuccess(tasks));
-            } catch (Exception e) {
-                runOnMainThread(() -> callback.onError("Lỗi lấy danh sách task: " + e.getMessage()));
-            }
+        deliver(getAllTasksAsync(), callback);
+    }
+    
+    public CompletableFuture<List<Task>> getAllTasksAsync() {
+        return supplyRead("Lỗi lấy danh sách task: ", () -> {
+            List<TaskEntity> entities = taskDao.getAllTasks();
+            List<Task> tasks = TaskMapper.fromEntities(entities);
+            attachSubTasks(tasks, subTaskDao.getAllSubTasks());
+            return tasks;
         });
     }
     
     public void searchTasks(String query, RepositoryCallback<List<Task>> callback) {
-        executeAsync(() -> {
-            try {
-                List<TaskEntity> entities = taskDao.searchTasks(query);
-                List<Task> tasks = TaskMapper.fromEntities(entities);
-
-                for (Task task : tasks) {
-                    if (task.getId() != null) {
-                        List<SubTaskEntity> subTaskEntities = subTaskDao.getSubTasksByTaskId(task.getId());
-                        List<SubTask> subTasks = SubTaskMapper.fromEntities(subTaskEntities);
-                        task.setSubTasks(subTasks);
-                    }
-                }
-                
-                runOnMainThread(() -> callback.onSuccess(tasks));
-            } catch (Exception e) {
-                runOnMainThread(() -> callback.onError("Lỗi tìm kiếm task: " + e.getMessage()));
-            }
+        deliver(searchTasksAsync(query), callback);
+    }
+    
+    public CompletableFuture<List<Task>> searchTasksAsync(String query) {
+        return supplyRead("Lỗi tìm kiếm task: ", () -> {
+            String matchQuery = TaskSearchIndex.buildMatchQuery(query);
+            List<TaskEntity> entities = matchQuery != null
+                    ? taskDao.searchTasks(matchQuery)
+                    : new ArrayList<>();
+            List<Task> tasks = TaskMapper.fromEntities(entities);
+            attachSubTasks(tasks, loadSubTasksFor(tasks));
+            return tasks;
         });
     }
     
     public void getTasksByCategory(String categoryId, RepositoryCallback<List<Task>> callback) {
-        executeAsync(() -> {
-            try {
-                List<TaskEntity> entities = taskDao.getTasksByCategory(categoryId);
-                List<Task> tasks = TaskMapper.fromEntities(entities);
-
-                for (Task task : tasks) {
-                    if (task.getId() != null) {
-                        List<SubTaskEntity> subTaskEntities = subTaskDao.getSubTasksByTaskId(task.getId());
-                        List<SubTask> subTasks = SubTaskMapper.fromEntities(subTaskEntities);
-                        task.setSubTasks(subTasks);
-                    }
-                }
-                
-                runOnMainThread(() -> callback.onSuccess(tasks));
-            } catch (Exception e) {
-                runOnMainThread(() -> callback.onError("Lỗi lấy task theo danh mục: " + e.getMessage()));
-            }
+        deliver(getTasksByCategoryAsync(categoryId), callback);
+    }
+    
+    public CompletableFuture<List<Task>> getTasksByCategoryAsync(String categoryId) {
+        return supplyRead("Lỗi lấy task theo danh mục: ", () -> {
+            List<Task> tasks = TaskMapper.fromEntities(taskDao.getTasksByCategory(categoryId));
+            attachSubTasks(tasks, loadSubTasksFor(tasks));
+            return tasks;
         });
     }
     
-    public void getTasksByDate(String date, RepositoryCallback<List<Task>> callback) {
-        executeAsync(() -> {
-            try {
-                List<TaskEntity> entities = taskDao.getTasksByDate(date);
-                List<Task> tasks = TaskMapper.fromEntities(entities);
-                runOnMainThread(() -> callback.onSuccess(tasks));
-            } catch (Exception e) {
-                runOnMainThread(() -> callback.onError("Lỗi lấy task theo ngày: " + e.getMessage()));
+    // === SUBTASK BATCHING ===
+    
+    // Room expands IN (:ids) into one bind argument per id, so keep each query under SQLite's variable limit
+    private static final int IN_QUERY_CHUNK_SIZE = 900;
+    
+    private List<SubTaskEntity> loadSubTasksFor(List<Task> tasks) {
+        List<String> taskIds = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            if (task.getId() != null) {
+                taskIds.add(task.getId());
             }
-        });
+        }
+        
+        List<SubTaskEntity> result = new ArrayList<>();
+        for (int start = 0; start < taskIds.size(); start += IN_QUERY_CHUNK_SIZE) {
+            int end = Math.min(start + IN_QUERY_CHUNK_SIZE, taskIds.size());
+            result.addAll(subTaskDao.getSubTasksByTaskIds(taskIds.subList(start, end)));
+        }
+        return result;
     }
     
-    public void getCompletedTasks(RepositoryCallback<List<Task>> callback) {
-        executeAsync(() -> {
-            try {
-                List<TaskEntity> entities = taskDao.getCompletedTasks();
-                List<Task> tasks = TaskMapper.fromEntities(entities);
-                runOnMainThread(() -> callback.onSuccess(tasks));
-            } catch (Exception e) {
-                runOnMainThread(() -> callback.onError("Lỗi lấy task đã hoàn thành: " + e.getMessage()));
+    private void attachSubTasks(List<Task> tasks, List<SubTaskEntity> subTaskEntities) {
+        Map<String, List<SubTask>> subTasksByTaskId = new HashMap<>();
+        for (SubTaskEntity entity : subTaskEntities) {
+            List<SubTask> group = subTasksByTaskId.get(entity.taskId);
+            if (group == null) {
+                group = new ArrayList<>();
+                subTasksByTaskId.put(entity.taskId, group);
+            }
+            group.add(SubTaskMapper.fromEntity(entity));
+        }
+        
+        for (Task task : tasks) {
+            if (task.getId() != null) {
+                List<SubTask> subTasks = subTasksByTaskId.get(task.getId());
+                task.restoreSubTasks(subTasks != null ? subTasks : new ArrayList<>());
             }
+        }
+    }
+    
+    public void getTasksByDate(String date, RepositoryCallback<List<Task>> callback) {
+        deliver(getTasksByDateAsync(date), callback);
+    }
+    
+    public CompletableFuture<List<Task>> getTasksByDateAsync(String date) {
+        return supplyRead("Lỗi lấy task theo ngày: ", () -> {
+            Long epochDay = DateCodec.parseEpochDay(date);
+            List<TaskEntity> entities = epochDay != null
+                    ? taskDao.getTasksByDate(epochDay)
+                    : new ArrayList<>();
+            List<Task> tasks = TaskMapper.fromEntities(entities);
+            attachSubTasks(tasks, loadSubTasksFor(tasks));
+            return tasks;
         });
     }
     
-    public void getIncompleteTasks(RepositoryCallback<List<Task>> callback) {
-        executeAsync(() -> {
-            try {
-                List<TaskEntity> entities = taskDao.getIncompleteTasks();
-                List<Task> tasks = TaskMapper.fromEntities(entities);
-                runOnMainThread(() -> callback.onSuccess(tasks));
-            } catch (Exception e) {
-                runOnMainThread(() -> callback.onError("Lỗi lấy task chưa hoàn thành: " + e.getMessage()));
-            }
+    public void getIncompleteTasksInRange(long fromEpochDay, long toEpochDay, RepositoryCallback<List<Task>> callback) {
+        deliver(getIncompleteTasksInRangeAsync(fromEpochDay, toEpochDay), callback);
+    }
+    
+    public CompletableFuture<List<Task>> getIncompleteTasksInRangeAsync(long fromEpochDay, long toEpochDay) {
+        return supplyRead("Lỗi lấy task theo khoảng ngày: ", () -> {
+            List<Task> tasks = TaskMapper.fromEntities(taskDao.getIncompleteTasksInRange(fromEpochDay, toEpochDay));
+            attachSubTasks(tasks, loadSubTasksFor(tasks));
+            return tasks;
         });
     }
     
+    public void getCompletedTasks(RepositoryCallback<List<Task>> callback) {
+        deliver(getCompletedTasksAsync(), callback);
+    }
+    
+    public CompletableFuture<List<Task>> getCompletedTasksAsync() {
+        return supplyRead("Lỗi lấy task đã hoàn thành: ", () -> TaskMapper.fromEntities(taskDao.getCompletedTasks()));
+    }
+    
+    public void getIncompleteTasks(RepositoryCallback<List<Task>> callback) {
+        deliver(getIncompleteTasksAsync(), callback);
+    }
+    
+    public CompletableFuture<List<Task>> getIncompleteTasksAsync() {
+        return supplyRead("Lỗi lấy task chưa hoàn thành: ", () -> TaskMapper.fromEntities(taskDao.getIncompleteTasks()));
+    }
+    
     public void getTodayTasks(RepositoryCallback<List<Task>> callback) {
-        executeAsync(() -> {
-            try {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-                String todayDate = dateFormat.format(new Date());
-                
-                List<TaskEntity> entities = taskDao.getTodayTasks(todayDate);
-                List<Task> tasks = TaskMapper.fromEntities(entities);
-                runOnMainThread(() -> callback.onSuccess(tasks));
-            } catch (Exception e) {
-                runOnMainThread(() -> callback.onError("Lỗi lấy task hôm nay: " + e.getMessage()));
-            }
-        });
+        deliver(getTodayTasksAsync(), callback);
+    }
+    
+    public CompletableFuture<List<Task>> getTodayTasksAsync() {
+        return supplyRead("Lỗi lấy task hôm nay: ", () -> TaskMapper.fromEntities(taskDao.getTodayTasks(DateCodec.todayEpochDay())));
     }
     
     public void getOverdueTasks(RepositoryCallback<List<Task>> callback) {
-        executeAsync(() -> {
-            try {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-                String todayDate = dateFormat.format(new Date());
-                
-                List<TaskEntity> entities = taskDao.getOverdueTasks(todayDate);
-                List<Task> tasks = TaskMapper.fromEntities(entities);
-                runOnMainThread(() -> callback.onSuccess(tasks));
-            } catch (Exception e) {
-                runOnMainThread(() -> callback.onError("Lỗi lấy task quá hạn: " + e.getMessage()));
-            }
-        });
+        deliver(getOverdueTasksAsync(), callback);
+    }
+    
+    public CompletableFuture<List<Task>> getOverdueTasksAsync() {
+        return supplyRead("Lỗi lấy task quá hạn: ", () -> TaskMapper.fromEntities(taskDao.getOverdueTasks(DateCodec.todayEpochDay())));
     }
     
     public void getImportantTasks(RepositoryCallback<List<Task>> callback) {
-        executeAsync(() -> {
-            try {
-                List<TaskEntity> entities = taskDao.getImportantTasks();
-                List<Task> tasks = TaskMapper.fromEntities(entities);
-                runOnMainThread(() -> callback.onSuccess(tasks));
-            } catch (Exception e) {
-                runOnMainThread(() -> callback.onError("Lỗi lấy task quan trọng: " + e.getMessage()));
-            }
-        });
+        deliver(getImportantTasksAsync(), callback);
+    }
+    
+    public CompletableFuture<List<Task>> getImportantTasksAsync() {
+        return supplyRead("Lỗi lấy task quan trọng: ", () -> TaskMapper.fromEntities(taskDao.getImportantTasks()));
     }
 }
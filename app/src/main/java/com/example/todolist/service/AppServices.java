@@ -0,0 +1,228 @@
+package com.example.todolist.service;
+
+import android.content.Context;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.todolist.cache.SharedTaskCacheManager;
+import com.example.todolist.manager.AuthManager;
+import com.example.todolist.manager.FirebaseSyncManager;
+import com.example.todolist.manager.TaskOutbox;
+import com.example.todolist.notification.ReminderScheduler;
+import com.example.todolist.repository.CategoryRepository;
+import com.example.todolist.repository.TaskRepository;
+import com.example.todolist.service.sharing.TaskSharingService;
+import com.example.todolist.service.task.TaskCompletionService;
+import com.example.todolist.service.task.TaskManager;
+import com.example.todolist.service.task.TaskSyncService;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Application-scoped services, each built once on first use with the application context.
+ * The local components only open Room; the Firebase singletons are initialized together by
+ * initializeRemote(), which a local-only account never reaches.
+ * Each build is logged under the AppServices tag with its duration and the time since the process
+ * started, so the components a receiver, widget or activity start pays for can be read from logcat.
+ */
+public class AppServices {
+    private static final String TAG = "AppServices";
+
+    private static volatile AppServices instance;
+
+    private final Context appContext;
+    // Guarded by itself, in build order
+    private final Map<String, Long> initMicros = new LinkedHashMap<>();
+
+    private final Component<AuthManager> authManager = new Component<>("auth_prefs", this::createAuthManager);
+    private final Component<TaskRepository> taskRepository = new Component<>("task_repository", this::createTaskRepository);
+    private final Component<CategoryRepository> categoryRepository = new Component<>("category_repository", this::createCategoryRepository);
+    private final Component<ReminderScheduler> reminderScheduler = new Component<>("reminder_scheduler", this::createReminderScheduler);
+    private final Component<TaskManager> taskManager = new Component<>("task_manager", this::createTaskManager);
+    private final Component<TaskCompletionService> completionService = new Component<>("task_completion", this::createCompletionService);
+    private final Component<TaskSyncService> syncService = new Component<>("task_sync", this::createSyncService);
+    private final Component<TaskService> taskService = new Component<>("task_service", this::createTaskService);
+    private final Component<CategoryService> categoryService = new Component<>("category_service", this::createCategoryService);
+    private final Component<AuthManager> firebase = new Component<>("firebase", this::createFirebase);
+    // Guarded by this, the account SharedTaskCacheManager last restored its shared tasks for
+    private String remoteAccount;
+
+    private AppServices(Context context) {
+        this.appContext = context.getApplicationContext();
+    }
+
+    public static AppServices getInstance(Context context) {
+        if (instance == null) {
+            synchronized (AppServices.class) {
+                if (instance == null) {
+                    instance = new AppServices(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * AuthManager with the saved account state only, enough for isSignedIn and shouldSyncToFirebase
+     */
+    public AuthManager getAuthManager() {
+        return authManager.get();
+    }
+
+    public TaskRepository getTaskRepository() {
+        return taskRepository.get();
+    }
+
+    public CategoryRepository getCategoryRepository() {
+        return categoryRepository.get();
+    }
+
+    public ReminderScheduler getReminderScheduler() {
+        return reminderScheduler.get();
+    }
+
+    public TaskManager getTaskManager() {
+        return taskManager.get();
+    }
+
+    public TaskCompletionService getCompletionService() {
+        return completionService.get();
+    }
+
+    public TaskSyncService getSyncService() {
+        return syncService.get();
+    }
+
+    /**
+     * Shared TaskService without an update listener, for callers that only read the cache or write tasks.
+     * Screens that need onTasksUpdated or the delete confirmation dialog construct their own.
+     */
+    public TaskService getTaskService() {
+        return taskService.get();
+    }
+
+    /**
+     * Shared CategoryService without an update listener
+     */
+    public CategoryService getCategoryService() {
+        return categoryService.get();
+    }
+
+    /**
+     * Initialize Firebase Auth, the sync manager, sharing, the shared task cache and the outbox once.
+     * Called again after signing in to another account, the shared tasks of that account are restored.
+     */
+    public synchronized void initializeRemote() {
+        if (!firebase.isBuilt()) {
+            firebase.get();
+            remoteAccount = getAuthManager().getCurrentUserEmail();
+            return;
+        }
+        String account = getAuthManager().getCurrentUserEmail();
+        if (account != null && !account.equals(remoteAccount)) {
+            remoteAccount = account;
+            SharedTaskCacheManager.getInstance().initialize(appContext);
+        }
+    }
+
+    /**
+     * Build time of each component in microseconds, including the components it built first
+     */
+    public Map<String, Long> getInitTimings() {
+        synchronized (initMicros) {
+            return new LinkedHashMap<>(initMicros);
+        }
+    }
+
+    private AuthManager createAuthManager() {
+        AuthManager manager = AuthManager.getInstance();
+        manager.initializeLocal(appContext);
+        return manager;
+    }
+
+    private TaskRepository createTaskRepository() {
+        return new TaskRepository(appContext);
+    }
+
+    private CategoryRepository createCategoryRepository() {
+        return new CategoryRepository(appContext);
+    }
+
+    private ReminderScheduler createReminderScheduler() {
+        return new ReminderScheduler(appContext);
+    }
+
+    private TaskManager createTaskManager() {
+        return new TaskManager(appContext);
+    }
+
+    private TaskCompletionService createCompletionService() {
+        return new TaskCompletionService(appContext);
+    }
+
+    private TaskSyncService createSyncService() {
+        return new TaskSyncService(appContext);
+    }
+
+    private TaskService createTaskService() {
+        return new TaskService(appContext, null);
+    }
+
+    private CategoryService createCategoryService() {
+        return new CategoryService(appContext, null);
+    }
+
+    private AuthManager createFirebase() {
+        AuthManager manager = getAuthManager();
+        manager.initialize(appContext);
+        FirebaseSyncManager.getInstance().initialize(appContext);
+        TaskSharingService.getInstance().initialize(appContext);
+        SharedTaskCacheManager.getInstance().initialize(appContext);
+        TaskOutbox.getInstance().initialize(appContext);
+        return manager;
+    }
+
+    private void recordInit(String name, long nanos) {
+        long micros = nanos / 1000;
+        synchronized (initMicros) {
+            initMicros.put(name, micros);
+        }
+        long sinceStart = SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime();
+        Log.d(TAG, name + " built in " + (micros / 1000.0) + " ms on " + Thread.currentThread().getName()
+                + " (+" + sinceStart + " ms)");
+    }
+
+    private final class Component<T> {
+        private final String name;
+        private final Supplier<T> factory;
+        private volatile T value;
+
+        Component(String name, Supplier<T> factory) {
+            this.name = name;
+            this.factory = factory;
+        }
+
+        T get() {
+            T result = value;
+            if (result == null) {
+                synchronized (this) {
+                    result = value;
+                    if (result == null) {
+                        long start = System.nanoTime();
+                        result = factory.get();
+                        value = result;
+                        recordInit(name, System.nanoTime() - start);
+                    }
+                }
+            }
+            return result;
+        }
+
+        boolean isBuilt() {
+            return value != null;
+        }
+    }
+}
@@ -28,7 +28,7 @@ public class CategoryService {
     public CategoryService(Context context, CategoryUpdateListener listener) {
         this.context = context;
         this.listener = listener;
-        this.categoryRepository = new CategoryRepository(context);
+        this.categoryRepository = AppServices.getInstance(context).getCategoryRepository();
         this.categoryManager = new CategoryManager(context);
     }
     
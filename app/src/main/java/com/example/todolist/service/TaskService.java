@@ -5,6 +5,8 @@ import android.util.Log;
 import androidx.appcompat.app.AlertDialog;
 
 import com.example.todolist.cache.TaskCache;
+import com.example.todolist.cache.TaskCacheWarmer;
+import com.example.todolist.cache.TaskChangeSet;
 import com.example.todolist.cache.SharedTaskCacheManager;
 import com.example.todolist.manager.AuthManager;
 import com.example.todolist.manager.FirebaseSyncManager;
@@ -14,6 +16,7 @@ import com.example.todolist.repository.BaseRepository;
 import com.example.todolist.repository.TaskRepository;
 import com.example.todolist.service.task.*;
 import com.example.todolist.service.sharing.TaskSharingService;
+import com.example.todolist.service.sharing.SharedTaskSubscriptions;
 import com.example.todolist.service.sharing.SharedTaskSyncService;
 import com.example.todolist.widget.WidgetUpdateHelper;
 import com.example.todolist.model.TaskShare;
@@ -21,9 +24,11 @@ import com.example.todolist.model.SharedUser;
 import com.example.todolist.notification.ReminderScheduler;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
-public class TaskService implements TaskCache.TaskCacheListener, TaskRepeatService.TaskCreator {
+public class TaskService implements TaskCache.TaskCacheDeltaListener, TaskRepeatService.TaskCreator {
     
     public interface TaskUpdateListener {
         void onTasksUpdated();
@@ -48,11 +53,11 @@ public class TaskService implements TaskCache.TaskCacheListener, TaskRepeatServi
     private SubTaskService subTaskService;
     private TaskSyncService syncService;
     private TaskFirebaseUpdateService firebaseUpdateService;
-    private TaskSharingService taskSharingService;
+    
+    private AppServices services;
     
     // Firebase sync management
     private AuthManager authManager;
-    private FirebaseSyncManager firebaseSyncManager;
     
     // Shared task cache management
     private SharedTaskCacheManager sharedTaskCacheManager;
@@ -63,44 +68,48 @@ public class TaskService implements TaskCache.TaskCacheListener, TaskRepeatServi
     public TaskService(Context context, TaskUpdateListener listener) {
         this.context = context;
         this.listener = listener;
-        this.taskRepository = new TaskRepository(context);
+        this.services = AppServices.getInstance(context);
+        this.taskRepository = services.getTaskRepository();
         this.taskCache = TaskCache.getInstance();
         taskCache.addListener(this);
 
-        this.taskManager = new TaskManager(context);
-        this.completionService = new TaskCompletionService(context);
+        // Stateless delegates are shared, the task lists and pending Firebase updates belong to this instance
+        this.taskManager = services.getTaskManager();
+        this.completionService = services.getCompletionService();
         this.listService = new TaskListService(context);
         this.subTaskService = new SubTaskService(context);
-        this.syncService = new TaskSyncService(context);
+        this.syncService = services.getSyncService();
         this.firebaseUpdateService = new TaskFirebaseUpdateService();
         this.subTaskService.setTaskService(this);
 
-        this.authManager = AuthManager.getInstance();
-        this.authManager.initialize(context);
-        this.firebaseSyncManager = FirebaseSyncManager.getInstance();
-        this.firebaseSyncManager.initialize(context);
-        this.taskSharingService = TaskSharingService.getInstance();
-        this.taskSharingService.initialize(context);
+        this.authManager = services.getAuthManager();
         this.sharedTaskCacheManager = SharedTaskCacheManager.getInstance();
-        this.sharedTaskCacheManager.initialize(context);
+        // Tài khoản chỉ dùng offline không cần khởi tạo Firebase
+        if (authManager.isSignedIn()) {
+            services.initializeRemote();
+        }
         
         // Initialize reminder scheduler
-        this.reminderScheduler = new ReminderScheduler(context);
+        this.reminderScheduler = services.getReminderScheduler();
     }
 
     public void loadTasks() {
-        if (taskCache.isInitialized()) {
+        if (taskCache.isInitialized() && !TaskCacheWarmer.getInstance().hasUnclaimedLoad()) {
             loadSharedTasks();
             notifyListener();
             return;
         }
         
-        taskCache.setLoading(true);
-        taskRepository.getAllTasks(new BaseRepository.ListCallback<Task>() {
+        // Cache có thể đã được nạp sẵn từ Room ở màn hình splash
+        TaskCacheWarmer.getInstance().load(context, new TaskCacheWarmer.LoadCallback() {
             @Override
-            public void onSuccess(List<Task> tasks) {
-                taskCache.loadFromFirebase(tasks);
-                taskCache.setLoading(false);
+            public void onLoaded(boolean firstClaim) {
+                if (!firstClaim) {
+                    notifyListener();
+                    return;
+                }
+                // Shared tasks đã lưu không nằm trong bảng tasks
+                sharedTaskCacheManager.publishCachedSharedTasks();
                 notifyListener();
 
                 if (authManager.shouldSyncToFirebase()) {
@@ -116,7 +125,6 @@ public class TaskService implements TaskCache.TaskCacheListener, TaskRepeatServi
 
             @Override
             public void onError(String error) {
-                taskCache.setLoading(false);
                 notifyError("Lỗi tải tasks: " + error);
             }
         });
@@ -124,10 +132,11 @@ public class TaskService implements TaskCache.TaskCacheListener, TaskRepeatServi
 
     public void forceReloadSharedTasks() {
         // Force reload shared tasks without checking cache
-        loadSharedTasks();
+        reloadSharedTasksOnce();
     }
 
     public void syncAllTasksToFirebase(FirebaseSyncManager.SyncCallback callback) {
+        services.initializeRemote();
         syncService.syncAllTasksToFirebase(callback);
         
         // Đồng bộ shared tasks pending
@@ -143,15 +152,38 @@ public class TaskService implements TaskCache.TaskCacheListener, TaskRepeatServi
         if (currentUserEmail == null) {
             return;
         }
+        services.initializeRemote();
 
-        taskSharingService.getSharedTasksForCurrentUser(new TaskSharingService.SharedTasksCallback() {
+        // Theo dõi danh sách chia sẻ, chỉ task mới được chia sẻ hoặc bị thu hồi mới được xử lý
+        SharedTaskSubscriptions.getInstance().watchSharedIndex(currentUserEmail, new SharedTaskSubscriptions.IndexListener() {
+            @Override
+            public void onShareAdded(TaskShare taskShare) {
+                SharedTaskCacheManager.getInstance().loadSharedTask(taskShare.getTaskId(), null);
+                SharedTaskSyncService.getInstance().startListeningForTaskUpdates(taskShare);
+            }
+
+            @Override
+            public void onShareRemoved(String taskId) {
+                SharedTaskSyncService.getInstance().stopListeningForTaskUpdates(taskId);
+                SharedTaskCacheManager.getInstance().removeSharedTask(taskId);
+            }
+        });
+    }
+
+    private void reloadSharedTasksOnce() {
+        if (!authManager.shouldSyncToFirebase() || authManager.getCurrentUserEmail() == null) {
+            return;
+        }
+
+        services.initializeRemote();
+        TaskSharingService.getInstance().getSharedTasksForCurrentUser(new TaskSharingService.SharedTasksCallback() {
             @Override
             public void onSharedTasksLoaded(List<TaskShare> sharedTasks) {
                 // Load actual tasks from these shared task IDs
                 for (TaskShare taskShare : sharedTasks) {
                     loadSharedTask(taskShare.getTaskId());
                     // Khởi tạo listener real-time cho shared task
-                    SharedTaskSyncService.getInstance().startListeningForTaskUpdates(taskShare.getTaskId());
+                    SharedTaskSyncService.getInstance().startListeningForTaskUpdates(taskShare);
                 }
             }
 
@@ -358,6 +390,8 @@ public class TaskService implements TaskCache.TaskCacheListener, TaskRepeatServi
                 notifyError("Lỗi cập nhật trạng thái task: " + error);
             }
         });
+        // The cached task was changed in place, refile it before anything queries the index
+        taskCache.reindexTask(task);
     }
 
     public void toggleTaskCompletion(Task task) {
@@ -471,7 +505,7 @@ public class TaskService implements TaskCache.TaskCacheListener, TaskRepeatServi
 
     // Utility and lifecycle methods
     public void rescheduleAllReminders() {
-        // Delegate to TaskManager if needed
+        reminderScheduler.rescheduleAllReminders(null);
     }
     
     public void cleanup() {
@@ -479,12 +513,27 @@ public class TaskService implements TaskCache.TaskCacheListener, TaskRepeatServi
         firebaseUpdateService.cancelPendingFirebaseUpdates();
     }
 
-    // TaskCache.TaskCacheListener implementation
+    // TaskCache.TaskCacheDeltaListener implementation
+    @Override
+    public void onTasksChanged(TaskChangeSet changes) {
+        listService.applyChanges(changes, taskCache);
+        notifyListener();
+        WidgetUpdateHelper.notifyTasksChanged(context, getChangedIds(changes));
+    }
+    
     @Override
     public void onTasksUpdated(List<Task> tasks) {
         listService.updateTasks(tasks);
         notifyListener();
-        WidgetUpdateHelper.updateAllWidgets(context);
+        WidgetUpdateHelper.notifyTasksChanged(context, null);
+    }
+    
+    private static Set<String> getChangedIds(TaskChangeSet changes) {
+        if (changes.isFullRefresh()) return null;
+        Set<String> changedIds = new HashSet<>(changes.getAddedIds());
+        changedIds.addAll(changes.getUpdatedIds());
+        changedIds.addAll(changes.getRemovedIds());
+        return changedIds;
     }
     
     @Override
@@ -594,6 +643,7 @@ public class TaskService implements TaskCache.TaskCacheListener, TaskRepeatServi
         if (isCompleted && task.getSubTasks() != null) {
             task.getSubTasks().forEach(subTask -> subTask.setCompleted(false));
         }
+        taskCache.reindexTask(task);
         notifyListener();
     }
     
@@ -663,7 +713,7 @@ public class TaskService implements TaskCache.TaskCacheListener, TaskRepeatServi
         if (task == null) return;
         
         try {
-            reminderScheduler.cancelTaskReminders(task.getId().hashCode());
+            reminderScheduler.cancelTaskReminders(task.getId());
             if (task.isHasReminder() && !task.isCompleted()) {
                 reminderScheduler.scheduleTaskReminder(task);
             }
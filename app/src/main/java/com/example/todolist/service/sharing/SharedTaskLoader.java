@@ -0,0 +1,305 @@
+package com.example.todolist.service.sharing;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.example.todolist.model.Task;
+import com.example.todolist.model.TaskShare;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Reads shared-task metadata and shared tasks with a bounded number of Firebase reads in flight.
+ * TaskShare lookups are cached by taskId for a short time, and concurrent requests for the same
+ * task share a single read, so loading N shared tasks costs at most N share reads plus N task reads,
+ * sent in waves of MAX_CONCURRENT_READS.
+ */
+public class SharedTaskLoader {
+    static final int MAX_CONCURRENT_READS = 32;
+    static final long SHARE_TTL_MILLIS = 2 * 60 * 1000L;
+
+    private static SharedTaskLoader instance;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, CachedShare> sharesByTaskId = new ConcurrentHashMap<>();
+
+    // Callbacks waiting for a read that is already running, guarded by this
+    private final Map<String, List<TaskSharingService.TaskShareCallback>> pendingShares = new HashMap<>();
+    private final Map<String, List<SharedTaskSyncService.SharedTaskCallback>> pendingTasks = new HashMap<>();
+    private final Deque<Read> queuedReads = new ArrayDeque<>();
+    private int activeReads;
+
+    // A read calls done exactly once when its Firebase callback has fired
+    private interface Read {
+        void start(Runnable done);
+    }
+
+    private SharedTaskLoader() {
+    }
+
+    public static SharedTaskLoader getInstance() {
+        if (instance == null) {
+            synchronized (SharedTaskLoader.class) {
+                if (instance == null) {
+                    instance = new SharedTaskLoader();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * TaskShare of a task, from the cache when it is younger than SHARE_TTL_MILLIS
+     */
+    public void getTaskShare(String taskId, TaskSharingService.TaskShareCallback callback) {
+        CachedShare cached = sharesByTaskId.get(taskId);
+        if (cached != null && System.currentTimeMillis() - cached.loadedAt < SHARE_TTL_MILLIS) {
+            if (callback != null) runOnMain(() -> callback.onTaskShareLoaded(cached.taskShare));
+            return;
+        }
+        getFreshTaskShare(taskId, callback);
+    }
+
+    /**
+     * Always reads the share; used before the share itself is rewritten
+     */
+    public void getFreshTaskShare(String taskId, TaskSharingService.TaskShareCallback callback) {
+        synchronized (this) {
+            List<TaskSharingService.TaskShareCallback> waiting = pendingShares.get(taskId);
+            if (waiting != null) {
+                waiting.add(callback);
+                return;
+            }
+            waiting = new ArrayList<>();
+            waiting.add(callback);
+            pendingShares.put(taskId, waiting);
+        }
+
+        submit(done -> TaskSharingService.getInstance().queryTaskShare(taskId, new TaskSharingService.TaskShareCallback() {
+            @Override
+            public void onTaskShareLoaded(TaskShare taskShare) {
+                putTaskShare(taskShare);
+                done.run();
+                for (TaskSharingService.TaskShareCallback waiting : takePendingShares(taskId)) {
+                    if (waiting != null) waiting.onTaskShareLoaded(taskShare);
+                }
+            }
+
+            @Override
+            public void onError(String error) {
+                done.run();
+                for (TaskSharingService.TaskShareCallback waiting : takePendingShares(taskId)) {
+                    if (waiting != null) waiting.onError(error);
+                }
+            }
+        }));
+    }
+
+    /**
+     * Reads shares by id, for callers that already have the share id from user_shared_tasks
+     */
+    public void loadTaskShare(String shareId, TaskSharingService.TaskShareCallback callback) {
+        submit(done -> TaskSharingService.getInstance().fetchTaskShare(shareId, taskShare -> {
+            done.run();
+            if (taskShare != null) {
+                putTaskShare(taskShare);
+                if (callback != null) callback.onTaskShareLoaded(taskShare);
+            } else {
+                if (callback != null) callback.onError("Task share not found");
+            }
+        }));
+    }
+
+    /**
+     * Reads all shares and reports the active ones once, in the order of shareIds
+     */
+    public void loadTaskShares(List<String> shareIds, TaskSharingService.SharedTasksCallback callback) {
+        if (shareIds.isEmpty()) {
+            if (callback != null) callback.onSharedTasksLoaded(new ArrayList<>());
+            return;
+        }
+
+        TaskShare[] results = new TaskShare[shareIds.size()];
+        int[] remaining = {shareIds.size()};
+        for (int i = 0; i < shareIds.size(); i++) {
+            int index = i;
+            submit(done -> TaskSharingService.getInstance().fetchTaskShare(shareIds.get(index), taskShare -> {
+                done.run();
+                if (taskShare != null) {
+                    putTaskShare(taskShare);
+                }
+                boolean complete;
+                synchronized (results) {
+                    results[index] = taskShare;
+                    complete = --remaining[0] == 0;
+                }
+                if (complete && callback != null) {
+                    List<TaskShare> taskShares = new ArrayList<>();
+                    for (TaskShare result : results) {
+                        if (result != null) taskShares.add(result);
+                    }
+                    callback.onSharedTasksLoaded(taskShares);
+                }
+            }));
+        }
+    }
+
+    /**
+     * Shared task from the owner's tree; concurrent loads of the same task get the same result
+     */
+    public void loadSharedTask(String taskId, SharedTaskSyncService.SharedTaskCallback callback) {
+        synchronized (this) {
+            List<SharedTaskSyncService.SharedTaskCallback> waiting = pendingTasks.get(taskId);
+            if (waiting != null) {
+                waiting.add(callback);
+                return;
+            }
+            waiting = new ArrayList<>();
+            waiting.add(callback);
+            pendingTasks.put(taskId, waiting);
+        }
+
+        getTaskShare(taskId, new TaskSharingService.TaskShareCallback() {
+            @Override
+            public void onTaskShareLoaded(TaskShare taskShare) {
+                submit(done -> SharedTaskSyncService.getInstance().fetchSharedTask(taskShare, new SharedTaskSyncService.SharedTaskCallback() {
+                    @Override
+                    public void onTaskLoaded(Task task) {
+                        done.run();
+                        for (SharedTaskSyncService.SharedTaskCallback waiting : takePendingTasks(taskId)) {
+                            if (waiting != null) waiting.onTaskLoaded(task);
+                        }
+                    }
+
+                    @Override
+                    public void onError(String error) {
+                        done.run();
+                        for (SharedTaskSyncService.SharedTaskCallback waiting : takePendingTasks(taskId)) {
+                            if (waiting != null) waiting.onError(error);
+                        }
+                    }
+                }));
+            }
+
+            @Override
+            public void onError(String error) {
+                for (SharedTaskSyncService.SharedTaskCallback waiting : takePendingTasks(taskId)) {
+                    if (waiting != null) waiting.onError("Task is not shared: " + error);
+                }
+            }
+        });
+    }
+
+    /**
+     * lastModified of the owner's copy of the task, null when it is missing or could not be read
+     */
+    public void loadRemoteLastModified(TaskShare taskShare, Consumer<Long> callback) {
+        submit(done -> SharedTaskSyncService.getInstance().fetchLastModified(taskShare, lastModified -> {
+            done.run();
+            callback.accept(lastModified);
+        }));
+    }
+
+    public void putTaskShare(TaskShare taskShare) {
+        putTaskShare(taskShare, System.currentTimeMillis());
+    }
+
+    /**
+     * @param loadedAt when the share was read, an older time lets a persisted share expire on schedule
+     */
+    public void putTaskShare(TaskShare taskShare, long loadedAt) {
+        if (taskShare == null || taskShare.getTaskId() == null) return;
+        if (taskShare.isActive()) {
+            sharesByTaskId.put(taskShare.getTaskId(), new CachedShare(taskShare, loadedAt));
+        } else {
+            sharesByTaskId.remove(taskShare.getTaskId());
+        }
+    }
+
+    /**
+     * Last known share of a task even when it has expired, null if none was loaded
+     */
+    public TaskShare peekTaskShare(String taskId) {
+        CachedShare cached = taskId != null ? sharesByTaskId.get(taskId) : null;
+        return cached != null ? cached.taskShare : null;
+    }
+
+    public void invalidate(String taskId) {
+        if (taskId != null) {
+            sharesByTaskId.remove(taskId);
+        }
+    }
+
+    public void clear() {
+        sharesByTaskId.clear();
+    }
+
+    private synchronized List<TaskSharingService.TaskShareCallback> takePendingShares(String taskId) {
+        List<TaskSharingService.TaskShareCallback> waiting = pendingShares.remove(taskId);
+        return waiting != null ? waiting : new ArrayList<>();
+    }
+
+    private synchronized List<SharedTaskSyncService.SharedTaskCallback> takePendingTasks(String taskId) {
+        List<SharedTaskSyncService.SharedTaskCallback> waiting = pendingTasks.remove(taskId);
+        return waiting != null ? waiting : new ArrayList<>();
+    }
+
+    private void submit(Read read) {
+        synchronized (this) {
+            if (activeReads >= MAX_CONCURRENT_READS) {
+                queuedReads.addLast(read);
+                return;
+            }
+            activeReads++;
+        }
+        start(read);
+    }
+
+    private void start(Read read) {
+        AtomicBoolean finished = new AtomicBoolean();
+        read.start(() -> {
+            if (finished.compareAndSet(false, true)) {
+                onReadFinished();
+            }
+        });
+    }
+
+    // The slot of a finished read goes straight to the next queued one
+    private void onReadFinished() {
+        Read next;
+        synchronized (this) {
+            next = queuedReads.pollFirst();
+            if (next == null) {
+                activeReads--;
+                return;
+            }
+        }
+        start(next);
+    }
+
+    private void runOnMain(Runnable action) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            action.run();
+        } else {
+            mainHandler.post(action);
+        }
+    }
+
+    private static class CachedShare {
+        final TaskShare taskShare;
+        final long loadedAt;
+
+        CachedShare(TaskShare taskShare, long loadedAt) {
+            this.taskShare = taskShare;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
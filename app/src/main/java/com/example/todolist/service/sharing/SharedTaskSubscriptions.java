@@ -0,0 +1,388 @@
+package com.example.todolist.service.sharing;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.example.todolist.manager.FirebaseSyncManager;
+import com.example.todolist.model.Task;
+import com.example.todolist.model.TaskShare;
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Real-time subscriptions for shared tasks.
+ * Each task gets one ChildEventListener on the owner's task node, shared by all callers through a refcount,
+ * so an edit only delivers the fields that changed. The index user_shared_tasks/<user> is watched the same way
+ * to pick up new and revoked shares without reloading every shared task.
+ * All Firebase callbacks arrive on the main thread, so the state here is only touched from there.
+ */
+public class SharedTaskSubscriptions {
+    private static final String TAG = "SharedTaskSubscriptions";
+    private static final String USERS_NODE = "users";
+    private static final String TASKS_NODE = "tasks";
+    private static final String USER_SHARED_TASKS_NODE = "user_shared_tasks";
+    // Each active listener keeps a synced copy of the task in memory; further subscriptions wait for a free slot
+    static final int MAX_ACTIVE_LISTENERS = 64;
+
+    private static SharedTaskSubscriptions instance;
+
+    public interface DeltaListener {
+        /**
+         * @param changedFields keys of the task node changed since the last call for this task
+         */
+        void onSharedTaskChanged(Task task, Set<String> changedFields);
+        void onSharedTaskRemoved(String taskId);
+    }
+
+    public interface IndexListener {
+        void onShareAdded(TaskShare taskShare);
+        void onShareRemoved(String taskId);
+    }
+
+    private final DatabaseReference database;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<DeltaListener> deltaListeners = new CopyOnWriteArrayList<>();
+    private final Map<String, Subscription> subscriptions = new HashMap<>();
+    private final Deque<Subscription> waiting = new ArrayDeque<>();
+    private int activeCount;
+
+    private String indexUserKey;
+    private DatabaseReference indexRef;
+    private ChildEventListener indexListener;
+    // shareId -> taskId for shares seen through the index
+    private final Map<String, String> indexedShares = new HashMap<>();
+    // Shares of the user's own tasks; removing one never removes the task itself
+    private final Set<String> ownedShares = new HashSet<>();
+
+    private SharedTaskSubscriptions() {
+        this(FirebaseDatabase.getInstance().getReference());
+    }
+
+    @VisibleForTesting
+    SharedTaskSubscriptions(DatabaseReference database) {
+        this.database = database;
+    }
+
+    public static SharedTaskSubscriptions getInstance() {
+        if (instance == null) {
+            synchronized (SharedTaskSubscriptions.class) {
+                if (instance == null) {
+                    instance = new SharedTaskSubscriptions();
+                }
+            }
+        }
+        return instance;
+    }
+
+    public void addDeltaListener(DeltaListener listener) {
+        if (!deltaListeners.contains(listener)) {
+            deltaListeners.add(listener);
+        }
+    }
+
+    public void removeDeltaListener(DeltaListener listener) {
+        deltaListeners.remove(listener);
+    }
+
+    public void subscribe(String taskId, String ownerEmail) {
+        runOnMain(() -> {
+            Subscription subscription = subscriptions.get(taskId);
+            if (subscription != null) {
+                subscription.refCount++;
+                return;
+            }
+            subscription = new Subscription(taskId, database.child(USERS_NODE).child(sanitizeEmail(ownerEmail))
+                    .child(TASKS_NODE).child(taskId));
+            subscriptions.put(taskId, subscription);
+            if (activeCount < MAX_ACTIVE_LISTENERS) {
+                activate(subscription);
+            } else {
+                subscription.waited = true;
+                waiting.addLast(subscription);
+            }
+        });
+    }
+
+    public void unsubscribe(String taskId) {
+        runOnMain(() -> {
+            Subscription subscription = subscriptions.get(taskId);
+            if (subscription == null || --subscription.refCount > 0) return;
+
+            subscriptions.remove(taskId);
+            if (subscription.active) {
+                subscription.reference.removeEventListener(subscription.childListener);
+                subscription.active = false;
+                activeCount--;
+                Subscription next = waiting.pollFirst();
+                if (next != null) {
+                    activate(next);
+                }
+            } else {
+                waiting.remove(subscription);
+            }
+        });
+    }
+
+    public void unsubscribeAll() {
+        runOnMain(() -> {
+            for (Subscription subscription : subscriptions.values()) {
+                if (subscription.active) {
+                    subscription.reference.removeEventListener(subscription.childListener);
+                    // A dispatch already posted for it must not fire after the removal
+                    subscription.active = false;
+                }
+            }
+            subscriptions.clear();
+            waiting.clear();
+            activeCount = 0;
+            stopWatchingIndexOnMain();
+        });
+    }
+
+    public boolean isSubscribed(String taskId) {
+        return subscriptions.containsKey(taskId);
+    }
+
+    /**
+     * Watch the user's share index; existing shares are reported once through onShareAdded.
+     * Calling again for the same user keeps the current watch.
+     */
+    public void watchSharedIndex(String userEmail, IndexListener listener) {
+        runOnMain(() -> {
+            String userKey = sanitizeEmail(userEmail);
+            if (userKey.equals(indexUserKey)) return;
+            stopWatchingIndexOnMain();
+
+            indexUserKey = userKey;
+            indexRef = database.child(USER_SHARED_TASKS_NODE).child(userKey);
+            indexListener = new ChildEventListener() {
+                @Override
+                public void onChildAdded(DataSnapshot snapshot, String previousChildName) {
+                    String taskId = snapshot.child("taskId").getValue(String.class);
+                    if (taskId == null) return;
+                    indexedShares.put(snapshot.getKey(), taskId);
+                    if (Boolean.TRUE.equals(snapshot.child("isOwner").getValue(Boolean.class))) {
+                        ownedShares.add(snapshot.getKey());
+                    }
+                    // Index entries carry the share id, so the share is read directly and the read is bounded
+                    String shareId = snapshot.child("shareId").getValue(String.class);
+                    TaskSharingService.TaskShareCallback shareCallback = new TaskSharingService.TaskShareCallback() {
+                        @Override
+                        public void onTaskShareLoaded(TaskShare taskShare) {
+                            if (indexedShares.containsKey(snapshot.getKey())) {
+                                listener.onShareAdded(taskShare);
+                            }
+                        }
+
+                        @Override
+                        public void onError(String error) {
+                            Log.w(TAG, "Share lookup failed for " + taskId + ": " + error);
+                        }
+                    };
+                    if (shareId != null) {
+                        SharedTaskLoader.getInstance().loadTaskShare(shareId, shareCallback);
+                    } else {
+                        SharedTaskLoader.getInstance().getTaskShare(taskId, shareCallback);
+                    }
+                }
+
+                @Override
+                public void onChildChanged(DataSnapshot snapshot, String previousChildName) {
+                }
+
+                @Override
+                public void onChildRemoved(DataSnapshot snapshot) {
+                    String taskId = indexedShares.remove(snapshot.getKey());
+                    SharedTaskLoader.getInstance().invalidate(taskId);
+                    if (taskId != null && !ownedShares.remove(snapshot.getKey())) {
+                        listener.onShareRemoved(taskId);
+                    }
+                }
+
+                @Override
+                public void onChildMoved(DataSnapshot snapshot, String previousChildName) {
+                }
+
+                @Override
+                public void onCancelled(DatabaseError error) {
+                    Log.w(TAG, "Share index listener cancelled: " + error.getMessage());
+                }
+            };
+            indexRef.addChildEventListener(indexListener);
+        });
+    }
+
+    public boolean isWatchingIndexFor(String userEmail) {
+        return sanitizeEmail(userEmail).equals(indexUserKey);
+    }
+
+    public void stopWatchingIndex() {
+        runOnMain(this::stopWatchingIndexOnMain);
+    }
+
+    private void stopWatchingIndexOnMain() {
+        if (indexRef != null && indexListener != null) {
+            indexRef.removeEventListener(indexListener);
+        }
+        indexRef = null;
+        indexListener = null;
+        indexUserKey = null;
+        indexedShares.clear();
+        ownedShares.clear();
+    }
+
+    private void activate(Subscription subscription) {
+        subscription.active = true;
+        subscription.primed = false;
+        activeCount++;
+        subscription.reference.addChildEventListener(subscription.childListener);
+        // Value events fire after the child events of the same sync, so this marks the end of the initial snapshot
+        subscription.reference.addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(DataSnapshot snapshot) {
+                subscription.primed = true;
+                // The copy loaded when it was queued misses every edit made while it waited, send the whole task once
+                if (subscription.waited && subscription.active) {
+                    deliverPrimedState(subscription);
+                }
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {
+                subscription.primed = true;
+            }
+        });
+    }
+
+    private void onFieldChanged(Subscription subscription, String field, Object value) {
+        if (value == null) {
+            subscription.fields.remove(field);
+        } else {
+            subscription.fields.put(field, value);
+        }
+        // The initial snapshot is already loaded through SharedTaskCacheManager.loadSharedTask
+        if (!subscription.primed || !subscription.active) return;
+
+        // A patch arrives as one child event per field, they are delivered together
+        boolean scheduled = !subscription.changedFields.isEmpty();
+        subscription.changedFields.add(field);
+        if (!scheduled) {
+            mainHandler.post(() -> dispatch(subscription));
+        }
+    }
+
+    private void deliverPrimedState(Subscription subscription) {
+        if (subscription.fields.isEmpty()) {
+            for (DeltaListener listener : deltaListeners) {
+                listener.onSharedTaskRemoved(subscription.taskId);
+            }
+            return;
+        }
+        subscription.changedFields.addAll(subscription.fields.keySet());
+        dispatch(subscription);
+    }
+
+    private void dispatch(Subscription subscription) {
+        if (subscription.changedFields.isEmpty() || !subscription.active) return;
+        Set<String> changed = new HashSet<>(subscription.changedFields);
+        subscription.changedFields.clear();
+
+        // Deleted by the owner: either replaced by a tombstone or removed outright
+        if (subscription.fields.isEmpty() || FirebaseSyncManager.isTombstone(subscription.fields)) {
+            for (DeltaListener listener : deltaListeners) {
+                listener.onSharedTaskRemoved(subscription.taskId);
+            }
+            return;
+        }
+
+        Task task;
+        try {
+            task = FirebaseSyncManager.convertMapToTask(subscription.fields);
+        } catch (Exception e) {
+            Log.e(TAG, "Error rebuilding shared task " + subscription.taskId, e);
+            return;
+        }
+        task.setId(subscription.taskId);
+        task.setShared(true);
+        task.takeDirtyFields();
+        for (DeltaListener listener : deltaListeners) {
+            listener.onSharedTaskChanged(task, changed);
+        }
+    }
+
+    private void runOnMain(Runnable action) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            action.run();
+        } else {
+            mainHandler.post(action);
+        }
+    }
+
+    private static String sanitizeEmail(String email) {
+        if (email == null || email.isEmpty()) {
+            return "unknown_user";
+        }
+        return email.replace(".", "_").replace("@", "_at_");
+    }
+
+    private class Subscription {
+        final String taskId;
+        final DatabaseReference reference;
+        // Local mirror of the task node, kept current by the child events
+        final Map<String, Object> fields = new HashMap<>();
+        final Set<String> changedFields = new LinkedHashSet<>();
+        int refCount = 1;
+        boolean active;
+        boolean primed;
+        // Queued behind MAX_ACTIVE_LISTENERS before its listener was attached
+        boolean waited;
+
+        final ChildEventListener childListener = new ChildEventListener() {
+            @Override
+            public void onChildAdded(DataSnapshot snapshot, String previousChildName) {
+                onFieldChanged(Subscription.this, snapshot.getKey(), snapshot.getValue());
+            }
+
+            @Override
+            public void onChildChanged(DataSnapshot snapshot, String previousChildName) {
+                onFieldChanged(Subscription.this, snapshot.getKey(), snapshot.getValue());
+            }
+
+            @Override
+            public void onChildRemoved(DataSnapshot snapshot) {
+                onFieldChanged(Subscription.this, snapshot.getKey(), null);
+            }
+
+            @Override
+            public void onChildMoved(DataSnapshot snapshot, String previousChildName) {
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {
+                Log.w(TAG, "Listener cancelled for shared task " + taskId + ": " + error.getMessage());
+            }
+        };
+
+        Subscription(String taskId, DatabaseReference reference) {
+            this.taskId = taskId;
+            this.reference = reference;
+        }
+    }
+}
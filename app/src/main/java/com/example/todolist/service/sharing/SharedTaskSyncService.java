@@ -3,6 +3,7 @@ package com.example.todolist.service.sharing;
 import android.content.Context;
 
 import com.example.todolist.manager.AuthManager;
+import com.example.todolist.manager.FirebaseSyncManager;
 import com.example.todolist.model.SubTask;
 import com.example.todolist.model.Task;
 import com.example.todolist.model.TaskShare;
@@ -15,8 +16,11 @@ import com.google.firebase.database.ValueEventListener;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 /**
  * Service để đồng bộ real-time các thay đổi trên shared tasks
@@ -34,8 +38,7 @@ public class SharedTaskSyncService {
 
     // Listeners for real-time updates
     private List<SharedTaskUpdateListener> updateListeners;
-    private List<ValueEventListener> firebaseListeners;
-    private List<String> listeningTasks;
+    private Set<String> listeningTasks;
 
     public interface SharedTaskUpdateListener {
         void onSharedTaskUpdated(Task task);
@@ -53,8 +56,7 @@ public class SharedTaskSyncService {
         this.database = FirebaseDatabase.getInstance().getReference();
         this.executor = Executors.newSingleThreadExecutor();
         this.updateListeners = new ArrayList<>();
-        this.firebaseListeners = new ArrayList<>();
-        this.listeningTasks = new ArrayList<>();
+        this.listeningTasks = ConcurrentHashMap.newKeySet();
     }
 
     public static SharedTaskSyncService getInstance() {
@@ -90,63 +92,45 @@ public class SharedTaskSyncService {
      * Bắt đầu lắng nghe real-time updates cho một shared task
      */
     public void startListeningForTaskUpdates(String taskId) {
-        if (listeningTasks.contains(taskId)) {
+        String currentUserEmail = authManager.getCurrentUserEmail();
+        if (currentUserEmail == null || !listeningTasks.add(taskId)) {
             return; // Đã đang lắng nghe rồi
         }
 
-        String currentUserEmail = authManager.getCurrentUserEmail();
-        if (currentUserEmail == null) return;
-
         // Kiểm tra xem task có được chia sẻ không
         TaskSharingService.getInstance().getTaskShare(taskId, new TaskSharingService.TaskShareCallback() {
             @Override
             public void onTaskShareLoaded(TaskShare taskShare) {
+                if (!listeningTasks.contains(taskId)) return; // Đã dừng trong lúc tra cứu
                 if (taskShare.isOwner(currentUserEmail) || taskShare.isUserShared(currentUserEmail)) {
-                    setupTaskListener(taskId, taskShare.getOwnerId());
+                    SharedTaskSubscriptions.getInstance().subscribe(taskId, taskShare.getOwnerId());
+                } else {
+                    listeningTasks.remove(taskId);
                 }
             }
 
             @Override
             public void onError(String error) {
+                listeningTasks.remove(taskId);
             }
         });
     }
 
-    private void setupTaskListener(String taskId, String ownerId) {
-        String userPath = USERS_NODE + "/" + sanitizeEmail(ownerId) + "/" + TASKS_NODE + "/" + taskId;
-        
-        ValueEventListener taskListener = new ValueEventListener() {
-            @Override
-            public void onDataChange(DataSnapshot dataSnapshot) {
-                if (dataSnapshot.exists()) {
-                    Task task = convertToTask(dataSnapshot);
-                    if (task != null) {
-                        notifyTaskUpdated(task);
-                    }
-                }
-            }
-
-            @Override
-            public void onCancelled(DatabaseError databaseError) {
-                notifyError(databaseError.getMessage());
-            }
-        };
-
-        database.child(userPath).addValueEventListener(taskListener);
-        firebaseListeners.add(taskListener);
-        listeningTasks.add(taskId);
+    /**
+     * Bắt đầu lắng nghe khi đã có TaskShare, không cần tra cứu lại
+     */
+    public void startListeningForTaskUpdates(TaskShare taskShare) {
+        if (listeningTasks.add(taskShare.getTaskId())) {
+            SharedTaskSubscriptions.getInstance().subscribe(taskShare.getTaskId(), taskShare.getOwnerId());
+        }
     }
 
     /**
      * Dừng lắng nghe updates cho một task
      */
     public void stopListeningForTaskUpdates(String taskId) {
-        int index = listeningTasks.indexOf(taskId);
-        if (index >= 0 && index < firebaseListeners.size()) {
-            // Tạm thời bỏ qua việc remove listener để tránh lỗi
-            // database.removeEventListener(firebaseListeners.get(index));
-            listeningTasks.remove(index);
-            firebaseListeners.remove(index);
+        if (listeningTasks.remove(taskId)) {
+            SharedTaskSubscriptions.getInstance().unsubscribe(taskId);
         }
     }
 
@@ -154,6 +138,13 @@ public class SharedTaskSyncService {
      * Cập nhật shared task
      */
     public void updateSharedTask(Task task, TaskSharingService.SharingCallback callback) {
+        updateSharedTask(task, null, callback);
+    }
+
+    /**
+     * @param dirtyFields keys changed since the last sync, written as a patch; null or empty rewrites the whole task
+     */
+    public void updateSharedTask(Task task, Set<String> dirtyFields, TaskSharingService.SharingCallback callback) {
         if (!shouldSync()) {
             if (callback != null) callback.onError("Sync disabled");
             return;
@@ -176,8 +167,11 @@ public class SharedTaskSyncService {
                 // Cập nhật task trong database của owner
                 String ownerPath = USERS_NODE + "/" + sanitizeEmail(taskShare.getOwnerEmail()) + "/" + TASKS_NODE + "/" + task.getId();
                 Map<String, Object> taskData = task.toMap();
+                DatabaseReference taskRef = database.child(ownerPath);
                 
-                database.child(ownerPath).setValue(taskData)
+                (dirtyFields == null || dirtyFields.isEmpty()
+                        ? taskRef.setValue(FirebaseSyncManager.withServerModified(taskData))
+                        : taskRef.updateChildren(FirebaseSyncManager.buildPatch(taskData, dirtyFields)))
                         .addOnSuccessListener(aVoid -> {
                             if (callback != null) callback.onSuccess("Task updated successfully");
                         })
@@ -268,45 +262,59 @@ public class SharedTaskSyncService {
      * Load shared task từ Firebase
      */
     public void loadSharedTask(String taskId, SharedTaskCallback callback) {
-        TaskSharingService.getInstance().getTaskShare(taskId, new TaskSharingService.TaskShareCallback() {
+        SharedTaskLoader.getInstance().loadSharedTask(taskId, callback);
+    }
+
+    void fetchSharedTask(TaskShare taskShare, SharedTaskCallback callback) {
+        String taskId = taskShare.getTaskId();
+        String ownerPath = USERS_NODE + "/" + sanitizeEmail(taskShare.getOwnerEmail()) + "/" + TASKS_NODE + "/" + taskId;
+        
+        database.child(ownerPath).addListenerForSingleValueEvent(new ValueEventListener() {
             @Override
-            public void onTaskShareLoaded(TaskShare taskShare) {
-                String ownerPath = USERS_NODE + "/" + sanitizeEmail(taskShare.getOwnerEmail()) + "/" + TASKS_NODE + "/" + taskId;
-                
-                database.child(ownerPath).addListenerForSingleValueEvent(new ValueEventListener() {
-                    @Override
-                    public void onDataChange(DataSnapshot dataSnapshot) {
-                        if (dataSnapshot.exists()) {
-                            Task task = convertToTask(dataSnapshot);
-                            
-                            if (task != null && task.getId() != null && !task.getId().trim().isEmpty()) {
-                                // Đánh dấu task này là shared
-                                task.setShared(true);
-                                
-                                // Verify task is still valid after setShared
-                                if (task.getId() != null && !task.getId().trim().isEmpty()) {
-                                    if (callback != null) callback.onTaskLoaded(task);
-                                } else {
-                                    if (callback != null) callback.onError("Task ID became null after setShared");
-                                }
-                            } else {
-                                if (callback != null) callback.onError("Failed to convert task data");
-                            }
+            public void onDataChange(DataSnapshot dataSnapshot) {
+                if (isLiveTask(dataSnapshot)) {
+                    Task task = convertToTask(dataSnapshot);
+                    
+                    if (task != null && task.getId() != null && !task.getId().trim().isEmpty()) {
+                        // Đánh dấu task này là shared
+                        task.setShared(true);
+                        
+                        // Verify task is still valid after setShared
+                        if (task.getId() != null && !task.getId().trim().isEmpty()) {
+                            if (callback != null) callback.onTaskLoaded(task);
                         } else {
-                            if (callback != null) callback.onError("Task not found");
+                            if (callback != null) callback.onError("Task ID became null after setShared");
                         }
+                    } else {
+                        if (callback != null) callback.onError("Failed to convert task data");
                     }
+                } else {
+                    if (callback != null) callback.onError("Task not found");
+                }
+            }
 
-                    @Override
-                    public void onCancelled(DatabaseError databaseError) {
-                        if (callback != null) callback.onError(databaseError.getMessage());
-                    }
-                });
+            @Override
+            public void onCancelled(DatabaseError databaseError) {
+                if (callback != null) callback.onError(databaseError.getMessage());
             }
+        });
+    }
 
+    /**
+     * Chỉ đọc lastModified của task để kiểm tra bản cache còn mới không
+     */
+    void fetchLastModified(TaskShare taskShare, Consumer<Long> callback) {
+        String ownerPath = USERS_NODE + "/" + sanitizeEmail(taskShare.getOwnerEmail()) + "/" + TASKS_NODE + "/" + taskShare.getTaskId();
+
+        database.child(ownerPath).child("lastModified").addListenerForSingleValueEvent(new ValueEventListener() {
             @Override
-            public void onError(String error) {
-                if (callback != null) callback.onError("Task is not shared: " + error);
+            public void onDataChange(DataSnapshot dataSnapshot) {
+                callback.accept(dataSnapshot.getValue(Long.class));
+            }
+
+            @Override
+            public void onCancelled(DatabaseError databaseError) {
+                callback.accept(null);
             }
         });
     }
@@ -315,9 +323,7 @@ public class SharedTaskSyncService {
      * Dừng tất cả listeners
      */
     public void stopAllListeners() {
-        // Tạm thời bỏ qua việc remove listeners để tránh lỗi
-        firebaseListeners.clear();
-        listeningTasks.clear();
+        stopListeningForAllTasks();
         updateListeners.clear();
     }
 
@@ -325,11 +331,18 @@ public class SharedTaskSyncService {
      * Dừng lắng nghe updates cho tất cả shared tasks
      */
     public void stopListeningForAllTasks() {
+        SharedTaskSubscriptions.getInstance().stopWatchingIndex();
         for (String taskId : new ArrayList<>(listeningTasks)) {
             stopListeningForTaskUpdates(taskId);
         }
     }
 
+    // Deleted tasks stay behind as tombstones for delta sync
+    private boolean isLiveTask(DataSnapshot dataSnapshot) {
+        return dataSnapshot.exists()
+                && !Boolean.TRUE.equals(dataSnapshot.child(FirebaseSyncManager.TOMBSTONE_FIELD).getValue(Boolean.class));
+    }
+
     private Task convertToTask(DataSnapshot dataSnapshot) {
         try {
             String taskId = dataSnapshot.getKey();
@@ -419,24 +432,6 @@ public class SharedTaskSyncService {
         }
     }
 
-    private void notifyTaskUpdated(Task task) {
-        for (SharedTaskUpdateListener listener : updateListeners) {
-            try {
-                listener.onSharedTaskUpdated(task);
-            } catch (Exception e) {
-            }
-        }
-    }
-
-    private void notifyError(String error) {
-        for (SharedTaskUpdateListener listener : updateListeners) {
-            try {
-                listener.onError(error);
-            } catch (Exception e) {
-            }
-        }
-    }
-
     private boolean shouldSync() {
         return authManager != null && authManager.shouldSyncToFirebase();
     }
@@ -17,8 +17,10 @@ import com.google.firebase.database.ValueEventListener;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 public class TaskSharingService {
     private static final String TAG = "TaskSharingService";
@@ -81,7 +83,7 @@ public class TaskSharingService {
         executor.execute(() -> {
             try {
                 // Kiểm tra xem task đã được chia sẻ chưa
-                getTaskShare(taskId, new TaskShareCallback() {
+                SharedTaskLoader.getInstance().getFreshTaskShare(taskId, new TaskShareCallback() {
                     @Override
                     public void onTaskShareLoaded(TaskShare taskShare) {
                         if (taskShare != null) {
@@ -131,6 +133,7 @@ public class TaskSharingService {
         // Lưu vào Firebase
         newShareRef.setValue(taskShare.toMap())
                 .addOnSuccessListener(aVoid -> {
+                    SharedTaskLoader.getInstance().putTaskShare(taskShare);
                     // Thêm reference vào user_shared_tasks cho cả owner và shared user
                     addTaskShareReference(currentUserEmail, shareId, taskId, true);
                     addTaskShareReference(userEmail, shareId, taskId, false);
@@ -139,6 +142,7 @@ public class TaskSharingService {
                     Log.d(TAG, "Task shared successfully: " + shareId);
                 })
                 .addOnFailureListener(e -> {
+                    SharedTaskLoader.getInstance().invalidate(taskShare.getTaskId());
                     Log.e(TAG, "Error creating task share", e);
                     if (callback != null) callback.onError(e.getMessage());
                 });
@@ -157,6 +161,7 @@ public class TaskSharingService {
         // Cập nhật trong Firebase
         database.child(SHARED_TASKS_NODE).child(taskShare.getId()).setValue(taskShare.toMap())
                 .addOnSuccessListener(aVoid -> {
+                    SharedTaskLoader.getInstance().putTaskShare(taskShare);
                     // Thêm reference cho user mới
                     addTaskShareReference(userEmail, taskShare.getId(), taskShare.getTaskId(), false);
                     
@@ -164,6 +169,7 @@ public class TaskSharingService {
                     Log.d(TAG, "User added to shared task: " + userEmail);
                 })
                 .addOnFailureListener(e -> {
+                    SharedTaskLoader.getInstance().invalidate(taskShare.getTaskId());
                     Log.e(TAG, "Error adding user to shared task", e);
                     if (callback != null) callback.onError(e.getMessage());
                 });
@@ -190,7 +196,30 @@ public class TaskSharingService {
      */
     public void getTaskShare(String taskId, TaskShareCallback callback) {
         // Bỏ qua kiểm tra sync - cho phép thực hiện luôn
+        SharedTaskLoader.getInstance().getTaskShare(taskId, callback);
+    }
+
+    /**
+     * As getTaskShare, completes where the loader answers (the main thread for a Firebase read).
+     * Compose with the *Async stages and an executor to continue off the main thread.
+     */
+    public CompletableFuture<TaskShare> getTaskShareAsync(String taskId) {
+        CompletableFuture<TaskShare> future = new CompletableFuture<>();
+        getTaskShare(taskId, new TaskShareCallback() {
+            @Override
+            public void onTaskShareLoaded(TaskShare taskShare) {
+                future.complete(taskShare);
+            }
+
+            @Override
+            public void onError(String error) {
+                future.completeExceptionally(new IllegalStateException(error));
+            }
+        });
+        return future;
+    }
 
+    void queryTaskShare(String taskId, TaskShareCallback callback) {
         database.child(SHARED_TASKS_NODE)
                 .orderByChild("taskId")
                 .equalTo(taskId)
@@ -236,6 +265,22 @@ public class TaskSharingService {
         getSharedTasksForUser(currentUserEmail, callback);
     }
 
+    public CompletableFuture<List<TaskShare>> getSharedTasksForCurrentUserAsync() {
+        CompletableFuture<List<TaskShare>> future = new CompletableFuture<>();
+        getSharedTasksForCurrentUser(new SharedTasksCallback() {
+            @Override
+            public void onSharedTasksLoaded(List<TaskShare> sharedTasks) {
+                future.complete(sharedTasks);
+            }
+
+            @Override
+            public void onError(String error) {
+                future.completeExceptionally(new IllegalStateException(error));
+            }
+        });
+        return future;
+    }
+
     public void getSharedTasksForUser(String userEmail, SharedTasksCallback callback) {
         String sanitizedEmail = sanitizeEmail(userEmail);
         String userPath = USER_SHARED_TASKS_NODE + "/" + sanitizedEmail;
@@ -256,7 +301,7 @@ public class TaskSharingService {
                     return;
                 }
 
-                loadTaskShares(shareIds, callback);
+                SharedTaskLoader.getInstance().loadTaskShares(shareIds, callback);
             }
 
             @Override
@@ -267,35 +312,23 @@ public class TaskSharingService {
         });
     }
 
-    private void loadTaskShares(List<String> shareIds, SharedTasksCallback callback) {
-        List<TaskShare> taskShares = new ArrayList<>();
-        final int[] loadedCount = {0};
-
-        for (String shareId : shareIds) {
-            database.child(SHARED_TASKS_NODE).child(shareId)
-                    .addListenerForSingleValueEvent(new ValueEventListener() {
-                        @Override
-                        public void onDataChange(DataSnapshot dataSnapshot) {
-                            TaskShare taskShare = convertToTaskShare(dataSnapshot);
-                            if (taskShare != null && taskShare.isActive()) {
-                                taskShares.add(taskShare);
-                            }
-
-                            loadedCount[0]++;
-                            if (loadedCount[0] == shareIds.size()) {
-                                if (callback != null) callback.onSharedTasksLoaded(taskShares);
-                            }
-                        }
+    /**
+     * Đọc một TaskShare theo shareId, trả về null nếu không có hoặc không còn active
+     */
+    void fetchTaskShare(String shareId, Consumer<TaskShare> callback) {
+        database.child(SHARED_TASKS_NODE).child(shareId)
+                .addListenerForSingleValueEvent(new ValueEventListener() {
+                    @Override
+                    public void onDataChange(DataSnapshot dataSnapshot) {
+                        TaskShare taskShare = convertToTaskShare(dataSnapshot);
+                        callback.accept(taskShare != null && taskShare.isActive() ? taskShare : null);
+                    }
 
-                        @Override
-                        public void onCancelled(DatabaseError databaseError) {
-                            loadedCount[0]++;
-                            if (loadedCount[0] == shareIds.size()) {
-                                if (callback != null) callback.onSharedTasksLoaded(taskShares);
-                            }
-                        }
-                    });
-        }
+                    @Override
+                    public void onCancelled(DatabaseError databaseError) {
+                        callback.accept(null);
+                    }
+                });
     }
 
     /**
@@ -312,7 +345,7 @@ public class TaskSharingService {
         
         String currentUserEmail = authManager != null ? authManager.getCurrentUserEmail() : null;
 
-        getTaskShare(taskId, new TaskShareCallback() {
+        SharedTaskLoader.getInstance().getFreshTaskShare(taskId, new TaskShareCallback() {
             @Override
             public void onTaskShareLoaded(TaskShare taskShare) {
                 if (taskShare.isOwner(currentUserEmail)) {
@@ -325,6 +358,7 @@ public class TaskSharingService {
                 // Cập nhật trong Firebase
                 database.child(SHARED_TASKS_NODE).child(taskShare.getId()).setValue(taskShare.toMap())
                         .addOnSuccessListener(aVoid -> {
+                            SharedTaskLoader.getInstance().putTaskShare(taskShare);
                             // Xóa reference từ user_shared_tasks
                             String sanitizedEmail = sanitizeEmail(currentUserEmail);
                             database.child(USER_SHARED_TASKS_NODE).child(sanitizedEmail).child(taskShare.getId()).removeValue();
@@ -332,6 +366,7 @@ public class TaskSharingService {
                             if (callback != null) callback.onSuccess("Left shared task successfully");
                         })
                         .addOnFailureListener(e -> {
+                            SharedTaskLoader.getInstance().invalidate(taskShare.getTaskId());
                             if (callback != null) callback.onError(e.getMessage());
                         });
             }
@@ -355,7 +390,7 @@ public class TaskSharingService {
         
         String currentUserEmail = authManager != null ? authManager.getCurrentUserEmail() : null;
 
-        getTaskShare(taskId, new TaskShareCallback() {
+        SharedTaskLoader.getInstance().getFreshTaskShare(taskId, new TaskShareCallback() {
             @Override
             public void onTaskShareLoaded(TaskShare taskShare) {
                 // Kiểm tra quyền owner
@@ -370,6 +405,7 @@ public class TaskSharingService {
                 // Cập nhật trong Firebase
                 database.child(SHARED_TASKS_NODE).child(taskShare.getId()).setValue(taskShare.toMap())
                         .addOnSuccessListener(aVoid -> {
+                            SharedTaskLoader.getInstance().putTaskShare(taskShare);
                             // Xóa reference từ user_shared_tasks của user bị xóa
                             String sanitizedEmail = sanitizeEmail(userEmail);
                             database.child(USER_SHARED_TASKS_NODE).child(sanitizedEmail).child(taskShare.getId()).removeValue()
@@ -382,6 +418,7 @@ public class TaskSharingService {
                                     });
                         })
                         .addOnFailureListener(e -> {
+                            SharedTaskLoader.getInstance().invalidate(taskShare.getTaskId());
                             if (callback != null) callback.onError(e.getMessage());
                         });
             }
@@ -404,7 +441,7 @@ public class TaskSharingService {
         }
         
         String currentUserEmail = authManager != null ? authManager.getCurrentUserEmail() : null;
-        getTaskShare(taskId, new TaskShareCallback() {
+        SharedTaskLoader.getInstance().getFreshTaskShare(taskId, new TaskShareCallback() {
             @Override
             public void onTaskShareLoaded(TaskShare taskShare) {
                 if (!taskShare.isOwner(currentUserEmail)) {
@@ -417,9 +454,11 @@ public class TaskSharingService {
 
                 database.child(SHARED_TASKS_NODE).child(taskShare.getId()).setValue(taskShare.toMap())
                         .addOnSuccessListener(aVoid -> {
+                            SharedTaskLoader.getInstance().putTaskShare(taskShare);
                             if (callback != null) callback.onSuccess("Task sharing removed successfully");
                         })
                         .addOnFailureListener(e -> {
+                            SharedTaskLoader.getInstance().invalidate(taskShare.getTaskId());
                             if (callback != null) callback.onError(e.getMessage());
                         });
             }
@@ -492,10 +531,12 @@ public class TaskSharingService {
 
         database.child(SHARED_TASKS_NODE).child(taskShare.getId()).setValue(taskShare.toMap())
                 .addOnSuccessListener(aVoid -> {
+                    SharedTaskLoader.getInstance().putTaskShare(taskShare);
                     if (callback != null) callback.onSuccess("Task share updated successfully");
                     Log.d(TAG, "Task share updated: " + taskShare.getId());
                 })
                 .addOnFailureListener(e -> {
+                    SharedTaskLoader.getInstance().invalidate(taskShare.getTaskId());
                     Log.e(TAG, "Error updating task share", e);
                     if (callback != null) callback.onError(e.getMessage());
                 });
@@ -505,7 +546,7 @@ public class TaskSharingService {
         Log.d(TAG, "Accepting task invitation for taskId: " + taskId + ", userEmail: " + userEmail);
         
         // Tìm TaskShare dựa trên taskId
-        getTaskShare(taskId, new TaskShareCallback() {
+        SharedTaskLoader.getInstance().getFreshTaskShare(taskId, new TaskShareCallback() {
             @Override
             public void onTaskShareLoaded(TaskShare taskShare) {
                 // Tìm SharedUser trong danh sách
@@ -4,6 +4,8 @@ import android.content.Context;
 import com.example.todolist.model.Task;
 import com.example.todolist.repository.BaseRepository;
 import com.example.todolist.repository.TaskRepository;
+import com.example.todolist.service.AppServices;
+import com.example.todolist.util.DateCodec;
 import java.util.List;
 
 public class TaskCompletionService {
@@ -11,7 +13,7 @@ public class TaskCompletionService {
     private TaskRepository taskRepository;
     
     public TaskCompletionService(Context context) {
-        this.taskRepository = new TaskRepository(context);
+        this.taskRepository = AppServices.getInstance(context).getTaskRepository();
     }
     
     public void completeTask(Task task, boolean isCompleted, BaseRepository.DatabaseCallback<Boolean> callback) {
@@ -68,8 +70,7 @@ public class TaskCompletionService {
         if (task.getCompletionDate() == null) return false;
         
         // Since completion date is now in dd/MM/yyyy format, compare directly
-        String todayDateStr = new java.text.SimpleDateFormat("dd/MM/yyyy", java.util.Locale.getDefault()).format(new java.util.Date());
-        return todayDateStr.equals(task.getCompletionDate());
+        return DateCodec.todayString().equals(task.getCompletionDate());
     }
     
     public boolean isTaskCompletedToday(Task task) {
@@ -77,6 +78,6 @@ public class TaskCompletionService {
     }
     
     private String formatDate(java.util.Date date) {
-        return new java.text.SimpleDateFormat("dd/MM/yyyy", java.util.Locale.getDefault()).format(date);
+        return DateCodec.formatDateMillis(date.getTime());
     }
 }
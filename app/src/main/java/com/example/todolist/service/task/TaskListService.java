@@ -1,16 +1,27 @@
 package com.example.todolist.service.task;
 
 import android.content.Context;
+import com.example.todolist.cache.TaskCache;
+import com.example.todolist.cache.TaskChangeSet;
 import com.example.todolist.model.Task;
 import com.example.todolist.repository.BaseRepository;
 import com.example.todolist.repository.TaskRepository;
+import com.example.todolist.service.AppServices;
+import com.example.todolist.util.DateCodec;
 import java.util.*;
-import java.text.SimpleDateFormat;
 
 public class TaskListService {
     
+    // Same order as the due-date queries: day, then time (untimed first), then id so ties are stable
+    private static final Comparator<Task> DUE_ORDER = Comparator
+            .comparing((Task task) -> DateCodec.parseEpochDay(task.getDueDate()), Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparingInt(task -> DateCodec.parseMinuteOfDay(task.getDueTime()))
+            .thenComparing(Task::getId, Comparator.nullsLast(Comparator.naturalOrder()));
+    
     private TaskRepository taskRepository;
-    private SimpleDateFormat dateFormat;
+    
+    // Day the lists were last filed against, a delta from another day needs a full pass
+    private long categorizedEpochDay = Long.MIN_VALUE;
     
     // Categorized lists
     private List<Task> overdueTasks;
@@ -22,13 +33,11 @@ public class TaskListService {
         // Constructor without context - will use null context for repository
         // This is for compatibility with existing code that doesn't pass context
         this.taskRepository = null; // Will be set when needed
-        this.dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
         initializeLists();
     }
     
     public TaskListService(Context context) {
-        this.taskRepository = new TaskRepository(context);
-        this.dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
+        this.taskRepository = AppServices.getInstance(context).getTaskRepository();
         initializeLists();
     }
     
@@ -40,18 +49,23 @@ public class TaskListService {
     }
     
     public void categorizeTasks(List<Task> allTasks) {
+        categorizeTasks(allTasks, DateCodec.todayEpochDay());
+    }
+    
+    void categorizeTasks(List<Task> allTasks, long todayEpochDay) {
         clearLists();
-        String todayDateStr = dateFormat.format(new Date());
+        categorizedEpochDay = todayEpochDay;
         
         for (Task task : allTasks) {
             if (task.isCompleted()) {
-                if (isTaskCompletedToday(task, todayDateStr)) {
+                if (isTaskCompletedToday(task, todayEpochDay)) {
                     completedTodayTasks.add(task);
                 }
             } else {
-                categorizeTaskByDate(task, todayDateStr);
+                categorizeTaskByDate(task, todayEpochDay);
             }
         }
+        sortLists();
     }
     
     // Add missing updateTasks method
@@ -59,85 +73,101 @@ public class TaskListService {
         categorizeTasks(tasks);
     }
     
-    private void categorizeTaskByDate(Task task, String todayDateStr) {
-        int timeCategory = getTaskTimeCategory(task, todayDateStr);
-        
-        switch (timeCategory) {
-            case -1: overdueTasks.add(task); break;    
-            case 0:  todayTasks.add(task); break;     
-            case 1:  futureTasks.add(task); break;     
-        }
+    public void applyChanges(TaskChangeSet changes, TaskCache taskCache) {
+        applyChanges(changes, taskCache, DateCodec.todayEpochDay());
     }
     
-    private int getTaskTimeCategory(Task task, String todayDateStr) {
-        if (task.getDueDate() == null || task.getDueDate().isEmpty()) {
-            return 1; 
+    void applyChanges(TaskChangeSet changes, TaskCache taskCache, long todayEpochDay) {
+        // After midnight untouched tasks may belong to another list too
+        if (changes.isFullRefresh() || todayEpochDay != categorizedEpochDay) {
+            categorizeFromIndex(taskCache, todayEpochDay);
+            return;
         }
-
-        try {
-            Date taskDate = parseTaskDate(task.getDueDate());
-            Date today = dateFormat.parse(todayDateStr);
-            
-            if (taskDate.before(today)) {
-                return -1; 
-            } else if (taskDate.equals(today)) {
-                return 0; 
+        Set<String> touchedIds = new HashSet<>(changes.getAddedIds());
+        touchedIds.addAll(changes.getUpdatedIds());
+        touchedIds.addAll(changes.getRemovedIds());
+        removeFromLists(touchedIds);
+        
+        for (String taskId : touchedIds) {
+            Task task = taskCache.getTask(taskId);
+            if (task == null) continue;
+            if (task.isCompleted()) {
+                if (isTaskCompletedToday(task, todayEpochDay)) {
+                    insertSorted(completedTodayTasks, task);
+                }
             } else {
-                return 1;
+                insertSorted(listForDate(task, todayEpochDay), task);
             }
-        } catch (Exception e) {
-            return 1;
         }
-    }    
-
-    private Date parseTaskDate(String dateString) throws Exception {
-        try {
-            return dateFormat.parse(dateString);
-        } catch (Exception e) {
-            SimpleDateFormat legacyFormat = new SimpleDateFormat("yyyy/MM/dd", Locale.getDefault());
-            return legacyFormat.parse(dateString);
+    }
+    
+    private void categorizeFromIndex(TaskCache taskCache, long todayEpochDay) {
+        clearLists();
+        categorizedEpochDay = todayEpochDay;
+        overdueTasks.addAll(taskCache.getIncompleteTasksDueBefore(todayEpochDay));
+        todayTasks.addAll(taskCache.getIncompleteTasksDueOn(todayEpochDay));
+        futureTasks.addAll(taskCache.getIncompleteTasksDueAfter(todayEpochDay));
+        for (Task task : taskCache.getCompletedTasks()) {
+            if (isTaskCompletedToday(task, todayEpochDay)) {
+                completedTodayTasks.add(task);
+            }
         }
+        sortLists();
     }
     
-    private boolean isTaskCompletedToday(Task task, String todayDateStr) {
-        if (task.getCompletionDate() == null) return false;
-        
-        SimpleDateFormat displayFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-        String todayDisplayDate = displayFormat.format(new Date());
-        return todayDisplayDate.equals(task.getCompletionDate());
+    private void sortLists() {
+        overdueTasks.sort(DUE_ORDER);
+        todayTasks.sort(DUE_ORDER);
+        futureTasks.sort(DUE_ORDER);
+        completedTodayTasks.sort(DUE_ORDER);
     }
     
-    public void getTasksByDate(String date, BaseRepository.RepositoryCallback<List<Task>> callback) {
-        taskRepository.getAllTasks(new BaseRepository.ListCallback<Task>() {
-            @Override
-            public void onSuccess(List<Task> tasks) {
-                List<Task> filteredTasks = new ArrayList<>();
-                for (Task task : tasks) {
-                    if (isDateMatch(date, task.getDueDate())) {
-                        filteredTasks.add(task);
-                    }
-                }
-                callback.onSuccess(filteredTasks);
-            }
-
-            @Override
-            public void onError(String error) {
-                callback.onError(error);
-            }
-        });
+    private static void insertSorted(List<Task> tasks, Task task) {
+        int position = Collections.binarySearch(tasks, task, DUE_ORDER);
+        tasks.add(position < 0 ? -position - 1 : position, task);
     }
     
-    private boolean isDateMatch(String date1, String date2) {
-        if (date1 == null || date2 == null) return false;
-        if (date1.equals(date2)) return true;
-        
-        try {
-            Date d1 = parseTaskDate(date1);
-            Date d2 = parseTaskDate(date2);
-            return d1.equals(d2);
-        } catch (Exception e) {
-            return false;
+    private void removeFromLists(Set<String> taskIds) {
+        overdueTasks.removeIf(task -> taskIds.contains(task.getId()));
+        todayTasks.removeIf(task -> taskIds.contains(task.getId()));
+        futureTasks.removeIf(task -> taskIds.contains(task.getId()));
+        completedTodayTasks.removeIf(task -> taskIds.contains(task.getId()));
+    }
+    
+    private void categorizeTaskByDate(Task task, long todayEpochDay) {
+        listForDate(task, todayEpochDay).add(task);
+    }
+    
+    private List<Task> listForDate(Task task, long todayEpochDay) {
+        switch (getTaskTimeCategory(task, todayEpochDay)) {
+            case -1: return overdueTasks;
+            case 0:  return todayTasks;
+            default: return futureTasks;
+        }
+    }
+    
+    private int getTaskTimeCategory(Task task, long todayEpochDay) {
+        Long dueEpochDay = DateCodec.parseEpochDay(task.getDueDate());
+        if (dueEpochDay == null) {
+            return 1; 
+        }
+
+        if (dueEpochDay < todayEpochDay) {
+            return -1; 
+        } else if (dueEpochDay == todayEpochDay) {
+            return 0; 
+        } else {
+            return 1;
         }
+    }    
+    
+    private boolean isTaskCompletedToday(Task task, long todayEpochDay) {
+        Long completionEpochDay = DateCodec.parseEpochDay(task.getCompletionDate());
+        return completionEpochDay != null && completionEpochDay == todayEpochDay;
+    }
+    
+    public void getTasksByDate(String date, BaseRepository.RepositoryCallback<List<Task>> callback) {
+        taskRepository.getTasksByDate(date, callback);
     }
     
     public void getTasksByCategory(String categoryId, BaseRepository.RepositoryCallback<List<Task>> callback) {
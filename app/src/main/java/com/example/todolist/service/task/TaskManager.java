@@ -7,19 +7,17 @@ import com.example.todolist.model.TaskShare;
 import com.example.todolist.repository.BaseRepository;
 import com.example.todolist.repository.TaskRepository;
 import com.example.todolist.notification.ReminderScheduler;
+import com.example.todolist.service.AppServices;
 import com.example.todolist.service.sharing.TaskSharingService;
 public class TaskManager {
     private static final String TAG = "TaskManager";
     
     private Context context;
     private TaskRepository taskRepository;
-    private TaskSharingService taskSharingService;
     
     public TaskManager(Context context) {
         this.context = context;
-        this.taskRepository = new TaskRepository(context);
-        this.taskSharingService = TaskSharingService.getInstance();
-        this.taskSharingService.initialize(context);
+        this.taskRepository = AppServices.getInstance(context).getTaskRepository();
     }
     
     public void addTask(Task task, BaseRepository.DatabaseCallback<String> callback) {
@@ -75,26 +73,7 @@ public class TaskManager {
     }
     
     public void searchTasks(String query, BaseRepository.RepositoryCallback<java.util.List<Task>> callback) {
-        taskRepository.getAllTasks(new BaseRepository.ListCallback<Task>() {
-            @Override
-            public void onSuccess(java.util.List<Task> tasks) {
-                java.util.List<Task> filtered = new java.util.ArrayList<>();
-                String lowercaseQuery = query.toLowerCase();
-                
-                for (Task task : tasks) {
-                    if (task.getTitle().toLowerCase().contains(lowercaseQuery) ||
-                        (task.getDescription() != null && task.getDescription().toLowerCase().contains(lowercaseQuery))) {
-                        filtered.add(task);
-                    }
-                }
-                callback.onSuccess(filtered);
-            }
-
-            @Override
-            public void onError(String error) {
-                callback.onError(error);
-            }
-        });
+        taskRepository.searchTasks(query, callback);
     }
     
     private void scheduleReminder(Task task) {
@@ -103,14 +82,14 @@ public class TaskManager {
         }
         
         try {
-            ReminderScheduler scheduler = new ReminderScheduler(context);
+            ReminderScheduler scheduler = AppServices.getInstance(context).getReminderScheduler();
             
             // Check nếu task được share
             if (task.isShared()) {
                 Log.d(TAG, "Scheduling reminder for shared task: " + task.getId());
                 
                 // Lấy TaskShare để schedule cho tất cả users
-                taskSharingService.getTaskShare(task.getId(), new TaskSharingService.TaskShareCallback() {
+                getTaskSharingService().getTaskShare(task.getId(), new TaskSharingService.TaskShareCallback() {
                     @Override
                     public void onTaskShareLoaded(TaskShare taskShare) {
                         if (taskShare != null) {
@@ -152,14 +131,14 @@ public class TaskManager {
     
     private void cancelReminder(Task task) {
         try {
-            ReminderScheduler scheduler = new ReminderScheduler(context);
+            ReminderScheduler scheduler = AppServices.getInstance(context).getReminderScheduler();
             
             // Check nếu task được share
             if (task.isShared()) {
                 Log.d(TAG, "Cancelling reminders for shared task: " + task.getId());
                 
                 // Lấy TaskShare để cancel cho tất cả users
-                taskSharingService.getTaskShare(task.getId(), new TaskSharingService.TaskShareCallback() {
+                getTaskSharingService().getTaskShare(task.getId(), new TaskSharingService.TaskShareCallback() {
                     @Override
                     public void onTaskShareLoaded(TaskShare taskShare) {
                         if (taskShare != null) {
@@ -169,7 +148,7 @@ public class TaskManager {
                                 " shared users");
                         } else {
                             // Fallback: cancel bình thường
-                            scheduler.cancelTaskReminders(task.getId().hashCode());
+                            scheduler.cancelTaskReminders(task.getId());
                             Log.w(TAG, "TaskShare not found, cancelled reminder for owner only");
                         }
                     }
@@ -177,17 +156,23 @@ public class TaskManager {
                     @Override
                     public void onError(String error) {
                         // Fallback: cancel bình thường nếu có lỗi
-                        scheduler.cancelTaskReminders(task.getId().hashCode());
+                        scheduler.cancelTaskReminders(task.getId());
                         Log.e(TAG, "Error getting TaskShare: " + error + ", cancelled reminder for owner only");
                     }
                 });
             } else {
                 // Task không share → cancel bình thường
-                scheduler.cancelTaskReminders(task.getId().hashCode());
+                scheduler.cancelTaskReminders(task.getId());
                 Log.d(TAG, "Cancelled reminder for non-shared task: " + task.getId());
             }
         } catch (Exception e) {
             Log.e(TAG, "Error cancelling reminder", e);
         }
     }
+
+    // Only shared tasks need the sharing service and with it Firebase
+    private TaskSharingService getTaskSharingService() {
+        AppServices.getInstance(context).initializeRemote();
+        return TaskSharingService.getInstance();
+    }
 }
@@ -1,78 +1,101 @@
 package com.example.todolist.service.task;
 
 import android.content.Context;
+
+import androidx.annotation.VisibleForTesting;
+
 import com.example.todolist.cache.TaskCache;
 import com.example.todolist.manager.AuthManager;
 import com.example.todolist.manager.FirebaseSyncManager;
+import com.example.todolist.manager.TaskOutbox;
 import com.example.todolist.model.Task;
 import com.example.todolist.repository.BaseRepository;
 import com.example.todolist.repository.TaskRepository;
+import com.example.todolist.service.AppServices;
+import com.example.todolist.util.MainThreadExecutor;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 public class TaskSyncService {
     
+    private AppServices services;
     private TaskRepository taskRepository;
     private TaskCache taskCache;
     private AuthManager authManager;
-    private FirebaseSyncManager firebaseSyncManager;
     
     public TaskSyncService(Context context) {
-        this.taskRepository = new TaskRepository(context);
+        this.services = AppServices.getInstance(context);
+        this.taskRepository = services.getTaskRepository();
         this.taskCache = TaskCache.getInstance();
-        this.authManager = AuthManager.getInstance();
-        this.firebaseSyncManager = FirebaseSyncManager.getInstance();
+        this.authManager = services.getAuthManager();
+    }
+    
+    @VisibleForTesting
+    TaskSyncService(TaskRepository taskRepository, TaskCache taskCache) {
+        this.taskRepository = taskRepository;
+        this.taskCache = taskCache;
     }
 
     public void performTaskOperation(Task task, TaskOperation operation, BaseRepository.DatabaseCallback<String> callback) {
+        BaseRepository.deliver(performTaskOperationAsync(task, operation), callback);
+    }
+
+    /**
+     * Optimistic cache update on the calling thread, then the Room write and the outbox entry on the write lane.
+     * The future completes off the main thread with the task id; a failed write is rolled back on the main thread.
+     */
+    public CompletableFuture<String> performTaskOperationAsync(Task task, TaskOperation operation) {
         // Optimistic UI update
         applyOptimisticUpdate(task, operation);
-        
-        // Lưu vào SQLite
-        performLocalOperation(task, operation, new BaseRepository.DatabaseCallback<String>() {
-            @Override
-            public void onSuccess(String result) {
-                // Sync với Firebase nếu cần
-                if (authManager.shouldSyncToFirebase()) {
-                    performFirebaseOperation(task, operation, new BaseRepository.DatabaseCallback<String>() {
-                        @Override
-                        public void onSuccess(String firebaseResult) {
-                            handleFirebaseSuccess(task, firebaseResult, callback);
-                        }
 
-                        @Override
-                        public void onError(String error) {
-                            android.util.Log.w("TaskSyncService", "Firebase sync failed: " + error);
-                            if (callback != null) callback.onSuccess(result);
-                        }
-                    });
+        // Firebase được đồng bộ qua outbox, ghi lại cả khi đang offline
+        boolean sync = authManager.shouldSyncToFirebase();
+        Set<String> dirtyFields = sync && operation == TaskOperation.UPDATE ? task.takeDirtyFields() : null;
+        if (sync) {
+            services.initializeRemote();
+        }
+
+        // Lưu vào SQLite
+        return performLocalOperation(task, operation).thenApply(taskId -> {
+            if (sync) {
+                TaskOutbox taskOutbox = TaskOutbox.getInstance();
+                if (operation == TaskOperation.UPDATE) {
+                    taskOutbox.enqueueUpdate(task.getId(), dirtyFields);
                 } else {
-                    if (callback != null) callback.onSuccess(result);
+                    taskOutbox.enqueue(task.getId(), operation.name());
                 }
             }
-
-            @Override
-            public void onError(String error) {
-                rollbackOptimisticUpdate(task, operation);
-                if (callback != null) callback.onError(error);
+            return taskId;
+        }).whenComplete((taskId, error) -> {
+            if (error != null) {
+                MainThreadExecutor.getInstance().execute(() -> rollbackOptimisticUpdate(task, operation));
             }
         });
     }
 
     public void loadAndMergeFromFirebase(Runnable onComplete) {
-        firebaseSyncManager.loadTasksFromFirebase(new FirebaseSyncManager.FirebaseSyncCallback() {
-            @Override
-            public void onSuccess(List<Task> firebaseTasks) {
-                mergeFirebaseTasksWithLocal(firebaseTasks);
-                if (onComplete != null) onComplete.run();
-            }
-
-            @Override
-            public void onError(String error) {
-                android.util.Log.w("TaskSyncService", "Failed to load from Firebase: " + error);
-                if (onComplete != null) onComplete.run();
+        FirebaseSyncManager firebaseSyncManager = getFirebaseSyncManager();
+        // Parsed on the sync executor, merged on the main thread with the cache
+        firebaseSyncManager.loadTaskChangesAsync().whenCompleteAsync((delta, error) -> {
+            if (error != null) {
+                android.util.Log.w("TaskSyncService", "Failed to load from Firebase: " + BaseRepository.errorMessage(error));
+            } else {
+                // The watermark only moves once the batch is in Room, a failed merge is read again next time
+                mergeFirebaseChangesWithLocal(delta).whenComplete((merged, mergeError) -> {
+                    if (mergeError != null) {
+                        android.util.Log.w("TaskSyncService", "Failed to merge Firebase changes: " + BaseRepository.errorMessage(mergeError));
+                    } else {
+                        firebaseSyncManager.commitSyncWatermark(delta.watermark);
+                    }
+                });
             }
-        });
+            if (onComplete != null) onComplete.run();
+        }, MainThreadExecutor.getInstance());
     }
 
     public void syncAllTasksToFirebase(FirebaseSyncManager.SyncCallback callback) {
@@ -82,7 +105,13 @@ public class TaskSyncService {
         }
         
         List<Task> allLocalTasks = taskCache.getAllTasks();
-        firebaseSyncManager.syncAllTasksToFirebase(allLocalTasks, callback);
+        getFirebaseSyncManager().syncAllTasksToFirebase(allLocalTasks, callback);
+    }
+
+    // Firebase is initialized on the first sync, never for a local-only account
+    private FirebaseSyncManager getFirebaseSyncManager() {
+        services.initializeRemote();
+        return FirebaseSyncManager.getInstance();
     }
     
     private void applyOptimisticUpdate(Task task, TaskOperation operation) {
@@ -113,98 +142,76 @@ public class TaskSyncService {
         }
     }
     
-    private void performLocalOperation(Task task, TaskOperation operation, BaseRepository.DatabaseCallback<String> callback) {
+    private CompletableFuture<String> performLocalOperation(Task task, TaskOperation operation) {
         switch (operation) {
             case ADD:
-                taskRepository.addTask(task, callback);
-                break;
+                return taskRepository.addTaskAsync(task);
             case UPDATE:
-                taskRepository.updateTask(task, new BaseRepository.DatabaseCallback<Boolean>() {
-                    @Override
-                    public void onSuccess(Boolean result) {
-                        if (callback != null) callback.onSuccess(task.getId());
-                    }
-
-                    @Override
-                    public void onError(String error) {
-                        if (callback != null) callback.onError(error);
-                    }
-                });
-                break;
+                return taskRepository.updateTaskAsync(task).thenApply(updated -> task.getId());
             case DELETE:
-                taskRepository.deleteTask(task, new BaseRepository.DatabaseCallback<Boolean>() {
-                    @Override
-                    public void onSuccess(Boolean result) {
-                        if (callback != null) callback.onSuccess(task.getId());
-                    }
-
-                    @Override
-                    public void onError(String error) {
-                        if (callback != null) callback.onError(error);
-                    }
-                });
-                break;
+                return taskRepository.deleteTaskAsync(task).thenApply(deleted -> task.getId());
+            default:
+                throw new IllegalArgumentException("Unknown operation " + operation);
         }
     }
     
-    private void performFirebaseOperation(Task task, TaskOperation operation, BaseRepository.DatabaseCallback<String> callback) {
-        switch (operation) {
-            case ADD:
-                firebaseSyncManager.addTaskToFirebase(task, callback);
-                break;
-            case UPDATE:
-                firebaseSyncManager.updateTaskInFirebase(task, new BaseRepository.DatabaseCallback<Boolean>() {
-                    @Override
-                    public void onSuccess(Boolean result) {
-                        if (callback != null) callback.onSuccess(task.getId());
-                    }
-
-                    @Override
-                    public void onError(String error) {
-                        if (callback != null) callback.onError(error);
-                    }
-                });
-                break;
-            case DELETE:
-                firebaseSyncManager.deleteTaskFromFirebase(task.getId(), new BaseRepository.DatabaseCallback<Boolean>() {
-                    @Override
-                    public void onSuccess(Boolean result) {
-                        if (callback != null) callback.onSuccess(task.getId());
-                    }
-
-                    @Override
-                    public void onError(String error) {
-                        if (callback != null) callback.onError(error);
-                    }
-                });
-                break;
+    // Last writer wins on lastModified; local tasks without a timestamp lose to any remote change.
+    // The cache is updated right away, Room gets the whole batch in one transaction
+    CompletableFuture<Boolean> mergeFirebaseChangesWithLocal(FirebaseSyncManager.TaskDelta delta) {
+        List<Task> upserts = new ArrayList<>();
+        for (Task remoteTask : delta.updatedTasks) {
+            Task localTask = taskCache.getTask(remoteTask.getId());
+            if (localTask == null) {
+                upserts.add(remoteTask);
+                taskCache.addTaskOptimistic(remoteTask);
+            } else if (isNewer(remoteTask.getLastModified(), localTask.getLastModified())) {
+                upserts.add(remoteTask);
+                taskCache.updateTaskOptimistic(remoteTask);
+            }
         }
-    }
-    
-    private void handleFirebaseSuccess(Task task, String firebaseResult, BaseRepository.DatabaseCallback<String> callback) {
-        if (!task.getId().equals(firebaseResult)) {
-            taskCache.deleteTaskOptimistic(task.getId());
-            task.setId(firebaseResult);
-            taskCache.addTaskOptimistic(task);
-            taskRepository.updateTask(task, null);
+        
+        List<String> deletedTaskIds = new ArrayList<>();
+        for (Map.Entry<String, Long> deletion : delta.deletedTasks.entrySet()) {
+            Task localTask = taskCache.getTask(deletion.getKey());
+            if (localTask != null && !isNewer(localTask.getLastModified(), deletion.getValue())) {
+                deletedTaskIds.add(localTask.getId());
+                taskCache.deleteTaskOptimistic(localTask.getId());
+            }
         }
-        if (callback != null) callback.onSuccess(firebaseResult);
-    }
-    
-    private void mergeFirebaseTasksWithLocal(List<Task> firebaseTasks) {
-        List<Task> localTasks = taskCache.getAllTasks();
-        boolean hasNewTasks = false;
         
-        for (Task firebaseTask : firebaseTasks) {
-            boolean existsLocally = localTasks.stream()
-                    .anyMatch(localTask -> localTask.getId().equals(firebaseTask.getId()));
-            
-            if (!existsLocally) {
-                taskRepository.addTask(firebaseTask, null);
-                taskCache.addTaskOptimistic(firebaseTask);
-                hasNewTasks = true;
+        // After an expired watermark the tombstones we missed may be pruned: a task synced before that
+        // watermark and absent from the full snapshot was deleted elsewhere, unless it still waits to upload
+        List<String> staleTaskIds = new ArrayList<>();
+        if (delta.fullSnapshot && delta.previousWatermark > 0) {
+            Set<String> remoteIds = new HashSet<>(delta.deletedTasks.keySet());
+            for (Task remoteTask : delta.updatedTasks) {
+                remoteIds.add(remoteTask.getId());
             }
+            for (Task localTask : taskCache.getAllTasks()) {
+                Long lastModified = localTask.getLastModified();
+                // Shared tasks live in the owner's tree and never show up in this snapshot
+                if (!localTask.isShared() && !remoteIds.contains(localTask.getId()) && lastModified != null
+                        && lastModified <= delta.previousWatermark) {
+                    staleTaskIds.add(localTask.getId());
+                }
+            }
+        }
+        
+        if (upserts.isEmpty() && deletedTaskIds.isEmpty() && staleTaskIds.isEmpty()) {
+            return CompletableFuture.completedFuture(true);
         }
+        return taskRepository.mergeRemoteTasksAsync(upserts, deletedTaskIds, staleTaskIds)
+                .thenApplyAsync(staleDeleted -> {
+                    for (String taskId : staleDeleted) {
+                        taskCache.deleteTaskOptimistic(taskId);
+                    }
+                    return true;
+                }, MainThreadExecutor.getInstance());
+    }
+    
+    private static boolean isNewer(Long candidate, Long current) {
+        if (candidate == null) return false;
+        return current == null || candidate > current;
     }
     
     public enum TaskOperation {
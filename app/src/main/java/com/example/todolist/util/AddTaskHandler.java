@@ -18,6 +18,7 @@ import com.example.todolist.adapter.SubTaskAdapter;
 import com.example.todolist.model.Category;
 import com.example.todolist.model.SubTask;
 import com.example.todolist.model.Task;
+import com.example.todolist.service.AppServices;
 import com.example.todolist.service.TaskService;
 import com.example.todolist.service.CategoryService;
 import com.example.todolist.service.task.SubTaskService;
@@ -45,27 +46,8 @@ public class AddTaskHandler {
         this.listener = listener;
         this.tempSubTasks = new ArrayList<>();
         // Initialize services
-        this.taskService = new TaskService(context, new TaskService.TaskUpdateListener() {
-            @Override
-            public void onTasksUpdated() {
-                // Handle in listener
-            }
-            @Override
-            public void onError(String error) {
-                // Handle error
-            }
-        });
-        this.categoryService = new CategoryService(context, new CategoryService.CategoryUpdateListener() {
-            @Override
-            public void onCategoriesUpdated(List<Category> categories) {
-                // Handle categories updated
-            }
-            
-            @Override
-            public void onError(String error) {
-                // Handle error  
-            }
-        });
+        this.taskService = AppServices.getInstance(context).getTaskService();
+        this.categoryService = AppServices.getInstance(context).getCategoryService();
     }
     public void showAddTaskDialog(String prefilledDate, String prefilledCategory) {
         AlertDialog.Builder builder = new AlertDialog.Builder(context);
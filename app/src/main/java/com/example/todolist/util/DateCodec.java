@@ -0,0 +1,290 @@
+package com.example.todolist.util;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.function.LongSupplier;
+
+public class DateCodec {
+
+    public static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    // "Now" strings are formatted once per day / minute and shared
+    private static volatile CachedPeriod cachedDay;
+    private static volatile CachedPeriod cachedMinute;
+    private static volatile LongSupplier clock = System::currentTimeMillis;
+
+    /**
+     * Parse "dd/MM/yyyy" (or the legacy "yyyy/MM/dd") into days since 1970-01-01
+     * @param date date string stored on tasks
+     * @return epoch day, or null if the string is empty or malformed
+     */
+    public static Long parseEpochDay(String date) {
+        if (date == null) return null;
+        int length = date.length();
+        if (length < 8 || length > 10) return null;
+
+        int firstSlash = date.indexOf('/');
+        int secondSlash = firstSlash < 0 ? -1 : date.indexOf('/', firstSlash + 1);
+        if (firstSlash < 0 || secondSlash < 0) return null;
+
+        int first = parseDigits(date, 0, firstSlash);
+        int second = parseDigits(date, firstSlash + 1, secondSlash);
+        int third = parseDigits(date, secondSlash + 1, length);
+        if (first < 0 || second < 0 || third < 0) return null;
+
+        int year, month, day;
+        if (firstSlash == 4) {
+            year = first;
+            month = second;
+            day = third;
+        } else {
+            day = first;
+            month = second;
+            year = third;
+        }
+        if (month < 1 || month > 12 || day < 1 || day > 31) return null;
+        if (day > lengthOfMonth(year, month)) return null;
+        return toEpochDay(year, month, day);
+    }
+
+    /**
+     * Local midnight of the given date string in epoch milliseconds
+     * @return epoch millis, or null if the string cannot be parsed
+     */
+    public static Long parseStartOfDayMillis(String date) {
+        Long epochDay = parseEpochDay(date);
+        return epochDay != null ? startOfDayMillis(epochDay) : null;
+    }
+
+    public static long startOfDayMillis(long epochDay) {
+        return LocalDate.ofEpochDay(epochDay).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    public static long todayEpochDay() {
+        return currentDay().epochDay;
+    }
+
+    /**
+     * Today as "dd/MM/yyyy"; the string is reused until local midnight
+     */
+    public static String todayString() {
+        return currentDay().text;
+    }
+
+    /**
+     * Now as "dd/MM/yyyy HH:mm"; the string is reused until the minute changes
+     */
+    public static String nowDateTimeString() {
+        long now = clock.getAsLong();
+        CachedPeriod minute = cachedMinute;
+        if (minute == null || now < minute.startMillis || now >= minute.endMillis) {
+            LocalDateTime dateTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(now), ZoneId.systemDefault())
+                    .truncatedTo(ChronoUnit.MINUTES);
+            long start = dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            String text = formatDateTime(dateTime.toLocalDate().toEpochDay(),
+                    dateTime.getHour() * 60 + dateTime.getMinute());
+            minute = new CachedPeriod(start, start + 60_000L, dateTime.toLocalDate().toEpochDay(), text);
+            cachedMinute = minute;
+        }
+        return minute.text;
+    }
+
+    /**
+     * Current local time as minutes since midnight
+     */
+    public static int currentMinuteOfDay() {
+        String now = nowDateTimeString();
+        return parseDigits(now, 11, 13) * 60 + parseDigits(now, 14, 16);
+    }
+
+    /**
+     * Format an epoch day as "dd/MM/yyyy"
+     */
+    public static String formatDate(long epochDay) {
+        char[] buffer = new char[10];
+        writeDate(buffer, 0, toPackedDate(epochDay));
+        return new String(buffer);
+    }
+
+    /**
+     * Format an epoch day and minute of day as "dd/MM/yyyy HH:mm"
+     */
+    public static String formatDateTime(long epochDay, int minuteOfDay) {
+        char[] buffer = new char[16];
+        writeDate(buffer, 0, toPackedDate(epochDay));
+        buffer[10] = ' ';
+        writeTime(buffer, 11, minuteOfDay);
+        return new String(buffer);
+    }
+
+    /**
+     * Local date of an epoch-millis timestamp as "dd/MM/yyyy"
+     */
+    public static String formatDateMillis(long millis) {
+        CachedPeriod day = currentDay();
+        if (millis >= day.startMillis && millis < day.endMillis) {
+            return day.text;
+        }
+        return formatDate(Instant.ofEpochMilli(millis).atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay());
+    }
+
+    /**
+     * Parse "HH:mm" (or "H:mm")
+     * @return minutes since midnight, or -1 if the string is empty or malformed
+     */
+    public static int parseMinuteOfDay(String time) {
+        if (time == null) return -1;
+        int colon = time.indexOf(':');
+        if (colon < 1 || colon > 2 || time.length() != colon + 3) return -1;
+        int hour = parseDigits(time, 0, colon);
+        int minute = parseDigits(time, colon + 1, time.length());
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59) return -1;
+        return hour * 60 + minute;
+    }
+
+    public static String formatMinuteOfDay(int minuteOfDay) {
+        char[] buffer = new char[5];
+        writeTime(buffer, 0, minuteOfDay);
+        return new String(buffer);
+    }
+
+    /**
+     * Local date and time in epoch milliseconds
+     * @return epoch millis, or null if either string cannot be parsed
+     */
+    public static Long parseDateTimeMillis(String date, String time) {
+        Long epochDay = parseEpochDay(date);
+        int minuteOfDay = parseMinuteOfDay(time);
+        if (epochDay == null || minuteOfDay < 0) return null;
+        return LocalDate.ofEpochDay(epochDay)
+                .atTime(minuteOfDay / 60, minuteOfDay % 60)
+                .atZone(ZoneId.systemDefault())
+                .toInstant()
+                .toEpochMilli();
+    }
+
+    @VisibleForTesting
+    static void setClock(LongSupplier currentTimeMillis) {
+        clock = currentTimeMillis != null ? currentTimeMillis : System::currentTimeMillis;
+    }
+
+    private static final class CachedPeriod {
+        final long startMillis;
+        final long endMillis;
+        final long epochDay;
+        final String text;
+
+        CachedPeriod(long startMillis, long endMillis, long epochDay, String text) {
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+            this.epochDay = epochDay;
+            this.text = text;
+        }
+    }
+
+    private static CachedPeriod currentDay() {
+        long now = clock.getAsLong();
+        CachedPeriod day = cachedDay;
+        if (day == null || now < day.startMillis || now >= day.endMillis) {
+            long epochDay = Instant.ofEpochMilli(now).atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+            day = new CachedPeriod(startOfDayMillis(epochDay), startOfDayMillis(epochDay + 1),
+                    epochDay, formatDate(epochDay));
+            cachedDay = day;
+        }
+        return day;
+    }
+
+    private static void writeDate(char[] buffer, int offset, int packedDate) {
+        int year = packedDate / 10000;
+        int month = (packedDate / 100) % 100;
+        int day = packedDate % 100;
+        writeTwoDigits(buffer, offset, day);
+        buffer[offset + 2] = '/';
+        writeTwoDigits(buffer, offset + 3, month);
+        buffer[offset + 5] = '/';
+        writeTwoDigits(buffer, offset + 6, year / 100);
+        writeTwoDigits(buffer, offset + 8, year % 100);
+    }
+
+    private static void writeTime(char[] buffer, int offset, int minuteOfDay) {
+        writeTwoDigits(buffer, offset, minuteOfDay / 60);
+        buffer[offset + 2] = ':';
+        writeTwoDigits(buffer, offset + 3, minuteOfDay % 60);
+    }
+
+    private static void writeTwoDigits(char[] buffer, int offset, int value) {
+        buffer[offset] = (char) ('0' + value / 10);
+        buffer[offset + 1] = (char) ('0' + value % 10);
+    }
+
+    /**
+     * Inverse of toEpochDay without creating a LocalDate
+     * @return the date packed as yyyyMMdd, e.g. 20250131
+     */
+    public static int toPackedDate(long epochDay) {
+        long z = epochDay + 719468L;
+        long era = Math.floorDiv(z, 146097L);
+        long dayOfEra = z - era * 146097L;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+        int month = (int) (shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9);
+        int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+        return year * 10000 + month * 100 + day;
+    }
+
+    // Same algorithm as LocalDate.toEpochDay, without creating the LocalDate
+    public static long toEpochDay(int year, int month, int day) {
+        long y = year;
+        long total = 365 * y;
+        if (y >= 0) {
+            total += (y + 3) / 4 - (y + 99) / 100 + (y + 399) / 400;
+        } else {
+            total -= y / -4 - y / -100 + y / -400;
+        }
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (!isLeapYear(year)) {
+                total--;
+            }
+        }
+        return total - 719528L;
+    }
+
+    public static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    private static int parseDigits(String text, int start, int end) {
+        if (start >= end) return -1;
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
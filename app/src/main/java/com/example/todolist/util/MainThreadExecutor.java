@@ -0,0 +1,42 @@
+package com.example.todolist.util;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executor for the UI edge of a CompletableFuture chain, every task is posted to the main looper.
+ * Counts the handoffs so the cost of a chain can be compared in debug builds.
+ */
+public class MainThreadExecutor implements Executor {
+    private static volatile MainThreadExecutor instance;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicLong handoffCount = new AtomicLong();
+
+    private MainThreadExecutor() {
+    }
+
+    public static MainThreadExecutor getInstance() {
+        if (instance == null) {
+            synchronized (MainThreadExecutor.class) {
+                if (instance == null) {
+                    instance = new MainThreadExecutor();
+                }
+            }
+        }
+        return instance;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        handoffCount.incrementAndGet();
+        mainHandler.post(task);
+    }
+
+    public long getHandoffCount() {
+        return handoffCount.get();
+    }
+}
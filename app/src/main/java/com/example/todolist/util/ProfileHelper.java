@@ -11,6 +11,7 @@ import com.example.todolist.model.Task;
 import com.example.todolist.model.Category;
 import com.example.todolist.repository.TaskRepository;
 import com.example.todolist.repository.BaseRepository;
+import com.example.todolist.service.AppServices;
 import com.example.todolist.service.CategoryService;
 import com.example.todolist.view.SimplePieChartView;
 
@@ -29,7 +30,7 @@ public class ProfileHelper {
     
     public ProfileHelper(Context context) {
         this.context = context;
-        this.taskRepository = new TaskRepository(context);
+        this.taskRepository = AppServices.getInstance(context).getTaskRepository();
     }
 
     public interface WeekNavigationListener {
@@ -166,7 +167,7 @@ public class ProfileHelper {
         taskRepository.getIncompleteTasks(new TaskRepository.RepositoryCallback<List<Task>>() {
             @Override
             public void onSuccess(List<Task> incompleteTasks) {
-                CategoryService categoryService = new CategoryService(context, null);
+                CategoryService categoryService = AppServices.getInstance(context).getCategoryService();
                 categoryService.getAllCategories(new BaseRepository.ListCallback<Category>() {
                     @Override
                     public void onSuccess(List<Category> categories) {
@@ -0,0 +1,46 @@
+package com.example.todolist.util;
+
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Startup milestones in ms since the process started, logged under the StartupTrace tag.
+ * Each milestone is kept once per process; FIRST_TASK_LIST is the time to the first task list.
+ */
+public class StartupTrace {
+    public static final String APP_CREATED = "app_created";
+    public static final String SPLASH_CREATED = "splash_created";
+    public static final String TASK_SNAPSHOT_LOADED = "task_snapshot_loaded";
+    public static final String TASK_CACHE_READY = "task_cache_ready";
+    public static final String TASK_ROW_INFLATED = "task_row_inflated";
+    public static final String SPLASH_FINISHED = "splash_finished";
+    public static final String MAIN_CREATED = "main_created";
+    public static final String FIRST_TASK_LIST = "first_task_list";
+
+    private static final String TAG = "StartupTrace";
+
+    // Guarded by StartupTrace.class, in the order the milestones were reached
+    private static final Map<String, Long> milestones = new LinkedHashMap<>();
+
+    public static synchronized void mark(String milestone) {
+        if (milestones.containsKey(milestone)) return;
+        long elapsed = SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime();
+        milestones.put(milestone, elapsed);
+        Log.d(TAG, milestone + " +" + elapsed + " ms");
+    }
+
+    /**
+     * @return ms since process start, null if the milestone was not reached
+     */
+    public static synchronized Long getMilestone(String milestone) {
+        return milestones.get(milestone);
+    }
+
+    public static synchronized Map<String, Long> getMilestones() {
+        return new LinkedHashMap<>(milestones);
+    }
+}
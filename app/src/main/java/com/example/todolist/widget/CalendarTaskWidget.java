@@ -9,12 +9,9 @@ import android.content.SharedPreferences;
 import android.net.Uri;
 import android.widget.RemoteViews;
 import com.example.todolist.R;
-import com.example.todolist.cache.TaskCache;
 import com.example.todolist.helper.calendar.CalendarUtils;
-import com.example.todolist.model.Task;
-import com.example.todolist.service.TaskService;
+import com.example.todolist.util.DateCodec;
 import java.util.Calendar;
-import java.util.List;
 
 public class CalendarTaskWidget extends AppWidgetProvider {
     
@@ -36,9 +33,7 @@ public class CalendarTaskWidget extends AppWidgetProvider {
         int currentMonth = prefs.getInt(PREF_CURRENT_MONTH, calendar.get(Calendar.MONTH));
         int selectedDay = prefs.getInt(PREF_SELECTED_DAY, calendar.get(Calendar.DAY_OF_MONTH));
         
-        for (int appWidgetId : appWidgetIds) {
-            updateWidget(context, appWidgetManager, appWidgetId, currentYear, currentMonth, selectedDay);
-        }
+        updateWidgetsAsync(context, appWidgetManager, appWidgetIds, currentYear, currentMonth, selectedDay);
     }
 
     @Override
@@ -68,9 +63,7 @@ public class CalendarTaskWidget extends AppWidgetProvider {
             int[] appWidgetIds = appWidgetManager.getAppWidgetIds(
                 new android.content.ComponentName(context, CalendarTaskWidget.class));
             
-            for (int appWidgetId : appWidgetIds) {
-                updateWidget(context, appWidgetManager, appWidgetId, currentYear, currentMonth, selectedDay);
-            }
+            updateWidgetsAsync(context, appWidgetManager, appWidgetIds, currentYear, currentMonth, selectedDay);
         } else if (PREV_MONTH_ACTION.equals(intent.getAction())) {
             // Navigate to previous month
             calendar.set(currentYear, currentMonth, 1);
@@ -90,9 +83,7 @@ public class CalendarTaskWidget extends AppWidgetProvider {
             int[] appWidgetIds = appWidgetManager.getAppWidgetIds(
                 new android.content.ComponentName(context, CalendarTaskWidget.class));
             
-            for (int appWidgetId : appWidgetIds) {
-                updateWidget(context, appWidgetManager, appWidgetId, currentYear, currentMonth, selectedDay);
-            }
+            updateWidgetsAsync(context, appWidgetManager, appWidgetIds, currentYear, currentMonth, selectedDay);
         } else if (NEXT_MONTH_ACTION.equals(intent.getAction())) {
             // Navigate to next month
             calendar.set(currentYear, currentMonth, 1);
@@ -112,10 +103,18 @@ public class CalendarTaskWidget extends AppWidgetProvider {
             int[] appWidgetIds = appWidgetManager.getAppWidgetIds(
                 new android.content.ComponentName(context, CalendarTaskWidget.class));
             
+            updateWidgetsAsync(context, appWidgetManager, appWidgetIds, currentYear, currentMonth, selectedDay);
+        }
+    }
+
+    // Drawing reads the task snapshot from the database, so it runs off the main thread
+    private void updateWidgetsAsync(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds,
+                                    int currentYear, int currentMonth, int selectedDay) {
+        WidgetUpdateHelper.updateAsync(this, () -> {
             for (int appWidgetId : appWidgetIds) {
                 updateWidget(context, appWidgetManager, appWidgetId, currentYear, currentMonth, selectedDay);
             }
-        }
+        });
     }
 
     private void updateWidget(Context context, AppWidgetManager appWidgetManager, int appWidgetId, 
@@ -159,6 +158,7 @@ public class CalendarTaskWidget extends AppWidgetProvider {
         }
         
         int dayCounter = 1;
+        int taskDays = getTaskDaysInMonth(context, currentYear, currentMonth);
         
         for (int i = firstDayOfWeek; i < firstDayOfWeek + daysInMonth && i < dayIds.length; i++) {
             views.setTextViewText(dayIds[i], String.valueOf(dayCounter));
@@ -169,7 +169,7 @@ public class CalendarTaskWidget extends AppWidgetProvider {
                 views.setInt(dayIds[i], "setBackgroundResource", android.R.color.transparent);
             }
             
-            if (hasTasksForDate(context, currentYear, currentMonth, dayCounter)) {
+            if (CalendarUtils.hasDay(taskDays, dayCounter)) {
                 String dayWithDot = dayCounter + "\n•"; 
                 views.setTextViewText(dayIds[i], dayWithDot);
                 views.setTextColor(dayIds[i], 0xFF1565C0); 
@@ -218,15 +218,6 @@ public class CalendarTaskWidget extends AppWidgetProvider {
         
         AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
         appWidgetManager.notifyAppWidgetViewDataChanged(appWidgetId, R.id.task_list);
-        
-        new Thread(() -> {
-            try {
-                Thread.sleep(500);
-                appWidgetManager.notifyAppWidgetViewDataChanged(appWidgetId, R.id.task_list);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
-        }).start();
     }
 
     private void setupNavigationButtons(Context context, RemoteViews views) {
@@ -245,25 +236,19 @@ public class CalendarTaskWidget extends AppWidgetProvider {
         views.setOnClickPendingIntent(R.id.btn_next_month, nextMonthPendingIntent);
     }
     
-    private boolean hasTasksForDate(Context context, int year, int month, int day) {
-        String dateString = String.format("%02d/%02d/%04d", day, month + 1, year);
-        
-        TaskCache taskCache = TaskCache.getInstance();
-        List<Task> allTasks = taskCache.getAllTasks();
-        
-        if (allTasks == null || allTasks.isEmpty()) {
-            TaskService taskService = new TaskService(context, null);
-            allTasks = taskService.getAllTasksFromCache();
-        }
-        
-        if (allTasks != null) {
-            for (Task task : allTasks) {
-                if (CalendarUtils.isTaskOnDate(task, dateString)) {
-                    return true;
-                }
-            }
-        }
-        
-        return false;
+    private int getTaskDaysInMonth(Context context, int year, int month) {
+        return WidgetDataProvider.getInstance().getTaskDays(context, year, month);
+    }
+
+    /**
+     * First and last epoch day of the month shown by the widget
+     */
+    static long[] getDisplayedDays(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(WIDGET_PREFS, Context.MODE_PRIVATE);
+        Calendar calendar = Calendar.getInstance();
+        int currentYear = prefs.getInt(PREF_CURRENT_YEAR, calendar.get(Calendar.YEAR));
+        int currentMonth = prefs.getInt(PREF_CURRENT_MONTH, calendar.get(Calendar.MONTH));
+        long firstDay = DateCodec.toEpochDay(currentYear, currentMonth + 1, 1);
+        return new long[]{firstDay, firstDay + DateCodec.lengthOfMonth(currentYear, currentMonth + 1) - 1};
     }
 }
@@ -6,10 +6,7 @@ import android.view.View;
 import android.widget.RemoteViews;
 import android.widget.RemoteViewsService;
 import com.example.todolist.R;
-import com.example.todolist.cache.TaskCache;
-import com.example.todolist.helper.calendar.CalendarUtils;
 import com.example.todolist.model.Task;
-import com.example.todolist.service.TaskService;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -25,8 +22,6 @@ class CalendarTaskRemoteViewsFactory implements RemoteViewsService.RemoteViewsFa
     
     private Context context;
     private List<Task> tasks;
-    private TaskService taskService;
-    private TaskCache taskCache;
     private int selectedDay;
     private int selectedMonth;
     private int selectedYear;
@@ -36,14 +31,13 @@ class CalendarTaskRemoteViewsFactory implements RemoteViewsService.RemoteViewsFa
         this.selectedDay = intent.getIntExtra("extra_day", 1);
         this.selectedMonth = intent.getIntExtra("extra_month", 0);
         this.selectedYear = intent.getIntExtra("extra_year", 2025);
-        this.taskService = new TaskService(context, null);
-        this.taskCache = TaskCache.getInstance();
         this.tasks = new ArrayList<>();
     }
     
     @Override
     public void onCreate() {
-        loadTasksForDate();
+        // Runs on the main thread; the widget notifies a data change after setting the adapter,
+        // and onDataSetChanged loads the tasks on a binder thread
     }
     
     @Override
@@ -124,43 +118,10 @@ class CalendarTaskRemoteViewsFactory implements RemoteViewsService.RemoteViewsFa
         return true;
     }
     
+    // Reached from onDataSetChanged on a binder thread, where the database may be read
     private void loadTasksForDate() {
-        String dateString = String.format("%02d/%02d/%04d", 
-            selectedDay, selectedMonth + 1, selectedYear);
-        
-        try {
-            Thread.sleep(100);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
-        
-        taskService.loadTasks();
-        
-        int retryCount = 0;
-        List<Task> allTasks = null;
-        while (retryCount < 5) {
-            allTasks = taskService.getAllTasksFromCache();
-            if (allTasks != null && allTasks.size() > 0) {
-                break;
-            }
-            try {
-                Thread.sleep(200);
-                retryCount++;
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
-        }
-        
-        if (allTasks == null) {
-            allTasks = new ArrayList<>();
-        }
-        
-        tasks.clear();
-        for (Task task : allTasks) {
-            if (CalendarUtils.isTaskOnDate(task, dateString)) {
-                tasks.add(task);
-            }
-        }
+        tasks = new ArrayList<>(WidgetDataProvider.getInstance()
+                .getTasksForDate(context, selectedYear, selectedMonth, selectedDay));
     }
     
     private int getPriorityColor(String priority) {
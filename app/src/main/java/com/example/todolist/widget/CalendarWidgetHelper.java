@@ -3,11 +3,10 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.widget.RemoteViews;
 import com.example.todolist.R;
-import com.example.todolist.model.Task;
-import com.example.todolist.service.TaskService;
+import com.example.todolist.helper.calendar.CalendarUtils;
+import com.example.todolist.util.DateCodec;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
-import java.util.List;
 import java.util.Locale;
 public class CalendarWidgetHelper {
     private static final String WIDGET_PREFS = "widget_preferences";
@@ -51,8 +50,8 @@ public class CalendarWidgetHelper {
         int firstDayOfWeek = calendar.get(Calendar.DAY_OF_WEEK) - 1;
         // Get number of days in month
         int daysInMonth = calendar.getActualMaximum(Calendar.DAY_OF_MONTH);
-        // Get tasks for this month
-        List<Task> monthTasks = getTasksForMonth(context, year, month);
+        // Get days with tasks for this month
+        int taskDays = WidgetDataProvider.getInstance().getTaskDays(context, year, month);
         // Create calendar grid with 6 rows
         int dayCounter = 1;
         boolean monthStarted = false;
@@ -80,7 +79,7 @@ public class CalendarWidgetHelper {
                         dayView.setInt(R.id.widget_day_number, "setTextColor", 0xFF333333);
                     }
                     // Check if this day has tasks
-                    boolean hasTasks = hasTasksOnDay(monthTasks, dayCounter, month, year);
+                    boolean hasTasks = CalendarUtils.hasDay(taskDays, dayCounter);
                     if (hasTasks) {
                         dayView.setViewVisibility(R.id.widget_task_dot, android.view.View.VISIBLE);
                     } else {
@@ -97,30 +96,16 @@ public class CalendarWidgetHelper {
             views.addView(R.id.widget_calendar_grid, weekRow);
         }
     }
-    private static List<Task> getTasksForMonth(Context context, int year, int month) {
-        // Create TaskService instance for data access
-        TaskService taskService = new TaskService(context, new TaskService.TaskUpdateListener() {
-            @Override
-            public void onTasksUpdated() {
-                // Widget update handled elsewhere
-            }
-            @Override
-            public void onError(String error) {
-                // Handle error silently for widget
-            }
-        });
-        // Return all tasks - widget will filter them by date
-        return taskService.getAllTasks();
-    }
-    private static boolean hasTasksOnDay(List<Task> tasks, int day, int month, int year) {
-        // Use the same format as the main app: dd/MM/yyyy
-        String targetDate = String.format("%02d/%02d/%04d", day, month + 1, year);
-        for (Task task : tasks) {
-            if (com.example.todolist.helper.calendar.CalendarUtils.isTaskOnDate(task, targetDate)) {
-                return true;
-            }
-        }
-        return false;
+    /**
+     * First and last epoch day of the month shown by the widget
+     */
+    public static long[] getDisplayedDays(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(WIDGET_PREFS, Context.MODE_PRIVATE);
+        Calendar calendar = Calendar.getInstance();
+        int month = prefs.getInt(PREF_CURRENT_MONTH, calendar.get(Calendar.MONTH));
+        int year = prefs.getInt(PREF_CURRENT_YEAR, calendar.get(Calendar.YEAR));
+        long firstDay = DateCodec.toEpochDay(year, month + 1, 1);
+        return new long[]{firstDay, firstDay + DateCodec.lengthOfMonth(year, month + 1) - 1};
     }
     public static void resetToCurrentMonth(Context context) {
         SharedPreferences prefs = context.getSharedPreferences(WIDGET_PREFS, Context.MODE_PRIVATE);
@@ -15,9 +15,11 @@ public class CalendarWidgetProvider extends AppWidgetProvider {
     public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
         // Reset to current month on first update
         CalendarWidgetHelper.resetToCurrentMonth(context);
-        for (int appWidgetId : appWidgetIds) {
-            updateWidget(context, appWidgetManager, appWidgetId);
-        }
+        WidgetUpdateHelper.updateAsync(this, () -> {
+            for (int appWidgetId : appWidgetIds) {
+                updateWidget(context, appWidgetManager, appWidgetId);
+            }
+        });
     }
     @Override
     public void onEnabled(Context context) {
@@ -44,9 +46,11 @@ public class CalendarWidgetProvider extends AppWidgetProvider {
                 context.startActivity(mainIntent);
             }
             // Update all widgets
-            for (int appWidgetId : appWidgetIds) {
-                updateWidget(context, appWidgetManager, appWidgetId);
-            }
+            WidgetUpdateHelper.updateAsync(this, () -> {
+                for (int appWidgetId : appWidgetIds) {
+                    updateWidget(context, appWidgetManager, appWidgetId);
+                }
+            });
         }
     }
     public static void updateWidget(Context context, AppWidgetManager appWidgetManager, int appWidgetId) {
@@ -7,9 +7,7 @@ import android.content.Intent;
 import android.widget.RemoteViews;
 import com.example.todolist.MainActivity;
 import com.example.todolist.R;
-import com.example.todolist.model.Task;
-import com.example.todolist.service.TaskService;
-import java.util.List;
+import com.example.todolist.repository.DatabaseExecutors;
 /**
  * Enhanced Mini Widget Provider for 1x1 quick add task widget
  * Shows task count and provides a beautiful gradient design
@@ -45,21 +43,9 @@ public class MiniWidgetProvider extends AppWidgetProvider {
         // Update widget immediately with basic setup
         appWidgetManager.updateAppWidget(appWidgetId, views);
         // Get task count in background and update again
-        new Thread(() -> {
+        DatabaseExecutors.getInstance().executeRead(() -> {
             try {
-                // Create TaskService instance for data access
-                TaskService taskService = new TaskService(context, new TaskService.TaskUpdateListener() {
-                    @Override
-                    public void onTasksUpdated() {
-                        // Widget update handled elsewhere
-                    }
-                    @Override
-                    public void onError(String error) {
-                        // Handle error silently for widget
-                    }
-                });
-                List<Task> incompleteTasks = taskService.getIncompleteTasks();
-                int taskCount = incompleteTasks != null ? incompleteTasks.size() : 0;
+                int taskCount = WidgetDataProvider.getInstance().getIncompleteCount(context);
                 // Update UI on main thread
                 RemoteViews updatedViews = new RemoteViews(context.getPackageName(), R.layout.widget_mini);
                 // Set task count with smart display logic
@@ -78,6 +64,6 @@ public class MiniWidgetProvider extends AppWidgetProvider {
                 e.printStackTrace();
                 // Error case handled by initial update above
             }
-        }).start();
+        });
     }
 }
@@ -12,15 +12,11 @@ import android.net.Uri;
 import android.widget.RemoteViews;
 
 import com.example.todolist.R;
-import com.example.todolist.cache.TaskCache;
 import com.example.todolist.helper.calendar.CalendarUtils;
-import com.example.todolist.model.Task;
-import com.example.todolist.service.TaskService;
+import com.example.todolist.util.DateCodec;
 
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.List;
 import java.util.Locale;
 
 public class WeekCalendarWidget extends AppWidgetProvider {
@@ -50,13 +46,11 @@ public class WeekCalendarWidget extends AppWidgetProvider {
                           ", currentWeek: " + currentWeek + 
                           ", selectedDay: " + selectedDay);
         
-        for (int appWidgetId : appWidgetIds) {
-            updateWidget(context, appWidgetManager, appWidgetId, currentYear, currentMonth, currentWeek, selectedDay);
-        }
+        updateWidgetsAsync(context, appWidgetManager, appWidgetIds, currentYear, currentMonth, currentWeek, selectedDay);
     }
     
     // Helper method to safely read int from SharedPreferences (handles Long to Int conversion)
-    private int getIntSafely(SharedPreferences prefs, String key, int defaultValue) {
+    private static int getIntSafely(SharedPreferences prefs, String key, int defaultValue) {
         try {
             return prefs.getInt(key, defaultValue);
         } catch (ClassCastException e) {
@@ -103,9 +97,7 @@ public class WeekCalendarWidget extends AppWidgetProvider {
             int[] appWidgetIds = appWidgetManager.getAppWidgetIds(
                 new android.content.ComponentName(context, WeekCalendarWidget.class));
             
-            for (int appWidgetId : appWidgetIds) {
-                updateWidget(context, appWidgetManager, appWidgetId, currentYear, currentMonth, currentWeek, selectedDay);
-            }
+            updateWidgetsAsync(context, appWidgetManager, appWidgetIds, currentYear, currentMonth, currentWeek, selectedDay);
         } else if (PREV_WEEK_ACTION.equals(intent.getAction())) {
             // Navigate to previous week - chuyển sang tuần trước (7 ngày trước)
             calendar.set(currentYear, currentMonth, selectedDay);
@@ -128,9 +120,7 @@ public class WeekCalendarWidget extends AppWidgetProvider {
             int[] appWidgetIds = appWidgetManager.getAppWidgetIds(
                 new android.content.ComponentName(context, WeekCalendarWidget.class));
             
-            for (int appWidgetId : appWidgetIds) {
-                updateWidget(context, appWidgetManager, appWidgetId, currentYear, currentMonth, currentWeek, selectedDay);
-            }
+            updateWidgetsAsync(context, appWidgetManager, appWidgetIds, currentYear, currentMonth, currentWeek, selectedDay);
         } else if (NEXT_WEEK_ACTION.equals(intent.getAction())) {
             // Navigate to next week - chuyển sang tuần sau (7 ngày sau)
             calendar.set(currentYear, currentMonth, selectedDay);
@@ -153,10 +143,18 @@ public class WeekCalendarWidget extends AppWidgetProvider {
             int[] appWidgetIds = appWidgetManager.getAppWidgetIds(
                 new android.content.ComponentName(context, WeekCalendarWidget.class));
             
+            updateWidgetsAsync(context, appWidgetManager, appWidgetIds, currentYear, currentMonth, currentWeek, selectedDay);
+        }
+    }
+
+    // Drawing reads the task snapshot from the database, so it runs off the main thread
+    private void updateWidgetsAsync(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds,
+                                    int currentYear, int currentMonth, int currentWeek, int selectedDay) {
+        WidgetUpdateHelper.updateAsync(this, () -> {
             for (int appWidgetId : appWidgetIds) {
                 updateWidget(context, appWidgetManager, appWidgetId, currentYear, currentMonth, currentWeek, selectedDay);
             }
-        }
+        });
     }
 
     private void updateWidget(Context context, AppWidgetManager appWidgetManager, int appWidgetId, 
@@ -303,24 +301,23 @@ public class WeekCalendarWidget extends AppWidgetProvider {
     }
     
     private boolean hasTasksForDate(Context context, int year, int month, int day) {
-        String dateString = String.format("%02d/%02d/%04d", day, month + 1, year);
-        
-        TaskCache taskCache = TaskCache.getInstance();
-        List<Task> allTasks = taskCache.getAllTasks();
-        
-        if (allTasks == null || allTasks.isEmpty()) {
-            TaskService taskService = new TaskService(context, null);
-            allTasks = taskService.getAllTasksFromCache();
-        }
-        
-        if (allTasks != null) {
-            for (Task task : allTasks) {
-                if (CalendarUtils.isTaskOnDate(task, dateString)) {
-                    return true;
-                }
-            }
-        }
-        
-        return false;
+        int taskDays = WidgetDataProvider.getInstance().getTaskDays(context, year, month);
+        return CalendarUtils.hasDay(taskDays, day);
+    }
+
+    /**
+     * First and last epoch day of the week (Sunday to Saturday) containing the selected day
+     */
+    static long[] getDisplayedDays(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(WIDGET_PREFS, Context.MODE_PRIVATE);
+        Calendar calendar = Calendar.getInstance();
+        int currentYear = getIntSafely(prefs, PREF_CURRENT_YEAR, calendar.get(Calendar.YEAR));
+        int currentMonth = getIntSafely(prefs, PREF_CURRENT_MONTH, calendar.get(Calendar.MONTH));
+        int selectedDay = getIntSafely(prefs, PREF_SELECTED_DAY, calendar.get(Calendar.DAY_OF_MONTH));
+        calendar.set(currentYear, currentMonth, selectedDay);
+        int daysToSubtract = (calendar.get(Calendar.DAY_OF_WEEK) - Calendar.SUNDAY + 7) % 7;
+        long weekStart = DateCodec.toEpochDay(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1,
+                calendar.get(Calendar.DAY_OF_MONTH)) - daysToSubtract;
+        return new long[]{weekStart, weekStart + 6};
     }
-}
\ No newline at end of file
+}
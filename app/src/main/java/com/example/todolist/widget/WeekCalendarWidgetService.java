@@ -6,10 +6,7 @@ import android.view.View;
 import android.widget.RemoteViews;
 import android.widget.RemoteViewsService;
 import com.example.todolist.R;
-import com.example.todolist.cache.TaskCache;
-import com.example.todolist.helper.calendar.CalendarUtils;
 import com.example.todolist.model.Task;
-import com.example.todolist.service.TaskService;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -25,21 +22,18 @@ class WeekCalendarRemoteViewsFactory implements RemoteViewsService.RemoteViewsFa
     
     private Context context;
     private List<Task> tasks;
-    private TaskService taskService;
-    private TaskCache taskCache;
     private String selectedDate;
     
     public WeekCalendarRemoteViewsFactory(Context context, Intent intent) {
         this.context = context;
         this.selectedDate = intent.getStringExtra("selected_date");
-        this.taskService = new TaskService(context, null);
-        this.taskCache = TaskCache.getInstance();
         this.tasks = new ArrayList<>();
     }
     
     @Override
     public void onCreate() {
-        loadTasksForDate();
+        // Runs on the main thread; the widget notifies a data change after setting the adapter,
+        // and onDataSetChanged loads the tasks on a binder thread
     }
     
     @Override
@@ -133,47 +127,11 @@ class WeekCalendarRemoteViewsFactory implements RemoteViewsService.RemoteViewsFa
         return true;
     }
     
+    // Reached from onDataSetChanged on a binder thread, where the database may be read
     private void loadTasksForDate() {
         if (selectedDate == null || selectedDate.isEmpty()) {
             return;
         }
-        
-        try {
-            Thread.sleep(100);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
-        
-        taskService.loadTasks();
-        
-        int retryCount = 0;
-        List<Task> allTasks = null;
-        while (retryCount < 5) {
-            allTasks = taskService.getAllTasksFromCache();
-            if (allTasks != null && allTasks.size() > 0) {
-                break;
-            }
-            try {
-                Thread.sleep(200);
-                retryCount++;
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
-        }
-        
-        if (allTasks == null) {
-            allTasks = taskCache.getAllTasks();
-        }
-        
-        if (allTasks == null || allTasks.isEmpty()) {
-            return;
-        }
-        
-        tasks = new ArrayList<>();
-        for (Task task : allTasks) {
-            if (CalendarUtils.isTaskOnDate(task, selectedDate)) {
-                tasks.add(task);
-            }
-        }
+        tasks = new ArrayList<>(WidgetDataProvider.getInstance().getTasksForDate(context, selectedDate));
     }
 }
@@ -0,0 +1,233 @@
+package com.example.todolist.widget;
+
+import android.content.Context;
+
+import com.example.todolist.database.ToDoDatabase;
+import com.example.todolist.database.entity.SharedTaskCacheEntity;
+import com.example.todolist.database.mapper.SharedTaskCacheMapper;
+import com.example.todolist.database.mapper.TaskMapper;
+import com.example.todolist.helper.calendar.RecurrenceRule;
+import com.example.todolist.manager.AuthManager;
+import com.example.todolist.model.Task;
+import com.example.todolist.util.DateCodec;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Task data for the widgets, read from Room one month at a time with a dueEpochDay range query.
+ * Each month is kept as a per-day snapshot until WidgetUpdateHelper invalidates the days that changed,
+ * so drawing a widget never builds a TaskService or waits for the task cache to fill.
+ * Reads hit the database and must run off the main thread.
+ */
+public class WidgetDataProvider {
+    private static final int MAX_CACHED_MONTHS = 6;
+
+    private static volatile WidgetDataProvider instance;
+
+    // Guarded by this, in access order so the month drawn least recently is dropped first
+    private final Map<Integer, MonthSnapshot> months = new LinkedHashMap<>(8, 0.75f, true);
+    private Integer incompleteCount;
+    // Bumped by every invalidation, a load that started before it is not cached
+    private long generation;
+
+    private WidgetDataProvider() {
+    }
+
+    public static WidgetDataProvider getInstance() {
+        if (instance == null) {
+            synchronized (WidgetDataProvider.class) {
+                if (instance == null) {
+                    instance = new WidgetDataProvider();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * @param month Calendar.MONTH value (0-11)
+     */
+    public List<Task> getTasksForDate(Context context, int year, int month, int day) {
+        return getMonth(context, year, month).getTasks(day);
+    }
+
+    /**
+     * @param date "dd/MM/yyyy", an empty list when it cannot be parsed
+     */
+    public List<Task> getTasksForDate(Context context, String date) {
+        Long epochDay = DateCodec.parseEpochDay(date);
+        if (epochDay == null) return Collections.emptyList();
+        int packed = DateCodec.toPackedDate(epochDay);
+        return getTasksForDate(context, packed / 10000, packed / 100 % 100 - 1, packed % 100);
+    }
+
+    /**
+     * Days of the month with at least one task, bit (day - 1) set, as CalendarUtils.getTaskDaysInMonth
+     */
+    public int getTaskDays(Context context, int year, int month) {
+        return getMonth(context, year, month).dayMask;
+    }
+
+    public int getIncompleteCount(Context context) {
+        long loadGeneration;
+        synchronized (this) {
+            if (incompleteCount != null) return incompleteCount;
+            loadGeneration = generation;
+        }
+        ToDoDatabase database = ToDoDatabase.getInstance(context.getApplicationContext());
+        int count = database.taskDao().countIncompleteTasks();
+        for (Task task : loadSharedTasks(database)) {
+            if (!task.isCompleted()) count++;
+        }
+        synchronized (this) {
+            if (loadGeneration == generation) {
+                incompleteCount = count;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Days a task occupies in the cached months, null when it repeats and may fall on any day
+     */
+    synchronized Set<Long> getCachedDays(String taskId) {
+        Set<Long> days = new HashSet<>();
+        for (MonthSnapshot snapshot : months.values()) {
+            if (snapshot.repeatingTaskIds.contains(taskId)) return null;
+            Long day = snapshot.singleTaskDays.get(taskId);
+            if (day != null) days.add(day);
+        }
+        return days;
+    }
+
+    /**
+     * Drop the cached months containing any of the days, or everything when epochDays is null
+     */
+    synchronized void invalidate(Set<Long> epochDays) {
+        generation++;
+        incompleteCount = null;
+        if (epochDays == null) {
+            months.clear();
+            return;
+        }
+        Iterator<MonthSnapshot> iterator = months.values().iterator();
+        while (iterator.hasNext()) {
+            MonthSnapshot snapshot = iterator.next();
+            for (long day : epochDays) {
+                if (day >= snapshot.firstEpochDay && day <= snapshot.lastEpochDay) {
+                    iterator.remove();
+                    break;
+                }
+            }
+        }
+    }
+
+    private MonthSnapshot getMonth(Context context, int year, int month) {
+        int key = year * 12 + month;
+        long loadGeneration;
+        synchronized (this) {
+            MonthSnapshot cached = months.get(key);
+            if (cached != null) return cached;
+            loadGeneration = generation;
+        }
+
+        MonthSnapshot snapshot = loadMonth(ToDoDatabase.getInstance(context.getApplicationContext()), year, month);
+        synchronized (this) {
+            if (loadGeneration == generation) {
+                months.put(key, snapshot);
+                if (months.size() > MAX_CACHED_MONTHS) {
+                    Iterator<Integer> eldest = months.keySet().iterator();
+                    eldest.next();
+                    eldest.remove();
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    private MonthSnapshot loadMonth(ToDoDatabase database, int year, int month) {
+        MonthSnapshot snapshot = new MonthSnapshot(year, month);
+        for (Task task : TaskMapper.fromEntities(database.taskDao().getSingleTasksInRange(snapshot.firstEpochDay, snapshot.lastEpochDay))) {
+            snapshot.add(task);
+        }
+        for (Task task : TaskMapper.fromEntities(database.taskDao().getRepeatingTasks())) {
+            snapshot.add(task);
+        }
+        for (Task task : loadSharedTasks(database)) {
+            snapshot.add(task);
+        }
+        return snapshot;
+    }
+
+    // Shared tasks are not in the tasks table, the persisted copies of the signed-in account are used
+    private List<Task> loadSharedTasks(ToDoDatabase database) {
+        List<Task> tasks = new ArrayList<>();
+        String accountEmail = AuthManager.getInstance().getCurrentUserEmail();
+        if (accountEmail == null) return tasks;
+        for (SharedTaskCacheEntity entry : database.sharedTaskCacheDao().getEntries(accountEmail)) {
+            Task task = SharedTaskCacheMapper.taskFromEntity(entry);
+            if (task != null) tasks.add(task);
+        }
+        return tasks;
+    }
+
+    private static class MonthSnapshot {
+        final int year;
+        final int month;
+        final long firstEpochDay;
+        final long lastEpochDay;
+        final List<List<Task>> days = new ArrayList<>();
+        int dayMask;
+        final Map<String, Long> singleTaskDays = new HashMap<>();
+        final Set<String> repeatingTaskIds = new HashSet<>();
+
+        MonthSnapshot(int year, int month) {
+            this.year = year;
+            this.month = month;
+            int length = DateCodec.lengthOfMonth(year, month + 1);
+            this.firstEpochDay = DateCodec.toEpochDay(year, month + 1, 1);
+            this.lastEpochDay = firstEpochDay + length - 1;
+            for (int i = 0; i < length; i++) {
+                days.add(new ArrayList<>());
+            }
+        }
+
+        void add(Task task) {
+            RecurrenceRule rule = RecurrenceRule.from(task);
+            if (rule == null) return;
+            if (rule.getFrequency() == RecurrenceRule.ONCE) {
+                Long epochDay = DateCodec.parseEpochDay(task.getDueDate());
+                if (epochDay != null && epochDay >= firstEpochDay && epochDay <= lastEpochDay) {
+                    singleTaskDays.put(task.getId(), epochDay);
+                    addToDay(task, (int) (epochDay - firstEpochDay));
+                }
+                return;
+            }
+            repeatingTaskIds.add(task.getId());
+            int mask = rule.monthMask(year, month + 1);
+            for (int i = 0; i < days.size(); i++) {
+                if ((mask & (1 << i)) != 0) {
+                    addToDay(task, i);
+                }
+            }
+        }
+
+        private void addToDay(Task task, int index) {
+            days.get(index).add(task);
+            dayMask |= 1 << index;
+        }
+
+        List<Task> getTasks(int day) {
+            if (day < 1 || day > days.size()) return Collections.emptyList();
+            return new ArrayList<>(days.get(day - 1));
+        }
+    }
+}
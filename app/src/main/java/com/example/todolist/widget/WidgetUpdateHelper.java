@@ -1,23 +1,157 @@
 package com.example.todolist.widget;
 import android.appwidget.AppWidgetManager;
+import android.content.BroadcastReceiver;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import androidx.annotation.VisibleForTesting;
+import com.example.todolist.cache.TaskCache;
+import com.example.todolist.helper.calendar.RecurrenceRule;
+import com.example.todolist.model.Task;
+import com.example.todolist.repository.DatabaseExecutors;
+import com.example.todolist.util.DateCodec;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 public class WidgetUpdateHelper {
+    // A burst of edits is drawn once, 500ms after the last edit and at most 2s after the first
+    static final long DEBOUNCE_MILLIS = 500;
+    static final long MAX_DELAY_MILLIS = 2000;
+
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static final Object lock = new Object();
+    // Guarded by lock
+    private static final Set<String> pendingTaskIds = new HashSet<>();
+    private static boolean pendingAll;
+    private static long firstPendingAt;
+    private static Runnable flushRunnable;
+    private static final AtomicInteger flushCount = new AtomicInteger();
+
     public static void updateAllWidgets(Context context) {
         updateCalendarWidget(context);
         updateMiniWidget(context);
         updateCountdownWidgets(context);
     }
-    public static void updateCalendarWidget(Context context) {
-        Intent intent = new Intent(context, CalendarWidgetProvider.class);
-        intent.setAction(AppWidgetManager.ACTION_APPWIDGET_UPDATE);
+
+    /**
+     * Schedule a refresh of the widgets showing the changed tasks
+     * @param taskIds tasks that were added, updated or removed, null when unknown
+     */
+    public static void notifyTasksChanged(Context context, Collection<String> taskIds) {
+        Context appContext = context.getApplicationContext();
+        long now = SystemClock.uptimeMillis();
+        synchronized (lock) {
+            if (taskIds == null) {
+                pendingAll = true;
+            } else {
+                pendingTaskIds.addAll(taskIds);
+            }
+            if (flushRunnable == null) {
+                firstPendingAt = now;
+                flushRunnable = () -> flush(appContext);
+            } else {
+                mainHandler.removeCallbacks(flushRunnable);
+            }
+            long delay = Math.min(DEBOUNCE_MILLIS, firstPendingAt + MAX_DELAY_MILLIS - now);
+            mainHandler.postDelayed(flushRunnable, Math.max(0, delay));
+        }
+    }
+
+    @VisibleForTesting
+    static int getFlushCount() {
+        return flushCount.get();
+    }
+
+    private static void flush(Context context) {
+        flushCount.incrementAndGet();
+        Set<String> taskIds;
+        boolean all;
+        synchronized (lock) {
+            taskIds = new HashSet<>(pendingTaskIds);
+            all = pendingAll;
+            pendingTaskIds.clear();
+            pendingAll = false;
+            flushRunnable = null;
+        }
+        // Queued behind the database writes of the edits, so the snapshots are rebuilt from committed rows
+        DatabaseExecutors.getInstance().executeWrite(() -> {
+            Set<Long> changedDays = all ? null : getChangedDays(taskIds);
+            WidgetDataProvider.getInstance().invalidate(changedDays);
+            DatabaseExecutors.getInstance().executeRead(() -> refreshWidgets(context, changedDays));
+        });
+    }
+
+    // Days the tasks were shown on before the change and fall on now, null when any day may be affected
+    private static Set<Long> getChangedDays(Set<String> taskIds) {
+        Set<Long> days = new HashSet<>();
+        for (String taskId : taskIds) {
+            Set<Long> cachedDays = WidgetDataProvider.getInstance().getCachedDays(taskId);
+            if (cachedDays == null) return null;
+            days.addAll(cachedDays);
+
+            Task task = TaskCache.getInstance().getTask(taskId);
+            if (task == null) continue;
+            RecurrenceRule rule = RecurrenceRule.from(task);
+            if (rule != null && rule.getFrequency() != RecurrenceRule.ONCE) return null;
+            Long dueDay = DateCodec.parseEpochDay(task.getDueDate());
+            if (dueDay != null) days.add(dueDay);
+        }
+        return days;
+    }
+
+    private static void refreshWidgets(Context context, Set<Long> changedDays) {
+        if (shows(changedDays, CalendarWidgetHelper.getDisplayedDays(context))) {
+            updateCalendarWidget(context);
+        }
+        if (shows(changedDays, CalendarTaskWidget.getDisplayedDays(context))) {
+            sendUpdate(context, CalendarTaskWidget.class);
+        }
+        if (shows(changedDays, WeekCalendarWidget.getDisplayedDays(context))) {
+            sendUpdate(context, WeekCalendarWidget.class);
+        }
+        // The incomplete count can change with any edit; countdown widgets do not show tasks
+        updateMiniWidget(context);
+    }
+
+    private static boolean shows(Set<Long> changedDays, long[] displayedDays) {
+        if (changedDays == null) return true;
+        for (long day : changedDays) {
+            if (day >= displayedDays[0] && day <= displayedDays[1]) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Run a widget update on the database read lane, keeping the broadcast alive until it is done
+     */
+    static void updateAsync(BroadcastReceiver receiver, Runnable update) {
+        BroadcastReceiver.PendingResult pendingResult = receiver.goAsync();
+        DatabaseExecutors.getInstance().executeRead(() -> {
+            try {
+                update.run();
+            } finally {
+                if (pendingResult != null) pendingResult.finish();
+            }
+        });
+    }
+
+    private static void sendUpdate(Context context, Class<?> providerClass) {
         AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
-        int[] appWidgetIds = appWidgetManager.getAppWidgetIds(
-            new ComponentName(context, CalendarWidgetProvider.class));
+        int[] appWidgetIds = appWidgetManager.getAppWidgetIds(new ComponentName(context, providerClass));
+        if (appWidgetIds.length == 0) return;
+        Intent intent = new Intent(context, providerClass);
+        intent.setAction(AppWidgetManager.ACTION_APPWIDGET_UPDATE);
         intent.putExtra(AppWidgetManager.EXTRA_APPWIDGET_IDS, appWidgetIds);
         context.sendBroadcast(intent);
     }
+
+    public static void updateCalendarWidget(Context context) {
+        sendUpdate(context, CalendarWidgetProvider.class);
+    }
     public static void updateMiniWidget(Context context) {
         AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
         int[] appWidgetIds = appWidgetManager.getAppWidgetIds(
@@ -26,7 +160,7 @@ public class WidgetUpdateHelper {
             MiniWidgetProvider.updateWidget(context, appWidgetManager, appWidgetId);
         }
     }
-    
+
     public static void updateCountdownWidgets(Context context) {
         AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
         int[] appWidgetIds = appWidgetManager.getAppWidgetIds(
@@ -0,0 +1,156 @@
+package com.example.todolist.cache;
+
+import com.example.todolist.model.Task;
+import com.example.todolist.util.DateCodec;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Cached tasks are mutated in place; after reindexTask/updateTaskOptimistic the index answers like a full scan
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TaskCacheIndexTest {
+    private static final long TODAY = DateCodec.toEpochDay(2026, 10, 18);
+    private static final String[] CATEGORIES = {"work", "home", null};
+
+    private final TaskCache taskCache = TaskCache.getInstance();
+
+    @Before
+    public void setUp() {
+        taskCache.clear();
+    }
+
+    @After
+    public void tearDown() {
+        taskCache.clear();
+    }
+
+    @Test
+    public void inPlaceEditsAreRefiledOnReindex() {
+        Task task = task("a", TODAY, "work");
+        taskCache.addTaskOptimistic(task);
+
+        task.setDueDate(DateCodec.formatDate(TODAY + 2));
+        task.setCategory("home");
+        task.setIsCompleted(true);
+        taskCache.reindexTask(task);
+
+        assertIds(taskCache.getIncompleteTasksDueOn(TODAY));
+        assertIds(taskCache.getTasksByCategory("work"));
+        assertIds(taskCache.getTasksByCategory("home"), "a");
+        assertIds(taskCache.getCompletedTasks(), "a");
+        assertIds(taskCache.getIncompleteTasksDueAfter(TODAY));
+    }
+
+    @Test
+    public void reindexIgnoresTasksTheCacheDoesNotHold() {
+        taskCache.addTaskOptimistic(task("a", TODAY, "work"));
+
+        // A shared task, or a stale copy with the same id
+        taskCache.reindexTask(task("shared", TODAY, "work"));
+        taskCache.reindexTask(task("a", TODAY + 5, "home"));
+
+        assertNull(taskCache.getTask("shared"));
+        assertIds(taskCache.getIncompleteTasksDueOn(TODAY), "a");
+        assertIds(taskCache.getTasksByCategory("work"), "a");
+    }
+
+    @Test
+    public void indexMatchesFullScanAfterRandomEdits() {
+        Random random = new Random(7);
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            Task task = task("t" + i, randomDay(random), CATEGORIES[random.nextInt(CATEGORIES.length)]);
+            tasks.add(task);
+            taskCache.addTaskOptimistic(task);
+        }
+
+        for (int round = 0; round < 2000; round++) {
+            Task task = tasks.get(random.nextInt(tasks.size()));
+            switch (random.nextInt(3)) {
+                case 0:
+                    Long day = randomDay(random);
+                    task.setDueDate(day != null ? DateCodec.formatDate(day) : null);
+                    break;
+                case 1:
+                    task.setCategory(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+                    break;
+                default:
+                    task.setIsCompleted(!task.isCompleted());
+                    break;
+            }
+            if (random.nextBoolean()) {
+                taskCache.reindexTask(task);
+            } else {
+                taskCache.updateTaskOptimistic(task);
+            }
+        }
+
+        for (long day = TODAY - 4; day <= TODAY + 4; day++) {
+            assertEquals(scan(tasks, day, 0), ids(taskCache.getIncompleteTasksDueOn(day)));
+            assertEquals(scan(tasks, day, -1), ids(taskCache.getIncompleteTasksDueBefore(day)));
+            assertEquals(scan(tasks, day, 1), ids(taskCache.getIncompleteTasksDueAfter(day)));
+        }
+        for (String category : new String[]{"work", "home"}) {
+            Set<String> expected = new HashSet<>();
+            for (Task task : tasks) {
+                if (category.equals(task.getCategory())) expected.add(task.getId());
+            }
+            assertEquals(expected, ids(taskCache.getTasksByCategory(category)));
+        }
+        Set<String> completed = new HashSet<>();
+        for (Task task : tasks) {
+            if (task.isCompleted()) completed.add(task.getId());
+        }
+        assertEquals(completed, ids(taskCache.getCompletedTasks()));
+    }
+
+    // Incomplete tasks before (-1), on (0) or after (1) the day; undated tasks count as after
+    private static Set<String> scan(List<Task> tasks, long day, int relation) {
+        Set<String> result = new HashSet<>();
+        for (Task task : tasks) {
+            if (task.isCompleted()) continue;
+            Long due = DateCodec.parseEpochDay(task.getDueDate());
+            int actual = due == null ? 1 : Long.compare(due, day);
+            if (actual == relation) result.add(task.getId());
+        }
+        return result;
+    }
+
+    private static Long randomDay(Random random) {
+        int offset = random.nextInt(10) - 5;
+        return offset == 4 ? null : TODAY + offset;
+    }
+
+    private static void assertIds(List<Task> tasks, String... expected) {
+        Set<String> expectedIds = new HashSet<>();
+        for (String id : expected) expectedIds.add(id);
+        assertEquals(expectedIds, ids(tasks));
+    }
+
+    private static Set<String> ids(List<Task> tasks) {
+        Set<String> ids = new HashSet<>();
+        for (Task task : tasks) ids.add(task.getId());
+        return ids;
+    }
+
+    private static Task task(String id, Long dueEpochDay, String category) {
+        Task task = new Task("Công việc " + id, null, dueEpochDay != null ? DateCodec.formatDate(dueEpochDay) : null, null);
+        task.setId(id);
+        task.setCategory(category);
+        return task;
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.todolist.cache;
+
+import com.example.todolist.model.Category;
+import com.example.todolist.model.SubTask;
+import com.example.todolist.model.Task;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A damaged or foreign snapshot must be ignored rather than shown, an intact one must decode to the same tasks
+ */
+public class TaskCacheSnapshotTest {
+
+    @Test
+    public void roundTripKeepsEveryStoredField() throws Exception {
+        List<Task> tasks = Arrays.asList(fullTask("t1"), sparseTask("t2"));
+        Category category = new Category("Công việc", "#FF5722");
+        category.setId("work");
+
+        TaskCacheSnapshot.Contents contents = TaskCacheSnapshot.decode(
+                ByteBuffer.wrap(TaskCacheSnapshot.encode(tasks, Collections.singletonList(category))));
+
+        assertNotNull(contents);
+        assertEquals(2, contents.tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            assertTrue(TaskCacheSnapshot.sameContent(tasks.get(i), contents.tasks.get(i)));
+            assertEquals(tasks.get(i).isShared(), contents.tasks.get(i).isShared());
+        }
+        assertNull(contents.tasks.get(1).getLastModified());
+        assertEquals("t1", contents.tasks.get(0).getSubTasks().get(0).getTaskId());
+        assertEquals(1, contents.categories.size());
+        assertEquals("work", contents.categories.get(0).getId());
+        assertEquals("Công việc", contents.categories.get(0).getName());
+        assertEquals("#FF5722", contents.categories.get(0).getColor());
+    }
+
+    @Test
+    public void decodedTasksStartClean() throws Exception {
+        TaskCacheSnapshot.Contents contents = TaskCacheSnapshot.decode(ByteBuffer.wrap(
+                TaskCacheSnapshot.encode(Collections.singletonList(fullTask("t1")), new ArrayList<>())));
+
+        assertTrue(contents.tasks.get(0).takeDirtyFields().isEmpty());
+    }
+
+    @Test
+    public void sameContentNoticesASubTaskChange() {
+        Task changed = fullTask("t1");
+        changed.getSubTasks().get(1).setCompleted(true);
+
+        assertTrue(TaskCacheSnapshot.sameContent(fullTask("t1"), fullTask("t1")));
+        assertFalse(TaskCacheSnapshot.sameContent(fullTask("t1"), changed));
+    }
+
+    @Test
+    public void truncatedFileIsRejected() throws Exception {
+        byte[] bytes = TaskCacheSnapshot.encode(Arrays.asList(fullTask("t1"), fullTask("t2")), new ArrayList<>());
+
+        for (int length : new int[]{0, 8, 15, 16, bytes.length / 2, bytes.length - 1}) {
+            assertNull("length " + length, TaskCacheSnapshot.decode(ByteBuffer.wrap(Arrays.copyOf(bytes, length))));
+        }
+    }
+
+    @Test
+    public void flippedPayloadByteFailsTheCrc() throws Exception {
+        byte[] bytes = TaskCacheSnapshot.encode(Collections.singletonList(fullTask("t1")), new ArrayList<>());
+
+        for (int offset = 16; offset < bytes.length; offset += 7) {
+            byte[] damaged = bytes.clone();
+            damaged[offset] ^= 0x10;
+            assertNull("offset " + offset, TaskCacheSnapshot.decode(ByteBuffer.wrap(damaged)));
+        }
+    }
+
+    @Test
+    public void otherMagicOrVersionIsRejected() throws Exception {
+        byte[] bytes = TaskCacheSnapshot.encode(Collections.singletonList(fullTask("t1")), new ArrayList<>());
+
+        byte[] otherMagic = bytes.clone();
+        otherMagic[0] ^= 1;
+        byte[] otherVersion = bytes.clone();
+        ByteBuffer.wrap(otherVersion).putInt(4, TaskCacheSnapshot.FORMAT_VERSION + 1);
+
+        assertNull(TaskCacheSnapshot.decode(ByteBuffer.wrap(otherMagic)));
+        assertNull(TaskCacheSnapshot.decode(ByteBuffer.wrap(otherVersion)));
+    }
+
+    @Test
+    public void sizeAndDecodeTimeGrowLinearlyWithTaskCount() throws Exception {
+        long bytesPerTask = 0;
+        for (int count : new int[]{1000, 5000, 10000}) {
+            List<Task> tasks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                tasks.add(fullTask("task-" + i));
+            }
+            byte[] bytes = TaskCacheSnapshot.encode(tasks, new ArrayList<>());
+
+            // Direct buffer, as the mapped file is
+            ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+            buffer.put(bytes).flip();
+            long start = System.nanoTime();
+            TaskCacheSnapshot.Contents contents = TaskCacheSnapshot.decode(buffer);
+            long decodeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertEquals(count, contents.tasks.size());
+            // Ids grow by a digit or two, the rest of each record is the same size
+            if (bytesPerTask > 0) {
+                assertEquals(bytesPerTask, bytes.length / count, 16);
+            }
+            bytesPerTask = bytes.length / count;
+            // Generous, a decode that fell back to per-field allocation or reflection would miss it by far
+            assertTrue(count + " tasks decoded in " + decodeMillis + " ms", decodeMillis < count / 5);
+        }
+    }
+
+    private static Task fullTask(String id) {
+        return new Task.Builder()
+                .id(id)
+                .title("Đi chợ " + id)
+                .description("Mua đồ cho cả tuần")
+                .dueDate("18/10/2026")
+                .dueTime("09:00")
+                .category("work")
+                .reminderType("15 phút trước")
+                .hasReminder(true)
+                .repeatType("Hàng tuần")
+                .repeating(true)
+                .important(true)
+                .completed(true)
+                .completionDate("17/10/2026")
+                .createdAt("01/10/2026")
+                .updatedAt("17/10/2026")
+                .lastModified(1_760_000_000_000L)
+                .attachments("[]")
+                .shared(true)
+                .subTasks(new ArrayList<>(Arrays.asList(
+                        new SubTask("s1-" + id, id, "Mua sữa", true, "02/10/2026"),
+                        new SubTask("s2-" + id, id, "Mua rau", false, "03/10/2026"))))
+                .build();
+    }
+
+    // Every nullable field left null
+    private static Task sparseTask(String id) {
+        return new Task.Builder().id(id).build();
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.todolist.cache;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.todolist.database.ToDoDatabase;
+import com.example.todolist.database.entity.SubTaskEntity;
+import com.example.todolist.database.mapper.SubTaskMapper;
+import com.example.todolist.database.mapper.TaskMapper;
+import com.example.todolist.model.SubTask;
+import com.example.todolist.model.Task;
+import com.example.todolist.repository.TaskRepository;
+import com.example.todolist.repository.TestRepositories;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.SQLiteMode;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * At startup the snapshot is shown first and the Room read reconciles it; the snapshot has to be the faster of the two
+ */
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class TaskCacheStartupTest {
+    private final TaskCache taskCache = TaskCache.getInstance();
+    private ToDoDatabase database;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, ToDoDatabase.class).build();
+        taskCache.clear();
+    }
+
+    @After
+    public void tearDown() {
+        taskCache.clear();
+        database.close();
+    }
+
+    @Test
+    public void snapshotLoadsFasterThanRoom() throws Exception {
+        TaskRepository repository = TestRepositories.taskRepository(database);
+        // The first round also warms up both paths
+        for (int count : new int[]{1000, 10000, 50000}) {
+            database.clearAllTables();
+            List<Task> tasks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                tasks.add(task("task-" + i));
+            }
+            insert(tasks);
+            byte[] bytes = TaskCacheSnapshot.encode(tasks, new ArrayList<>());
+            // Direct buffer, as the mapped file is
+            ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+            buffer.put(bytes).flip();
+
+            long start = System.nanoTime();
+            TaskCacheSnapshot.Contents contents = TaskCacheSnapshot.decode(buffer);
+            long snapshotMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            start = System.nanoTime();
+            List<Task> roomTasks = repository.getAllTasksAsync().get(2, TimeUnit.MINUTES);
+            long roomMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertEquals(count, contents.tasks.size());
+            assertEquals(count, roomTasks.size());
+            assertEquals(2, roomTasks.get(0).getSubTasks().size());
+            if (count >= 10000) {
+                assertTrue(count + " tasks: snapshot " + snapshotMillis + " ms, Room " + roomMillis + " ms",
+                        snapshotMillis < roomMillis);
+            }
+        }
+    }
+
+    @Test
+    public void reconcileKeepsTasksWrittenWhileTheSnapshotWasShown() {
+        taskCache.loadFromSnapshot(Arrays.asList(task("edited"), task("deleted"), task("goneFromRoom")));
+        // Read from Room before the optimistic writes below reached it
+        List<Task> roomTasks = Arrays.asList(task("edited"), task("deleted"));
+
+        taskCache.addTaskOptimistic(task("added"));
+        taskCache.deleteTaskOptimistic("deleted");
+        Task edited = task("edited");
+        edited.setTitle("Đã sửa");
+        taskCache.updateTaskOptimistic(edited);
+        taskCache.reconcile(roomTasks);
+
+        assertTrue(taskCache.isInitialized());
+        assertNotNull(taskCache.getTask("added"));
+        assertNull(taskCache.getTask("deleted"));
+        assertEquals("Đã sửa", taskCache.getTask("edited").getTitle());
+        assertNull(taskCache.getTask("goneFromRoom"));
+    }
+
+    @Test
+    public void reconcileInTheSnapshotFrameStaysOneFullRefresh() {
+        List<TaskChangeSet> delivered = new ArrayList<>();
+        taskCache.addListener(new TaskCache.TaskCacheDeltaListener() {
+            @Override public void onTasksChanged(TaskChangeSet changes) { delivered.add(changes); }
+            @Override public void onTasksUpdated(List<Task> tasks) { }
+            @Override public void onTaskAdded(Task task) { }
+            @Override public void onTaskUpdated(Task task) { }
+            @Override public void onTaskDeleted(String taskId) { }
+        });
+        Task changed = task("changed");
+        changed.setTitle("Đã đổi");
+
+        taskCache.loadFromSnapshot(Arrays.asList(task("kept"), task("changed"), task("removed")));
+        taskCache.reconcile(Arrays.asList(task("kept"), changed, task("added")));
+        ShadowLooper.idleMainLooper(100, TimeUnit.MILLISECONDS);
+
+        assertEquals(1, delivered.size());
+        TaskChangeSet changes = delivered.get(0);
+        assertTrue(changes.isFullRefresh());
+        assertTrue(changes.getAddedIds().isEmpty());
+        assertTrue(changes.getUpdatedIds().isEmpty());
+        assertTrue(changes.getRemovedIds().isEmpty());
+        assertEquals(3, taskCache.getAllTasks().size());
+    }
+
+    private void insert(List<Task> tasks) {
+        List<SubTaskEntity> subTasks = new ArrayList<>();
+        for (Task task : tasks) {
+            for (SubTask subTask : task.getSubTasks()) {
+                subTasks.add(SubTaskMapper.toEntity(subTask));
+            }
+        }
+        database.runInTransaction(() -> {
+            database.taskDao().upsertTasks(TaskMapper.toEntities(tasks));
+            database.subTaskDao().upsertSubTasks(subTasks);
+        });
+    }
+
+    private static Task task(String id) {
+        return new Task.Builder()
+                .id(id)
+                .title("Đi chợ " + id)
+                .description("Mua đồ cho cả tuần")
+                .dueDate("18/10/2026")
+                .dueTime("09:00")
+                .category("work")
+                .reminderType("15 phút trước")
+                .hasReminder(true)
+                .important(true)
+                .createdAt("01/10/2026")
+                .updatedAt("17/10/2026")
+                .lastModified(1_760_000_000_000L)
+                .subTasks(new ArrayList<>(Arrays.asList(
+                        new SubTask("s1-" + id, id, "Mua sữa", true, "02/10/2026"),
+                        new SubTask("s2-" + id, id, "Mua rau", false, "03/10/2026"))))
+                .build();
+    }
+}
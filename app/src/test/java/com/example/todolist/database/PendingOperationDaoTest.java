@@ -0,0 +1,91 @@
+package com.example.todolist.database;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.todolist.database.dao.PendingOperationDao;
+import com.example.todolist.database.entity.PendingOperationEntity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A DELETE only cancels an ADD that no batch has picked up, once claimed the server may already have the task
+ */
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class PendingOperationDaoTest {
+    private static final String ACCOUNT = "a@b.c";
+
+    private ToDoDatabase database;
+    private PendingOperationDao dao;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, ToDoDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        dao = database.pendingOperationDao();
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void deleteCancelsAnUnclaimedAdd() {
+        dao.enqueue("t1", PendingOperationEntity.OP_ADD, null, ACCOUNT, false, 1L);
+        dao.enqueue("t1", PendingOperationEntity.OP_DELETE, null, ACCOUNT, false, 2L);
+
+        assertNull(dao.getOperation("t1"));
+    }
+
+    @Test
+    public void deleteAfterClaimKeepsATombstone() {
+        dao.enqueue("t1", PendingOperationEntity.OP_ADD, null, ACCOUNT, false, 1L);
+        List<PendingOperationEntity> claimed = dao.claimDueOperations(ACCOUNT, 10L, 100);
+        assertEquals(1, claimed.size());
+        assertTrue(claimed.get(0).claimed);
+
+        // The read-lane send of the ADD is still running when the delete comes in
+        dao.enqueue("t1", PendingOperationEntity.OP_DELETE, null, ACCOUNT, false, 20L);
+
+        PendingOperationEntity pending = dao.getOperation("t1");
+        assertNotNull(pending);
+        assertEquals(PendingOperationEntity.OP_DELETE, pending.operation);
+        assertTrue(pending.claimed);
+
+        // The ADD's success is recorded against the old revision and leaves the tombstone queued
+        dao.deleteSentOperation("t1", claimed.get(0).revision);
+        assertNotNull(dao.getOperation("t1"));
+    }
+
+    @Test
+    public void claimOnlyTakesDueRows() {
+        dao.enqueue("t1", PendingOperationEntity.OP_ADD, null, ACCOUNT, false, 1L);
+        dao.enqueue("t2", PendingOperationEntity.OP_ADD, null, ACCOUNT, false, 50L);
+
+        List<PendingOperationEntity> claimed = dao.claimDueOperations(ACCOUNT, 10L, 100);
+
+        assertEquals(1, claimed.size());
+        assertEquals("t1", claimed.get(0).taskId);
+        assertTrue(dao.getOperation("t1").claimed);
+        assertFalse(dao.getOperation("t2").claimed);
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.todolist.database;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.todolist.database.entity.SubTaskEntity;
+import com.example.todolist.database.entity.TaskEntity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The FTS triggers keep tasks_fts in step with tasks and subtasks, REPLACE included
+ */
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class TaskSearchIndexDatabaseTest {
+    private ToDoDatabase database;
+    private SupportSQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, ToDoDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        db = database.getOpenHelper().getWritableDatabase();
+        // The in-memory builder skips the app's callback, install the triggers the way onCreate does
+        TaskSearchIndex.createTriggers(db);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void findsTasksByFoldedTitleAndSubTaskTitle() {
+        database.taskDao().insertTask(task("t1", "Đi chợ cuối tuần", 0));
+        database.taskDao().insertTask(task("t2", "Báo cáo tháng", 1));
+        database.subTaskDao().upsertSubTasks(Collections.singletonList(
+                new SubTaskEntity("s1", "t2", "Gửi số liệu", false, "01/01/2026")));
+
+        assertIds(search("di cho"), "t1");
+        assertIds(search("ĐI CHỢ"), "t1");
+        assertIds(search("bao ca"), "t2");
+        assertIds(search("so lieu"), "t2");
+        assertIds(search("tuan"), "t1");
+    }
+
+    @Test
+    public void replaceLeavesOneIndexRowPerTask() {
+        database.taskDao().insertTask(task("t1", "Mua sữa", 0));
+
+        db.execSQL("INSERT OR REPLACE INTO tasks (id, title, isCompleted, isImportant, hasReminder, isRepeating, createdAtMillis) "
+                + "VALUES ('t1', 'Mua bánh', 0, 0, 0, 0, 0)");
+
+        assertEquals(1, count("SELECT COUNT(*) FROM tasks_fts"));
+        assertEquals(0, count("SELECT COUNT(*) FROM tasks_fts WHERE docid NOT IN (SELECT rowid FROM tasks)"));
+        assertIds(search("sua"));
+        assertIds(search("banh"), "t1");
+    }
+
+    @Test
+    public void deleteOrphansDropsRowsLeftByOldReplacements() {
+        database.taskDao().insertTask(task("t1", "Mua sữa", 0));
+        db.execSQL("DROP TRIGGER tasks_fts_before_insert");
+        db.execSQL("INSERT OR REPLACE INTO tasks (id, title, isCompleted, isImportant, hasReminder, isRepeating, createdAtMillis) "
+                + "VALUES ('t1', 'Mua bánh', 0, 0, 0, 0, 0)");
+        assertEquals(2, count("SELECT COUNT(*) FROM tasks_fts"));
+
+        TaskSearchIndex.deleteOrphans(db);
+
+        assertEquals(1, count("SELECT COUNT(*) FROM tasks_fts"));
+        assertIds(search("sua"));
+    }
+
+    @Test
+    public void upsertAndUpdateRefreshTheIndex() {
+        TaskEntity entity = task("t1", "Họp nhóm", 0);
+        database.taskDao().insertTask(entity);
+
+        entity.title = "Họp khách hàng";
+        database.taskDao().updateTask(entity);
+        assertIds(search("nhom"));
+        assertIds(search("khach"), "t1");
+
+        entity.title = "Gọi điện";
+        database.taskDao().upsertTasks(Collections.singletonList(entity));
+        assertIds(search("khach"));
+        assertIds(search("goi dien"), "t1");
+        assertEquals(1, count("SELECT COUNT(*) FROM tasks_fts"));
+    }
+
+    @Test
+    public void matchStaysFastAsTheTableGrows() {
+        for (int taskCount : new int[]{10_000, 50_000}) {
+            database.clearAllTables();
+            database.runInTransaction(() -> {
+                for (int i = 0; i < taskCount; i++) {
+                    String title = i % 100 == 0 ? "Đi chợ mua sữa " + i : "Công việc số " + i;
+                    database.taskDao().insertTask(task("t" + i, title, i));
+                }
+            });
+
+            long start = System.nanoTime();
+            List<TaskEntity> matched = search("sua");
+            long matchMicros = (System.nanoTime() - start) / 1000;
+
+            start = System.nanoTime();
+            int scanned = count("SELECT COUNT(*) FROM tasks WHERE title LIKE '%sữa%'");
+            long likeMicros = (System.nanoTime() - start) / 1000;
+
+            assertEquals(taskCount / 100, matched.size());
+            assertEquals(taskCount / 100, scanned);
+            if (taskCount >= 50_000) {
+                assertTrue(taskCount + " tasks: MATCH " + matchMicros + " us, LIKE scan " + likeMicros + " us",
+                        matchMicros < likeMicros);
+            }
+        }
+    }
+
+    private List<TaskEntity> search(String text) {
+        return database.taskDao().searchTasks(TaskSearchIndex.buildMatchQuery(text));
+    }
+
+    private int count(String sql) {
+        try (Cursor cursor = db.query(sql)) {
+            cursor.moveToFirst();
+            return cursor.getInt(0);
+        }
+    }
+
+    private static void assertIds(List<TaskEntity> tasks, String... ids) {
+        assertEquals(ids.length, tasks.size());
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(ids[i], tasks.get(i).id);
+        }
+    }
+
+    private static TaskEntity task(String id, String title, long createdAtMillis) {
+        TaskEntity entity = new TaskEntity();
+        entity.id = id;
+        entity.title = title;
+        entity.createdAt = "01/01/2026";
+        entity.updatedAt = "01/01/2026";
+        entity.createdAtMillis = createdAtMillis;
+        return entity;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.todolist.database;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TaskSearchIndexTest {
+
+    @Test
+    public void foldsVietnameseAccentsAndCase() {
+        assertEquals("mua* sua*", TaskSearchIndex.buildMatchQuery("Mua Sữa"));
+        assertEquals("hop* nhom* tuan* toi*", TaskSearchIndex.buildMatchQuery("Họp nhóm tuần tới"));
+        assertEquals("nguyen* van* a*", TaskSearchIndex.buildMatchQuery("NGUYỄN VĂN Á"));
+    }
+
+    @Test
+    public void foldsDStrokeToD() {
+        assertEquals("di* cho*", TaskSearchIndex.buildMatchQuery("đi chợ"));
+        assertEquals("dang* ky*", TaskSearchIndex.buildMatchQuery("ĐĂNG KÝ"));
+    }
+
+    @Test
+    public void everyTokenBecomesAPrefix() {
+        assertEquals("bao*", TaskSearchIndex.buildMatchQuery("bao"));
+        assertEquals("bao* cao* 2026*", TaskSearchIndex.buildMatchQuery("  báo   cáo\t2026 "));
+    }
+
+    @Test
+    public void matchSyntaxIsNeutralized() {
+        // Quotes, prefix stars, column filters, exclusion and grouping become separators
+        assertEquals("a* b*", TaskSearchIndex.buildMatchQuery("\"a\" b*"));
+        assertEquals("title* x*", TaskSearchIndex.buildMatchQuery("title:x"));
+        assertEquals("a* b*", TaskSearchIndex.buildMatchQuery("-a (b)"));
+        // FTS4 operators are upper case only, lower casing turns them into plain terms
+        assertEquals("a* and* b* or* c* near* d*", TaskSearchIndex.buildMatchQuery("a AND b OR c NEAR d"));
+    }
+
+    @Test
+    public void blankOrPunctuationOnlyGivesNoQuery() {
+        assertNull(TaskSearchIndex.buildMatchQuery(null));
+        assertNull(TaskSearchIndex.buildMatchQuery(""));
+        assertNull(TaskSearchIndex.buildMatchQuery("   "));
+        assertNull(TaskSearchIndex.buildMatchQuery("\"*-:()"));
+    }
+
+    @Test
+    public void normalizeMatchesTheIndexFolding() {
+        assertEquals("tieng viet co dau", TaskSearchIndex.normalize("Tiếng Việt có dấu"));
+        assertEquals("d d", TaskSearchIndex.normalize("Đ đ"));
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.todolist.database.mapper;
+
+import com.example.todolist.database.entity.SubTaskEntity;
+import com.example.todolist.database.entity.TaskEntity;
+import com.example.todolist.model.SubTask;
+import com.example.todolist.model.Task;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Loading a stored task must not stamp it with the current time or drop its completion date
+ */
+public class TaskMapperTest {
+    private static final long LAST_MODIFIED = 1_760_000_000_000L;
+
+    @Test
+    public void roundTripKeepsTimestampsAndCompletion() {
+        Task original = storedTask();
+
+        TaskEntity entity = TaskMapper.toEntity(original);
+        Task loaded = TaskMapper.fromEntity(entity);
+
+        assertEquals(Long.valueOf(LAST_MODIFIED), entity.updatedAtMillis);
+        assertEquals(Long.valueOf(LAST_MODIFIED), loaded.getLastModified());
+        assertEquals("01/10/2026", loaded.getCreatedAt());
+        assertEquals("05/10/2026", loaded.getUpdatedAt());
+        assertEquals("04/10/2026", loaded.getCompletionDate());
+        assertTrue(loaded.isCompleted());
+        assertEquals(original.getId(), loaded.getId());
+        assertEquals(original.getTitle(), loaded.getTitle());
+        assertEquals(original.getDueDate(), loaded.getDueDate());
+        assertEquals(original.getDueTime(), loaded.getDueTime());
+        assertEquals(original.getCategory(), loaded.getCategory());
+        assertEquals(original.getRepeatType(), loaded.getRepeatType());
+        assertEquals(original.isImportant(), loaded.isImportant());
+        assertEquals(original.getAttachments(), loaded.getAttachments());
+    }
+
+    @Test
+    public void epochColumnsFollowTheStringDates() {
+        TaskEntity entity = TaskMapper.toEntity(storedTask());
+
+        assertEquals(Long.valueOf(java.time.LocalDate.of(2026, 10, 18).toEpochDay()), entity.dueEpochDay);
+        assertEquals(Long.valueOf(java.time.LocalDate.of(2026, 10, 4).toEpochDay()), entity.completionEpochDay);
+    }
+
+    @Test
+    public void missingLastModifiedFallsBackToUpdatedAtNotNow() {
+        Task task = new Task.Builder().id("t").title("Cũ").updatedAt("05/10/2026").build();
+
+        TaskEntity entity = TaskMapper.toEntity(task);
+
+        assertEquals(com.example.todolist.util.DateCodec.parseStartOfDayMillis("05/10/2026"), entity.updatedAtMillis);
+        assertEquals(entity.updatedAtMillis, TaskMapper.fromEntity(entity).getLastModified());
+    }
+
+    @Test
+    public void subTasksSurviveAndLoadClean() {
+        Task original = storedTask();
+        List<SubTaskEntity> subTaskEntities = SubTaskMapper.toEntities(original.getSubTasks());
+
+        Task loaded = TaskMapper.fromEntity(TaskMapper.toEntity(original));
+        loaded.restoreSubTasks(SubTaskMapper.fromEntities(subTaskEntities));
+
+        assertEquals(2, loaded.getSubTasks().size());
+        for (int i = 0; i < 2; i++) {
+            SubTask expected = original.getSubTasks().get(i);
+            SubTask actual = loaded.getSubTasks().get(i);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getTaskId(), actual.getTaskId());
+            assertEquals(expected.getTitle(), actual.getTitle());
+            assertEquals(expected.isCompleted(), actual.isCompleted());
+            assertEquals(expected.getCreatedAt(), actual.getCreatedAt());
+        }
+        // Hydration is not an edit: nothing is dirty and the timestamp is untouched
+        assertFalse(loaded.takeDirtyFields().contains("subTasks"));
+        assertEquals(Long.valueOf(LAST_MODIFIED), loaded.getLastModified());
+    }
+
+    static Task storedTask() {
+        return new Task.Builder()
+                .id("task-1")
+                .title("Đi chợ")
+                .description("mua rau")
+                .dueDate("18/10/2026")
+                .dueTime("09:30")
+                .completed(true)
+                .important(true)
+                .category("home")
+                .reminderType("Thông báo")
+                .hasReminder(true)
+                .attachments("[]")
+                .repeatType("Hàng tuần")
+                .repeating(true)
+                .completionDate("04/10/2026")
+                .createdAt("01/10/2026")
+                .updatedAt("05/10/2026")
+                .lastModified(LAST_MODIFIED)
+                .subTasks(Arrays.asList(
+                        new SubTask("s1", "task-1", "Mua sữa", true, "01/10/2026 08:00"),
+                        new SubTask("s2", "task-1", "Mua bánh", false, "02/10/2026 09:15")))
+                .build();
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.todolist.helper.calendar;
+
+import com.example.todolist.model.Task;
+import com.example.todolist.util.DateCodec;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * RecurrenceRule and the month bitmaps must agree with the Calendar based per-day check they replaced
+ */
+public class RecurrenceRuleTest {
+    private static final String[] REPEAT_TYPES = {
+            "Hàng ngày", "Hằng tuần", "Hàng tháng", "Hằng năm", "Không", "Không lặp lại"};
+    // Month ends, leap days and a year boundary
+    private static final String[] START_DATES = {
+            "31/01/2024", "29/02/2024", "28/02/2023", "30/04/2025", "31/12/2025",
+            "01/03/2024", "15/06/2026", "29/02/2096", "31/08/2099"};
+    private static final String[] COMPLETION_DATES = {null, "29/02/2024", "31/03/2025", "01/01/2100"};
+
+    private TimeZone defaultTimeZone;
+
+    @Before
+    public void setUp() {
+        // The old check divided millis by 24h, which breaks across DST; compare on a fixed offset zone
+        defaultTimeZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(defaultTimeZone);
+    }
+
+    @Test
+    public void occursOnMatchesLegacyCheck() {
+        long from = DateCodec.toEpochDay(2023, 1, 1);
+        long to = DateCodec.toEpochDay(2027, 12, 31);
+        int compared = 0;
+        for (Task task : tasks()) {
+            for (long day = from; day <= to; day++) {
+                String date = DateCodec.formatDate(day);
+                assertEquals(describe(task, date), legacyIsTaskOnDate(task, date), CalendarUtils.isTaskOnDate(task, date));
+                compared++;
+            }
+        }
+        assertTrue(compared > 100_000);
+    }
+
+    @Test
+    public void centuryLeapYearsMatchLegacyCheck() {
+        // 2096 is a leap year, 2100 is not
+        long from = DateCodec.toEpochDay(2096, 1, 1);
+        long to = DateCodec.toEpochDay(2104, 12, 31);
+        for (Task task : tasks()) {
+            for (long day = from; day <= to; day++) {
+                String date = DateCodec.formatDate(day);
+                assertEquals(describe(task, date), legacyIsTaskOnDate(task, date), CalendarUtils.isTaskOnDate(task, date));
+            }
+        }
+    }
+
+    @Test
+    public void monthMaskMatchesLegacyCheck() {
+        for (Task task : tasks()) {
+            for (int year = 2023; year <= 2027; year++) {
+                for (int month = 0; month < 12; month++) {
+                    int mask = CalendarUtils.getTaskDaysInMonth(Collections.singletonList(task), year, month);
+                    int length = DateCodec.lengthOfMonth(year, month + 1);
+                    for (int day = 1; day <= length; day++) {
+                        String date = DateCodec.formatDate(DateCodec.toEpochDay(year, month + 1, day));
+                        boolean expected = legacyIsTaskOnDate(task, date);
+                        assertEquals(describe(task, date), expected, (mask & (1 << (day - 1))) != 0);
+                    }
+                    assertEquals(0, mask >>> length);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void edgeCases() {
+        Task monthly = task("31/01/2024", "Hàng tháng", null);
+        assertFalse(CalendarUtils.isTaskOnDate(monthly, "29/02/2024"));
+        assertTrue(CalendarUtils.isTaskOnDate(monthly, "31/03/2024"));
+        assertFalse(CalendarUtils.isTaskOnDate(monthly, "30/04/2024"));
+
+        Task yearly = task("29/02/2024", "Hàng năm", null);
+        assertFalse(CalendarUtils.isTaskOnDate(yearly, "28/02/2025"));
+        assertFalse(CalendarUtils.isTaskOnDate(yearly, "01/03/2025"));
+        assertTrue(CalendarUtils.isTaskOnDate(yearly, "29/02/2028"));
+
+        Task weekly = task("31/12/2025", "Hàng tuần", null);
+        assertTrue(CalendarUtils.isTaskOnDate(weekly, "07/01/2026"));
+        assertFalse(CalendarUtils.isTaskOnDate(weekly, "24/12/2025"));
+
+        // Stops after the completion date, the completion day itself still counts
+        Task daily = task("28/02/2024", "Hàng ngày", "01/03/2024");
+        assertTrue(CalendarUtils.isTaskOnDate(daily, "29/02/2024"));
+        assertTrue(CalendarUtils.isTaskOnDate(daily, "01/03/2024"));
+        assertFalse(CalendarUtils.isTaskOnDate(daily, "02/03/2024"));
+        assertEquals(0b11, CalendarUtils.getTaskDaysInMonth(Collections.singletonList(daily), 2024, Calendar.FEBRUARY) >>> 27);
+    }
+
+    private static List<Task> tasks() {
+        List<Task> tasks = new ArrayList<>();
+        for (String start : START_DATES) {
+            for (String repeatType : REPEAT_TYPES) {
+                for (String completion : COMPLETION_DATES) {
+                    tasks.add(task(start, repeatType, completion));
+                }
+            }
+        }
+        return tasks;
+    }
+
+    private static Task task(String dueDate, String repeatType, String completionDate) {
+        Task task = new Task("Lặp lại", null, dueDate, null);
+        task.setRepeatType(repeatType);
+        task.setIsRepeating(!repeatType.startsWith("Không"));
+        if (completionDate != null) {
+            task.setIsCompleted(true);
+            task.setCompletionDate(completionDate);
+        }
+        return task;
+    }
+
+    private static String describe(Task task, String date) {
+        return task.getDueDate() + " " + task.getRepeatType() + " done " + task.getCompletionDate() + " on " + date;
+    }
+
+    // CalendarUtils.isTaskOnDate before RecurrenceRule, kept verbatim as the reference
+    private static boolean legacyIsTaskOnDate(Task task, String targetDate) {
+        try {
+            if (task.getDueDate() == null || task.getDueDate().isEmpty()) {
+                return false;
+            }
+
+            if (!task.isRepeating() || task.getRepeatType() == null ||
+                task.getRepeatType().equals("Không") || task.getRepeatType().equals("Không có")) {
+                return task.getDueDate().equals(targetDate);
+            }
+
+            String[] taskDateParts = task.getDueDate().split("/");
+            String[] targetDateParts = targetDate.split("/");
+
+            if (taskDateParts.length != 3 || targetDateParts.length != 3) {
+                return false;
+            }
+
+            Calendar taskDate = Calendar.getInstance();
+            taskDate.set(Calendar.DAY_OF_MONTH, Integer.parseInt(taskDateParts[0]));
+            taskDate.set(Calendar.MONTH, Integer.parseInt(taskDateParts[1]) - 1);
+            taskDate.set(Calendar.YEAR, Integer.parseInt(taskDateParts[2]));
+
+            Calendar targetCalendar = Calendar.getInstance();
+            targetCalendar.set(Calendar.DAY_OF_MONTH, Integer.parseInt(targetDateParts[0]));
+            targetCalendar.set(Calendar.MONTH, Integer.parseInt(targetDateParts[1]) - 1);
+            targetCalendar.set(Calendar.YEAR, Integer.parseInt(targetDateParts[2]));
+
+            if (task.isCompleted() && task.getCompletionDate() != null && !task.getCompletionDate().isEmpty()) {
+                String[] completionDateParts = task.getCompletionDate().split("/");
+
+                if (completionDateParts.length == 3) {
+                    Calendar completionDate = Calendar.getInstance();
+                    completionDate.set(Calendar.DAY_OF_MONTH, Integer.parseInt(completionDateParts[0]));
+                    completionDate.set(Calendar.MONTH, Integer.parseInt(completionDateParts[1]) - 1);
+                    completionDate.set(Calendar.YEAR, Integer.parseInt(completionDateParts[2]));
+
+                    if (targetCalendar.after(completionDate)) {
+                        return false;
+                    }
+                }
+            }
+
+            if (targetCalendar.before(taskDate)) {
+                return false;
+            }
+
+            switch (task.getRepeatType()) {
+                case "Hàng ngày":
+                case "Hằng ngày":
+                    return !targetCalendar.before(taskDate);
+                case "Hàng tuần":
+                case "Hằng tuần":
+                    if (targetCalendar.get(Calendar.DAY_OF_WEEK) == taskDate.get(Calendar.DAY_OF_WEEK)) {
+                        long diffInMillis = targetCalendar.getTimeInMillis() - taskDate.getTimeInMillis();
+                        long diffInDays = diffInMillis / (24 * 60 * 60 * 1000);
+                        return diffInDays >= 0 && diffInDays % 7 == 0;
+                    }
+                    return false;
+                case "Hàng tháng":
+                case "Hằng tháng":
+                    if (targetCalendar.get(Calendar.DAY_OF_MONTH) == taskDate.get(Calendar.DAY_OF_MONTH)) {
+                        int taskYear = taskDate.get(Calendar.YEAR);
+                        int taskMonth = taskDate.get(Calendar.MONTH);
+                        int targetYear = targetCalendar.get(Calendar.YEAR);
+                        int targetMonth = targetCalendar.get(Calendar.MONTH);
+                        int monthDiff = (targetYear - taskYear) * 12 + (targetMonth - taskMonth);
+                        return monthDiff >= 0;
+                    }
+                    return false;
+                case "Hàng năm":
+                case "Hằng năm":
+                    if (targetCalendar.get(Calendar.DAY_OF_MONTH) == taskDate.get(Calendar.DAY_OF_MONTH) &&
+                        targetCalendar.get(Calendar.MONTH) == taskDate.get(Calendar.MONTH)) {
+                        return targetCalendar.get(Calendar.YEAR) >= taskDate.get(Calendar.YEAR);
+                    }
+                    return false;
+                default:
+                    return task.getDueDate().equals(targetDate);
+            }
+        } catch (Exception e) {
+            return task.getDueDate().equals(targetDate);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.todolist.manager;
+
+import com.example.todolist.model.SubTask;
+import com.example.todolist.model.Task;
+import com.example.todolist.util.DateCodec;
+import com.google.firebase.database.ServerValue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A task read back from Firebase keeps the timestamps and subtasks it was written with
+ */
+public class FirebaseSyncManagerTest {
+    private static final long LAST_MODIFIED = 1_760_000_000_000L;
+
+    @Test
+    public void convertMapToTaskKeepsTimestampsAndCompletion() {
+        Task task = FirebaseSyncManager.convertMapToTask(remoteTask());
+
+        assertEquals(Long.valueOf(LAST_MODIFIED), task.getLastModified());
+        assertEquals("01/10/2026", task.getCreatedAt());
+        assertEquals(DateCodec.formatDateMillis(LAST_MODIFIED), task.getUpdatedAt());
+        assertEquals("04/10/2026", task.getCompletionDate());
+        assertTrue(task.isCompleted());
+        assertTrue(task.isImportant());
+        assertEquals("work", task.getCategory());
+        assertEquals("18/10/2026", task.getDueDate());
+    }
+
+    @Test
+    public void convertMapToTaskKeepsSubTasks() {
+        Task task = FirebaseSyncManager.convertMapToTask(remoteTask());
+
+        assertEquals(2, task.getSubTasks().size());
+        SubTask first = task.getSubTasks().get(0);
+        assertEquals("s1", first.getId());
+        assertEquals("task-1", first.getTaskId());
+        assertEquals("Mua sữa", first.getTitle());
+        assertTrue(first.isCompleted());
+        assertEquals("02/10/2026", first.getCreatedAt());
+        SubTask second = task.getSubTasks().get(1);
+        assertEquals("s2", second.getId());
+        assertFalse(second.isCompleted());
+        assertFalse(task.takeDirtyFields().contains("subTasks"));
+    }
+
+    @Test
+    public void missingLastModifiedStaysNull() {
+        Map<String, Object> data = remoteTask();
+        data.remove("lastModified");
+
+        Task task = FirebaseSyncManager.convertMapToTask(data);
+
+        assertNull(task.getLastModified());
+        assertEquals("01/10/2026", task.getUpdatedAt());
+    }
+
+    @Test
+    public void tombstonesExpireAfterTheRetention() {
+        long now = LAST_MODIFIED + FirebaseSyncManager.TOMBSTONE_RETENTION_MILLIS;
+        Map<String, Object> recent = FirebaseSyncManager.createTombstone();
+        recent.put("lastModified", LAST_MODIFIED + 1);
+        Map<String, Object> old = FirebaseSyncManager.createTombstone();
+        old.put("lastModified", LAST_MODIFIED - 1);
+        Map<String, Object> undated = FirebaseSyncManager.createTombstone();
+        undated.remove("lastModified");
+        Map<String, Object> oldTask = remoteTask();
+        oldTask.put("lastModified", 0L);
+
+        assertFalse(FirebaseSyncManager.isExpiredTombstone(recent, now));
+        assertTrue(FirebaseSyncManager.isExpiredTombstone(old, now));
+        assertTrue(FirebaseSyncManager.isExpiredTombstone(undated, now));
+        assertFalse(FirebaseSyncManager.isExpiredTombstone(oldTask, now));
+    }
+
+    @Test
+    public void watermarkOlderThanTheRetentionForcesAFullRead() {
+        long now = LAST_MODIFIED + FirebaseSyncManager.TOMBSTONE_RETENTION_MILLIS;
+
+        assertFalse(FirebaseSyncManager.isWatermarkExpired(0, now));
+        assertFalse(FirebaseSyncManager.isWatermarkExpired(now - 60 * 60 * 1000L, now));
+        // The delta query starts a little before the watermark, that margin must still be retained
+        assertTrue(FirebaseSyncManager.isWatermarkExpired(LAST_MODIFIED + 1, now));
+        assertTrue(FirebaseSyncManager.isWatermarkExpired(LAST_MODIFIED - 1, now));
+    }
+
+    @Test
+    public void patchCarriesDirtyFieldsAndTimestamps() {
+        Map<String, Object> full = new HashMap<>(remoteTask());
+        full.put("updatedAt", "05/10/2026");
+
+        Map<String, Object> patch = FirebaseSyncManager.buildPatch(full,
+                new HashSet<>(Arrays.asList("isCompleted", "completionDate", "notInThisLayout")));
+
+        assertEquals(new HashSet<>(Arrays.asList("isCompleted", "completionDate", "lastModified", "serverModified",
+                "updatedAt")), patch.keySet());
+        assertEquals(LAST_MODIFIED, patch.get("lastModified"));
+        assertEquals("05/10/2026", patch.get("updatedAt"));
+    }
+
+    @Test
+    public void patchWithoutDirtyFieldsStillMovesLastModified() {
+        Map<String, Object> patch = FirebaseSyncManager.buildPatch(remoteTask(), new HashSet<>());
+
+        assertEquals(new HashSet<>(Arrays.asList("lastModified", "serverModified")), patch.keySet());
+    }
+
+    @Test
+    public void everyWriteIsStampedWithTheServerClock() {
+        assertEquals(ServerValue.TIMESTAMP, FirebaseSyncManager.createTombstone().get(FirebaseSyncManager.SERVER_MODIFIED_FIELD));
+        assertEquals(ServerValue.TIMESTAMP, FirebaseSyncManager.buildPatch(remoteTask(), new HashSet<>())
+                .get(FirebaseSyncManager.SERVER_MODIFIED_FIELD));
+        assertEquals(ServerValue.TIMESTAMP, FirebaseSyncManager.withServerModified(remoteTask())
+                .get(FirebaseSyncManager.SERVER_MODIFIED_FIELD));
+    }
+
+    @Test
+    public void tombstoneAgeFollowsTheServerClock() {
+        long now = LAST_MODIFIED + FirebaseSyncManager.TOMBSTONE_RETENTION_MILLIS;
+        // Deleted long ago by a device whose clock ran far ahead
+        Map<String, Object> skewed = new HashMap<>();
+        skewed.put(FirebaseSyncManager.TOMBSTONE_FIELD, true);
+        skewed.put("lastModified", now);
+        skewed.put(FirebaseSyncManager.SERVER_MODIFIED_FIELD, LAST_MODIFIED - 1);
+
+        assertTrue(FirebaseSyncManager.isExpiredTombstone(skewed, now));
+    }
+
+    @Test
+    public void patchedTombstoneStillReadsAsDeleted() {
+        Map<String, Object> node = FirebaseSyncManager.createTombstone();
+        node.putAll(FirebaseSyncManager.buildPatch(remoteTask(), new HashSet<>(Arrays.asList("title", "isCompleted"))));
+
+        assertTrue(FirebaseSyncManager.isTombstone(node));
+        assertFalse(FirebaseSyncManager.isTombstone(remoteTask()));
+    }
+
+    // Shaped like a snapshot value: numbers come back as Long, lists as lists of maps
+    private static Map<String, Object> remoteTask() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("title", "Đi chợ");
+        data.put("dueDate", "18/10/2026");
+        data.put("dueTime", "09:00");
+        data.put("isCompleted", true);
+        data.put("completionDate", "04/10/2026");
+        data.put("category", "work");
+        data.put("priority", "Cao");
+        data.put("createdDate", "01/10/2026");
+        data.put("lastModified", LAST_MODIFIED);
+        List<Map<String, Object>> subTasks = new ArrayList<>();
+        for (SubTask subTask : Arrays.asList(
+                new SubTask("s1", "task-1", "Mua sữa", true, "02/10/2026"),
+                new SubTask("s2", "task-1", "Mua rau", false, "03/10/2026"))) {
+            subTasks.add(subTask.toMap());
+        }
+        data.put("subTasks", subTasks);
+        return data;
+    }
+}
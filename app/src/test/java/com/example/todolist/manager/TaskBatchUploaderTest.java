@@ -0,0 +1,188 @@
+package com.example.todolist.manager;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TaskBatchUploaderTest {
+
+    @Test
+    public void changedTasksAreWrittenInChunksOfChunkSize() {
+        FakeTarget target = new FakeTarget();
+        TaskBatchUploader uploader = new TaskBatchUploader(target, 4);
+        List<TaskBatchUploader.Result> results = new ArrayList<>();
+
+        uploader.upload(tasks(10), Collections.emptyMap(), results::add);
+
+        assertEquals(3, target.writes.size());
+        assertEquals(4, target.writes.get(0).size());
+        assertEquals(4, target.writes.get(1).size());
+        assertEquals(2, target.writes.get(2).size());
+        // Nothing is reported until the last chunk completes
+        target.completeAll(null);
+        assertEquals(1, results.size());
+        TaskBatchUploader.Result result = results.get(0);
+        assertTrue(result.isSuccessful());
+        assertEquals(10, result.total);
+        assertEquals(10, result.uploaded);
+        assertEquals(0, result.skipped);
+        assertEquals(10, result.syncedHashes.size());
+    }
+
+    @Test
+    public void unchangedTasksAreSkippedByHash() {
+        Map<String, Map<String, Object>> data = tasks(5);
+        Map<String, Long> previous = new HashMap<>();
+        for (String id : Arrays.asList("task-0", "task-1", "task-2")) {
+            previous.put(id, TaskBatchUploader.contentHash(data.get(id)));
+        }
+        data.get("task-1").put("title", "Đổi tên");
+        FakeTarget target = new FakeTarget();
+        List<TaskBatchUploader.Result> results = new ArrayList<>();
+
+        new TaskBatchUploader(target, 100).upload(data, previous, results::add);
+        target.completeAll(null);
+
+        assertEquals(1, target.writes.size());
+        assertEquals(new HashSet<>(Arrays.asList("task-1", "task-3", "task-4")), target.writes.get(0).keySet());
+        TaskBatchUploader.Result result = results.get(0);
+        assertEquals(2, result.skipped);
+        assertEquals(3, result.uploaded);
+        assertEquals(5, result.syncedHashes.size());
+        assertEquals(Long.valueOf(TaskBatchUploader.contentHash(data.get("task-1"))), result.syncedHashes.get("task-1"));
+    }
+
+    @Test
+    public void nothingChangedCompletesWithoutWriting() {
+        Map<String, Map<String, Object>> data = tasks(3);
+        Map<String, Long> previous = new HashMap<>();
+        for (Map.Entry<String, Map<String, Object>> entry : data.entrySet()) {
+            previous.put(entry.getKey(), TaskBatchUploader.contentHash(entry.getValue()));
+        }
+        FakeTarget target = new FakeTarget();
+        List<TaskBatchUploader.Result> results = new ArrayList<>();
+
+        new TaskBatchUploader(target, 2).upload(data, previous, results::add);
+
+        assertEquals(0, target.writes.size());
+        assertEquals(1, results.size());
+        assertEquals(3, results.get(0).skipped);
+        assertTrue(results.get(0).isSuccessful());
+    }
+
+    @Test
+    public void oneFailedChunkIsReportedWithoutLosingTheOthers() {
+        FakeTarget target = new FakeTarget();
+        List<TaskBatchUploader.Result> results = new ArrayList<>();
+
+        new TaskBatchUploader(target, 3).upload(tasks(8), Collections.emptyMap(), results::add);
+        Set<String> failedChunk = new HashSet<>(target.writes.get(1).keySet());
+        target.complete(0, null);
+        target.complete(1, "Permission denied");
+        assertTrue(results.isEmpty());
+        target.complete(2, "Disconnected");
+
+        TaskBatchUploader.Result result = results.get(0);
+        assertFalse(result.isSuccessful());
+        assertEquals(8, result.total);
+        assertEquals(3, result.uploaded);
+        assertEquals(5, result.failedTaskIds.size());
+        assertTrue(result.failedTaskIds.containsAll(failedChunk));
+        assertEquals("Permission denied", result.firstError);
+        // Only the chunk that made it is recorded as in sync, so the rest is retried next run
+        assertEquals(target.writes.get(0).keySet(), result.syncedHashes.keySet());
+    }
+
+    @Test
+    public void patchedTasksAreWrittenAsFieldPaths() {
+        Map<String, Map<String, Object>> data = new LinkedHashMap<>();
+        Map<String, Object> patch = new HashMap<>();
+        patch.put("isCompleted", true);
+        patch.put("lastModified", 1_760_000_000_000L);
+        data.put("patched", patch);
+        data.put("full", task("full"));
+        FakeTarget target = new FakeTarget();
+
+        new TaskBatchUploader(target, 10).upload(data, Collections.singleton("patched"), Collections.emptyMap(), result -> { });
+
+        Map<String, Object> updates = target.writes.get(0);
+        assertEquals(true, updates.get("patched/isCompleted"));
+        assertEquals(1_760_000_000_000L, updates.get("patched/lastModified"));
+        assertNull(updates.get("patched"));
+        assertNotNull(updates.get("full"));
+    }
+
+    @Test
+    public void contentHashIgnoresKeyOrderButNotTypes() {
+        Map<String, Object> first = new LinkedHashMap<>();
+        first.put("a", 1L);
+        first.put("b", "x");
+        Map<String, Object> second = new LinkedHashMap<>();
+        second.put("b", "x");
+        second.put("a", 1L);
+        Map<String, Object> stringValue = new LinkedHashMap<>(second);
+        stringValue.put("a", "1");
+
+        assertEquals(TaskBatchUploader.contentHash(first), TaskBatchUploader.contentHash(second));
+        assertNotEquals(TaskBatchUploader.contentHash(first), TaskBatchUploader.contentHash(stringValue));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void chunkSizeMustBePositive() {
+        new TaskBatchUploader(new FakeTarget(), 0);
+    }
+
+    private static Map<String, Map<String, Object>> tasks(int count) {
+        Map<String, Map<String, Object>> data = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            data.put("task-" + i, task("task-" + i));
+        }
+        return data;
+    }
+
+    private static Map<String, Object> task(String id) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", id);
+        map.put("title", "Task " + id);
+        map.put("isCompleted", false);
+        map.put("lastModified", 1_760_000_000_000L);
+        return map;
+    }
+
+    // Holds each write until the test completes it, like an updateChildren call waiting on the server
+    private static class FakeTarget implements TaskBatchUploader.UpdateTarget {
+        final List<Map<String, Object>> writes = new ArrayList<>();
+        final List<TaskBatchUploader.ResultListener> listeners = new ArrayList<>();
+
+        @Override
+        public void updateChildren(Map<String, Object> updates, TaskBatchUploader.ResultListener listener) {
+            writes.add(updates);
+            listeners.add(listener);
+        }
+
+        void complete(int index, String error) {
+            listeners.get(index).onComplete(error);
+        }
+
+        void completeAll(String error) {
+            for (TaskBatchUploader.ResultListener listener : listeners) {
+                listener.onComplete(error);
+            }
+        }
+    }
+}
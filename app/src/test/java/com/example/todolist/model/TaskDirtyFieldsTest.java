@@ -0,0 +1,93 @@
+package com.example.todolist.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The dirty set is what an update sends as a patch, a missed key is an edit that never reaches Firebase
+ */
+public class TaskDirtyFieldsTest {
+
+    @Test
+    public void settersReportTheirKeysOnce() {
+        Task task = loadedTask();
+
+        task.setTitle("Mới");
+        task.setCompleted(true);
+        task.setPriority("Cao");
+        task.setCategory("home");
+        task.setReminder("15 phút");
+        task.setRepeat("Hàng ngày");
+
+        assertEquals(new HashSet<>(Arrays.asList("title", "isCompleted", "completionDate", "isImportant", "priority",
+                "category", "categoryId", "reminderType", "hasReminder", "repeatType", "isRepeating")), task.takeDirtyFields());
+        assertTrue(task.takeDirtyFields().isEmpty());
+    }
+
+    @Test
+    public void aLoadedTaskStartsClean() {
+        assertTrue(loadedTask().takeDirtyFields().isEmpty());
+    }
+
+    @Test
+    public void editingASubTaskInPlaceMarksSubTasks() {
+        Task task = loadedTask();
+
+        task.getSubTasks().get(0).setCompleted(true);
+        assertEquals(new HashSet<>(Arrays.asList("subTasks")), task.takeDirtyFields());
+
+        task.getSubTasks().get(1).setTitle("Mua rau sạch");
+        assertEquals(new HashSet<>(Arrays.asList("subTasks")), task.takeDirtyFields());
+
+        // Same content again is not a change
+        task.getSubTasks().get(0).setCompleted(true);
+        assertTrue(task.takeDirtyFields().isEmpty());
+    }
+
+    @Test
+    public void addingAndRemovingSubTasksMarksSubTasks() {
+        Task task = loadedTask();
+
+        task.addSubTask(new SubTask("s3", "task-1", "Mua trứng", false, "05/10/2026"));
+        assertTrue(task.takeDirtyFields().contains("subTasks"));
+
+        task.removeSubTask(task.getSubTasks().get(0));
+        assertTrue(task.takeDirtyFields().contains("subTasks"));
+    }
+
+    @Test
+    public void restoredSubTasksAreNotDirty() {
+        Task task = loadedTask();
+        List<SubTask> stored = new ArrayList<>(task.getSubTasks());
+        stored.add(new SubTask("s3", "task-1", "Mua trứng", false, "05/10/2026"));
+
+        task.restoreSubTasks(stored);
+
+        Set<String> dirty = task.takeDirtyFields();
+        assertFalse(dirty.contains("subTasks"));
+    }
+
+    private static Task loadedTask() {
+        List<SubTask> subTasks = new ArrayList<>(Arrays.asList(
+                new SubTask("s1", "task-1", "Mua sữa", false, "02/10/2026"),
+                new SubTask("s2", "task-1", "Mua rau", false, "03/10/2026")));
+        return new Task.Builder()
+                .id("task-1")
+                .title("Đi chợ")
+                .category("work")
+                .createdAt("01/10/2026")
+                .updatedAt("01/10/2026")
+                .lastModified(1_760_000_000_000L)
+                .subTasks(subTasks)
+                .build();
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.todolist.notification;
+
+import android.Manifest;
+import android.app.Activity;
+import android.app.Application;
+import android.app.NotificationManager;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.todolist.database.ToDoDatabase;
+import com.example.todolist.database.entity.TaskEntity;
+import com.example.todolist.repository.DatabaseExecutors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.SQLiteMode;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * An alarm is answered from Room on the database lanes; the broadcast stays open until that work is done
+ */
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class NotificationReceiverTest {
+    // Well inside the ten seconds a receiver gets before the system reports it as not responding
+    private static final long ANSWER_BUDGET_MILLIS = 1_000;
+
+    private Application context;
+    private NotificationManager notificationManager;
+
+    @Before
+    public void setUp() throws Exception {
+        context = ApplicationProvider.getApplicationContext();
+        shadowOf(context).grantPermissions(Manifest.permission.POST_NOTIFICATIONS);
+        notificationManager = context.getSystemService(NotificationManager.class);
+        onBackgroundThread(() -> {
+            ToDoDatabase database = ToDoDatabase.getInstance(context);
+            database.clearAllTables();
+            database.taskDao().insertTask(task("open", false));
+            database.taskDao().insertTask(task("done", true));
+        });
+    }
+
+    @After
+    public void tearDown() {
+        ToDoDatabase.getInstance(context).close();
+        ToDoDatabase.destroyInstance();
+    }
+
+    @Test
+    public void alarmFinishesOnlyAfterTheDatabaseLane() throws Exception {
+        // Hold the write lane, where the next alarms are re-armed before finish()
+        CountDownLatch release = new CountDownLatch(1);
+        DatabaseExecutors.getInstance().executeWrite(() -> awaitQuietly(release));
+        AtomicInteger finished = new AtomicInteger();
+
+        sendAlarm("open", finished);
+        ShadowLooper.idleMainLooper();
+        Thread.sleep(100);
+        ShadowLooper.idleMainLooper();
+
+        // onReceive returned on the main thread without waiting for Room
+        assertEquals(0, finished.get());
+
+        long start = System.nanoTime();
+        release.countDown();
+        awaitFinished(finished);
+        long answerMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertEquals(1, finished.get());
+        assertTrue("Alarm answered " + answerMillis + " ms after the lane freed up",
+                answerMillis < ANSWER_BUDGET_MILLIS);
+        assertEquals(1, shadowOf(notificationManager).getAllNotifications().size());
+    }
+
+    @Test
+    public void completedOrMissingTasksFinishWithoutNotifying() throws Exception {
+        AtomicInteger finished = new AtomicInteger();
+
+        sendAlarm("done", finished);
+        sendAlarm("missing", finished);
+        awaitFinished(finished, 2);
+
+        assertEquals(2, finished.get());
+        assertEquals(0, shadowOf(notificationManager).getAllNotifications().size());
+    }
+
+    // The result receiver of an ordered broadcast runs once the receiver's PendingResult is finished
+    private void sendAlarm(String taskId, AtomicInteger finished) {
+        Intent intent = new Intent(NotificationReceiver.ACTION_REMINDER)
+                .setPackage(context.getPackageName())
+                .putExtra(NotificationReceiver.EXTRA_TASK_ID, taskId);
+        context.sendOrderedBroadcast(intent, null, new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                finished.incrementAndGet();
+            }
+        }, null, Activity.RESULT_OK, null, null);
+    }
+
+    private static void awaitFinished(AtomicInteger finished) throws InterruptedException {
+        awaitFinished(finished, 1);
+    }
+
+    private static void awaitFinished(AtomicInteger finished, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (finished.get() < expected && System.currentTimeMillis() < deadline) {
+            ShadowLooper.idleMainLooper();
+            Thread.sleep(5);
+        }
+    }
+
+    private static void onBackgroundThread(Runnable work) throws InterruptedException {
+        Thread thread = new Thread(work);
+        thread.start();
+        thread.join();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static TaskEntity task(String id, boolean completed) {
+        TaskEntity entity = new TaskEntity();
+        entity.id = id;
+        entity.title = "Task " + id;
+        entity.categoryId = "work";
+        entity.dueDate = "18/10/2026";
+        entity.dueTime = "09:00";
+        entity.reminderType = "15 phút trước";
+        entity.hasReminder = true;
+        entity.isCompleted = completed;
+        entity.createdAt = "01/10/2026";
+        entity.updatedAt = "01/10/2026";
+        entity.createdAtMillis = 0L;
+        return entity;
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.todolist.repository;
+
+import android.os.Looper;
+
+import com.example.todolist.util.MainThreadExecutor;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Work runs on a database lane and reaches the callback through exactly one main thread handoff
+ */
+@RunWith(RobolectricTestRunner.class)
+public class BaseRepositoryDeliverTest {
+
+    private final TestRepository repository = new TestRepository();
+    private final List<String> events = new ArrayList<>();
+    private final List<Looper> callbackLoopers = new ArrayList<>();
+
+    @Test
+    public void successIsHandedToMainOnce() throws Exception {
+        long handoffsBefore = MainThreadExecutor.getInstance().getHandoffCount();
+        CompletableFuture<String> future = repository.supplyWrite("Lỗi: ", () -> {
+            assertTrue(Looper.myLooper() != Looper.getMainLooper());
+            return "ok";
+        });
+
+        BaseRepository.deliver(future, callback());
+        awaitAndIdle(future, () -> !events.isEmpty());
+
+        assertEquals(Arrays.asList("success:ok"), events);
+        assertSame(Looper.getMainLooper(), callbackLoopers.get(0));
+        assertEquals(1, MainThreadExecutor.getInstance().getHandoffCount() - handoffsBefore);
+    }
+
+    @Test
+    public void repositoryExceptionIsHandedToMainOnce() throws Exception {
+        long handoffsBefore = MainThreadExecutor.getInstance().getHandoffCount();
+        CompletableFuture<String> future = repository.supplyRead("Lỗi đọc: ", () -> {
+            throw new IllegalStateException("hỏng");
+        });
+
+        BaseRepository.deliver(future, callback());
+        awaitAndIdle(future, () -> !events.isEmpty());
+
+        assertEquals(Arrays.asList("error:Lỗi đọc: hỏng"), events);
+        assertSame(Looper.getMainLooper(), callbackLoopers.get(0));
+        assertEquals(1, MainThreadExecutor.getInstance().getHandoffCount() - handoffsBefore);
+        try {
+            future.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RepositoryException);
+        }
+    }
+
+    @Test
+    public void listCallbackIsHandedToMainOnce() throws Exception {
+        long handoffsBefore = MainThreadExecutor.getInstance().getHandoffCount();
+        CompletableFuture<List<String>> future = repository.supplyRead("Lỗi: ", () -> Arrays.asList("a", "b"));
+        List<List<String>> results = new ArrayList<>();
+
+        BaseRepository.deliver(future, new BaseRepository.ListCallback<String>() {
+            @Override
+            public void onSuccess(List<String> result) {
+                results.add(result);
+            }
+
+            @Override
+            public void onError(String error) {
+                fail(error);
+            }
+        });
+        awaitAndIdle(future, () -> !results.isEmpty());
+
+        assertEquals(1, results.size());
+        assertEquals(Arrays.asList("a", "b"), results.get(0));
+        assertEquals(1, MainThreadExecutor.getInstance().getHandoffCount() - handoffsBefore);
+    }
+
+    @Test
+    public void completedFutureIsStillPostedNotCalledInline() {
+        BaseRepository.deliver(CompletableFuture.completedFuture("ok"), callback());
+
+        assertTrue(events.isEmpty());
+        ShadowLooper.idleMainLooper();
+        assertEquals(Arrays.asList("success:ok"), events);
+    }
+
+    @Test
+    public void nullCallbackCostsNoHandoff() throws Exception {
+        long handoffsBefore = MainThreadExecutor.getInstance().getHandoffCount();
+        CompletableFuture<String> future = repository.supplyWrite("Lỗi: ", () -> "ok");
+
+        BaseRepository.deliver(future, (BaseRepository.DatabaseCallback<String>) null);
+        awaitAndIdle(future, () -> true);
+
+        assertEquals(0, MainThreadExecutor.getInstance().getHandoffCount() - handoffsBefore);
+    }
+
+    private BaseRepository.DatabaseCallback<String> callback() {
+        return new BaseRepository.DatabaseCallback<String>() {
+            @Override
+            public void onSuccess(String result) {
+                events.add("success:" + result);
+                callbackLoopers.add(Looper.myLooper());
+            }
+
+            @Override
+            public void onError(String error) {
+                events.add("error:" + error);
+                callbackLoopers.add(Looper.myLooper());
+            }
+        };
+    }
+
+    // whenComplete posts from the lane thread just after the future completes, so get() alone can return first
+    private static void awaitAndIdle(CompletableFuture<?> future, BooleanSupplier delivered) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!(future.isDone() && delivered.getAsBoolean()) && System.currentTimeMillis() < deadline) {
+            ShadowLooper.idleMainLooper();
+            Thread.sleep(5);
+        }
+        // Anything posted after the first delivery would show up here as a second one
+        Thread.sleep(50);
+        ShadowLooper.idleMainLooper();
+    }
+
+    private static class TestRepository extends BaseRepository {
+    }
+}
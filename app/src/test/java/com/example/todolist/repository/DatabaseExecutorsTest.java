@@ -0,0 +1,138 @@
+package com.example.todolist.repository;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Lanes keep a fixed thread count, run writes in submit order and never block whoever submits
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DatabaseExecutorsTest {
+
+    @Test
+    public void threadCountStaysFlatUnderLoad() throws Exception {
+        DatabaseExecutors executors = new DatabaseExecutors(64);
+        int tasks = 10_000;
+        CountDownLatch done = new CountDownLatch(tasks * 2);
+        AtomicInteger maxThreads = new AtomicInteger();
+
+        for (int i = 0; i < tasks; i++) {
+            executors.executeRead(() -> {
+                maxThreads.accumulateAndGet(executors.getActiveThreadCount(), Math::max);
+                done.countDown();
+            });
+            executors.executeWrite(done::countDown);
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+
+        DatabaseExecutors.LaneStats read = executors.getReadStats();
+        DatabaseExecutors.LaneStats write = executors.getWriteStats();
+        assertTrue("threads: " + maxThreads.get(), maxThreads.get() <= 4);
+        assertTrue(read.poolSize <= 3);
+        assertTrue(write.poolSize <= 1);
+        assertEquals(tasks, waitForCompleted(executors, true, tasks));
+        assertEquals(tasks, waitForCompleted(executors, false, tasks));
+    }
+
+    @Test
+    public void writesRunInSubmitOrder() throws Exception {
+        DatabaseExecutors executors = new DatabaseExecutors(16);
+        List<Integer> order = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(1000);
+        for (int i = 0; i < 1000; i++) {
+            int value = i;
+            executors.executeWrite(() -> {
+                order.add(value);
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, (int) order.get(i));
+        }
+    }
+
+    @Test
+    public void busyLaneNeverBlocksTheProducer() throws Exception {
+        int warningDepth = 4;
+        DatabaseExecutors executors = new DatabaseExecutors(warningDepth);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(1);
+        executors.executeWrite(() -> {
+            running.countDown();
+            awaitQuietly(release);
+        });
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        int backlog = warningDepth * 10;
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(backlog);
+        for (int i = 0; i < backlog; i++) {
+            int value = i;
+            executors.executeWrite(() -> {
+                order.add(value);
+                done.countDown();
+            });
+        }
+        assertEquals(backlog, executors.getWriteStats().queueDepth);
+        assertEquals(backlog, executors.getWriteStats().maxQueueDepth);
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < backlog; i++) {
+            assertEquals(i, (int) order.get(i));
+        }
+    }
+
+    @Test
+    public void writeLaneCanQueueItsOwnFollowUpsPastTheWarningDepth() throws Exception {
+        int warningDepth = 2;
+        DatabaseExecutors executors = new DatabaseExecutors(warningDepth);
+        int followUps = warningDepth * 10;
+        CountDownLatch done = new CountDownLatch(followUps);
+        AtomicBoolean queuedAll = new AtomicBoolean();
+
+        executors.executeWrite(() -> {
+            for (int i = 0; i < followUps; i++) {
+                executors.executeWrite(done::countDown);
+            }
+            queuedAll.set(true);
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(queuedAll.get());
+        assertTrue(executors.getWriteStats().maxQueueDepth >= followUps - 1);
+    }
+
+    // completedTasks is counted after the task body, so it can trail the latch briefly
+    private static long waitForCompleted(DatabaseExecutors executors, boolean read, long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        long completed;
+        do {
+            completed = read ? executors.getReadStats().completedTasks : executors.getWriteStats().completedTasks;
+            if (completed >= expected) break;
+            Thread.sleep(10);
+        } while (System.currentTimeMillis() < deadline);
+        return completed;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
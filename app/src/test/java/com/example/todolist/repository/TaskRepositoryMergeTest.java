@@ -0,0 +1,162 @@
+package com.example.todolist.repository;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteConstraintException;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.todolist.database.ToDoDatabase;
+import com.example.todolist.database.entity.SubTaskEntity;
+import com.example.todolist.database.entity.TaskEntity;
+import com.example.todolist.model.SubTask;
+import com.example.todolist.model.Task;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * A remote batch is applied in one transaction, with subtasks written ahead of their tasks
+ */
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class TaskRepositoryMergeTest {
+    private static final long LAST_MODIFIED = 1_760_000_000_000L;
+
+    // Statements seen by the query callback, BEGIN and END included, with the thread that ran them
+    private final List<String> statements = Collections.synchronizedList(new ArrayList<>());
+    private final List<Thread> statementThreads = Collections.synchronizedList(new ArrayList<>());
+    private ToDoDatabase database;
+    private TaskRepository repository;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, ToDoDatabase.class)
+                .allowMainThreadQueries()
+                .setQueryCallback((sql, args) -> {
+                    synchronized (statements) {
+                        statements.add(sql);
+                        statementThreads.add(Thread.currentThread());
+                    }
+                }, Runnable::run)
+                .build();
+        repository = new TaskRepository(database);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void wholeBatchIsOneTransaction() throws Exception {
+        List<Task> upserts = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            upserts.add(remoteTask("task-" + i, "Bước 1", "Bước 2"));
+        }
+        synchronized (statements) {
+            statements.clear();
+            statementThreads.clear();
+        }
+
+        repository.mergeRemoteTasksAsync(upserts, Collections.singletonList("task-0")).get();
+
+        // Only the write lane is looked at, Room refreshes its invalidation tracker on another thread.
+        // DAO methods open nested transactions; only the outermost one reaches SQLite
+        List<String> laneStatements = new ArrayList<>();
+        synchronized (statements) {
+            Thread lane = statementThreads.get(statements.indexOf("PRAGMA defer_foreign_keys = ON"));
+            for (int i = 0; i < statements.size(); i++) {
+                if (statementThreads.get(i) == lane) laneStatements.add(statements.get(i));
+            }
+        }
+        int depth = 0;
+        int outermost = 0;
+        int writesOutside = 0;
+        for (String sql : laneStatements) {
+            if (sql.startsWith("BEGIN")) {
+                if (depth++ == 0) outermost++;
+            } else if (sql.startsWith("END")) {
+                depth--;
+            } else if (depth == 0 && (sql.startsWith("INSERT") || sql.startsWith("UPDATE") || sql.startsWith("DELETE"))) {
+                writesOutside++;
+            }
+        }
+        assertEquals(1, outermost);
+        assertEquals(0, depth);
+        assertEquals(0, writesOutside);
+        assertEquals(49, database.taskDao().getAllTasks().size());
+    }
+
+    @Test
+    public void subTasksAheadOfTheirTaskPassTheDeferredCheck() throws Exception {
+        // Foreign keys are enforced, an orphan outside the merge is rejected at once
+        try {
+            database.subTaskDao().insertSubTask(new SubTaskEntity("orphan", "nobody", "Mồ côi", false, "01/10/2026"));
+            fail();
+        } catch (SQLiteConstraintException expected) {
+        }
+
+        repository.mergeRemoteTasksAsync(Collections.singletonList(remoteTask("new", "Mua sữa", "Mua rau")),
+                new ArrayList<>()).get();
+
+        List<SubTaskEntity> subTasks = database.subTaskDao().getSubTasksByTaskId("new");
+        assertEquals(2, subTasks.size());
+        TaskEntity stored = database.taskDao().getTaskById("new");
+        assertEquals(Long.valueOf(LAST_MODIFIED), stored.updatedAtMillis);
+        assertEquals("01/10/2026", stored.createdAt);
+    }
+
+    @Test
+    public void storedSubTasksAreReplacedByTheRemoteOnes() throws Exception {
+        repository.mergeRemoteTasksAsync(Collections.singletonList(remoteTask("t", "Cũ 1", "Cũ 2")), new ArrayList<>()).get();
+
+        repository.mergeRemoteTasksAsync(Collections.singletonList(remoteTask("t", "Mới")), new ArrayList<>()).get();
+
+        List<SubTaskEntity> subTasks = database.subTaskDao().getSubTasksByTaskId("t");
+        assertEquals(1, subTasks.size());
+        assertEquals("Mới", subTasks.get(0).title);
+    }
+
+    @Test
+    public void deletedTasksTakeTheirSubTasks() throws Exception {
+        repository.mergeRemoteTasksAsync(Arrays.asList(remoteTask("gone", "Bước 1", "Bước 2"), remoteTask("kept", "Bước 1")),
+                new ArrayList<>()).get();
+
+        repository.mergeRemoteTasksAsync(new ArrayList<>(), Collections.singletonList("gone")).get();
+
+        assertNull(database.taskDao().getTaskById("gone"));
+        assertEquals(0, database.subTaskDao().getSubTasksByTaskId("gone").size());
+        assertEquals(1, database.subTaskDao().getSubTasksByTaskId("kept").size());
+    }
+
+    private static Task remoteTask(String id, String... subTaskTitles) {
+        List<SubTask> subTasks = new ArrayList<>();
+        for (int i = 0; i < subTaskTitles.length; i++) {
+            subTasks.add(new SubTask(id + "-sub-" + i, id, subTaskTitles[i], false, "02/10/2026"));
+        }
+        return new Task.Builder()
+                .id(id)
+                .title("Task " + id)
+                .category("work")
+                .createdAt("01/10/2026")
+                .updatedAt("05/10/2026")
+                .lastModified(LAST_MODIFIED)
+                .subTasks(subTasks)
+                .build();
+    }
+}
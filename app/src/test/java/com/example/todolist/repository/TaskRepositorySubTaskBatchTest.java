@@ -0,0 +1,125 @@
+package com.example.todolist.repository;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.todolist.database.ToDoDatabase;
+import com.example.todolist.database.entity.SubTaskEntity;
+import com.example.todolist.database.entity.TaskEntity;
+import com.example.todolist.model.Task;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Subtasks of a task list are loaded with one IN query per 900 tasks instead of one query per task
+ */
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class TaskRepositorySubTaskBatchTest {
+    private static final String CATEGORY = "work";
+    private static final int SUBTASKS_PER_TASK = 3;
+
+    private final AtomicInteger subTaskQueries = new AtomicInteger();
+    private ToDoDatabase database;
+    private TaskRepository repository;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, ToDoDatabase.class)
+                .allowMainThreadQueries()
+                .setQueryCallback((sql, args) -> {
+                    if (sql.contains("FROM subtasks")) subTaskQueries.incrementAndGet();
+                }, Runnable::run)
+                .build();
+        repository = new TaskRepository(database);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void subTaskQueriesGrowWithChunksNotTasks() throws Exception {
+        for (int taskCount : new int[]{100, 1000, 5000}) {
+            database.clearAllTables();
+            insertTasks(taskCount);
+
+            subTaskQueries.set(0);
+            long start = System.nanoTime();
+            List<Task> tasks = repository.getTasksByCategoryAsync(CATEGORY).get();
+            long batchedMicros = (System.nanoTime() - start) / 1000;
+            int batchedQueries = subTaskQueries.get();
+
+            assertEquals(taskCount, tasks.size());
+            for (Task task : tasks) {
+                assertEquals(SUBTASKS_PER_TASK, task.getSubTasks().size());
+            }
+            assertEquals((taskCount + 899) / 900, batchedQueries);
+
+            // The per-task loop the batching replaced, for comparison
+            subTaskQueries.set(0);
+            start = System.nanoTime();
+            for (Task task : tasks) {
+                database.subTaskDao().getSubTasksByTaskId(task.getId());
+            }
+            long perTaskMicros = (System.nanoTime() - start) / 1000;
+            assertEquals(taskCount, subTaskQueries.get());
+
+            if (taskCount >= 1000) {
+                assertTrue(taskCount + " tasks: batched " + batchedMicros + " us, per task " + perTaskMicros + " us",
+                        batchedMicros < perTaskMicros);
+            }
+        }
+    }
+
+    @Test
+    public void tasksWithoutSubTasksGetAnEmptyList() throws Exception {
+        database.taskDao().insertTask(task("lonely"));
+
+        List<Task> tasks = repository.getTasksByCategoryAsync(CATEGORY).get();
+
+        assertEquals(1, tasks.size());
+        assertEquals(0, tasks.get(0).getSubTasks().size());
+    }
+
+    private void insertTasks(int taskCount) {
+        database.runInTransaction(() -> {
+            List<SubTaskEntity> subTasks = new ArrayList<>();
+            for (int i = 0; i < taskCount; i++) {
+                String taskId = "task-" + i;
+                database.taskDao().insertTask(task(taskId));
+                for (int j = 0; j < SUBTASKS_PER_TASK; j++) {
+                    subTasks.add(new SubTaskEntity(taskId + "-sub-" + j, taskId, "Bước " + j, false, "01/01/2026"));
+                }
+            }
+            database.subTaskDao().upsertSubTasks(subTasks);
+        });
+    }
+
+    private static TaskEntity task(String id) {
+        TaskEntity entity = new TaskEntity();
+        entity.id = id;
+        entity.title = "Task " + id;
+        entity.categoryId = CATEGORY;
+        entity.createdAt = "01/01/2026";
+        entity.updatedAt = "01/01/2026";
+        entity.createdAtMillis = 0L;
+        return entity;
+    }
+}
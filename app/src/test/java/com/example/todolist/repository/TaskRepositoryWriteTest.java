@@ -0,0 +1,99 @@
+package com.example.todolist.repository;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.todolist.database.ToDoDatabase;
+import com.example.todolist.model.Task;
+import com.example.todolist.util.DateCodec;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Writes stamp and copy the task on the calling thread, the write lane never reads the shared instance
+ */
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class TaskRepositoryWriteTest {
+    private static final String OLD_DATE = "01/01/2020";
+
+    private ToDoDatabase database;
+    private TaskRepository repository;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, ToDoDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        repository = new TaskRepository(database);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void addStampsAndCopiesBeforeTheWriteLaneRuns() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        DatabaseExecutors.getInstance().executeWrite(() -> awaitQuietly(release));
+        Task task = new Task();
+        task.setTitle("Đi chợ");
+        task.setCreatedAt(OLD_DATE);
+        task.setUpdatedAt(OLD_DATE);
+
+        CompletableFuture<String> added = repository.addTaskAsync(task);
+
+        assertFalse(added.isDone());
+        assertNotNull(task.getId());
+        assertEquals(DateCodec.todayString(), task.getCreatedAt());
+        assertEquals(DateCodec.todayString(), task.getUpdatedAt());
+        // An edit made while the insert waits in the lane belongs to the next write
+        task.setTitle("Đi siêu thị");
+        release.countDown();
+
+        assertEquals(task.getId(), added.get(5, TimeUnit.SECONDS));
+        assertEquals("Đi chợ", database.taskDao().getTaskById(task.getId()).title);
+    }
+
+    @Test
+    public void updateStampsBeforeTheWriteLaneRuns() throws Exception {
+        Task task = new Task();
+        task.setTitle("Báo cáo");
+        repository.addTaskAsync(task).get(5, TimeUnit.SECONDS);
+        task.setUpdatedAt(OLD_DATE);
+        CountDownLatch release = new CountDownLatch(1);
+        DatabaseExecutors.getInstance().executeWrite(() -> awaitQuietly(release));
+
+        CompletableFuture<Boolean> updated = repository.updateTaskAsync(task);
+
+        assertFalse(updated.isDone());
+        assertEquals(DateCodec.todayString(), task.getUpdatedAt());
+        release.countDown();
+        updated.get(5, TimeUnit.SECONDS);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.todolist.repository;
+
+import com.example.todolist.database.ToDoDatabase;
+
+/**
+ * Lets tests outside this package build a repository over an in-memory database
+ */
+public final class TestRepositories {
+
+    private TestRepositories() {
+    }
+
+    public static TaskRepository taskRepository(ToDoDatabase database) {
+        return new TaskRepository(database);
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.todolist.service.sharing;
+
+import com.example.todolist.model.Task;
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.ValueEventListener;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * A subscription that waited for a listener slot reports the task as it is once attached,
+ * and nothing is dispatched for subscriptions that were removed
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SharedTaskSubscriptionsTest {
+    private final List<String> events = new ArrayList<>();
+    private final List<Set<String>> changedFields = new ArrayList<>();
+    private DatabaseReference reference;
+    private SharedTaskSubscriptions subscriptions;
+
+    @Before
+    public void setUp() {
+        // child() hands back the same reference, so listeners are captured in subscription order
+        reference = mock(DatabaseReference.class, RETURNS_SELF);
+        subscriptions = new SharedTaskSubscriptions(reference);
+        subscriptions.addDeltaListener(new SharedTaskSubscriptions.DeltaListener() {
+            @Override
+            public void onSharedTaskChanged(Task task, Set<String> fields) {
+                events.add("changed:" + task.getId() + ":" + task.getTitle());
+                changedFields.add(fields);
+            }
+
+            @Override
+            public void onSharedTaskRemoved(String taskId) {
+                events.add("removed:" + taskId);
+            }
+        });
+    }
+
+    @Test
+    public void queuedSubscriptionDeliversItsStateWhenActivated() {
+        for (int i = 0; i < SharedTaskSubscriptions.MAX_ACTIVE_LISTENERS; i++) {
+            subscriptions.subscribe("t" + i, "owner@b.c");
+        }
+        subscriptions.subscribe("late", "owner@b.c");
+        assertEquals(SharedTaskSubscriptions.MAX_ACTIVE_LISTENERS, childListeners().size());
+
+        // A slot frees up after the owner already edited the queued task
+        subscriptions.unsubscribe("t0");
+        List<ChildEventListener> children = childListeners();
+        assertEquals(SharedTaskSubscriptions.MAX_ACTIVE_LISTENERS + 1, children.size());
+        ChildEventListener late = children.get(children.size() - 1);
+        late.onChildAdded(snapshot("title", "Đi chợ"), null);
+        late.onChildAdded(snapshot("lastModified", 5L), null);
+        assertTrue(events.isEmpty());
+
+        List<ValueEventListener> primers = primeListeners();
+        primers.get(primers.size() - 1).onDataChange(mock(DataSnapshot.class));
+        ShadowLooper.idleMainLooper();
+
+        assertEquals(Arrays.asList("changed:late:Đi chợ"), events);
+        assertEquals(new HashSet<>(Arrays.asList("title", "lastModified")), changedFields.get(0));
+    }
+
+    @Test
+    public void subscriptionThatNeverWaitedIsNotRedelivered() {
+        subscriptions.subscribe("t1", "owner@b.c");
+        childListeners().get(0).onChildAdded(snapshot("title", "Đi chợ"), null);
+        primeListeners().get(0).onDataChange(mock(DataSnapshot.class));
+        ShadowLooper.idleMainLooper();
+
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void unsubscribeAllDropsAnAlreadyPostedDispatch() {
+        subscriptions.subscribe("t1", "owner@b.c");
+        ChildEventListener child = childListeners().get(0);
+        child.onChildAdded(snapshot("title", "Đi chợ"), null);
+        primeListeners().get(0).onDataChange(mock(DataSnapshot.class));
+
+        child.onChildChanged(snapshot("title", "Đi siêu thị"), null);
+        subscriptions.unsubscribeAll();
+        ShadowLooper.idleMainLooper();
+
+        assertTrue(events.isEmpty());
+    }
+
+    private List<ChildEventListener> childListeners() {
+        ArgumentCaptor<ChildEventListener> captor = ArgumentCaptor.forClass(ChildEventListener.class);
+        verify(reference, atLeastOnce()).addChildEventListener(captor.capture());
+        return captor.getAllValues();
+    }
+
+    private List<ValueEventListener> primeListeners() {
+        ArgumentCaptor<ValueEventListener> captor = ArgumentCaptor.forClass(ValueEventListener.class);
+        verify(reference, atLeastOnce()).addListenerForSingleValueEvent(captor.capture());
+        return captor.getAllValues();
+    }
+
+    private static DataSnapshot snapshot(String key, Object value) {
+        DataSnapshot snapshot = mock(DataSnapshot.class);
+        when(snapshot.getKey()).thenReturn(key);
+        when(snapshot.getValue()).thenReturn(value);
+        return snapshot;
+    }
+}
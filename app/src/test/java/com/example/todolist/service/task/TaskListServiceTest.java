@@ -0,0 +1,156 @@
+package com.example.todolist.service.task;
+
+import com.example.todolist.cache.TaskCache;
+import com.example.todolist.cache.TaskChangeSet;
+import com.example.todolist.model.Task;
+import com.example.todolist.util.DateCodec;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Delta updates must leave the lists exactly as a full categorize would, order included
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TaskListServiceTest {
+    private static final long TODAY = DateCodec.toEpochDay(2026, 10, 18);
+
+    private final List<TaskChangeSet> delivered = new ArrayList<>();
+    private final TaskCache taskCache = TaskCache.getInstance();
+    private TaskListService service;
+
+    @Before
+    public void setUp() {
+        taskCache.clear();
+        taskCache.addListener(new TaskCache.TaskCacheDeltaListener() {
+            @Override public void onTasksChanged(TaskChangeSet changes) { delivered.add(changes); }
+            @Override public void onTasksUpdated(List<Task> tasks) { }
+            @Override public void onTaskAdded(Task task) { }
+            @Override public void onTaskUpdated(Task task) { }
+            @Override public void onTaskDeleted(String taskId) { }
+        });
+        service = new TaskListService();
+
+        taskCache.loadFromSnapshot(Arrays.asList(
+                task("a", TODAY - 2, "08:00"),
+                task("b", TODAY - 1, null),
+                task("c", TODAY, "10:00"),
+                task("d", TODAY, "14:00"),
+                task("e", TODAY + 1, "09:00"),
+                task("f", TODAY + 3, null),
+                task("g", null, null)));
+        service.applyChanges(nextChanges(), taskCache, TODAY);
+    }
+
+    @After
+    public void tearDown() {
+        taskCache.clear();
+    }
+
+    @Test
+    public void fullRefreshIsSortedByDueDateAndTime() {
+        assertIds(service.getOverdueTasks(), "a", "b");
+        assertIds(service.getTodayTasks(), "c", "d");
+        assertIds(service.getFutureTasks(), "e", "f", "g");
+    }
+
+    @Test
+    public void updatedTaskIsRefiledInOrder() {
+        Task late = taskCache.getTask("d");
+        late.setDueTime("07:30");
+        taskCache.updateTaskOptimistic(late);
+        service.applyChanges(nextChanges(), taskCache, TODAY);
+
+        assertIds(service.getTodayTasks(), "d", "c");
+        assertMatchesFullPass();
+    }
+
+    @Test
+    public void addedAndMovedTasksLandInPlace() {
+        taskCache.addTaskOptimistic(task("h", TODAY + 2, "12:00"));
+        Task overdue = taskCache.getTask("a");
+        overdue.setDueDate(DateCodec.formatDate(TODAY + 1));
+        overdue.setDueTime("08:00");
+        taskCache.updateTaskOptimistic(overdue);
+        taskCache.deleteTaskOptimistic("f");
+        service.applyChanges(nextChanges(), taskCache, TODAY);
+
+        assertIds(service.getOverdueTasks(), "b");
+        assertIds(service.getFutureTasks(), "a", "e", "h", "g");
+        assertMatchesFullPass();
+    }
+
+    @Test
+    public void completedTodayStaysSorted() {
+        for (String taskId : new String[]{"d", "c"}) {
+            Task task = taskCache.getTask(taskId);
+            task.setCompleted(true);
+            task.setCompletionDate(DateCodec.formatDate(TODAY));
+            taskCache.updateTaskOptimistic(task);
+            service.applyChanges(nextChanges(), taskCache, TODAY);
+        }
+
+        assertIds(service.getTodayTasks());
+        assertIds(service.getCompletedTodayTasks(), "c", "d");
+        assertMatchesFullPass();
+    }
+
+    @Test
+    public void newDayFallsBackToFullPass() {
+        // Only "g" changes, but after midnight every dated task may have moved
+        Task undated = taskCache.getTask("g");
+        undated.setTitle("Đổi tên");
+        taskCache.updateTaskOptimistic(undated);
+        service.applyChanges(nextChanges(), taskCache, TODAY + 1);
+
+        assertIds(service.getOverdueTasks(), "a", "b", "c", "d");
+        assertIds(service.getTodayTasks(), "e");
+        assertIds(service.getFutureTasks(), "f", "g");
+    }
+
+    private TaskChangeSet nextChanges() {
+        ShadowLooper.idleMainLooper(100, TimeUnit.MILLISECONDS);
+        assertEquals(1, delivered.size());
+        return delivered.remove(0);
+    }
+
+    private void assertMatchesFullPass() {
+        TaskListService full = new TaskListService();
+        full.categorizeTasks(taskCache.getAllTasks(), TODAY);
+        assertEquals(ids(full.getOverdueTasks()), ids(service.getOverdueTasks()));
+        assertEquals(ids(full.getTodayTasks()), ids(service.getTodayTasks()));
+        assertEquals(ids(full.getFutureTasks()), ids(service.getFutureTasks()));
+        assertEquals(ids(full.getCompletedTodayTasks()), ids(service.getCompletedTodayTasks()));
+    }
+
+    private static void assertIds(List<Task> tasks, String... expected) {
+        assertEquals(Arrays.asList(expected), ids(tasks));
+    }
+
+    private static List<String> ids(List<Task> tasks) {
+        List<String> ids = new ArrayList<>();
+        for (Task task : tasks) {
+            assertNotNull(task.getId());
+            ids.add(task.getId());
+        }
+        return ids;
+    }
+
+    private static Task task(String id, Long dueEpochDay, String dueTime) {
+        Task task = new Task("Công việc " + id, null, dueEpochDay != null ? DateCodec.formatDate(dueEpochDay) : null, dueTime);
+        task.setId(id);
+        return task;
+    }
+}
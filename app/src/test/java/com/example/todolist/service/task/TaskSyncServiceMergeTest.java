@@ -0,0 +1,181 @@
+package com.example.todolist.service.task;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.todolist.cache.TaskCache;
+import com.example.todolist.database.ToDoDatabase;
+import com.example.todolist.database.entity.PendingOperationEntity;
+import com.example.todolist.database.mapper.TaskMapper;
+import com.example.todolist.manager.FirebaseSyncManager;
+import com.example.todolist.model.Task;
+import com.example.todolist.repository.TestRepositories;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.SQLiteMode;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Last writer wins on lastModified, and a device back from a long absence drops what was deleted while it was away
+ */
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class TaskSyncServiceMergeTest {
+    private static final long WATERMARK = 1_760_000_000_000L;
+
+    private final TaskCache taskCache = TaskCache.getInstance();
+    private ToDoDatabase database;
+    private TaskSyncService service;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, ToDoDatabase.class).build();
+        taskCache.clear();
+        service = new TaskSyncService(TestRepositories.taskRepository(database), taskCache);
+    }
+
+    @After
+    public void tearDown() {
+        taskCache.clear();
+        database.close();
+    }
+
+    @Test
+    public void newerSideWinsAndTombstonesDelete() throws Exception {
+        seedLocal(task("kept", WATERMARK + 500), task("replaced", WATERMARK - 500), task("gone", WATERMARK - 500));
+        Task staleRemote = task("kept", WATERMARK);
+        staleRemote.setTitle("Cũ hơn");
+        Task newerRemote = task("replaced", WATERMARK);
+        newerRemote.setTitle("Mới hơn");
+        Map<String, Long> deleted = new HashMap<>();
+        deleted.put("gone", WATERMARK);
+
+        await(service.mergeFirebaseChangesWithLocal(new FirebaseSyncManager.TaskDelta(
+                Arrays.asList(staleRemote, newerRemote, task("added", WATERMARK)), deleted, WATERMARK, false, WATERMARK - 1000)));
+
+        assertEquals("Task kept", database.taskDao().getTaskById("kept").title);
+        assertEquals("Mới hơn", database.taskDao().getTaskById("replaced").title);
+        assertNotNull(database.taskDao().getTaskById("added"));
+        assertNull(database.taskDao().getTaskById("gone"));
+        assertNull(taskCache.getTask("gone"));
+    }
+
+    @Test
+    public void tombstoneCarryingOurOwnPatchStillDeletes() throws Exception {
+        // Our patch landed on a tombstone and stamped it with our edit's lastModified
+        seedLocal(task("patched", WATERMARK));
+        Map<String, Long> deleted = new HashMap<>();
+        deleted.put("patched", WATERMARK);
+
+        await(service.mergeFirebaseChangesWithLocal(new FirebaseSyncManager.TaskDelta(
+                new ArrayList<>(), deleted, WATERMARK, false, WATERMARK - 1000)));
+
+        assertNull(database.taskDao().getTaskById("patched"));
+        assertNull(taskCache.getTask("patched"));
+    }
+
+    @Test
+    public void expiredWatermarkSnapshotDropsTasksDeletedElsewhere() throws Exception {
+        Task shared = task("shared", WATERMARK - 500);
+        shared.setShared(true);
+        seedLocal(task("deleted-elsewhere", WATERMARK - 500), task("waiting-upload", WATERMARK - 500),
+                task("created-offline", WATERMARK + 500), task("present", WATERMARK - 500), shared);
+        database.pendingOperationDao().upsertOperation(
+                new PendingOperationEntity("waiting-upload", "a@b.c", WATERMARK));
+
+        await(service.mergeFirebaseChangesWithLocal(new FirebaseSyncManager.TaskDelta(
+                Collections.singletonList(task("present", WATERMARK - 500)), new HashMap<>(), WATERMARK, true, WATERMARK)));
+
+        assertNull(database.taskDao().getTaskById("deleted-elsewhere"));
+        assertNull(taskCache.getTask("deleted-elsewhere"));
+        assertNotNull(database.taskDao().getTaskById("waiting-upload"));
+        assertNotNull(database.taskDao().getTaskById("created-offline"));
+        assertNotNull(database.taskDao().getTaskById("present"));
+        assertNotNull(taskCache.getTask("shared"));
+    }
+
+    @Test
+    public void firstFullSnapshotKeepsLocalOnlyTasks() throws Exception {
+        seedLocal(task("local-only", WATERMARK - 500));
+
+        await(service.mergeFirebaseChangesWithLocal(new FirebaseSyncManager.TaskDelta(
+                Collections.singletonList(task("remote", WATERMARK)), new HashMap<>(), WATERMARK, true, 0)));
+
+        assertNotNull(database.taskDao().getTaskById("local-only"));
+        assertNotNull(database.taskDao().getTaskById("remote"));
+    }
+
+    @Test
+    public void mergeLooksUpByIdInsteadOfScanning() throws Exception {
+        int count = 5000;
+        List<Task> local = new ArrayList<>();
+        List<Task> remote = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            local.add(task("task-" + i, WATERMARK - 500));
+            remote.add(task("task-" + (i + count / 2), WATERMARK));
+        }
+        seedLocal(local.toArray(new Task[0]));
+
+        long start = System.nanoTime();
+        await(service.mergeFirebaseChangesWithLocal(new FirebaseSyncManager.TaskDelta(
+                remote, new HashMap<>(), WATERMARK, false, WATERMARK - 1000)));
+        long mergeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(count + count / 2, database.taskDao().getAllTasks().size());
+        assertEquals(count + count / 2, taskCache.getAllTasks().size());
+        // Half a millisecond per remote task, Room write included, leaves no room for a scan of the local list
+        assertTrue(count + " remote tasks merged in " + mergeMillis + " ms", mergeMillis < count / 2);
+    }
+
+    private void seedLocal(Task... tasks) {
+        database.runInTransaction(() -> {
+            for (Task task : tasks) {
+                database.taskDao().insertTask(TaskMapper.toEntity(task));
+            }
+        });
+        taskCache.loadFromSnapshot(Arrays.asList(tasks));
+    }
+
+    // The merge finishes on the main looper, which is this thread
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!future.isDone() && System.currentTimeMillis() < deadline) {
+            ShadowLooper.idleMainLooper();
+            Thread.sleep(5);
+        }
+        assertTrue(future.isDone());
+        return future.get();
+    }
+
+    private static Task task(String id, long lastModified) {
+        return new Task.Builder()
+                .id(id)
+                .title("Task " + id)
+                .category("work")
+                .createdAt("01/10/2026")
+                .updatedAt("01/10/2026")
+                .lastModified(lastModified)
+                .build();
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.todolist.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class DateCodecTest {
+    private final AtomicLong now = new AtomicLong();
+    private TimeZone defaultTimeZone;
+
+    @Before
+    public void setUp() {
+        defaultTimeZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Ho_Chi_Minh"));
+        DateCodec.setClock(now::get);
+    }
+
+    @After
+    public void tearDown() {
+        DateCodec.setClock(null);
+        TimeZone.setDefault(defaultTimeZone);
+    }
+
+    @Test
+    public void parsesDayMonthYear() {
+        assertEquals(Long.valueOf(LocalDate.of(2026, 10, 18).toEpochDay()), DateCodec.parseEpochDay("18/10/2026"));
+        assertEquals(Long.valueOf(LocalDate.of(2026, 1, 5).toEpochDay()), DateCodec.parseEpochDay("5/1/2026"));
+        assertEquals(Long.valueOf(LocalDate.of(2024, 2, 29).toEpochDay()), DateCodec.parseEpochDay("29/02/2024"));
+        assertEquals(Long.valueOf(LocalDate.of(1970, 1, 1).toEpochDay()), DateCodec.parseEpochDay("01/01/1970"));
+    }
+
+    @Test
+    public void parsesLegacyYearMonthDay() {
+        assertEquals(Long.valueOf(LocalDate.of(2026, 10, 18).toEpochDay()), DateCodec.parseEpochDay("2026/10/18"));
+        assertEquals(Long.valueOf(LocalDate.of(2026, 1, 5).toEpochDay()), DateCodec.parseEpochDay("2026/1/5"));
+        assertEquals(DateCodec.parseEpochDay("31/12/2025"), DateCodec.parseEpochDay("2025/12/31"));
+    }
+
+    @Test
+    public void rejectsInvalidDates() {
+        String[] invalid = {null, "", "Không", "null", "18/10", "18-10-2026", "018/10/2026",
+                "aa/bb/cccc", "18/1a/2026", "00/10/2026", "32/10/2026", "18/00/2026", "18/13/2026",
+                "29/02/2025", "29/02/2100", "31/04/2026", "2026/02/30", " 8/10/2026"};
+        for (String date : invalid) {
+            assertNull(date, DateCodec.parseEpochDay(date));
+            assertNull(date, DateCodec.parseStartOfDayMillis(date));
+        }
+    }
+
+    @Test
+    public void formatAndPackMatchLocalDate() {
+        for (long day = LocalDate.of(1899, 12, 25).toEpochDay(); day <= LocalDate.of(2101, 1, 5).toEpochDay(); day++) {
+            LocalDate date = LocalDate.ofEpochDay(day);
+            assertEquals(date.getYear() * 10000 + date.getMonthValue() * 100 + date.getDayOfMonth(), DateCodec.toPackedDate(day));
+            assertEquals(day, DateCodec.toEpochDay(date.getYear(), date.getMonthValue(), date.getDayOfMonth()));
+            assertEquals(date.lengthOfMonth(), DateCodec.lengthOfMonth(date.getYear(), date.getMonthValue()));
+            String text = DateCodec.formatDate(day);
+            assertEquals(Long.valueOf(day), DateCodec.parseEpochDay(text));
+        }
+        assertEquals("05/01/2026 07:09", DateCodec.formatDateTime(LocalDate.of(2026, 1, 5).toEpochDay(), 7 * 60 + 9));
+    }
+
+    @Test
+    public void parsesTimes() {
+        assertEquals(9 * 60 + 5, DateCodec.parseMinuteOfDay("09:05"));
+        assertEquals(9 * 60 + 5, DateCodec.parseMinuteOfDay("9:05"));
+        assertEquals(23 * 60 + 59, DateCodec.parseMinuteOfDay("23:59"));
+        String[] invalid = {null, "", "24:00", "12:60", "1205", "12:5", "123:00", "ab:cd", "Không"};
+        for (String time : invalid) {
+            assertEquals(time, -1, DateCodec.parseMinuteOfDay(time));
+        }
+        assertEquals("07:09", DateCodec.formatMinuteOfDay(7 * 60 + 9));
+        assertNull(DateCodec.parseDateTimeMillis("18/10/2026", "25:00"));
+        assertEquals(Long.valueOf(millis(2026, 10, 18, 9, 30, 0)), DateCodec.parseDateTimeMillis("18/10/2026", "09:30"));
+    }
+
+    @Test
+    public void todayIsCachedUntilMidnight() {
+        now.set(millis(2026, 10, 18, 0, 0, 0));
+        String today = DateCodec.todayString();
+        assertEquals("18/10/2026", today);
+
+        now.set(millis(2026, 10, 18, 23, 59, 59));
+        assertSame(today, DateCodec.todayString());
+        assertEquals(LocalDate.of(2026, 10, 18).toEpochDay(), DateCodec.todayEpochDay());
+
+        now.set(millis(2026, 10, 19, 0, 0, 0));
+        assertEquals("19/10/2026", DateCodec.todayString());
+        assertEquals(LocalDate.of(2026, 10, 19).toEpochDay(), DateCodec.todayEpochDay());
+
+        // A clock moved back (manual change, time zone travel) is not served from the cache either
+        now.set(millis(2026, 10, 17, 12, 0, 0));
+        assertEquals("17/10/2026", DateCodec.todayString());
+    }
+
+    @Test
+    public void nowIsCachedUntilTheMinuteChanges() {
+        now.set(millis(2026, 12, 31, 23, 59, 0));
+        String minute = DateCodec.nowDateTimeString();
+        assertEquals("31/12/2026 23:59", minute);
+
+        now.set(millis(2026, 12, 31, 23, 59, 59));
+        assertSame(minute, DateCodec.nowDateTimeString());
+        assertEquals(23 * 60 + 59, DateCodec.currentMinuteOfDay());
+
+        now.set(millis(2027, 1, 1, 0, 0, 0));
+        String next = DateCodec.nowDateTimeString();
+        assertNotSame(minute, next);
+        assertEquals("01/01/2027 00:00", next);
+        assertEquals(0, DateCodec.currentMinuteOfDay());
+        assertEquals("01/01/2027", DateCodec.todayString());
+    }
+
+    @Test
+    public void formatsMillisThroughTheDayCache() {
+        now.set(millis(2026, 10, 18, 8, 0, 0));
+        assertSame(DateCodec.todayString(), DateCodec.formatDateMillis(millis(2026, 10, 18, 23, 0, 0)));
+        assertEquals("17/10/2026", DateCodec.formatDateMillis(millis(2026, 10, 17, 23, 59, 59)));
+        assertEquals("19/10/2026", DateCodec.formatDateMillis(millis(2026, 10, 19, 0, 0, 0)));
+    }
+
+    private static long millis(int year, int month, int day, int hour, int minute, int second) {
+        return LocalDateTime.of(year, month, day, hour, minute, second)
+                .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
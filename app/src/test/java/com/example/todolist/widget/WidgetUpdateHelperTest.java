@@ -0,0 +1,87 @@
+package com.example.todolist.widget;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Edits are coalesced on the main looper: one flush per burst, never later than MAX_DELAY_MILLIS after the first edit
+ */
+@RunWith(RobolectricTestRunner.class)
+public class WidgetUpdateHelperTest {
+
+    private Context context;
+    private int flushesBefore;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        // Drain anything a previous test left scheduled
+        ShadowLooper.idleMainLooper(WidgetUpdateHelper.MAX_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        flushesBefore = WidgetUpdateHelper.getFlushCount();
+    }
+
+    @Test
+    public void fiftyEditsAtOnceFlushOnce() {
+        for (int i = 0; i < 50; i++) {
+            WidgetUpdateHelper.notifyTasksChanged(context, Collections.singleton("task-" + i));
+        }
+
+        idleFor(WidgetUpdateHelper.DEBOUNCE_MILLIS - 1);
+        assertEquals(0, flushes());
+        idleFor(1);
+        assertEquals(1, flushes());
+        idleFor(WidgetUpdateHelper.MAX_DELAY_MILLIS);
+        assertEquals(1, flushes());
+    }
+
+    @Test
+    public void spacedEditsFlushOnceAfterTheLast() {
+        for (int i = 0; i < 50; i++) {
+            WidgetUpdateHelper.notifyTasksChanged(context, Collections.singleton("task-" + i));
+            idleFor(30);
+        }
+        // 1.5 s of edits is under the cap, the burst is still open
+        assertEquals(0, flushes());
+
+        idleFor(WidgetUpdateHelper.DEBOUNCE_MILLIS);
+        assertEquals(1, flushes());
+    }
+
+    @Test
+    public void continuousEditsAreCappedAtMaxDelay() {
+        long elapsed = 0;
+        while (flushes() == 0 && elapsed < 5000) {
+            WidgetUpdateHelper.notifyTasksChanged(context, null);
+            idleFor(100);
+            elapsed += 100;
+        }
+
+        assertEquals(1, flushes());
+        assertEquals(WidgetUpdateHelper.MAX_DELAY_MILLIS, elapsed);
+
+        // The next edit opens a new burst
+        WidgetUpdateHelper.notifyTasksChanged(context, null);
+        idleFor(WidgetUpdateHelper.DEBOUNCE_MILLIS);
+        assertEquals(2, flushes());
+    }
+
+    private int flushes() {
+        return WidgetUpdateHelper.getFlushCount() - flushesBefore;
+    }
+
+    private static void idleFor(long millis) {
+        ShadowLooper.idleMainLooper(millis, TimeUnit.MILLISECONDS);
+    }
+}